@@ -0,0 +1,284 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.graph;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+import de.zbit.gui.ImageTools;
+
+/**
+ * Caches processed (i.e., brightened and/or greyscaled) background
+ * images, e.g., the original KEGG pathway pictures. Each image is
+ * kept in memory (as long as memory permits) together with a few
+ * precomputed lower-resolution levels (see {@link MipMapBackgroundRenderer})
+ * and, if a cache directory is given, as PNG file on disk. Thus, an
+ * image is downloaded and processed only once, no matter how many
+ * tabs or batch images use it.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class BackgroundImageCache {
+
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final transient Logger log = Logger.getLogger(BackgroundImageCache.class.getName());
+
+  /**
+   * Maximum number of lower-resolution levels per image (each level
+   * halves the size of the previous one).
+   */
+  private static final int MAX_LEVELS = 3;
+
+  /**
+   * No lower-resolution levels smaller than this (in pixels) are created.
+   */
+  private static final int MIN_LEVEL_SIZE = 64;
+
+  /**
+   * Number of locks for processing images (see {@link #getLock(String)}).
+   */
+  private static final int LOCK_STRIPES = 16;
+
+  /**
+   * Directory for processed images or {@code null} to cache in memory
+   * only.
+   */
+  private final File cacheDir;
+
+  /**
+   * Processed images and their lower-resolution levels, per key.
+   */
+  private final Map<String, SoftReference<BufferedImage[]>> images = new HashMap<String, SoftReference<BufferedImage[]>>();
+
+  /**
+   * Striped locks by hash of the key, such that the same image is never
+   * processed concurrently, while (most) different images can be.
+   */
+  private final Object[] locks = new Object[LOCK_STRIPES];
+
+  /**
+   * @param cacheDir directory for processed images or {@code null}
+   * to cache in memory only.
+   */
+  public BackgroundImageCache(File cacheDir) {
+    super();
+    this.cacheDir = cacheDir;
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new Object();
+    }
+  }
+
+  /**
+   * Returns the processed image from the given URL and lower-resolution
+   * levels of it. The image is loaded and processed only, if it is
+   * neither in memory nor on disk.
+   *
+   * @param id an identifier of the image (e.g., the pathway id).
+   * @param url where to load the original image from.
+   * @param brighten percentage to brighten the image.
+   * @param greyscale convert the image to greyscale.
+   * @return the processed image at index 0, followed by images with
+   * half the size of the previous one, or {@code null} if the image
+   * could not be loaded.
+   */
+  public BufferedImage[] get(String id, URL url, int brighten, boolean greyscale) {
+    String key = createKey(id, brighten, greyscale);
+    synchronized (getLock(key)) {
+      BufferedImage[] levels = getFromMemory(key);
+      if (levels != null) {
+        return levels;
+      }
+
+      BufferedImage image = readFromDisk(key);
+      if (image == null) {
+        image = loadAndProcess(url, brighten, greyscale);
+        if (image == null) {
+          return null;
+        }
+        writeToDisk(key, image);
+      }
+
+      levels = createLevels(image);
+      synchronized (images) {
+        images.put(key, new SoftReference<BufferedImage[]>(levels));
+      }
+      return levels;
+    }
+  }
+
+  /**
+   * @param id
+   * @param brighten
+   * @param greyscale
+   * @return a key that is also a valid file name.
+   */
+  private static String createKey(String id, int brighten, boolean greyscale) {
+    return id.replaceAll("[^A-Za-z0-9\\-]", "_") + "_b" + brighten + (greyscale ? "_g" : "");
+  }
+
+  /**
+   * @param key
+   * @return the lock for the given key.
+   */
+  private Object getLock(String key) {
+    return locks[(key.hashCode() & 0x7fffffff) % locks.length];
+  }
+
+  /**
+   * @param key
+   * @return the cached levels or {@code null}.
+   */
+  private BufferedImage[] getFromMemory(String key) {
+    synchronized (images) {
+      SoftReference<BufferedImage[]> ref = images.get(key);
+      BufferedImage[] levels = (ref == null) ? null : ref.get();
+      if ((ref != null) && (levels == null)) {
+        // Collected, do not keep the key
+        images.remove(key);
+      }
+      return levels;
+    }
+  }
+
+  /**
+   * @param key
+   * @return the file for the given key or {@code null} if no cache
+   * directory is set.
+   */
+  private File getFile(String key) {
+    return (cacheDir == null) ? null : new File(cacheDir, key + ".png");
+  }
+
+  /**
+   * @param key
+   * @return the image from the disk cache or {@code null}.
+   */
+  private BufferedImage readFromDisk(String key) {
+    File file = getFile(key);
+    if ((file == null) || !file.canRead()) {
+      return null;
+    }
+    try {
+      return ImageIO.read(file);
+    } catch (IOException exc) {
+      log.log(Level.FINE, "Could not read cached image " + file, exc);
+      return null;
+    }
+  }
+
+  /**
+   * @param key
+   * @param image
+   */
+  private void writeToDisk(String key, BufferedImage image) {
+    File file = getFile(key);
+    if (file == null) {
+      return;
+    }
+    try {
+      if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+        log.fine("Could not create image cache directory " + cacheDir);
+        return;
+      }
+      // Write to a temporary file first, such that concurrent
+      // processes never read a partially written image.
+      File temp = new File(cacheDir, key + ".tmp");
+      if (ImageIO.write(image, "png", temp) && !temp.renameTo(file)) {
+        temp.delete();
+      }
+    } catch (IOException exc) {
+      log.log(Level.FINE, "Could not cache image " + file, exc);
+    }
+  }
+
+  /**
+   * Loads the image and processes it exactly like
+   * {@link de.zbit.graph.RestrictedEditMode#addDynamicBackgroundImage(URL, y.view.Graph2DView, int, boolean)}.
+   * @param url
+   * @param brighten
+   * @param greyscale
+   * @return the processed image or {@code null}.
+   */
+  private static BufferedImage loadAndProcess(URL url, int brighten, boolean greyscale) {
+    try {
+      BufferedImage image = ImageTools.image2BufferedImage(new ImageIcon(url).getImage());
+      if (greyscale) {
+        image = ImageTools.grayScaleImage(image);
+      }
+      ImageTools.replaceColor(image, Color.BLACK, Color.GRAY);
+      if (brighten > 0) {
+        ImageTools.brightenImageCustom(image, brighten);
+      }
+      return image;
+    } catch (Exception exc) {
+      log.log(Level.WARNING, "Could not setup KEGG background image.", exc);
+      return null;
+    }
+  }
+
+  /**
+   * @param image
+   * @return the given image, followed by images with half the size of
+   * the previous one.
+   */
+  private static BufferedImage[] createLevels(BufferedImage image) {
+    int count = 1;
+    int w = image.getWidth();
+    int h = image.getHeight();
+    while ((count <= MAX_LEVELS) && (w / 2 >= MIN_LEVEL_SIZE) && (h / 2 >= MIN_LEVEL_SIZE)) {
+      w /= 2;
+      h /= 2;
+      count++;
+    }
+
+    BufferedImage[] levels = new BufferedImage[count];
+    levels[0] = image;
+    for (int i = 1; i < count; i++) {
+      BufferedImage previous = levels[i - 1];
+      BufferedImage level = new BufferedImage(previous.getWidth() / 2, previous.getHeight() / 2, BufferedImage.TYPE_INT_ARGB);
+      Graphics2D g = level.createGraphics();
+      g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g.drawImage(previous, 0, 0, level.getWidth(), level.getHeight(), null);
+      g.dispose();
+      levels[i] = level;
+    }
+    return levels;
+  }
+
+}
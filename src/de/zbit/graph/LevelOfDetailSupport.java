@@ -0,0 +1,197 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.graph;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+
+import y.view.DefaultGraph2DRenderer;
+import y.view.EdgeRealizer;
+import y.view.Graph2D;
+import y.view.Graph2DRenderer;
+import y.view.Graph2DView;
+import y.view.YRenderingHints;
+
+/**
+ * Level-of-detail rendering for large graphs in a {@link Graph2DView}.
+ * Depending on the current zoom level of the view, the graph is painted
+ * in three stages:
+ * <ul>
+ * <li>Above the label threshold, everything is painted.</li>
+ * <li>Below the label threshold, node and edge labels as well as
+ * arrow heads are omitted.</li>
+ * <li>Below the sloppy threshold, yFiles paints all nodes and edges
+ * in sloppy mode (i.e., simple filled shapes and lines, see
+ * {@link Graph2DView#setPaintDetailThreshold(double)}).</li>
+ * </ul>
+ * Background images are reduced independently of these thresholds by
+ * the {@link MipMapBackgroundRenderer}.
+ *
+ * <p><i>Note:<br/>
+ * Due to yFiles license requirements, we have to obfuscate this class
+ * in the JAR release of this application. Thus, this class
+ * can not be found by using the class name.<br/> If you can provide us
+ * with a proof of possessing a yFiles license yourself, we can send you
+ * an unobfuscated release of KEGGtranslator.</i></p>
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class LevelOfDetailSupport {
+
+  /**
+   * The view to control.
+   */
+  private final Graph2DView view;
+
+  /**
+   * Zoom level below which no labels and arrows are painted.
+   */
+  private final double labelThreshold;
+
+  /**
+   * Zoom level below which the graph is painted in sloppy mode.
+   */
+  private final double sloppyThreshold;
+
+  /**
+   * Use {@link #install(Graph2DView, double, double)}.
+   * @param view
+   * @param labelThreshold
+   * @param sloppyThreshold
+   */
+  private LevelOfDetailSupport(Graph2DView view, double labelThreshold, double sloppyThreshold) {
+    super();
+    this.view = view;
+    this.labelThreshold = labelThreshold;
+    this.sloppyThreshold = sloppyThreshold;
+  }
+
+  /**
+   * Enables level-of-detail rendering for the given view. Should be
+   * called after the graph of the view has been set up.
+   * @param view
+   * @param labelThreshold zoom level (1 = 100%) below which labels
+   * and arrow heads are not painted.
+   * Use 0 to always paint them.
+   * @param sloppyThreshold zoom level (1 = 100%) below which the graph
+   * is painted in sloppy mode. Use 0 to always paint all details.
+   * @return the installed support.
+   */
+  public static LevelOfDetailSupport install(Graph2DView view, double labelThreshold, double sloppyThreshold) {
+    LevelOfDetailSupport lod = new LevelOfDetailSupport(view, labelThreshold, sloppyThreshold);
+    view.setPaintDetailThreshold(sloppyThreshold);
+
+    Graph2DRenderer renderer = view.getGraph2DRenderer();
+    if ((renderer instanceof DefaultGraph2DRenderer) && !(renderer instanceof Renderer)) {
+      Renderer lodRenderer = lod.new Renderer();
+      lodRenderer.setDrawEdgesFirst(((DefaultGraph2DRenderer) renderer).isDrawEdgesFirst());
+      view.setGraph2DRenderer(lodRenderer);
+    }
+
+    return lod;
+  }
+
+  /**
+   * @return the view controlled by this support.
+   */
+  public Graph2DView getView() {
+    return view;
+  }
+
+  /**
+   * @return zoom level below which no labels and arrows are painted.
+   */
+  public double getLabelThreshold() {
+    return labelThreshold;
+  }
+
+  /**
+   * @return zoom level below which the graph is painted in sloppy mode.
+   */
+  public double getSloppyThreshold() {
+    return sloppyThreshold;
+  }
+
+  /**
+   * @return {@code true} if labels and arrows should be omitted at
+   * the current zoom level.
+   */
+  private boolean isReducedDetail() {
+    return view.getZoom() < labelThreshold;
+  }
+
+  /**
+   * Omits labels and arrow heads below the label threshold.
+   */
+  private class Renderer extends DefaultGraph2DRenderer {
+
+    /* (non-Javadoc)
+     * @see y.view.DefaultGraph2DRenderer#paint(java.awt.Graphics2D, y.view.Graph2D)
+     */
+    @Override
+    public void paint(Graphics2D gfx, Graph2D graph) {
+      if (isReducedDetail()) {
+        Object nodeLabels = gfx.getRenderingHint(YRenderingHints.KEY_NODE_LABEL_PAINTING);
+        Object edgeLabels = gfx.getRenderingHint(YRenderingHints.KEY_EDGE_LABEL_PAINTING);
+        gfx.setRenderingHint(YRenderingHints.KEY_NODE_LABEL_PAINTING, YRenderingHints.VALUE_NODE_LABEL_PAINTING_OFF);
+        gfx.setRenderingHint(YRenderingHints.KEY_EDGE_LABEL_PAINTING, YRenderingHints.VALUE_EDGE_LABEL_PAINTING_OFF);
+        try {
+          super.paint(gfx, graph);
+        } finally {
+          restoreHint(gfx, YRenderingHints.KEY_NODE_LABEL_PAINTING, nodeLabels);
+          restoreHint(gfx, YRenderingHints.KEY_EDGE_LABEL_PAINTING, edgeLabels);
+        }
+      } else {
+        super.paint(gfx, graph);
+      }
+    }
+
+    /* (non-Javadoc)
+     * @see y.view.DefaultGraph2DRenderer#paint(java.awt.Graphics2D, y.view.EdgeRealizer)
+     */
+    @Override
+    protected void paint(Graphics2D gfx, EdgeRealizer er) {
+      if (isReducedDetail()) {
+        // Sloppy edges are painted without arrows and labels
+        er.paintSloppy(gfx);
+      } else {
+        super.paint(gfx, er);
+      }
+    }
+
+    /**
+     * @param gfx
+     * @param key
+     * @param value previous value or {@code null}.
+     */
+    private void restoreHint(Graphics2D gfx, RenderingHints.Key key, Object value) {
+      if (value != null) {
+        gfx.setRenderingHint(key, value);
+      } else {
+        RenderingHints hints = (RenderingHints) gfx.getRenderingHints().clone();
+        hints.remove(key);
+        gfx.setRenderingHints(hints);
+      }
+    }
+  }
+
+}
@@ -23,10 +23,10 @@ package de.zbit.graph;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Polygon;
-import java.awt.Rectangle;
+import java.awt.Stroke;
+import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.Arrays;
 
 import y.view.LineType;
 import y.view.NodeRealizer;
@@ -38,6 +38,10 @@ import y.view.ShapeNodeRealizer;
  * or moved! The only control is by adding points with
  * {@link #addSplineCoords(int, int)} as absolute
  * coordinates!
+ * <p>Since yFiles queries the geometry of nodes permanently while
+ * painting, hit-testing and layouting, the bounds of all points
+ * and the {@link Path2D} to paint are cached and only updated
+ * when points are added.
  * @author Clemens Wrzodek
  * @version $Rev: 402 $
  */
@@ -49,10 +53,40 @@ public class LineNodeRealizer extends ShapeNodeRealizer {
   private final static LineType defaultStroke = LineType.LINE_3;
   
   /**
-   * Allows to say that line i=Integer and i+1
-   * should not get connected. Must be sorted incrementally!
+   * Stroke for {@link #paintSloppy(Graphics2D)}. Thin lines are
+   * much cheaper to render than wide ones.
    */
-  Collection<Integer> doNotConnectIndex = null;
+  private final static LineType sloppyStroke = LineType.LINE_1;
+  
+  /**
+   * Allows to say that line i and i+1 should not get connected.
+   * Only the first {@link #numDoNotConnect} values are valid and
+   * they are sorted incrementally.
+   */
+  private int[] doNotConnectIndex = null;
+  
+  /**
+   * Number of valid values in {@link #doNotConnectIndex}.
+   */
+  private int numDoNotConnect = 0;
+  
+  /**
+   * Cached bounds of all points. Only valid if the polygon
+   * is not empty.
+   */
+  private int minX, minY, maxX, maxY;
+  
+  /**
+   * Cached path of all lines. {@code null} if it has to be
+   * rebuilt.
+   */
+  private Path2D.Float path = null;
+  
+  /**
+   * Returned by {@link #getBoundingBox()}, which is called for every
+   * node on every repaint.
+   */
+  private final Rectangle2D.Double boundingBox = new Rectangle2D.Double();
   
   public LineNodeRealizer() {
     super();
@@ -70,7 +104,7 @@ public class LineNodeRealizer extends ShapeNodeRealizer {
     if (nr instanceof LineNodeRealizer) {
       LineNodeRealizer fnr = (LineNodeRealizer) nr;
       // Copy the values of custom attributes.
-      setCoordLists((Polygon)fnr.shape);
+      setCoordLists(fnr);
     }
   }
   
@@ -84,14 +118,22 @@ public class LineNodeRealizer extends ShapeNodeRealizer {
   
   /**
    * 
-   * @param other already cloned other list.
+   * @param other realizer to copy all points and line breaks from.
    */
-  private void setCoordLists(Polygon other) {
-    shape = new Polygon(); // clear
-    for (int i = 0; i < other.npoints; i++) {
-      ((Polygon)shape).addPoint(other.xpoints[i], other.ypoints[i]);
+  private void setCoordLists(LineNodeRealizer other) {
+    Polygon p = (Polygon) other.shape;
+    shape = new Polygon(p.xpoints, p.ypoints, p.npoints); // copies the arrays
+    if (other.doNotConnectIndex != null) {
+      doNotConnectIndex = Arrays.copyOf(other.doNotConnectIndex, other.numDoNotConnect);
+    } else {
+      doNotConnectIndex = null;
     }
-    
+    numDoNotConnect = other.numDoNotConnect;
+    minX = other.minX;
+    minY = other.minY;
+    maxX = other.maxX;
+    maxY = other.maxY;
+    path = null;
   }
   
   /**
@@ -101,7 +143,18 @@ public class LineNodeRealizer extends ShapeNodeRealizer {
    * @param y
    */
   public void addSplineCoords(int x, int y) {
-    ((Polygon)shape).addPoint(x, y);
+    Polygon p = (Polygon) shape;
+    if (p.npoints == 0) {
+      minX = maxX = x;
+      minY = maxY = y;
+    } else {
+      minX = Math.min(minX, x);
+      minY = Math.min(minY, y);
+      maxX = Math.max(maxX, x);
+      maxY = Math.max(maxY, y);
+    }
+    p.addPoint(x, y);
+    path = null;
   }
   
   /* (non-Javadoc)
@@ -117,7 +170,15 @@ public class LineNodeRealizer extends ShapeNodeRealizer {
    */
   @Override
   public void paintSloppy(Graphics2D arg0) {
-    paintNode(arg0);
+    // Zoomed out: a thin line is sufficient
+    Color c = getFillColor();
+    if (c!=null) {
+      arg0.setColor(c);
+    }
+    Stroke oldStroke = arg0.getStroke();
+    arg0.setStroke(sloppyStroke);
+    arg0.draw(getPath());
+    arg0.setStroke(oldStroke);
   }
   
   /* (non-Javadoc)
@@ -140,12 +201,20 @@ public class LineNodeRealizer extends ShapeNodeRealizer {
     return getCenterY();
   }
   
+  /**
+   * @return {@code true} if no points have been added yet. The
+   * cached bounds are invalid in this case.
+   */
+  private boolean isEmpty() {
+    return ((Polygon) shape).npoints == 0;
+  }
+  
   /* (non-Javadoc)
    * @see y.view.NodeRealizer#getCenterX()
    */
   @Override
   public double getCenterX() {
-    return shape.getBounds().getCenterX();
+    return isEmpty() ? 0d : (minX + maxX) / 2d;
   }
   
   /* (non-Javadoc)
@@ -153,7 +222,7 @@ public class LineNodeRealizer extends ShapeNodeRealizer {
    */
   @Override
   public double getCenterY() {
-    return shape.getBounds().getCenterY();
+    return isEmpty() ? 0d : (minY + maxY) / 2d;
   }
   
   /* (non-Javadoc)
@@ -161,7 +230,7 @@ public class LineNodeRealizer extends ShapeNodeRealizer {
    */
   @Override
   public double getWidth() {
-    return shape.getBounds().getWidth();
+    return isEmpty() ? 0d : maxX - minX;
   }
   
   /* (non-Javadoc)
@@ -169,7 +238,7 @@ public class LineNodeRealizer extends ShapeNodeRealizer {
    */
   @Override
   public double getHeight() {
-    return shape.getBounds().getHeight();
+    return isEmpty() ? 0d : maxY - minY;
   }
   
   /**
@@ -177,6 +246,7 @@ public class LineNodeRealizer extends ShapeNodeRealizer {
    */
   @Override
   public void paintNode(Graphics2D gfx) {
+    Stroke oldStroke = gfx.getStroke();
     gfx.setStroke(getLineType());
     Color c = getFillColor();
     if (c!=null) {
@@ -184,26 +254,51 @@ public class LineNodeRealizer extends ShapeNodeRealizer {
       // since it is a line, don't fill it.
       //      gfx.fillPolygon(((Polygon)shape));
     }
-    Polygon p = (Polygon)shape;
-    for (int i = 1; i < p.npoints; i++) {
-      try {
-        if (doNotConnectIndex==null || !doNotConnectIndex.contains(i)) {
-          gfx.drawLine(p.xpoints[i-1], p.ypoints[i-1], p.xpoints[i], p.ypoints[i]);
+    // do NOT connect line. That's why we don't paint the polygon directly!
+    gfx.draw(getPath());
+    gfx.setStroke(oldStroke);
+  }
+  
+  /**
+   * @return the (cached) path of all lines of this realizer. Points
+   * at a {@link #doNotConnectIndex} start a new sub-path.
+   */
+  private Path2D.Float getPath() {
+    if (path == null) {
+      Polygon p = (Polygon) shape;
+      Path2D.Float newPath = new Path2D.Float(Path2D.WIND_NON_ZERO, Math.max(p.npoints, 1));
+      int nextBreak = 0;
+      for (int i = 0; i < p.npoints; i++) {
+        boolean newLine = (i == 0);
+        while (nextBreak < numDoNotConnect && doNotConnectIndex[nextBreak] <= i) {
+          newLine |= doNotConnectIndex[nextBreak] == i;
+          nextBreak++;
+        }
+        if (newLine) {
+          newPath.moveTo(p.xpoints[i], p.ypoints[i]);
+        } else {
+          newPath.lineTo(p.xpoints[i], p.ypoints[i]);
         }
-      } catch (Throwable e) {}
+      }
+      path = newPath;
     }
-    // do NOT connect line. That's why we don't paint the polygon directly!
-    //gfx.drawLine(p.xpoints[p.npoints-1], p.ypoints[p.npoints-1], p.xpoints[0], p.ypoints[0]);
+    return path;
   }
   
   
-  /* (non-Javadoc)
+  /**
+   * Returns the bounds of all points. The same (reset) instance is
+   * returned by every call, thus do not keep a reference to it.
    * @see y.view.NodeRealizer#getBoundingBox()
    */
   @Override
   public Rectangle2D.Double getBoundingBox() {
-    Rectangle b = shape.getBounds();
-    return new Rectangle2D.Double(b.getX(), b.getY(), b.getWidth(), b.getHeight());
+    if (isEmpty()) {
+      boundingBox.setRect(0, 0, 0, 0);
+    } else {
+      boundingBox.setRect(minX, minY, maxX - minX, maxY - minY);
+    }
+    return boundingBox;
   }
   
   
@@ -221,12 +316,19 @@ public class LineNodeRealizer extends ShapeNodeRealizer {
    * added ones.
    */
   public void startNewLine() {
-    Integer np = ((Polygon)shape).npoints;
-    if ((np != null) && (np > 0)) {
+    int np = ((Polygon)shape).npoints;
+    if (np > 0) {
+      if (numDoNotConnect > 0 && doNotConnectIndex[numDoNotConnect - 1] == np) {
+        return; // already started
+      }
       if (doNotConnectIndex == null) {
-        doNotConnectIndex = new HashSet<Integer>();
+        doNotConnectIndex = new int[4];
+      } else if (numDoNotConnect == doNotConnectIndex.length) {
+        doNotConnectIndex = Arrays.copyOf(doNotConnectIndex, numDoNotConnect * 2);
       }
-      doNotConnectIndex.add(np);
+      // Points are only appended, hence the indices stay sorted
+      doNotConnectIndex[numDoNotConnect++] = np;
+      path = null;
     }
   }
   
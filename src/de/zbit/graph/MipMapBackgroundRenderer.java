@@ -0,0 +1,99 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.graph;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import y.view.DefaultBackgroundRenderer;
+import y.view.Graph2DView;
+
+/**
+ * A {@link DefaultBackgroundRenderer} in {@link DefaultBackgroundRenderer#DYNAMIC}
+ * mode that paints the image from the smallest precomputed
+ * lower-resolution level that still provides at least one pixel per
+ * screen pixel at the current zoom level. Thus, zoomed-out views of
+ * large pathway pictures do not scale down the full image on every
+ * repaint.
+ *
+ * <p><i>Note:<br/>
+ * Due to yFiles license requirements, we have to obfuscate this class
+ * in the JAR release of this application. Thus, this class
+ * can not be found by using the class name.<br/> If you can provide us
+ * with a proof of possessing a yFiles license yourself, we can send you
+ * an unobfuscated release of KEGGtranslator.</i></p>
+ *
+ * @version $Rev$
+ * @since 2.6
+ * @see BackgroundImageCache
+ */
+public class MipMapBackgroundRenderer extends DefaultBackgroundRenderer {
+
+  /**
+   * The view to render the background of.
+   */
+  private final Graph2DView view;
+
+  /**
+   * The full image at index 0, followed by images with half the size
+   * of the previous one.
+   */
+  private final BufferedImage[] levels;
+
+  /**
+   * @param view
+   * @param levels the full image at index 0, followed by images with
+   * half the size of the previous one.
+   */
+  public MipMapBackgroundRenderer(Graph2DView view, BufferedImage[] levels) {
+    super(view);
+    this.view = view;
+    this.levels = levels;
+    setImage(levels[0]);
+    setMode(DYNAMIC);
+    setColor(Color.WHITE);
+  }
+
+  /* (non-Javadoc)
+   * @see y.view.DefaultBackgroundRenderer#paint(java.awt.Graphics2D, int, int, int, int)
+   */
+  @Override
+  public void paint(Graphics2D gfx, int x, int y, int w, int h) {
+    int level = 0;
+    double zoom = view.getZoom();
+    while ((level + 1 < levels.length) && (zoom <= 1d / (2 << level))) {
+      level++;
+    }
+    if (level == 0) {
+      super.paint(gfx, x, y, w, h);
+      return;
+    }
+
+    if (getColor() != null) {
+      gfx.setColor(getColor());
+      gfx.fillRect(x, y, w, h);
+    }
+    // Stretch the reduced image to the world coordinates of the full image
+    gfx.drawImage(levels[level], 0, 0, levels[0].getWidth(), levels[0].getHeight(), null);
+  }
+
+}
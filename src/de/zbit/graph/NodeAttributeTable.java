@@ -0,0 +1,274 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.graph;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import y.base.DataProvider;
+import y.base.Node;
+import y.base.NodeMap;
+import y.util.DataProviderAdapter;
+import y.view.Graph2D;
+
+/**
+ * Node attributes (labels, identifiers, positions, etc.) of a
+ * {@link Graph2D}, stored in columns. Each column is backed by a
+ * {@link NodeMap} that is registered on the graph (see
+ * {@link Column#getNodeMap()}), such that the attributes can be found
+ * by {@link Graph2D#getRegisteredNodeMaps()} and thus by
+ * {@link GraphTools}, the GraphML writers, etc. In addition, the table
+ * <ul>
+ * <li>stores each distinct string only once per table (e.g., entity
+ * types, colors and the identifiers of nodes that occur multiple
+ * times). Positions and sizes are almost unique and thus not
+ * shared,</li>
+ * <li>formats positions, sizes and colors in the same way for all
+ * nodes, and</li>
+ * <li>copies all attributes of a node at once (see
+ * {@link #copyRow(Node, Node)}).</li>
+ * </ul>
+ *
+ * <p>The table is registered as {@link DataProvider} on the graph (see
+ * {@link #getTable(Graph2D)}).
+ *
+ * <p><i>Note:<br/>
+ * Due to yFiles license requirements, we have to obfuscate this class
+ * in the JAR release of this application. Thus, this class
+ * can not be found by using the class name.<br/> If you can provide us
+ * with a proof of possessing a yFiles license yourself, we can send you
+ * an unobfuscated release of KEGGtranslator.</i></p>
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class NodeAttributeTable extends DataProviderAdapter {
+
+  /**
+   * Key, under which the table is registered as {@link DataProvider}
+   * on the graph.
+   */
+  private static final String KEY = "-NODE_ATTRIBUTE_TABLE-";
+
+  /**
+   * The graph, whose node attributes are stored.
+   */
+  private final Graph2D graph;
+
+  /**
+   * All columns of this table.
+   */
+  private final List<Column> columns = new ArrayList<Column>();
+
+  /**
+   * All distinct strings of this table.
+   */
+  private final Map<String, String> dictionary = new HashMap<String, String>();
+
+  /**
+   * Use {@link #getTable(Graph2D)} to obtain a table.
+   * @param graph
+   */
+  private NodeAttributeTable(Graph2D graph) {
+    super();
+    this.graph = graph;
+  }
+
+  /**
+   * Returns the attribute table of the given graph. The table is
+   * created and registered on the graph, if it does not exist yet.
+   * @param graph
+   * @return the table (never {@code null}).
+   */
+  public static NodeAttributeTable getTable(Graph2D graph) {
+    DataProvider dp = graph.getDataProvider(KEY);
+    if (dp instanceof NodeAttributeTable) {
+      return (NodeAttributeTable) dp;
+    }
+    NodeAttributeTable table = new NodeAttributeTable(graph);
+    graph.addDataProvider(KEY, table);
+    return table;
+  }
+
+  /* (non-Javadoc)
+   * @see y.util.DataProviderAdapter#get(java.lang.Object)
+   */
+  @Override
+  public Object get(Object dataHolder) {
+    return this;
+  }
+
+  /**
+   * @return a new column for arbitrary strings.
+   */
+  public Column createStringColumn() {
+    return addColumn(new Column());
+  }
+
+  /**
+   * @return a new column for pairs of integers, that are represented
+   * as {@code "a|b"} strings (e.g., positions or sizes).
+   */
+  public IntPairColumn createIntPairColumn() {
+    return addColumn(new IntPairColumn());
+  }
+
+  /**
+   * @return a new column for colors, that are represented as
+   * {@code "#RRGGBB"} strings.
+   */
+  public ColorColumn createColorColumn() {
+    return addColumn(new ColorColumn());
+  }
+
+  /**
+   * @param column
+   * @return the given column, after adding it to this table.
+   */
+  private <T extends Column> T addColumn(T column) {
+    columns.add(column);
+    return column;
+  }
+
+  /**
+   * Copies all attributes of one node to another node.
+   * @param oldNode
+   * @param newNode
+   */
+  public void copyRow(Node oldNode, Node newNode) {
+    for (Column column : columns) {
+      Object value = column.get(oldNode);
+      if (value != null) {
+        column.map.set(newNode, value);
+      }
+    }
+  }
+
+  /**
+   * @param s
+   * @return the instance of the given string that is shared by all
+   * columns of this table.
+   */
+  private String pool(String s) {
+    String pooled = dictionary.get(s);
+    if (pooled == null) {
+      dictionary.put(s, s);
+      pooled = s;
+    }
+    return pooled;
+  }
+
+  /**
+   * A column of the table, backed by a registered {@link NodeMap}.
+   *
+   * @version $Rev$
+   * @since 2.6
+   */
+  public class Column {
+
+    /**
+     * The registered node map that holds the values of this column.
+     */
+    private final NodeMap map;
+
+    /**
+     * Creates a column with a new registered node map.
+     */
+    protected Column() {
+      super();
+      map = graph.createNodeMap();
+    }
+
+    /**
+     * @return the registered node map that holds the values of this
+     * column (e.g., to describe it in the map description map of the
+     * graph).
+     */
+    public NodeMap getNodeMap() {
+      return map;
+    }
+
+    /**
+     * @param node
+     * @return the value of the given node or {@code null}.
+     */
+    public Object get(Object node) {
+      return map.get(node);
+    }
+
+    /**
+     * Sets the value of the given node. Strings are shared with other
+     * nodes and columns of the table.
+     * @param node
+     * @param value
+     */
+    public void set(Node node, Object value) {
+      map.set(node, (value instanceof String) ? pool((String) value) : value);
+    }
+
+  }
+
+  /**
+   * A column for pairs of integers (e.g., positions or sizes), that
+   * are represented as {@code "a|b"} strings. The strings are not
+   * shared with other nodes.
+   *
+   * @version $Rev$
+   * @since 2.6
+   */
+  public class IntPairColumn extends Column {
+
+    /**
+     * Sets the values of the given node.
+     * @param node
+     * @param a
+     * @param b
+     */
+    public void set(Node node, int a, int b) {
+      getNodeMap().set(node, a + "|" + b);
+    }
+
+  }
+
+  /**
+   * A column for colors, that are represented as {@code "#RRGGBB"}
+   * strings.
+   *
+   * @version $Rev$
+   * @since 2.6
+   */
+  public class ColorColumn extends Column {
+
+    /**
+     * Sets the color of the given node.
+     * @param node
+     * @param color may be {@code null}.
+     */
+    public void set(Node node, Color color) {
+      set(node, (color == null) ? null : String.format("#%06X", color.getRGB() & 0xFFFFFF));
+    }
+
+  }
+
+}
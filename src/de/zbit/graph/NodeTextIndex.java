@@ -0,0 +1,329 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import y.base.DataMap;
+import y.base.DataProvider;
+import y.base.GraphEvent;
+import y.base.GraphListener;
+import y.base.Node;
+import y.base.NodeCursor;
+import y.util.DataProviderAdapter;
+import y.view.Graph2D;
+import y.view.Graph2DEvent;
+import y.view.Graph2DListener;
+import y.view.NodeLabel;
+import de.zbit.graph.io.Graph2DExporter;
+import de.zbit.graph.io.def.GenericDataMap;
+
+/**
+ * A case-insensitive substring index over the label text and one
+ * additional node map (e.g., all names of a node) of all nodes in a
+ * {@link Graph2D}. The lower-cased texts are cached per node and all
+ * trigrams of these texts are mapped to the nodes that contain them.
+ * Thus, a search only has to verify the nodes of the rarest trigram of
+ * the query, instead of lower-casing and scanning all labels of the graph.
+ *
+ * <p>The index is registered as {@link DataProvider},
+ * {@link GraphListener} and {@link Graph2DListener} on the graph (see
+ * {@link #getIndex(Graph2D, String)}). It is rebuilt lazily on the next
+ * search after nodes have been added or removed, after the text of a
+ * {@link NodeLabel} has changed or after a node realizer has been
+ * replaced. The values of the additional node map are not observed, as
+ * they are written once during translation, before the graph is searched.
+ *
+ * <p><i>Note:<br/>
+ * Due to yFiles license requirements, we have to obfuscate this class
+ * in the JAR release of this application. Thus, this class
+ * can not be found by using the class name.<br/> If you can provide us
+ * with a proof of possessing a yFiles license yourself, we can send you
+ * an unobfuscated release of KEGGtranslator.</i></p>
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class NodeTextIndex extends DataProviderAdapter implements GraphListener, Graph2DListener {
+
+  /**
+   * Prefix for the key, under which an index is registered as
+   * {@link DataProvider} on the graph.
+   */
+  private static final String KEY_PREFIX = "-NODE_TEXT_INDEX-";
+
+  /**
+   * Length of the n-grams in the index.
+   */
+  private static final int N = 3;
+
+  /**
+   * The indexed graph.
+   */
+  private final Graph2D graph;
+
+  /**
+   * Descriptor of the additional node map to index (may be
+   * {@code null}).
+   */
+  private final String descriptor;
+
+  /**
+   * All indexed nodes, in graph order.
+   */
+  private Node[] nodes;
+
+  /**
+   * Lower-cased label and map texts, parallel to {@link #nodes}.
+   */
+  private String[] texts;
+
+  /**
+   * Maps each trigram to the positions (in {@link #nodes}) of all
+   * nodes whose text contains it.
+   */
+  private Map<String, int[]> trigrams;
+
+  /**
+   * {@code true} if the graph has changed since the last build.
+   */
+  private boolean dirty = true;
+
+  /**
+   * Use {@link #getIndex(Graph2D, String)} to obtain an index.
+   * @param graph
+   * @param descriptor
+   */
+  private NodeTextIndex(Graph2D graph, String descriptor) {
+    super();
+    this.graph = graph;
+    this.descriptor = descriptor;
+  }
+
+  /**
+   * Returns the index of the given graph for label texts and the
+   * contents of the node map with the given descriptor. The index is
+   * created and registered on the graph, if it does not exist yet.
+   * @param graph
+   * @param descriptor descriptor of an additional node map to index
+   * (e.g., {@link de.zbit.graph.io.def.GraphMLmaps#NODE_LABEL}), or
+   * {@code null} to index label texts only.
+   * @return the index (never {@code null}).
+   */
+  public static NodeTextIndex getIndex(Graph2D graph, String descriptor) {
+    String key = KEY_PREFIX + descriptor;
+    DataProvider dp = graph.getDataProvider(key);
+    if (dp instanceof NodeTextIndex) {
+      return (NodeTextIndex) dp;
+    }
+    NodeTextIndex index = new NodeTextIndex(graph, descriptor);
+    graph.addDataProvider(key, index);
+    graph.addGraphListener(index);
+    graph.addGraph2DListener(index);
+    return index;
+  }
+
+  /* (non-Javadoc)
+   * @see y.util.DataProviderAdapter#get(java.lang.Object)
+   */
+  @Override
+  public Object get(Object dataHolder) {
+    return this;
+  }
+
+  /* (non-Javadoc)
+   * @see y.base.GraphListener#onGraphEvent(y.base.GraphEvent)
+   */
+  @Override
+  public void onGraphEvent(GraphEvent e) {
+    switch (e.getType()) {
+      case GraphEvent.NODE_CREATION:
+      case GraphEvent.NODE_REINSERTION:
+      case GraphEvent.POST_NODE_REMOVAL:
+      case GraphEvent.SUBGRAPH_INSERTION:
+      case GraphEvent.SUBGRAPH_REMOVAL:
+        dirty = true;
+        break;
+      default:
+        break;
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see y.view.Graph2DListener#onGraph2DEvent(y.view.Graph2DEvent)
+   */
+  @Override
+  public void onGraph2DEvent(Graph2DEvent e) {
+    // Label texts change without a structural graph event
+    if (e.getSubject() instanceof NodeLabel) {
+      if ("text".equals(e.getPropertyName())) {
+        dirty = true;
+      }
+    } else if (e.getSubject() instanceof Node) {
+      dirty = true;
+    }
+  }
+
+  /**
+   * Builds the index, if the graph has changed since the last build.
+   */
+  private void validate() {
+    if (!dirty) {
+      return;
+    }
+    nodes = graph.getNodeArray();
+    texts = new String[nodes.length];
+    DataProvider infoMap = getInfoMap();
+    Map<String, List<Integer>> grams = new HashMap<String, List<Integer>>();
+    Set<String> seen = new HashSet<String>();
+    for (int i = 0; i < nodes.length; i++) {
+      String text = createText(graph.getLabelText(nodes[i]),
+        (infoMap == null) ? null : infoMap.get(nodes[i]));
+      texts[i] = text;
+
+      seen.clear();
+      for (int j = 0; j + N <= text.length(); j++) {
+        String gram = text.substring(j, j + N);
+        if (seen.add(gram)) {
+          List<Integer> list = grams.get(gram);
+          if (list == null) {
+            list = new ArrayList<Integer>(2);
+            grams.put(gram, list);
+          }
+          list.add(Integer.valueOf(i));
+        }
+      }
+    }
+
+    trigrams = new HashMap<String, int[]>(grams.size() * 4 / 3 + 1);
+    for (Map.Entry<String, List<Integer>> entry : grams.entrySet()) {
+      List<Integer> list = entry.getValue();
+      int[] positions = new int[list.size()];
+      for (int i = 0; i < positions.length; i++) {
+        positions[i] = list.get(i).intValue();
+      }
+      trigrams.put(entry.getKey(), positions);
+    }
+    dirty = false;
+  }
+
+  /**
+   * Looks up the node map for the {@link #descriptor} once per build,
+   * instead of scanning all registered node maps for every node.
+   * Searches on an unchanged graph do not call this method.
+   * @return the node map to index or {@code null}.
+   */
+  @SuppressWarnings("unchecked")
+  private DataProvider getInfoMap() {
+    if (descriptor == null) {
+      return null;
+    }
+    DataProvider dp = graph.getDataProvider(Graph2DExporter.mapDescription);
+    if (!(dp instanceof GenericDataMap)) {
+      return null;
+    }
+    return ((GenericDataMap<DataMap, String>) dp).createReverseMap().get(descriptor);
+  }
+
+  /**
+   * @param label the label text of a node (may be {@code null}).
+   * @param info the value of the indexed node map (may be {@code null}).
+   * @return the lower-cased text to index for a node.
+   */
+  private static String createText(String label, Object info) {
+    String infos = (info == null) ? null : info.toString();
+    StringBuilder text = new StringBuilder();
+    if (label != null) {
+      text.append(label.toLowerCase());
+    }
+    if (infos != null) {
+      // Separate both texts, such that no match spans across them
+      text.append('\n');
+      text.append(infos.toLowerCase());
+    }
+    return text.toString();
+  }
+
+  /**
+   * Searches all nodes whose label or indexed map text contains the
+   * given string (ignoring case).
+   * @param containedString
+   * @return all matching nodes in graph order.
+   */
+  public List<Node> search(String containedString) {
+    validate();
+    String query = containedString.toLowerCase();
+    List<Node> result = new ArrayList<Node>();
+
+    if (query.length() < N) {
+      // Too short for the index, but the cached texts are still cheap to scan
+      for (int i = 0; i < texts.length; i++) {
+        if (texts[i].contains(query)) {
+          result.add(nodes[i]);
+        }
+      }
+      return result;
+    }
+
+    // Only verify the candidates of the rarest trigram
+    int[] candidates = null;
+    for (int j = 0; j + N <= query.length(); j++) {
+      int[] positions = trigrams.get(query.substring(j, j + N));
+      if (positions == null) {
+        return result;
+      } else if (candidates == null || positions.length < candidates.length) {
+        candidates = positions;
+      }
+    }
+    for (int i : candidates) {
+      if (texts[i].contains(query)) {
+        result.add(nodes[i]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Filters the given nodes by the given string (ignoring case). Use
+   * this method to refine a previous result while the user continues
+   * typing.
+   * @param candidates nodes of a previous search
+   * @param containedString
+   * @return all nodes in {@code candidates} that match, in the order of
+   * {@code candidates}.
+   */
+  public List<Node> refine(NodeCursor candidates, String containedString) {
+    Set<Node> matches = new HashSet<Node>(search(containedString));
+    List<Node> result = new ArrayList<Node>(matches.size());
+    for (; candidates.ok(); candidates.next()) {
+      if (matches.contains(candidates.node())) {
+        result.add(candidates.node());
+      }
+    }
+    return result;
+  }
+
+}
@@ -30,7 +30,6 @@ import java.awt.geom.Rectangle2D;
 import java.awt.geom.RoundRectangle2D;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 
 import javax.swing.AbstractAction;
@@ -48,19 +47,18 @@ import y.view.Drawable;
 import y.view.Graph2D;
 import y.view.Graph2DView;
 import y.view.NodeRealizer;
+import de.zbit.graph.io.def.GraphMLmaps;
 
 /**
- * <b>TODO: WORK IN PROGRESS, does not work yet.</b><p>
- * 
- * <b>This is a stump and currently unused. A demo class taken
- * from yFiles examples to search nodes. Node highlighting is performed
- * by the {@link Marker}.</b><p>
- * Intended is, to provide a search method that helps locating certain
- * genes in a pathway.
- * 
- * <p>
  * Utility class that provides methods for searching for nodes that match
- * a given search criterion and for displaying search results.
+ * a given search criterion or text and for displaying search results.
+ * Based on a demo class from the yFiles examples. Text searches are
+ * answered by the {@link NodeTextIndex} of the graph, node highlighting
+ * is performed by the {@link Marker}.
+ * <p>
+ * Helps locating certain genes in a pathway. Register the actions of
+ * {@link #createActionMap()} and {@link #createDefaultInputMap()} on
+ * the component that shows the graph to navigate through the result.
  * 
  * <p><i>Note:<br/>
  * Due to yFiles license requirements, we have to obfuscate this class
@@ -162,53 +160,115 @@ public class SearchSupport {
     boolean resultChanged = false;
     if (query != null) {
       final Graph2D graph = view.getGraph2D();
-      final NodeCursor nc =
-          searchResult != null && incremental
-          ? searchResult.nodes()
-              : graph.nodes();
-          final HashSet oldResult =
-              searchResult == null
-              ? new HashSet()
-          : new HashSet(searchResult.asCollection());
-              final HashMap node2location = new HashMap();
-              searchResult = new SearchResult();
-              for (; nc.ok(); nc.next()) {
-                final Node node = nc.node();
-                if (query.accept(graph, node)) {
-                  searchResult.add(node);
-                  final NodeRealizer nr = graph.getRealizer(node);
-                  node2location.put(node, new Point2D.Double(nr.getX(), nr.getY()));
-                  if (!oldResult.contains(node)) {
-                    resultChanged = true;
-                  }
-                }
-              }
-              searchResult.sort(new Comparator() {
-                @Override
-                public int compare( final Object o1, final Object o2 ) {
-                  final Point2D p1 = (Point2D) node2location.get(o1);
-                  final Point2D p2 = (Point2D) node2location.get(o2);
-                  if (p1.getY() < p2.getY()) {
-                    return -1;
-                  } else if (p1.getY() > p2.getY()) {
-                    return 1;
-                  } else {
-                    if (p1.getX() < p2.getX()) {
-                      return -1;
-                    } else if (p1.getX() > p2.getX()) {
-                      return 1;
-                    } else {
-                      return 0;
-                    }
-                  }
-                }
-              });
-              resultChanged |= oldResult.size() != searchResult.asCollection().size();
+      if (searchResult != null && incremental) {
+        // Refining keeps the order of the previous result and can only
+        // remove nodes. Thus, neither a copy nor a re-sort is required.
+        final SearchResult oldResult = searchResult;
+        searchResult = new SearchResult();
+        for (NodeCursor nc = oldResult.nodes(); nc.ok(); nc.next()) {
+          final Node node = nc.node();
+          if (query.accept(graph, node)) {
+            searchResult.add(node);
+          }
+        }
+        resultChanged = oldResult.asCollection().size() != searchResult.asCollection().size();
+      } else {
+        final SearchResult oldResult = searchResult;
+        searchResult = new SearchResult();
+        for (NodeCursor nc = graph.nodes(); nc.ok(); nc.next()) {
+          final Node node = nc.node();
+          if (query.accept(graph, node)) {
+            searchResult.add(node);
+          }
+        }
+        resultChanged = hasChanged(oldResult, searchResult);
+        sortByLocation(graph, searchResult);
+      }
     } else if (searchResult != null) {
       searchResult = null;
       resultChanged = true;
     }
     
+    updateActions(resultChanged);
+  }
+  
+  /**
+   * Searches all nodes whose label text or names (see
+   * {@link de.zbit.graph.io.def.GraphMLmaps#NODE_LABEL}) contain the
+   * given string, ignoring case. The nodes are looked up in the
+   * {@link NodeTextIndex} of the graph, instead of testing all nodes.
+   * @param containedString   the text to search for. If {@code null}
+   * or empty, the current search result is reset to {@code null}.
+   * @param incremental   {@code true} if the current search result
+   * should be refined (e.g., because the user typed another character).
+   * @see #search(SearchCriterion, boolean)
+   */
+  public void search( final String containedString, final boolean incremental ) {
+    if (containedString == null || containedString.length() < 1) {
+      search((SearchCriterion) null, false);
+      return;
+    }
+    final Graph2D graph = view.getGraph2D();
+    final NodeTextIndex index = NodeTextIndex.getIndex(graph, GraphMLmaps.NODE_LABEL);
+    boolean resultChanged;
+    final SearchResult oldResult = searchResult;
+    searchResult = new SearchResult();
+    if (oldResult != null && incremental) {
+      for (Node node : index.refine(oldResult.nodes(), containedString)) {
+        searchResult.add(node);
+      }
+      resultChanged = oldResult.asCollection().size() != searchResult.asCollection().size();
+    } else {
+      for (Node node : index.search(containedString)) {
+        searchResult.add(node);
+      }
+      resultChanged = hasChanged(oldResult, searchResult);
+      sortByLocation(graph, searchResult);
+    }
+    
+    updateActions(resultChanged);
+  }
+  
+  /**
+   * @param oldResult   may be {@code null}.
+   * @param newResult
+   * @return {@code true} if both results do not contain the same nodes.
+   */
+  private static boolean hasChanged( final SearchResult oldResult, final SearchResult newResult ) {
+    if (oldResult == null) {
+      return !newResult.asCollection().isEmpty();
+    }
+    final Collection oldNodes = oldResult.asCollection();
+    final Collection newNodes = newResult.asCollection();
+    if (oldNodes.size() != newNodes.size()) {
+      return true;
+    }
+    return !new HashSet(oldNodes).containsAll(newNodes);
+  }
+  
+  /**
+   * Sorts the given result from top to bottom and left to right.
+   * @param graph
+   * @param result
+   */
+  private static void sortByLocation( final Graph2D graph, final SearchResult result ) {
+    result.sort(new Comparator() {
+      @Override
+      public int compare( final Object o1, final Object o2 ) {
+        final NodeRealizer nr1 = graph.getRealizer((Node) o1);
+        final NodeRealizer nr2 = graph.getRealizer((Node) o2);
+        final int c = Double.compare(nr1.getY(), nr2.getY());
+        return (c != 0) ? c : Double.compare(nr1.getX(), nr2.getX());
+      }
+    });
+  }
+  
+  /**
+   * Updates the enabled states of the support's clear, next, previous,
+   * and select all actions.
+   * @param resultChanged   {@code true} if the search result has changed.
+   */
+  private void updateActions( final boolean resultChanged ) {
     if (resultChanged) {
       final boolean state =
           searchResult != null &&
@@ -342,7 +402,7 @@ public class SearchSupport {
       @Override
       public void actionPerformed( final ActionEvent e ) {
         if (searchResult != null) {
-          search(null, false);
+          search((SearchCriterion) null, false);
           view.updateView();
         }
       }
@@ -20,6 +20,8 @@
  */
 package de.zbit.kegg;
 
+import java.io.File;
+
 import de.zbit.cache.InfoManagement;
 import de.zbit.kegg.api.cache.KeggInfoManagement;
 import de.zbit.util.prefs.KeyProvider;
@@ -34,6 +36,26 @@ import de.zbit.util.prefs.Range;
  */
 public interface KEGGtranslatorCommandLineOnlyOptions extends KeyProvider {
   
+  /**
+   * Image formats for {@link #CREATE_JPG}.
+   */
+  public static enum IMAGE_FILE_FORMAT {
+    JPG,
+    PNG,
+    /**
+     * Requires an ImageIO plugin for WebP.
+     */
+    WEBP;
+    
+    /**
+     * @return the file extension (without preceding dot), which is
+     * also the ImageIO format name.
+     */
+    public String getFileExtension() {
+      return name().toLowerCase();
+    }
+  }
+  
   /**
    * Size to take when initializing {@link KeggInfoManagement}.
    */
@@ -48,12 +70,78 @@ public interface KEGGtranslatorCommandLineOnlyOptions extends KeyProvider {
       "Clear the cache of failed KEGG API queries (cases the application to retry those IDs).",Boolean.FALSE,
       Boolean.FALSE);
   
+  /**
+   * Number of days, for which KEGG identifiers that have not been found
+   * are not requested again.
+   * @see de.zbit.kegg.io.RetryingKeggAdaptor#setNotFoundTTL(long)
+   */
+  public static final Option<Integer> FAIL_CACHE_TTL = new Option<Integer>("FAIL_CACHE_TTL",Integer.class,
+      "Number of days, after which KEGG identifiers that have not been found are requested again (0 = never).",
+      new Range<Integer>(Integer.class, "{[0,3650]}"), 30);
+  
+  /**
+   * Number of retries of KEGG API queries after transport errors.
+   * @see de.zbit.kegg.io.RetryingKeggAdaptor#setMaxRetries(int)
+   */
+  public static final Option<Integer> API_RETRIES = new Option<Integer>("API_RETRIES",Integer.class,
+      "Number of retries (with exponential backoff) of KEGG API queries that failed due to network errors.",
+      new Range<Integer>(Integer.class, "{[0,10]}"), 3);
+  
+  /**
+   * Maximum number of parallel queries to the KEGG API.
+   * @see de.zbit.kegg.io.RetryingKeggAdaptor#setMaxParallelRequests(int)
+   */
+  public static final Option<Integer> API_MAX_PARALLEL_REQUESTS = new Option<Integer>("API_MAX_PARALLEL_REQUESTS",Integer.class,
+      "Maximum number of parallel queries to the KEGG API.",
+      new Range<Integer>(Integer.class, "{[1,32]}"), 4);
+  
   /**
    * Causes a call to {@link InfoManagement#clearFailCache()} on startup.
    */
   public static final Option<Boolean> CREATE_JPG = new Option<Boolean>("CREATE_JPG",Boolean.class,
       "Create a visualization (as JPG) of the selected format. Always creates a JPG, even for SBML and others.",Boolean.FALSE);
   
+  /**
+   * Format of the images created with {@link #CREATE_JPG}.
+   */
+  public static final Option<IMAGE_FILE_FORMAT> IMAGE_FORMAT = new Option<IMAGE_FILE_FORMAT>("IMAGE_FORMAT",IMAGE_FILE_FORMAT.class,
+      "Image format for visualizations created with CREATE_JPG.",
+      new Range<IMAGE_FILE_FORMAT>(IMAGE_FILE_FORMAT.class, Range.toRangeString(IMAGE_FILE_FORMAT.class)),
+      IMAGE_FILE_FORMAT.JPG);
+  
+  /**
+   * Compression quality of the images created with {@link #CREATE_JPG}.
+   */
+  public static final Option<Integer> IMAGE_QUALITY = new Option<Integer>("IMAGE_QUALITY",Integer.class,
+      "Compression quality (in percent) for visualizations created with CREATE_JPG. Lower values produce smaller files. Ignored by formats without lossy compression.",
+      new Range<Integer>(Integer.class, "{[0,100]}"), 90);
+  
+  /**
+   * Number of threads to create the images of {@link #CREATE_JPG}.
+   */
+  public static final Option<Integer> IMAGE_THREADS = new Option<Integer>("IMAGE_THREADS",Integer.class,
+      "Number of threads to create visualizations with CREATE_JPG in parallel to the translation (0 = number of processors).",
+      new Range<Integer>(Integer.class, "{[0,64]}"), 0);
+  
+  /**
+   * KEGG flat files (or a directory) to import into the cache of
+   * {@link KeggInfoManagement} before translating.
+   * @see de.zbit.kegg.io.KeggFlatFileImporter
+   */
+  public static final Option<File> IMPORT_FLAT_FILES = new Option<File>("IMPORT_FLAT_FILES", File.class,
+      "Import annotations from local KEGG flat files (e.g., compound, reaction, pathway, genes and the organism list) in the given file or directory into the cache, such that pathways can be translated with annotations in offline mode.",
+      (short) 2, "-import");
+  
+  /**
+   * Organism code or KGML files (or a directory), for which all
+   * referenced KEGG identifiers are fetched into the cache of
+   * {@link KeggInfoManagement} before translating.
+   * @see de.zbit.kegg.io.KeggCacheWarmer
+   */
+  public static final Option<String> PRELOAD_CACHE = new Option<String>("PRELOAD_CACHE", String.class,
+      "Fetch all KEGG identifiers that are referenced by the pathways of the given organism (e.g., hsa) or by the KGML files in the given file or directory into the cache, such that a subsequent batch translation hits the cache from the first file on.",
+      (short) 2, "-preload");
+  
   /**
    * Invisible option to adjust settings for path2models.
    * http://code.google.com/p/path2models/
@@ -242,6 +242,13 @@ public abstract interface KEGGtranslatorOptions extends KeyProvider {
       "If true, uses the SBML level 3 groups extension to encode groups in the SBML document." +
           "As a side-effect, this will create an SBML Level 3 model.", (short) 2, "-groups", true);
   
+  /**
+   * If false, no human-readable notes are written to the SBML document.
+   */
+  public static final Option<Boolean> ADD_NOTES = new Option<Boolean>("ADD_NOTES",Boolean.class,
+      "If true, adds human-readable notes (XHTML) with descriptions from KEGG to the SBML document. " +
+          "Disable this for pipelines that only process the SBML with machines.", (short) 2, "-notes", true);
+  
   /**
    * Define various options that are used in SBML based translations.
    */
@@ -249,6 +256,6 @@ public abstract interface KEGGtranslatorOptions extends KeyProvider {
   public static final OptionGroup<Boolean> SBML_OPTIONS = new OptionGroup<Boolean>(
       "Translation options for SBML outputs",
       "Define various options that are used in SBML based translations.",
-      CELLDESIGNER_ANNOTATIONS, ADD_LAYOUT_EXTENSION, USE_GROUPS_EXTENSION, CHECK_ATOM_BALANCE);
+      CELLDESIGNER_ANNOTATIONS, ADD_LAYOUT_EXTENSION, USE_GROUPS_EXTENSION, ADD_NOTES, CHECK_ATOM_BALANCE);
   
 }
@@ -50,6 +50,9 @@ import de.zbit.kegg.io.BatchKEGGtranslator;
 import de.zbit.kegg.io.KEGGtranslator;
 import de.zbit.kegg.io.KEGGtranslatorIOOptions;
 import de.zbit.kegg.io.KEGGtranslatorIOOptions.Format;
+import de.zbit.kegg.io.KeggCacheWarmer;
+import de.zbit.kegg.io.KeggFlatFileImporter;
+import de.zbit.kegg.io.RetryingKeggAdaptor;
 import de.zbit.util.ResourceManager;
 import de.zbit.util.prefs.KeyProvider;
 import de.zbit.util.prefs.SBPreferences;
@@ -88,6 +91,26 @@ public class Translator extends Launcher {
    */
   public final static String cacheFunctionFileName = "keggfc.dat";
   
+  /**
+   * {@link File} name of the KEGG identifiers that have not been found,
+   * together with the time, after which they are requested again.
+   * @see RetryingKeggAdaptor
+   */
+  public final static String cacheNotFoundFileName = "keggnf.dat";
+  
+  /**
+   * Name of the directory in which processed KEGG background images
+   * are cached.
+   * @see #getCacheImageDir()
+   */
+  public final static String cacheImageDirName = "keggimg";
+  
+  /**
+   * Name of the directory in the home directory of the user, in which
+   * cached files are stored.
+   */
+  public final static String cacheDirName = ".KEGGtranslator";
+  
   /**
    * The {@link Logger} for this class.
    */
@@ -229,21 +252,33 @@ public class Translator extends Launcher {
     // Set cache size and eventually remove some items from the cache
     if (newManangerLoadedOrInitialized) {
       int initialSize=-1;
+      RetryingKeggAdaptor adaptor = new RetryingKeggAdaptor();
       try {
         SBPreferences prefs = SBPreferences.getPreferencesFor(KEGGtranslatorCommandLineOnlyOptions.class);
         initialSize = KEGGtranslatorCommandLineOnlyOptions.CACHE_SIZE.getValue(prefs);
         
+        int ttl = KEGGtranslatorCommandLineOnlyOptions.FAIL_CACHE_TTL.getValue(prefs);
+        adaptor.setNotFoundTTL(ttl * RetryingKeggAdaptor.ONE_DAY);
+        adaptor.setMaxRetries(KEGGtranslatorCommandLineOnlyOptions.API_RETRIES.getValue(prefs));
+        RetryingKeggAdaptor.setMaxParallelRequests(KEGGtranslatorCommandLineOnlyOptions.API_MAX_PARALLEL_REQUESTS.getValue(prefs));
+        
         if (KEGGtranslatorCommandLineOnlyOptions.CLEAR_FAIL_CACHE.getValue(prefs)) {
           logger.info("Clearing cache of failed-to-retrieve objects.");
           manager.clearFailCache();
+        } else if (adaptor.load(new File(Translator.cacheNotFoundFileName)) && (ttl > 0)) {
+          /* The fail cache of the manager never expires. Move it to the
+           * adaptor, which requests the identifiers again after the TTL. */
+          adaptor.moveFailCache(manager);
         }
       } catch (Exception e) {
         e.printStackTrace();
       }
+      manager.setKeggAdaptor(adaptor);
       if (initialSize<=0) {
         initialSize = 10000;
       }
-      manager.setCacheSize(initialSize);
+      // Never drop imported annotations (see KeggFlatFileImporter)
+      manager.setCacheSize(Math.max(initialSize, manager.getNumberOfCachedInfos()));
     }
     
     
@@ -265,14 +300,38 @@ public class Translator extends Launcher {
    * Remember already queried KEGG objects (save cache)
    */
   public synchronized static void saveCache() {
-    if ((manager != null) && manager.hasChanged()) {
-      KeggInfoManagement.saveToFilesystem(Translator.cacheFileName, manager);
+    if (manager != null) {
+      RetryingKeggAdaptor.saveManager(manager, manager.hasChanged() ? Translator.cacheFileName : null,
+        new File(Translator.cacheNotFoundFileName));
     }
     if ((managerFunction != null) && managerFunction.isCacheChangedSinceLastLoading()) {
       InfoManagement.saveToFilesystem(Translator.cacheFunctionFileName, managerFunction);
     }
   }
   
+  /**
+   * @return the directory for processed KEGG background images, i.e.,
+   * {@link #cacheImageDirName} in {@link #cacheDirName} in the home
+   * directory of the user. Thus, the images are shared between all
+   * working directories.
+   */
+  public static File getCacheImageDir() {
+    return new File(new File(System.getProperty("user.home"), cacheDirName), cacheImageDirName);
+  }
+  
+  /**
+   * Saves the given manager as {@link #cacheFileName}, and the queries
+   * that have not been found as {@link #cacheNotFoundFileName}. Use this
+   * method instead of
+   * {@link KeggInfoManagement#saveToFilesystem(String, KeggInfoManagement)},
+   * which drops the adaptor of the manager.
+   * @param manager
+   * @return {@code true} if successful.
+   */
+  public static boolean saveManager(KeggInfoManagement manager) {
+    return RetryingKeggAdaptor.saveManager(manager, Translator.cacheFileName, new File(Translator.cacheNotFoundFileName));
+  }
+  
   /**
    * Wrapper methods for applications including KEGGtranslator as library:
    * this method translates a given KGML document and returns the resulting
@@ -412,6 +471,27 @@ public class Translator extends Launcher {
       logger.log(Level.WARNING, "Could not process command-line-only options.", e);
     }
     
+    // Import annotations from local KEGG flat files
+    boolean cacheOnly = !props.containsKey(KEGGtranslatorIOOptions.INPUT);
+    if (props.containsKey(KEGGtranslatorCommandLineOnlyOptions.IMPORT_FLAT_FILES)) {
+      try {
+        KeggFlatFileImporter.importIntoCache(new File(props.get(KEGGtranslatorCommandLineOnlyOptions.IMPORT_FLAT_FILES)));
+      } catch (IOException exc) {
+        logger.warning(getMessage(exc));
+      }
+      if (cacheOnly) {
+        return;
+      }
+    }
+    
+    // Warm up the cache for a whole organism or directory
+    if (props.containsKey(KEGGtranslatorCommandLineOnlyOptions.PRELOAD_CACHE)) {
+      KeggCacheWarmer.warmUpCache(props.get(KEGGtranslatorCommandLineOnlyOptions.PRELOAD_CACHE));
+      if (cacheOnly) {
+        return;
+      }
+    }
+    
     // Initiate translation
     try {
       translate(KEGGtranslatorIOOptions.FORMAT.getValue(props),
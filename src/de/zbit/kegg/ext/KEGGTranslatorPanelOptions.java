@@ -70,4 +70,30 @@ public abstract interface KEGGTranslatorPanelOptions extends de.zbit.graph.gui.o
     //SHOW_NAVIGATION_AND_OVERVIEW_PANELS, SHOW_PROPERTIES_TABLE, LAYOUT_EDGES
       );
   
+  /**
+   * If true, omits details of large graphs when zooming out.
+   */
+  public static final Option<Boolean> USE_LEVEL_OF_DETAIL = new Option<Boolean>("USE_LEVEL_OF_DETAIL", Boolean.class,
+      "If true, omits labels, arrows and other details when zooming out of a graph. This keeps large pathway maps responsive.", true);
+  
+  /**
+   * Zoom level (in percent) below which no labels and arrows are shown.
+   */
+  public static final Option<Integer> LEVEL_OF_DETAIL_LABEL_ZOOM = new Option<Integer>("LEVEL_OF_DETAIL_LABEL_ZOOM", Integer.class,
+      "Zoom level (in percent) below which labels and arrows are hidden.", new Range<Integer>(Integer.class, "{[0,100]}"), 40, USE_LEVEL_OF_DETAIL, TRUE_RANGE);
+  
+  /**
+   * Zoom level (in percent) below which nodes are drawn as simple shapes.
+   */
+  public static final Option<Integer> LEVEL_OF_DETAIL_SLOPPY_ZOOM = new Option<Integer>("LEVEL_OF_DETAIL_SLOPPY_ZOOM", Integer.class,
+      "Zoom level (in percent) below which nodes and edges are drawn as simple shapes.", new Range<Integer>(Integer.class, "{[0,100]}"), 20, USE_LEVEL_OF_DETAIL, TRUE_RANGE);
+  
+  
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public static final OptionGroup LEVEL_OF_DETAIL_OPTIONS = new OptionGroup(
+    "Level of detail",
+    "Control which details of a graph are shown when zooming out.",
+    USE_LEVEL_OF_DETAIL, LEVEL_OF_DETAIL_LABEL_ZOOM, LEVEL_OF_DETAIL_SLOPPY_ZOOM
+      );
+  
 }
@@ -0,0 +1,170 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.kegg.gui;
+
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+
+import y.view.Graph2DView;
+import de.zbit.graph.BackgroundImageCache;
+import de.zbit.graph.MipMapBackgroundRenderer;
+import de.zbit.graph.gui.options.GraphBackgroundImageProvider;
+import de.zbit.kegg.io.KEGGtranslator;
+import de.zbit.kegg.parser.pathway.Pathway;
+
+/**
+ * Shows the original KEGG picture of the last translated pathway in
+ * the background of a graph, like
+ * {@link GraphBackgroundImageProvider.Factory#createDynamicTranslatorImageProvider(int, boolean)},
+ * but takes the processed image from a {@link BackgroundImageCache}.
+ * The image is loaded in a background thread and set on the event
+ * dispatch thread.
+ *
+ * <p><i>Note:<br/>
+ * Due to yFiles license requirements, we have to obfuscate this class
+ * in the JAR release of this application. Thus, this class
+ * can not be found by using the class name.<br/> If you can provide us
+ * with a proof of possessing a yFiles license yourself, we can send you
+ * an unobfuscated release of KEGGtranslator.</i></p>
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class CachedBackgroundImageProvider implements GraphBackgroundImageProvider {
+
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final transient Logger log = Logger.getLogger(CachedBackgroundImageProvider.class.getName());
+
+  /**
+   * The cache for processed images.
+   */
+  private final BackgroundImageCache cache;
+
+  /**
+   * Percentage to brighten the image.
+   */
+  private final int brighten;
+
+  /**
+   * Convert the image to greyscale.
+   */
+  private final boolean greyscale;
+
+  /**
+   * @param cache
+   * @param brighten percentage to brighten the image.
+   * @param greyscale convert the image to greyscale.
+   */
+  public CachedBackgroundImageProvider(BackgroundImageCache cache, int brighten, boolean greyscale) {
+    super();
+    this.cache = cache;
+    this.brighten = brighten;
+    this.greyscale = greyscale;
+  }
+
+  /* (non-Javadoc)
+   * @see de.zbit.graph.gui.options.GraphBackgroundImageProvider#addBackgroundImage(y.view.Graph2DView, de.zbit.kegg.io.KEGGtranslator)
+   */
+  @Override
+  public void addBackgroundImage(Graph2DView pane, KEGGtranslator<?> translator) throws MalformedURLException {
+    addBackgroundImage(pane, translator, false);
+  }
+
+  /* (non-Javadoc)
+   * @see de.zbit.graph.gui.options.GraphBackgroundImageProvider#addBackgroundImage(y.view.Graph2DView, de.zbit.kegg.io.KEGGtranslator, boolean)
+   */
+  @Override
+  public void addBackgroundImage(Graph2DView pane, KEGGtranslator<?> translator, boolean waitUntilComplete) throws MalformedURLException {
+    addBackgroundImage(pane, (translator == null) ? null : translator.getLastTranslatedPathway(), waitUntilComplete);
+  }
+
+  /**
+   * Adds the KEGG picture of the given pathway to the background of
+   * the given view.
+   * @param pane
+   * @param p the pathway, whose picture should be shown.
+   * @param waitUntilComplete wait until the image has been set. If
+   * {@code false}, the image is loaded in a new thread.
+   * @throws MalformedURLException
+   */
+  public void addBackgroundImage(final Graph2DView pane, Pathway p, boolean waitUntilComplete) throws MalformedURLException {
+    if ((p == null) || (p.getImage() == null) || (p.getImage().length() < 1)) {
+      return;
+    }
+    final URL url = new URL(p.getImage());
+    final String id = (p.getName() != null) ? p.getName() : url.getPath();
+
+    if (waitUntilComplete) {
+      setLevels(pane, cache.get(id, url, brighten, greyscale), true);
+    } else {
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          setLevels(pane, cache.get(id, url, brighten, greyscale), false);
+        }
+      }).start();
+    }
+  }
+
+  /**
+   * Sets a renderer for the given images as background of the given
+   * view on the event dispatch thread.
+   * @param pane
+   * @param levels the images of all levels (see
+   * {@link BackgroundImageCache#get(String, URL, int, boolean)}) or
+   * {@code null} to keep the current background.
+   * @param wait wait until the renderer has been set.
+   */
+  private static void setLevels(final Graph2DView pane, final BufferedImage[] levels, boolean wait) {
+    if (levels == null) {
+      return;
+    }
+    Runnable setRenderer = new Runnable() {
+      @Override
+      public void run() {
+        pane.setBackgroundRenderer(new MipMapBackgroundRenderer(pane, levels));
+        pane.repaint();
+      }
+    };
+    if (SwingUtilities.isEventDispatchThread()) {
+      setRenderer.run();
+    } else if (!wait) {
+      SwingUtilities.invokeLater(setRenderer);
+    } else {
+      try {
+        SwingUtilities.invokeAndWait(setRenderer);
+      } catch (InterruptedException exc) {
+        Thread.currentThread().interrupt();
+      } catch (InvocationTargetException exc) {
+        log.log(Level.WARNING, "Could not set KEGG background image.", exc.getCause());
+      }
+    }
+  }
+
+}
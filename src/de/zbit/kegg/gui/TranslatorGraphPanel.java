@@ -108,6 +108,15 @@ public class TranslatorGraphPanel extends TranslatorGraphLayerPanel<Graph2D> {
     this(pathwayID, Format.GraphML, translationResult);
   }
   
+  /* (non-Javadoc)
+   * @see de.zbit.graph.gui.TranslatorGraphLayerPanel#createTabContent()
+   */
+  @Override
+  public void createTabContent() throws Exception {
+    super.createTabContent();
+    TranslatorPanelTools.setupLevelOfDetail(this);
+  }
+  
   /* (non-Javadoc)
    * @see de.zbit.kegg.gui.TranslatorGraphLayerPanel#createGraphFromDocument(java.lang.Object)
    */
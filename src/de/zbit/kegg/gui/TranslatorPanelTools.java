@@ -23,11 +23,15 @@ package de.zbit.kegg.gui;
 import java.awt.event.ActionListener;
 import java.io.File;
 
+import y.view.Graph2DView;
+import de.zbit.graph.BackgroundImageCache;
+import de.zbit.graph.LevelOfDetailSupport;
 import de.zbit.graph.gui.TranslatorGraphLayerPanel;
 import de.zbit.graph.gui.TranslatorPanel;
 import de.zbit.graph.gui.options.GraphBackgroundImageProvider;
 import de.zbit.graph.io.Graph2Dwriter;
 import de.zbit.gui.GUITools;
+import de.zbit.kegg.Translator;
 import de.zbit.kegg.ext.KEGGTranslatorPanelOptions;
 import de.zbit.kegg.io.KEGGtranslatorIOOptions.Format;
 import de.zbit.util.prefs.SBPreferences;
@@ -38,6 +42,11 @@ import de.zbit.util.prefs.SBPreferences;
  */
 public class TranslatorPanelTools {
   
+  /**
+   * Processed KEGG background images, shared by all panels and writers.
+   */
+  private static BackgroundImageCache backgroundImageCache = null;
+  
   /**
    * 
    * @param inputFile
@@ -132,9 +141,10 @@ public class TranslatorPanelTools {
   /**
    * Reads the background image from options and setups an
    * {@link GraphBackgroundImageProvider} appropriately.
-   * @return
+   * @return the provider or {@code null} if no background image
+   * should be shown.
    */
-  private static GraphBackgroundImageProvider createBackgroundImageProvider() {
+  public static GraphBackgroundImageProvider createBackgroundImageProvider() {
     SBPreferences prefs = SBPreferences.getPreferencesFor(KEGGTranslatorPanelOptions.class);
     GraphBackgroundImageProvider provider = null;
     
@@ -147,11 +157,41 @@ public class TranslatorPanelTools {
         brighten = 0;
       }
       boolean greyscale = (KEGGTranslatorPanelOptions.GREYSCALE_KEGG_BACKGROUND_IMAGE.getValue(prefs));
-      provider = GraphBackgroundImageProvider.Factory.createDynamicTranslatorImageProvider(brighten, greyscale);
+      provider = new CachedBackgroundImageProvider(getBackgroundImageCache(), brighten, greyscale);
     }
     return provider;
   }
   
+  /**
+   * @return the cache for processed KEGG background images.
+   */
+  public static synchronized BackgroundImageCache getBackgroundImageCache() {
+    if (backgroundImageCache == null) {
+      backgroundImageCache = new BackgroundImageCache(Translator.getCacheImageDir());
+    }
+    return backgroundImageCache;
+  }
+  
+  /**
+   * Enables level-of-detail rendering for the graph of the given panel
+   * as set in the preferences. Must be called after the tab content
+   * (including the background image) has been created.
+   * 
+   * @param panel
+   */
+  public static void setupLevelOfDetail(TranslatorGraphLayerPanel<?> panel) {
+    Graph2DView view = panel.getGraph2DView();
+    SBPreferences prefs = SBPreferences.getPreferencesFor(KEGGTranslatorPanelOptions.class);
+    if ((view == null) || !KEGGTranslatorPanelOptions.USE_LEVEL_OF_DETAIL.getValue(prefs)) {
+      return;
+    }
+    Integer labelZoom = KEGGTranslatorPanelOptions.LEVEL_OF_DETAIL_LABEL_ZOOM.getValue(prefs);
+    Integer sloppyZoom = KEGGTranslatorPanelOptions.LEVEL_OF_DETAIL_SLOPPY_ZOOM.getValue(prefs);
+    LevelOfDetailSupport.install(view,
+      (labelZoom == null) ? 0d : labelZoom / 100d,
+      (sloppyZoom == null) ? 0d : sloppyZoom / 100d);
+  }
+  
   /**
    * Setup the background image as set in the preferences
    * 
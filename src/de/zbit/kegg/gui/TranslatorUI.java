@@ -82,6 +82,7 @@ import de.zbit.kegg.KEGGtranslatorOptions;
 import de.zbit.kegg.Translator;
 import de.zbit.kegg.ext.KEGGTranslatorPanelOptions;
 import de.zbit.kegg.io.KEGG2jSBML;
+import de.zbit.kegg.io.KEGGImporter;
 import de.zbit.kegg.io.KEGGtranslatorIOOptions;
 import de.zbit.kegg.io.KEGGtranslatorIOOptions.Format;
 import de.zbit.util.StringUtil;
@@ -610,6 +611,11 @@ KeyListener, ItemListener {
       }
     }
     
+    // Stop a running import and discard its result.
+    if ((comp instanceof TranslatorPanel<?>) && !((TranslatorPanel<?>) comp).isReady()) {
+      KEGGImporter.cancelImportFor(comp);
+    }
+    
     // Close the document.
     tabbedPane.removeTabAt(index);
     updateButtons();
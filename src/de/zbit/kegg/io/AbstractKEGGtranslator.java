@@ -23,9 +23,11 @@ package de.zbit.kegg.io;
 import java.io.File;
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -45,6 +47,9 @@ import de.zbit.kegg.parser.pathway.Reaction;
 import de.zbit.kegg.parser.pathway.ReactionComponent;
 import de.zbit.util.ArrayUtils;
 import de.zbit.util.EscapeChars;
+import de.zbit.util.IdentifierPool;
+import de.zbit.util.IntObjectMap;
+import de.zbit.util.KeggIdTokenizer;
 import de.zbit.util.StringUtil;
 import de.zbit.util.Utils;
 import de.zbit.util.prefs.SBPreferences;
@@ -136,6 +141,27 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
    */
   protected static KeggInfoManagement manager;
   
+  /**
+   * All translators share the static {@link #manager} and
+   * {@link KeggInfoManagement#offlineMode}. Thus, only one pathway is
+   * translated at a time, even if translators are used on multiple
+   * threads (e.g., by the {@link BatchImageWriter}).
+   */
+  private static final Object translationLock = new Object();
+  
+  /**
+   * Memoized results of {@link #getNameForEntry(Entry)}, by naming
+   * options and entry name, type and graphics name. Least recently
+   * used first.
+   */
+  private static final Map<String, String> nameCache = new LinkedHashMap<String, String>(256, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+      return size() > 20000;
+    }
+  };
+  
   /**
    * A flag, if the last sbml file that has been written by this class was
    * overwritten. This variable is used by the BatchConverter.
@@ -156,9 +182,46 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
   protected Set<String> SIds = new HashSet<String>();
   
   /**
-   * ProgressBar for KEGG translation
+   * Maps the id of each {@link Entry} to the element, that has been created
+   * for this entry in the current translation (e.g., a species, node or glyph).
+   * This table replaces {@link Entry#setCustom(Object)}, such that the
+   * (preprocessed) {@link Pathway} is not modified by any translator and might
+   * be translated to multiple formats (also in parallel).
+   */
+  protected IntObjectMap<Object> entryElements = new IntObjectMap<Object>();
+  
+  /**
+   * Index of all entries in the pathway that is currently being translated.
+   * Should be used instead of {@link Pathway#getEntryForId(int)} and
+   * {@link Pathway#getEntryForReactionComponent(ReactionComponent)}.
+   */
+  protected PathwayIndex index = null;
+  
+  /**
+   * Annotations of all entries in the pathway that is currently being
+   * translated, by entry id. Computed once after preprocessing and shared
+   * by all parts of the translation (see {@link #getAnnotation(Entry)}).
+   */
+  protected IntObjectMap<EntryAnnotation> entryAnnotations = null;
+  
+  /**
+   * Maps entry names to the first entry of this name, for which an element
+   * has been created in the current translation. Used to link duplicate
+   * entries to the same element.
+   */
+  private Map<String, Entry> materializedNames = new HashMap<String, Entry>();
+  
+  /**
+   * ProgressBar for KEGG translation. Might be exchanged by another thread
+   * during a translation (see {@link #setProgressBar(AbstractProgressBar)}).
    */
-  protected AbstractProgressBar progress = null;
+  protected volatile AbstractProgressBar progress = null;
+  
+  /**
+   * Set by {@link #cancel()}. Checked between the single stages of a
+   * translation.
+   */
+  private volatile boolean cancelled = false;
   
   
   /*===========================
@@ -276,6 +339,12 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
    * @param manage
    */
   public static void setKeggInfoManager(KeggInfoManagement manage) {
+    if (manager != manage) {
+      KeggAnnotation.clearCache(); // Annotations have been derived from the old manager.
+      synchronized (nameCache) {
+        nameCache.clear();
+      }
+    }
     manager = manage;
   }
   /**
@@ -309,17 +378,35 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
    * @param progressBar
    */
   public synchronized void setProgressBar(AbstractProgressBar progressBar) {
-    if (progress!=null && progressBar!=null) {
-      // It's very dirty and non-thread sage to exchange the progress-bar
-      // in an ongoing translation! This is just a quick-hack trying to 
-      // hand-over the state of the old bar to the new one. Remember, that
-      // the state may change just in the moment the next line is executed!
-      progressBar.setCallNr(progress.getCallNumber());
-      progressBar.setNumberOfTotalCalls(progress.getNumberOfTotalCalls());
+    AbstractProgressBar previous = progress;
+    if (previous!=null && progressBar!=null) {
+      // Hand-over the state of the old bar to the new one. The translation
+      // might still call the old bar until it sees the new one, thus, the
+      // new bar may miss a few calls. This is acceptable for a status display.
+      progressBar.setNumberOfTotalCalls(previous.getNumberOfTotalCalls());
+      progressBar.setCallNr(previous.getCallNumber());
     }
     this.progress = progressBar;
   }
   
+  /**
+   * Cancels the current (or next) translation of this translator. May
+   * be called from any thread. The translation stops at the next stage
+   * (e.g., after fetching information from KEGG) and
+   * {@link #translate(Pathway)} returns <code>null</code>. A cancelled
+   * translator should not be used for further translations.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+  
+  /**
+   * @return <code>true</code> if {@link #cancel()} has been called.
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+  
   
   /*===========================
    * FUNCTIONS
@@ -366,6 +453,9 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
       // Prefetch kegg information (enormous speed improvement).
       log.info("Fetching information from KEGG online resources... ");
       KeggTools.preFetchInformation(p,manager,completeAndCacheReactions, progress);
+      if (isCancelled()) {
+        return;
+      }
       
       // Auto-complete the reaction by adding all substrates, products and enzymes.
       if (completeAndCacheReactions) {
@@ -414,39 +504,58 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
   
   
   /**
-   * Translates the given pathway to the target document.
+   * Translates the given pathway to the target document. Translations
+   * of all translators are performed one after another.
    * @param p - the Kegg Pathway.
    * @return OutputFormat
    */
   @Override
   public OutputFormat translate(Pathway p) {
-    // REMARK: This class is and must be called by all other translate functions.
-    preProcessPathway(p);
-    
-    // Reset lists and buffers.
-    SIds = new HashSet<String>(); // Reset list of given SIDs. These are being remembered to avoid double ids.
-    
-    // Remember just the pathway object with core information for later information
-    //lastTranslatedPathway = new Pathway(p.getName(), p.getOrg(), p.getNumber(), p.getTitle(), p.getImage(), p.getLink());
-    // Since some methods really need the whole document, we now store it.
-    lastTranslatedPathway = p;
-    
-    OutputFormat doc = null;
-    try {
-      doc = translateWithoutPreprocessing(p);
-    } catch (Throwable t) {
-      t.printStackTrace();
-      log.log(Level.SEVERE, "Unhandled exception during translation!", t);
+    synchronized (translationLock) {
+      // REMARK: This class is and must be called by all other translate functions.
+      if (isCancelled()) {
+        return null;
+      }
+      preProcessPathway(p);
+      if (isCancelled()) {
+        log.fine("Translation has been cancelled.");
+        return null;
+      }
+      
+      // Reset lists and buffers.
+      SIds = new HashSet<String>(); // Reset list of given SIDs. These are being remembered to avoid double ids.
+      index = new PathwayIndex(p); // Build once, after preprocessing.
+      entryElements = new IntObjectMap<Object>(index.getIdBound()); // Reset all elements, created for entries.
+      entryAnnotations = new IntObjectMap<EntryAnnotation>(index.getIdBound());
+      if (retrieveKeggAnnots) {
+        for (Entry entry : p.getEntries()) {
+          getAnnotation(entry); // Annotations of single KEGG ids are shared across pathways.
+        }
+      }
+      materializedNames = new HashMap<String, Entry>();
+      
+      // Remember just the pathway object with core information for later information
+      //lastTranslatedPathway = new Pathway(p.getName(), p.getOrg(), p.getNumber(), p.getTitle(), p.getImage(), p.getLink());
+      // Since some methods really need the whole document, we now store it.
+      lastTranslatedPathway = p;
+      
+      OutputFormat doc = null;
+      try {
+        doc = translateWithoutPreprocessing(p);
+      } catch (Throwable t) {
+        t.printStackTrace();
+        log.log(Level.SEVERE, "Unhandled exception during translation!", t);
+      }
+      
+      // Remember already queried objects
+      // XXX: Disabled, because writing after every conversion is very time-consuming.
+      // Should be considered by calling classes when to write the cache.
+      //if (getKeggInfoManager().hasChanged()) {
+      //KeggInfoManagement.saveToFilesystem(KEGGtranslator.cacheFileName, getKeggInfoManager());
+      //}
+      
+      return doc;
     }
-    
-    // Remember already queried objects
-    // XXX: Disabled, because writing after every conversion is very time-consuming.
-    // Should be considered by calling classes when to write the cache.
-    //if (getKeggInfoManager().hasChanged()) {
-    //KeggInfoManagement.saveToFilesystem(KEGGtranslator.cacheFileName, getKeggInfoManager());
-    //}
-    
-    return doc;
   }
   
   /**
@@ -474,6 +583,19 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
    */
   @Override
   public OutputFormat translate(File f) throws IOException {
+    Pathway p = parse(f);
+    OutputFormat doc = translate(p);
+    return doc;
+  }
+  
+  /**
+   * Parses the given KGML file.
+   * 
+   * @param f the input file.
+   * @return the first {@link Pathway} in the given file.
+   * @throws IOException if the input file is not readable, empty or invalid.
+   */
+  public static Pathway parse(File f) throws IOException {
     if (f.exists() && f.isFile() && f.canRead()) {
       List<Pathway> l;
       try {
@@ -483,9 +605,7 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
       }
       
       if (l.size() > 0) {
-        Pathway p = l.get(0);
-        OutputFormat doc = translate(p);
-        return doc;
+        return l.get(0);
       } else {
         throw new IOException(MessageFormat.format("Empty or invalid input file {0}.", f.getAbsolutePath()));
       }
@@ -523,18 +643,93 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
     progress.DisplayBar();
   }
   
+  /**
+   * @param entry
+   * @return the element that has been created for the given <code>entry</code>
+   * in the current translation, or <code>null</code>.
+   */
+  protected Object getElementForEntry(Entry entry) {
+    return getElementForEntry(entry, entryElements);
+  }
+  
+  /**
+   * @param entry
+   * @param entryElements mapping from entry ids to created elements.
+   * @return the element that has been created for the given <code>entry</code>,
+   * or <code>null</code>.
+   */
+  public static Object getElementForEntry(Entry entry, IntObjectMap<Object> entryElements) {
+    if (entry == null || entryElements == null) {
+      return null;
+    }
+    return entryElements.get(entry.getId());
+  }
+  
+  /**
+   * @param entry
+   * @return the annotation of the given <code>entry</code>. It is computed
+   * once per translation and the annotations of the contained KEGG ids are
+   * shared with other entries, pathways and translators.
+   */
+  protected EntryAnnotation getAnnotation(Entry entry) {
+    if (entryAnnotations == null) {
+      entryAnnotations = new IntObjectMap<EntryAnnotation>();
+    }
+    EntryAnnotation annotation = entryAnnotations.get(entry.getId());
+    if (annotation == null) {
+      annotation = EntryAnnotation.create(entry, index, manager);
+      entryAnnotations.put(entry.getId(), annotation);
+    }
+    return annotation;
+  }
+  
+  /**
+   * Remembers the element that has been created for the given <code>entry</code>
+   * for further references in the current translation.
+   * @param entry
+   * @param element
+   */
+  protected void setElementForEntry(Entry entry, Object element) {
+    entryElements.put(entry.getId(), element);
+    if ((element != null) && !materializedNames.containsKey(entry.getName())) {
+      materializedNames.put(entry.getName(), entry);
+    }
+  }
+  
+  /**
+   * @param name
+   * @return the element, that has been created for the first entry with the
+   * given <code>name</code> in the current translation, or <code>null</code>
+   * if no element has yet been created for an entry with this name.
+   */
+  protected Object getElementForName(String name) {
+    return getElementForEntry(materializedNames.get(name));
+  }
+  
+  /**
+   * Checks whether a given reaction has at least one product and substrate
+   * that have been translated in the current translation.
+   * @param reaction
+   * @return
+   */
+  protected boolean reactionHasAtLeastOneSubstrateAndProduct(Reaction reaction) {
+    return reactionHasAtLeastOneSubstrateAndProduct(reaction, index, entryElements);
+  }
+  
   /**
    * Checks whether a given reaction has at least one product and substrate.
    * @param reaction
-   * @param parentPathway
+   * @param index index of the parent pathway.
+   * @param entryElements mapping from entry ids to created elements. Only
+   * entries with an element are considered.
    * @return
    */
-  public static boolean reactionHasAtLeastOneSubstrateAndProduct(Reaction reaction, Pathway parentPathway) {
+  public static boolean reactionHasAtLeastOneSubstrateAndProduct(Reaction reaction, PathwayIndex index, IntObjectMap<Object> entryElements) {
     // Skip reaction if it has either no reactants or no products.
     boolean hasAtLeastOneReactantAndProduct = false;
     for (ReactionComponent rc : reaction.getSubstrates()) {
-      Entry spec = parentPathway.getEntryForReactionComponent(rc);
-      if (spec == null || spec.getCustom() == null) {
+      Entry spec = index.getEntryForReactionComponent(rc);
+      if (getElementForEntry(spec, entryElements) == null) {
         continue;
       }
       hasAtLeastOneReactantAndProduct = true;
@@ -546,8 +741,8 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
     
     hasAtLeastOneReactantAndProduct = false;
     for (ReactionComponent rc : reaction.getProducts()) {
-      Entry spec = parentPathway.getEntryForReactionComponent(rc);
-      if (spec == null || spec.getCustom() == null) {
+      Entry spec = index.getEntryForReactionComponent(rc);
+      if (getElementForEntry(spec, entryElements) == null) {
         continue;
       }
       hasAtLeastOneReactantAndProduct = true;
@@ -567,16 +762,42 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
    */
   public static boolean isGroupNode(Entry e) {
     EntryType t = e.getType();
-    return ((t.equals(EntryType.group) || e.getName().toLowerCase().trim().startsWith("group:")) && e.hasComponents());
+    return ((t.equals(EntryType.group) || KeggIdTokenizer.hasPrefix(e.getName(), KeggIdTokenizer.GROUP)) && e.hasComponents());
   }
   
   /**
+   * Returns the label for the {@link Entry}. The result is memoized
+   * for all entries with the same name, type and graphics name, and
+   * the same naming options (across all pathways of a batch), unless
+   * any annotation query of the entry failed.
    * @param entry
    * @return {@link String} to use as label for the {@link Entry}.
    * @see #getNameForEntry(Entry, KeggInfos...)
    */
   protected String getNameForEntry(Entry entry) {
-    return getNameForEntry(entry, (KeggInfos)null);
+    String graphicsName = entry.hasGraphics() ? entry.getGraphics().getName() : null;
+    String key = nameToAssign.ordinal() + (showFormulaForCompounds ? "F|" : "|")
+        + entry.getType().ordinal() + '|' + entry.hasComponents() + '|' + entry.getName() + '|' + graphicsName;
+    String name;
+    synchronized (nameCache) {
+      name = nameCache.get(key);
+    }
+    if (name == null) {
+      name = getNameForEntry(entry, (KeggInfos)null);
+      boolean complete = true;
+      if (!entry.hasComponents()) {
+        // Do not remember names for failed annotations, that might be fetched later.
+        for (KeggAnnotation annotation : getAnnotation(entry).getAnnotations()) {
+          complete &= annotation.isQuerySuccessful();
+        }
+      }
+      if (complete) {
+        synchronized (nameCache) {
+          nameCache.put(key, name);
+        }
+      }
+    }
+    return name;
   }
   
   /**
@@ -592,16 +813,8 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
     // Query API
     if ((infos == null) || (infos.length == 0) ||
         ((infos.length == 1) && (infos[0] == null))) {
-      List<KeggInfos> list = new LinkedList<KeggInfos>();
-      for (String ko_id:entry.getName().split(" ")) {
-        // Do not consider group nodes
-        if (ko_id.trim().equalsIgnoreCase("undefined") || entry.hasComponents()) {
-          continue;
-        }
-        
-        list.add(KeggInfos.get(ko_id, manager));
-      }
-      infos = list.toArray(new KeggInfos[0]);
+      // Do not consider group nodes
+      infos = entry.hasComponents() ? new KeggInfos[0] : getAnnotation(entry).getInfos();
     }
     
     // Concatenate names and check for compound option
@@ -614,8 +827,9 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
         name.append(';'); // Add gene separator
       }
       
-      if (showFormulaForCompounds && infos[i].getFormulaDirectOrFromSynonym(manager)!=null) {
-        name.append(infos[i].getFormulaDirectOrFromSynonym(manager));
+      String formula = showFormulaForCompounds ? KeggAnnotation.get(infos[i].getKegg_ID(), manager).getFormula() : null;
+      if (formula!=null) {
+        name.append(formula);
       } else if (nameToAssign.equals(KEGGtranslatorOptions.NODE_NAMING.INTELLIGENT_WITH_EC_NUMBERS) &&
           (!entry.getType().equals(EntryType.map)) && infos[i].isSetECcodes()){
         // If EC codes preferred, not is no PW-reference and has ECcodes, take them.
@@ -627,7 +841,7 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
       }
     }
     
-    return getNameForEntry(entry, name.toString());
+    return IdentifierPool.intern(getNameForEntry(entry, name.toString()));
   }
   
   
@@ -682,15 +896,12 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
         return firstName(names);
       }
       
-      // We need to split all genes for further naming options
-      String[] multiNames = names.split(";"); // components are not trimmed!
-      
       if (nameToAssign.equals(KEGGtranslatorOptions.NODE_NAMING.SHORTEST_NAME)) {
-        return shortenName(ArrayUtils.implode(multiNames, ", "));
+        return shortenName(ArrayUtils.implode(names.split(";"), ", "));
         
       } else if (nameToAssign.equals(KEGGtranslatorOptions.NODE_NAMING.ALL_FIRST_NAMES)) {
         Set<String> firstNames = new HashSet<String>();
-        for (String name: multiNames) {
+        for (String name: names.split(";")) { // components are not trimmed!
           firstNames.add(firstName(name));
         }
         
@@ -701,44 +912,13 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
           nameToAssign.equals(KEGGtranslatorOptions.NODE_NAMING.INTELLIGENT_WITH_EC_NUMBERS) ) {
         // Shortest for compounds
         if (entry.getType().equals(EntryType.compound)) {
-          return shortenName(ArrayUtils.implode(multiNames, ", "));
+          return shortenName(ArrayUtils.implode(names.split(";"), ", "));
         }
         
-        // Try to detect gene families
-        Set<String> firstNames = new HashSet<String>();
-        String veryFirst = null;
-        for (String name: multiNames) {
-          String first = firstName(name);
-          if (veryFirst==null || veryFirst.length()<1) {
-            veryFirst = first;
-          }
-          firstNames.add(first);
-        }
-        if (firstNames.size()>1) {
-          String LCP = StringUtil.getLongestCommonPrefix(firstNames.toArray(new String[0]),true);
-          // Require at least 3 chars for family identifiers
-          if (LCP!=null && LCP.length()>2) {
-            String removedPart = firstNames.iterator().next().substring(LCP.length());
-            if (Utils.isNumber(removedPart, true)) {
-              // ALG13 and ALG14 have the common prefix ALG1 => remove 1
-              while (Character.isDigit(LCP.charAt(LCP.length()-1))) {
-                LCP = LCP.substring(0, LCP.length()-1);
-                if (LCP.length()<2) {
-                  break;
-                }
-              }
-              
-            }
-            
-            if (LCP.length()>2) {
-              return LCP;
-            }
-          }
-        }
-        
-        // First for single genes or in doubt.
-        if (veryFirst!=null && veryFirst.length()>0) {
-          return firstNames.iterator().next();
+        // Try to detect gene families, first for single genes or in doubt.
+        String name = getFamilyOrFirstName(names);
+        if (name != null) {
+          return name;
         }
         
       }
@@ -755,7 +935,7 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
           (entry.getGraphics().getName().length() > 0)) {
         name = entry.getGraphics().getName();
       }
-      if (name.toLowerCase().startsWith("undefined")) {
+      if (KeggIdTokenizer.hasPrefix(name, "undefined")) {
         // Rename group-nodes to "Group".
         name = "Group";
       }
@@ -818,6 +998,105 @@ public abstract class AbstractKEGGtranslator<OutputFormat> implements KEGGtransl
     return name;
   }
   
+  /**
+   * Detects gene families in a ";"-separated list of genes, e.g.,
+   * "ALG13, CXorf45...; ALG14, MGC19780..." to "ALG". Else, returns the
+   * first name of the first gene (see {@link #firstName(String)}).
+   * <p>Works on the character ranges of the first names in the given
+   * string, without splitting it.
+   * @param names
+   * @return the family name, the first name, or {@code null} if there
+   * is no non-empty name.
+   */
+  protected static String getFamilyOrFirstName(String names) {
+    // Like names.split(";"), trailing empty genes are ignored.
+    int end = names.length();
+    while ((end > 0) && (names.charAt(end - 1) == ';')) {
+      end--;
+    }
+    if (end < 1) {
+      return null;
+    }
+    
+    // Character ranges of the first name of the first gene and of the very first non-empty name.
+    int refStart = -1, refEnd = -1, firstStart = -1, firstEnd = -1;
+    int lcpLength = Integer.MAX_VALUE;
+    boolean distinct = false;
+    int start = 0;
+    while (start <= end) {
+      int segmentEnd = names.indexOf(';', start);
+      if ((segmentEnd < 0) || (segmentEnd > end)) {
+        segmentEnd = end;
+      }
+      
+      // Trim and extract the first name, like firstName(String)
+      int s = start, e = segmentEnd;
+      while ((s < e) && (names.charAt(s) <= ' ')) {
+        s++;
+      }
+      while ((e > s) && (names.charAt(e - 1) <= ' ')) {
+        e--;
+      }
+      int i = s + 1;
+      for (; i < e; i++) {
+        if ((names.charAt(i) == ',') && ((i == (e - 1)) || (names.charAt(i + 1) == ' '))) {
+          break;
+        }
+      }
+      if (i - s > 1) {
+        e = i;
+      }
+      
+      if (refStart < 0) {
+        refStart = s;
+        refEnd = e;
+      } else if ((e - s != refEnd - refStart) || !names.regionMatches(s, names, refStart, e - s)) {
+        distinct = true;
+      }
+      if (e > s) {
+        if (firstStart < 0) {
+          firstStart = s;
+          firstEnd = e;
+        } else {
+          // Longest common prefix of all non-empty first names
+          int k = 0;
+          int max = Math.min(Math.min(lcpLength, e - s), firstEnd - firstStart);
+          while ((k < max) && (names.charAt(s + k) == names.charAt(firstStart + k))) {
+            k++;
+          }
+          lcpLength = k;
+        }
+      }
+      start = segmentEnd + 1;
+    }
+    if (firstStart < 0) {
+      return null;
+    }
+    
+    if (distinct) {
+      int length = Math.min(lcpLength, firstEnd - firstStart);
+      // Require at least 3 chars for family identifiers
+      if (length > 2) {
+        String removedPart = names.substring(firstStart + length, firstEnd);
+        if (Utils.isNumber(removedPart, true)) {
+          // ALG13 and ALG14 have the common prefix ALG1 => remove 1
+          while (Character.isDigit(names.charAt(firstStart + length - 1))) {
+            length--;
+            if (length < 2) {
+              break;
+            }
+          }
+        }
+        
+        if (length > 2) {
+          return names.substring(firstStart, firstStart + length);
+        }
+      }
+    }
+    
+    return names.substring(firstStart, firstEnd);
+  }
+  
   /**
    * Returns the first gene symbol from a (KEGG) list
    * of symbols.
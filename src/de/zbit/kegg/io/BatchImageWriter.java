@@ -0,0 +1,492 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.kegg.io;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import y.view.Graph2D;
+import y.view.Graph2DView;
+import de.zbit.graph.gui.options.GraphBackgroundImageProvider;
+import de.zbit.graph.io.SBGN2GraphML;
+import de.zbit.graph.io.SBML2GraphML;
+import de.zbit.io.FileTools;
+import de.zbit.kegg.KEGGtranslatorCommandLineOnlyOptions;
+import de.zbit.kegg.KEGGtranslatorCommandLineOnlyOptions.IMAGE_FILE_FORMAT;
+import de.zbit.kegg.Translator;
+import de.zbit.kegg.gui.CachedBackgroundImageProvider;
+import de.zbit.kegg.gui.TranslatorPanelTools;
+import de.zbit.kegg.io.KEGGtranslatorIOOptions.Format;
+import de.zbit.kegg.parser.pathway.Pathway;
+import de.zbit.util.prefs.SBPreferences;
+
+/**
+ * Renders images of translated pathways for the
+ * {@link KEGGtranslatorCommandLineOnlyOptions#CREATE_JPG} batch mode.
+ * Graph construction (including the translation of the pathway, for
+ * output formats that are no graphs) and image encoding run headless
+ * on an own thread pool, such that the {@link BatchKEGGtranslator} can
+ * continue with the next pathway. Image buffers of matching size are
+ * reused between jobs.
+ *
+ * <p>If more jobs are pending than the pool can queue, the calling
+ * thread renders the image itself, which limits the memory that is
+ * occupied by pending graphs.
+ *
+ * <p><i>Note:<br/>
+ * Due to yFiles license requirements, we have to obfuscate this class
+ * in the JAR release of this application. Thus, this class
+ * can not be found by using the class name.<br/> If you can provide us
+ * with a proof of possessing a yFiles license yourself, we can send you
+ * an unobfuscated release of KEGGtranslator.</i></p>
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class BatchImageWriter {
+
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final transient Logger log = Logger.getLogger(BatchImageWriter.class.getName());
+
+  /**
+   * Minimum width of written images (see {@link #getOutputSize(Rectangle)}).
+   */
+  private static final int MIN_WIDTH = 1600;
+
+  /**
+   * Minimum height of written images (see {@link #getOutputSize(Rectangle)}).
+   */
+  private static final int MIN_HEIGHT = 1200;
+
+  /**
+   * Renders and encodes the images.
+   */
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * The translator that translated the pathways. Only used for background
+   * image providers that are not aware of single pathways.
+   */
+  private final KEGGtranslator<?> translator;
+
+  /**
+   * Adds the background image to each view or {@code null}.
+   */
+  private final GraphBackgroundImageProvider backgroundProvider;
+
+  /**
+   * The format of written images.
+   */
+  private final IMAGE_FILE_FORMAT format;
+
+  /**
+   * Compression quality between 0 and 1.
+   */
+  private final float quality;
+
+  /**
+   * Maximum number of unused buffers that are kept per size.
+   */
+  private final int maxBuffersPerSize;
+
+  /**
+   * Unused image buffers, per size.
+   */
+  private final Map<Dimension, List<BufferedImage>> buffers = new HashMap<Dimension, List<BufferedImage>>();
+
+  /**
+   * Converts pathways to graphs, for output formats that are no graphs.
+   * Created on first use (see {@link #getPathwayToGraph()}). Shared by
+   * all pool threads, as translations are performed one after another
+   * anyway (see {@link AbstractKEGGtranslator#translate(Pathway)}).
+   */
+  private KEGG2yGraph pathwayToGraph = null;
+
+  /**
+   * @param translator the translator that translates the pathways.
+   * @param prefs preferences containing the
+   * {@link KEGGtranslatorCommandLineOnlyOptions}.
+   */
+  public BatchImageWriter(KEGGtranslator<?> translator, SBPreferences prefs) {
+    super();
+    this.translator = translator;
+    backgroundProvider = TranslatorPanelTools.createBackgroundImageProvider();
+
+    IMAGE_FILE_FORMAT f = KEGGtranslatorCommandLineOnlyOptions.IMAGE_FORMAT.getValue(prefs);
+    format = (f == null) ? IMAGE_FILE_FORMAT.JPG : f;
+    Integer q = KEGGtranslatorCommandLineOnlyOptions.IMAGE_QUALITY.getValue(prefs);
+    quality = (q == null) ? 0.9f : Math.max(0, Math.min(100, q)) / 100f;
+
+    Integer threads = KEGGtranslatorCommandLineOnlyOptions.IMAGE_THREADS.getValue(prefs);
+    int numThreads = ((threads == null) || (threads < 1)) ? Runtime.getRuntime().availableProcessors() : threads.intValue();
+    maxBuffersPerSize = numThreads;
+
+    final AtomicInteger threadNumber = new AtomicInteger(1);
+    executor = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<Runnable>(numThreads * 2), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "BatchImageWriter-" + threadNumber.getAndIncrement());
+          t.setDaemon(true);
+          return t;
+        }
+      }, new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  /**
+   * @return the format of written images.
+   */
+  public IMAGE_FILE_FORMAT getFormat() {
+    return format;
+  }
+
+  /**
+   * Schedules an image of the given translated pathway to be written.
+   * @param translatedDoc translated pathway
+   * @param originalPW original and untranslated pathway
+   * @param outFile file to write. The extension is replaced by the one
+   * of the configured image format.
+   * @param outFormat user selected output format
+   * @return {@code true} if the image has been accepted. It is written
+   * asynchronously and failures are only logged. {@code false} if there
+   * is nothing to write.
+   */
+  public boolean submit(final Object translatedDoc, final Pathway originalPW, String outFile, final Format outFormat) {
+    if (translatedDoc == null) {
+      return false;
+    }
+    final String baseName = FileTools.removeFileExtension(outFile);
+    final String extension = "." + format.getFileExtension();
+
+    switch (outFormat) {
+      // BioPAX should be redirected to default:
+      //      case BioPAX_level2:
+      //      case BioPAX_level3:
+
+      case GIF:
+      case GML:
+      case GraphML:
+      case JPG:
+      case TGF:
+      case YGF:
+      case SBGN:
+      case SBML:
+      case SBML_L2V4:
+      case SBML_L3V1:
+      case SBML_QUAL:
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            write(translatedDoc, outFormat, false, originalPW, baseName + extension);
+          }
+        });
+        break;
+
+      case SBML_CORE_AND_QUAL:
+        // Create 2 files from the same document, one after another,
+        // because reading a document is not thread-safe.
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            write(translatedDoc, outFormat, false, originalPW, baseName + extension);
+            write(translatedDoc, outFormat, true, originalPW, baseName + "SBML_QUAL" + extension);
+          }
+        });
+        break;
+
+      default:
+        // Simply translate PW to graph and ignore all formats.
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            Graph2D graph = null;
+            try {
+              graph = getPathwayToGraph().translate(originalPW);
+            } catch (Exception exc) {
+              log.log(Level.WARNING, "Could not translate " + originalPW.getName() + " to a graph", exc);
+            }
+            write(graph, outFormat, false, originalPW, baseName + extension);
+          }
+        });
+        break;
+    }
+    return true;
+  }
+
+  /**
+   * @return the translator for output formats that are no graphs.
+   */
+  private synchronized KEGG2yGraph getPathwayToGraph() {
+    if (pathwayToGraph == null) {
+      pathwayToGraph = KEGG2yGraph.createKEGG2JPG(Translator.getManager());
+    }
+    return pathwayToGraph;
+  }
+
+  /**
+   * @param translatedDoc
+   * @param outFormat
+   * @param qual for {@link Format#SBML_CORE_AND_QUAL}, whether to create
+   * the graph of the qual model.
+   * @return the graph of the given document.
+   */
+  private static Graph2D createGraph(Object translatedDoc, Format outFormat, boolean qual) {
+    switch (outFormat) {
+      case SBGN:
+        return new SBGN2GraphML().createGraph((org.sbgn.bindings.Sbgn) translatedDoc);
+
+      case SBML:
+      case SBML_L2V4:
+      case SBML_L3V1:
+        return new SBML2GraphML().createGraph((org.sbml.jsbml.SBMLDocument) translatedDoc);
+
+      case SBML_QUAL:
+        return new SBML2GraphML(true).createGraph((org.sbml.jsbml.SBMLDocument) translatedDoc);
+
+      case SBML_CORE_AND_QUAL:
+        return new SBML2GraphML(qual).createGraph((org.sbml.jsbml.SBMLDocument) translatedDoc);
+
+      default:
+        return (Graph2D) translatedDoc;
+    }
+  }
+
+  /**
+   * Creates the graph of the given document, renders it and writes the
+   * image. Failures are logged, such that they neither get lost on a
+   * pool thread nor abort the batch, if the caller runs the task.
+   * @param translatedDoc
+   * @param outFormat
+   * @param qual see {@link #createGraph(Object, Format, boolean)}.
+   * @param originalPW
+   * @param outFile
+   */
+  private void write(Object translatedDoc, Format outFormat, boolean qual, Pathway originalPW, String outFile) {
+    try {
+      write(createGraph(translatedDoc, outFormat, qual), originalPW, outFile);
+    } catch (Exception exc) {
+      log.log(Level.WARNING, "Could not write image " + outFile, exc);
+    }
+  }
+
+  /**
+   * Renders the given graph and writes the image.
+   * @param graph
+   * @param originalPW
+   * @param outFile
+   */
+  private void write(Graph2D graph, Pathway originalPW, String outFile) {
+    if (graph == null) {
+      return;
+    }
+    Graph2DView view = new Graph2DView(graph);
+    Rectangle box = graph.getBoundingBox();
+    Dimension size = getOutputSize(box);
+    view.setSize(size);
+    view.zoomToArea(box.getX() - 5, box.getY() - 5, box.getWidth() + 10, box.getHeight() + 10);
+    view.setPaintDetailThreshold(0);
+    addBackgroundImage(view, originalPW);
+
+    BufferedImage image = acquireBuffer(size);
+    try {
+      Graphics2D g = image.createGraphics();
+      try {
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, size.width, size.height);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        view.paintVisibleContent(g);
+      } finally {
+        g.dispose();
+      }
+      encode(image, new File(outFile));
+      log.fine("Wrote image " + outFile);
+    } catch (Exception exc) {
+      log.log(Level.WARNING, "Could not write image " + outFile, exc);
+    } finally {
+      releaseBuffer(size, image);
+      graph.removeView(view);
+    }
+  }
+
+  /**
+   * Same size as chosen by the {@link de.zbit.graph.io.Graph2Dwriter}.
+   * @param r bounding box of the graph.
+   * @return the size of the image.
+   */
+  private static Dimension getOutputSize(Rectangle r) {
+    double width = Math.max(1, r.getWidth());
+    double height = Math.max(1, r.getHeight());
+    if (width < MIN_WIDTH) {
+      height *= MIN_WIDTH / width;
+      width = MIN_WIDTH;
+    }
+    if (height < MIN_HEIGHT) {
+      width *= MIN_HEIGHT / height;
+      height = MIN_HEIGHT;
+    }
+    return new Dimension((int) width, (int) height);
+  }
+
+  /**
+   * @param view
+   * @param originalPW
+   */
+  private void addBackgroundImage(Graph2DView view, Pathway originalPW) {
+    if (backgroundProvider == null) {
+      return;
+    }
+    try {
+      if (backgroundProvider instanceof CachedBackgroundImageProvider) {
+        // Other pathways are translated meanwhile, so do not rely on
+        // the last translated pathway of the translator.
+        ((CachedBackgroundImageProvider) backgroundProvider).addBackgroundImage(view, originalPW, true);
+      } else {
+        backgroundProvider.addBackgroundImage(view, translator, true);
+      }
+    } catch (Exception exc) {
+      log.log(Level.FINE, "Could not add background image.", exc);
+    }
+  }
+
+  /**
+   * @param size
+   * @return an unused buffer of the given size.
+   */
+  private BufferedImage acquireBuffer(Dimension size) {
+    synchronized (buffers) {
+      List<BufferedImage> list = buffers.get(size);
+      if ((list != null) && !list.isEmpty()) {
+        return list.remove(0);
+      }
+    }
+    return new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+  }
+
+  /**
+   * Makes the given buffer available for further images of the same size.
+   * @param size
+   * @param image
+   */
+  private void releaseBuffer(Dimension size, BufferedImage image) {
+    synchronized (buffers) {
+      List<BufferedImage> list = buffers.get(size);
+      if (list == null) {
+        list = new LinkedList<BufferedImage>();
+        buffers.put(size, list);
+      }
+      if (list.size() < maxBuffersPerSize) {
+        list.add(image);
+      }
+    }
+  }
+
+  /**
+   * Writes the image in the configured format. If no encoder for the
+   * format is available (e.g., WebP requires an additional ImageIO
+   * plugin), a PNG is written instead.
+   * @param image
+   * @param file
+   * @throws IOException
+   */
+  private void encode(BufferedImage image, File file) throws IOException {
+    ImageWriter writer = getImageWriter(format.getFileExtension());
+    if (writer == null) {
+      log.warning("No image encoder for " + format + " available, writing PNG instead.");
+      file = new File(FileTools.removeFileExtension(file.getPath()) + ".png");
+      writer = getImageWriter("png");
+    }
+    ImageWriteParam param = writer.getDefaultWriteParam();
+    if (param.canWriteCompressed()) {
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      if ((param.getCompressionType() == null) && (param.getCompressionTypes() != null)) {
+        param.setCompressionType(param.getCompressionTypes()[0]);
+      }
+      param.setCompressionQuality(quality);
+    }
+
+    if (file.exists()) {
+      file.delete();
+    }
+    ImageOutputStream out = ImageIO.createImageOutputStream(file);
+    try {
+      writer.setOutput(out);
+      writer.write(null, new IIOImage(image, null, null), param);
+    } finally {
+      writer.dispose();
+      out.close();
+    }
+  }
+
+  /**
+   * @param formatName
+   * @return a new writer for the given format or {@code null}.
+   */
+  private static ImageWriter getImageWriter(String formatName) {
+    Iterator<ImageWriter> it = ImageIO.getImageWritersByFormatName(formatName);
+    return it.hasNext() ? it.next() : null;
+  }
+
+  /**
+   * Waits until all scheduled images have been written and releases
+   * all threads and buffers. No further images can be scheduled
+   * afterwards.
+   */
+  public void shutdown() {
+    executor.shutdown();
+    try {
+      while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        log.fine("Waiting for " + (executor.getQueue().size() + executor.getActiveCount()) + " images to be written.");
+      }
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (buffers) {
+      buffers.clear();
+    }
+  }
+
+}
@@ -25,10 +25,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.logging.Logger;
 
-import de.zbit.graph.io.Graph2Dwriteable.WriteableFileExtensions;
-import de.zbit.graph.io.Graph2Dwriter;
-import de.zbit.graph.io.SBGN2GraphML;
-import de.zbit.graph.io.SBML2GraphML;
 import de.zbit.io.DirectoryParser;
 import de.zbit.io.FileTools;
 import de.zbit.io.SerializableTools;
@@ -36,9 +32,9 @@ import de.zbit.io.filefilter.SBFileFilter;
 import de.zbit.kegg.KEGGtranslatorCommandLineOnlyOptions;
 import de.zbit.kegg.Translator;
 import de.zbit.kegg.api.cache.KeggInfoManagement;
-import de.zbit.kegg.gui.TranslatorPanelTools;
 import de.zbit.kegg.io.KEGGtranslatorIOOptions.Format;
 import de.zbit.kegg.parser.pathway.Pathway;
+import de.zbit.util.IdentifierPool;
 import de.zbit.util.prefs.SBPreferences;
 
 /**
@@ -81,6 +77,12 @@ public class BatchKEGGtranslator {
    */
   SBPreferences prefs = SBPreferences.getPreferencesFor(KEGGtranslatorCommandLineOnlyOptions.class);
   
+  /**
+   * Renders images in the {@link KEGGtranslatorCommandLineOnlyOptions#CREATE_JPG}
+   * mode. Created on first use.
+   */
+  private BatchImageWriter imageWriter = null;
+  
   /**
    * 
    * @param dir
@@ -154,7 +156,20 @@ public class BatchKEGGtranslator {
    * the {@link #orgOutdir} as input directory.
    */
   public void parseDirAndSubDir() {
-    parseDirAndSubDir(orgOutdir);
+    // Share topology-dependent results among organisms of the same map
+    PathwayTemplate.setEnabled(true);
+    try {
+      parseDirAndSubDir(orgOutdir);
+    } finally {
+      // Wait for pending images
+      if (imageWriter != null) {
+        imageWriter.shutdown();
+        imageWriter = null;
+      }
+      // Release identifiers, URIs and templates shared by the pathways of this batch
+      IdentifierPool.clear();
+      PathwayTemplate.setEnabled(false);
+    }
   }
   
   /**
@@ -273,66 +288,17 @@ public class BatchKEGGtranslator {
    * @param originalPW original and untranslated pathway
    * @param outFile file to write
    * @param outFormat user selected output format
-   * @return {@code true} if a JPG has been successfully written.
+   * @return {@code true} if the image has been accepted (see
+   * {@link BatchImageWriter#submit(Object, Pathway, String, Format)}).
    * @throws Exception if something went wrong or a required library is not available.
    */
   private boolean writeAsJPG(Object translatedDoc, Pathway originalPW, String outFile, Format outFormat) throws Exception {
-    if (translatedDoc==null) {
-      return false;
-    }
-    
-    outFile = FileTools.removeFileExtension(outFile) + ".jpg";
-    Graph2Dwriter writer = new Graph2Dwriter(WriteableFileExtensions.jpg);
-    TranslatorPanelTools.setupBackgroundImage(writer);
-    Object myGraph = null; // actually a Graph2D object
-    
     // NOTE: we should at all costs avoid imports from yFiles, JSBML or other
     // libraries here!
-    
-    switch (outFormat) {
-      // BioPAX should be redirected to default:
-      //      case BioPAX_level2:
-      //      case BioPAX_level3:
-      
-      case GIF:
-      case GML:
-      case GraphML:
-      case JPG:
-      case TGF:
-      case YGF:
-        myGraph = translatedDoc;
-        break;
-        
-      case SBGN:
-        myGraph = new SBGN2GraphML().createGraph((org.sbgn.bindings.Sbgn) translatedDoc);
-        break;
-        
-      case SBML:
-      case SBML_L2V4:
-      case SBML_L3V1:
-        myGraph = new SBML2GraphML().createGraph((org.sbml.jsbml.SBMLDocument) translatedDoc);
-        break;
-        
-      case SBML_QUAL:
-        myGraph = new SBML2GraphML(true).createGraph((org.sbml.jsbml.SBMLDocument) translatedDoc);
-        break;
-        
-      case SBML_CORE_AND_QUAL:
-        // Create 2 files
-        myGraph = new SBML2GraphML().createGraph((org.sbml.jsbml.SBMLDocument) translatedDoc);
-        
-        // Write qual_graph immediately
-        Object myGraph2 = new SBML2GraphML(true).createGraph((org.sbml.jsbml.SBMLDocument) translatedDoc);
-        writer.writeToFile((y.view.Graph2D)myGraph2, FileTools.removeFileExtension(outFile) + "SBML_QUAL.jpg");
-        break;
-        
-      default:
-        // Simply translate PW to graph and ignore all formats
-        myGraph = new KEGG2yGraph(writer.getOutputHandler()).translate(originalPW);
-        break;
+    if (imageWriter == null) {
+      imageWriter = new BatchImageWriter(translator, prefs);
     }
-    
-    return writer.writeToFile((y.view.Graph2D)myGraph, outFile);
+    return imageWriter.submit(translatedDoc, originalPW, outFile, outFormat);
   }
   
   /**
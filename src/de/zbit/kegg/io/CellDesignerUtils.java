@@ -21,7 +21,11 @@
 package de.zbit.kegg.io;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.xml.stream.XMLStreamException;
@@ -42,10 +46,19 @@ import de.zbit.kegg.parser.pathway.EntryType;
 import de.zbit.kegg.parser.pathway.Graphics;
 import de.zbit.kegg.parser.pathway.Pathway;
 import de.zbit.kegg.parser.pathway.Reaction;
+import de.zbit.util.IntObjectMap;
 
 /**
  * Contains functions to add CellDesigner annotations to the SBML
  * document, generated by {@link KEGG2jSBML}.
+ *
+ * <p>All annotations are collected in {@link StringBuilder}s and every
+ * element gets its complete CellDesigner extension in a single
+ * {@link Annotation#appendNonRDFAnnotation(String)} call, because each
+ * call parses the given XML. Species annotations are completed by
+ * catalyzed reactions later on and are thus written when the model is
+ * finalized (see {@link #addCellDesignerAnnotationToModel(Pathway, Model, Compartment)}).
+ *
  * @author Clemens Wrzodek
  * @since 1.0
  * @version $Rev: 409 $
@@ -53,12 +66,57 @@ import de.zbit.kegg.parser.pathway.Reaction;
 public class CellDesignerUtils {
   
   /*
-   * Temporary Stringbuffers, needed to write CellDesigner annotations. Clear
+   * Temporary StringBuilders, needed to write CellDesigner annotations. Clear
    * those before converting another document!
    */
-  private StringBuffer CDloSpeciesAliases = new StringBuffer();
-  private StringBuffer CDloComplexSpeciesAliases = new StringBuffer();
-  private StringBuffer CDloProteins = new StringBuffer();
+  private StringBuilder CDloSpeciesAliases = new StringBuilder();
+  private StringBuilder CDloComplexSpeciesAliases = new StringBuilder();
+  private StringBuilder CDloProteins = new StringBuilder();
+  
+  /**
+   * Pending CellDesigner annotations of all annotated species. By identity,
+   * since the hash code of an {@link SBase} depends on its (changing) content.
+   */
+  private Map<NamedSBase, SpeciesAnnotation> speciesAnnotations = new IdentityHashMap<NamedSBase, SpeciesAnnotation>();
+  
+  /**
+   * All {@link ModifierSpeciesReference}s that already have an alias
+   * annotation (a modifier may occur in multiple reactions).
+   */
+  private Set<ModifierSpeciesReference> annotatedModifiers = Collections.newSetFromMap(new IdentityHashMap<ModifierSpeciesReference, Boolean>());
+  
+  /**
+   * CellDesigner annotation of a single species.
+   */
+  private static class SpeciesAnnotation {
+    /**
+     * The species identity, i.e., class and name or protein reference.
+     */
+    private String identity = "";
+    /**
+     * Identifiers of all reactions, catalyzed by the species.
+     */
+    private List<String> catalyzedReactions = new ArrayList<String>();
+    
+    /**
+     * @return the complete CellDesigner extension of the species.
+     */
+    public String toXMLString() {
+      StringBuilder sb = new StringBuilder();
+      sb.append("<celldesigner:extension>\n");
+      sb.append(identity);
+      if (!catalyzedReactions.isEmpty()) {
+        sb.append("<celldesigner:listOfCatalyzedReactions>\n");
+        // Most recently added reactions first
+        for (int i = catalyzedReactions.size() - 1; i >= 0; i--) {
+          sb.append("<celldesigner:catalyzed reaction=\"").append(catalyzedReactions.get(i)).append("\"/>\n");
+        }
+        sb.append("</celldesigner:listOfCatalyzedReactions>\n");
+      }
+      sb.append("</celldesigner:extension>\n");
+      return sb.toString();
+    }
+  }
   
   /**
    * Initialize a new CellDesigner Annotation utility class.
@@ -69,91 +127,102 @@ public class CellDesignerUtils {
   
   /**
    * Adds the cell designer annotaions the the model.
-   * 
+   *
    * This HAS TO BE called after everyhing is converted. It closes all CellDesigner
    * tags and finalizes the annotaion.
-   * 
+   *
    * @param p
    * @param model
    * @param defaultC
    * @throws XMLStreamException
    */
   public void addCellDesignerAnnotationToModel(Pathway p, Model model, Compartment defaultC) throws XMLStreamException {
-    Annotation annot = model.getAnnotation();
+    StringBuilder annot = new StringBuilder();
     
-    annot.appendNonRDFAnnotation("<celldesigner:extension>\n");
-    annot.appendNonRDFAnnotation("<celldesigner:modelVersion>4.0</celldesigner:modelVersion>\n");
+    annot.append("<celldesigner:extension>\n");
+    annot.append("<celldesigner:modelVersion>4.0</celldesigner:modelVersion>\n");
     int[] maxCoords = KeggTools.getMaxCoords(p);
-    annot.appendNonRDFAnnotation("<celldesigner:modelDisplay sizeX=\""
-        + (maxCoords[0] + 22) + "\" sizeY=\"" + (maxCoords[1] + 22) + "\"/>\n");
-    annot.appendNonRDFAnnotation("<celldesigner:listOfCompartmentAliases>\n");
+    annot.append("<celldesigner:modelDisplay sizeX=\"")
+    .append(maxCoords[0] + 22).append("\" sizeY=\"").append(maxCoords[1] + 22).append("\"/>\n");
+    annot.append("<celldesigner:listOfCompartmentAliases>\n");
     
-    annot.appendNonRDFAnnotation(String.format("<celldesigner:compartmentAlias id=\"cd_ca%s\" compartment=\"%s\">\n",
-      defaultC.getId(), defaultC.getId()));
-    annot.appendNonRDFAnnotation("<celldesigner:class>SQUARE</celldesigner:class>\n");
-    annot.appendNonRDFAnnotation(String.format("<celldesigner:bounds x=\"10.0\" y=\"10.0\" w=\"%d\" h=\"%d\" />\n",
-      (maxCoords[0] + 2), (maxCoords[1] + 2)));
+    annot.append("<celldesigner:compartmentAlias id=\"cd_ca").append(defaultC.getId())
+    .append("\" compartment=\"").append(defaultC.getId()).append("\">\n");
+    annot.append("<celldesigner:class>SQUARE</celldesigner:class>\n");
+    annot.append("<celldesigner:bounds x=\"10.0\" y=\"10.0\" w=\"").append(maxCoords[0] + 2)
+    .append("\" h=\"").append(maxCoords[1] + 2).append("\" />\n");
     // <celldesigner:namePoint x="WIDTH HALBE - TEXT_WIDHT HALB"
     // y="COMPARTMENT_HEIGHT-25"/>
-    annot.appendNonRDFAnnotation(String.format("<celldesigner:namePoint x=\"%d\" y=\"%d\"/>\n",
-      ((maxCoords[0] + 22) / 2 - (3 * defaultC.getName().length())),maxCoords[1] - 22));
-    annot.appendNonRDFAnnotation("<celldesigner:doubleLine thickness=\"10.0\" outerWidth=\"2.0\" innerWidth=\"1.0\"/>\n");
-    annot.appendNonRDFAnnotation("<celldesigner:paint color=\"ffcccc00\" scheme=\"Color\" />\n");
-    annot.appendNonRDFAnnotation("<celldesigner:info state=\"empty\" angle=\"0.0\"/>\n");
-    annot.appendNonRDFAnnotation("</celldesigner:compartmentAlias>\n");
+    annot.append("<celldesigner:namePoint x=\"").append((maxCoords[0] + 22) / 2 - (3 * defaultC.getName().length()))
+    .append("\" y=\"").append(maxCoords[1] - 22).append("\"/>\n");
+    annot.append("<celldesigner:doubleLine thickness=\"10.0\" outerWidth=\"2.0\" innerWidth=\"1.0\"/>\n");
+    annot.append("<celldesigner:paint color=\"ffcccc00\" scheme=\"Color\" />\n");
+    annot.append("<celldesigner:info state=\"empty\" angle=\"0.0\"/>\n");
+    annot.append("</celldesigner:compartmentAlias>\n");
     
-    annot.appendNonRDFAnnotation("</celldesigner:listOfCompartmentAliases>\n");
+    annot.append("</celldesigner:listOfCompartmentAliases>\n");
     
-    if (CDloComplexSpeciesAliases.length() > 0) {
-      annot.appendNonRDFAnnotation("<celldesigner:listOfComplexSpeciesAliases>\n");
-      annot.appendNonRDFAnnotation(CDloComplexSpeciesAliases.toString());
-      annot.appendNonRDFAnnotation("</celldesigner:listOfComplexSpeciesAliases>\n");
-    } else {
-      annot.appendNonRDFAnnotation("<celldesigner:listOfComplexSpeciesAliases/>\n");
-    }
-    if (CDloSpeciesAliases.length() > 0) {
-      annot.appendNonRDFAnnotation("<celldesigner:listOfSpeciesAliases>\n");
-      annot.appendNonRDFAnnotation(CDloSpeciesAliases.toString());
-      annot.appendNonRDFAnnotation("</celldesigner:listOfSpeciesAliases>\n");
-    } else {
-      annot.appendNonRDFAnnotation("<celldesigner:listOfSpeciesAliases/>\n");
-    }
-    if (CDloProteins.length() > 0) {
-      annot.appendNonRDFAnnotation("<celldesigner:listOfProteins>\n");
-      annot.appendNonRDFAnnotation(CDloProteins.toString());
-      annot.appendNonRDFAnnotation("</celldesigner:listOfProteins>\n");
+    appendList(annot, "listOfComplexSpeciesAliases", CDloComplexSpeciesAliases);
+    appendList(annot, "listOfSpeciesAliases", CDloSpeciesAliases);
+    appendList(annot, "listOfProteins", CDloProteins);
+    annot.append("<celldesigner:listOfGroups/>\n");
+    annot.append("<celldesigner:listOfGenes/>\n");
+    annot.append("<celldesigner:listOfRNAs/>\n");
+    annot.append("<celldesigner:listOfAntisenseRNAs/>\n");
+    annot.append("<celldesigner:listOfLayers/>\n");
+    annot.append("<celldesigner:listOfBlockDiagrams/>\n");
+    annot.append("</celldesigner:extension>\n");
+    
+    model.getAnnotation().appendNonRDFAnnotation(annot.toString());
+    
+    closeOpenSpeciesTags();
+  }
+  
+  /**
+   * Appends the given list content, enclosed by CellDesigner tags with
+   * the given name, or an empty tag if there is no content.
+   * @param target
+   * @param name
+   * @param content
+   */
+  private static void appendList(StringBuilder target, String name, CharSequence content) {
+    if (content.length() > 0) {
+      target.append("<celldesigner:").append(name).append(">\n");
+      target.append(content);
+      target.append("</celldesigner:").append(name).append(">\n");
     } else {
-      annot.appendNonRDFAnnotation("<celldesigner:listOfProteins/>\n");
+      target.append("<celldesigner:").append(name).append("/>\n");
     }
-    annot.appendNonRDFAnnotation("<celldesigner:listOfGroups/>\n");
-    annot.appendNonRDFAnnotation("<celldesigner:listOfGenes/>\n");
-    annot.appendNonRDFAnnotation("<celldesigner:listOfRNAs/>\n");
-    annot.appendNonRDFAnnotation("<celldesigner:listOfAntisenseRNAs/>\n");
-    annot.appendNonRDFAnnotation("<celldesigner:listOfLayers/>\n");
-    annot.appendNonRDFAnnotation("<celldesigner:listOfBlockDiagrams/>\n");
-    annot.appendNonRDFAnnotation("</celldesigner:extension>\n");
-    
-    closeOpenSpeciesTags(model);
   }
   
   /**
-   * Adds "</celldesigner:extension>" to all species annotations.
-   * @param model
+   * Writes the pending (and now complete) CellDesigner extension of
+   * every annotated species.
    * @throws XMLStreamException
    */
-  private void closeOpenSpeciesTags(Model model) throws XMLStreamException {
-    // Close open species CD tags.
-    for (Species s : model.getListOfSpecies()) {
-      String a = s.getAnnotation().getNonRDFannotation().toXMLString();
-      if (a != null && a.length() > 0 && a.contains("celldesigner")) {
-        s.getAnnotation().appendNonRDFAnnotation("</celldesigner:extension>\n");
-      }
+  private void closeOpenSpeciesTags() throws XMLStreamException {
+    for (Map.Entry<NamedSBase, SpeciesAnnotation> e : speciesAnnotations.entrySet()) {
+      e.getKey().getAnnotation().appendNonRDFAnnotation(e.getValue().toXMLString());
     }
+    speciesAnnotations.clear();
+  }
+  
+  /**
+   * @param spec
+   * @return the pending annotation of the given species.
+   */
+  private SpeciesAnnotation getSpeciesAnnotation(NamedSBase spec) {
+    SpeciesAnnotation a = speciesAnnotations.get(spec);
+    if (a == null) {
+      a = new SpeciesAnnotation();
+      speciesAnnotations.put(spec, a);
+    }
+    return a;
   }
   
   /**
    * Call me only on final/completely configured reactions!
-   * 
+   *
    * @param sbReaction
    * @param r
    * @throws XMLStreamException
@@ -166,121 +235,112 @@ public class CellDesignerUtils {
     }
     
     // Add Reaction Annotation
-    sbReaction.getAnnotation().appendNonRDFAnnotation("<celldesigner:extension>\n");
-    sbReaction.getAnnotation().appendNonRDFAnnotation(String.format("<celldesigner:name>%s</celldesigner:name>\n",
-      sbReaction.getName()));
+    StringBuilder annot = new StringBuilder();
+    annot.append("<celldesigner:extension>\n");
+    annot.append("<celldesigner:name>").append(sbReaction.getName()).append("</celldesigner:name>\n");
     // TODO: STATE_TRANSITION or UNKNOWN_TRANSITION ? Ersteres in anderen
     // releases.
-    sbReaction.getAnnotation().appendNonRDFAnnotation("<celldesigner:reactionType>STATE_TRANSITION</celldesigner:reactionType>\n");
+    annot.append("<celldesigner:reactionType>STATE_TRANSITION</celldesigner:reactionType>\n");
     
-    sbReaction.getAnnotation().appendNonRDFAnnotation("<celldesigner:baseReactants>\n");
+    annot.append("<celldesigner:baseReactants>\n");
     for (SpeciesReference s : sbReaction.getListOfReactants()) {
       if (s!=null && s.isSetSpeciesInstance()) {
-        sbReaction.getAnnotation().appendNonRDFAnnotation(String.format("<celldesigner:baseReactant species=\"%s\" alias=\"%s\"/>\n",
-          s.getSpeciesInstance().getId(),"cd_sa"+ s.getSpeciesInstance().getId()));
-        
-        // Write annotation for SpeciesReference
-        if (!s.isSetAnnotation()) {
-          Annotation rAnnot = new Annotation("");
-          rAnnot.setAbout("");
-          s.setAnnotation(rAnnot);
-          if (!containsCellDesignerNS(s)) {
-            s.getAnnotation().addDeclaredNamespace("xmlns:celldesigner", "http://www.sbml.org/2001/ns/celldesigner");
-            s.setNamespace("xmlns:celldesigner=http://www.sbml.org/2001/ns/celldesigner");
-          }
-        }
-        s.getAnnotation().appendNonRDFAnnotation(String.format("<celldesigner:extension>\n<celldesigner:alias>%s</celldesigner:alias>\n</celldesigner:extension>\n",
-          "cd_sa"+ s.getSpeciesInstance().getId()));
+        appendBaseSpecies(annot, "baseReactant", s);
       }
     }
-    sbReaction.getAnnotation().appendNonRDFAnnotation("</celldesigner:baseReactants>\n");
+    annot.append("</celldesigner:baseReactants>\n");
     
-    sbReaction.getAnnotation().appendNonRDFAnnotation("<celldesigner:baseProducts>\n");
+    annot.append("<celldesigner:baseProducts>\n");
     for (SpeciesReference s : sbReaction.getListOfProducts()) {
       if (s!=null && s.isSetSpeciesInstance()) {
-        sbReaction.getAnnotation().appendNonRDFAnnotation(String.format("<celldesigner:baseProduct species=\"%s\" alias=\"%s\"/>\n",
-          s.getSpeciesInstance().getId(),"cd_sa"+ s.getSpeciesInstance().getId()));
-        // Write annotation for SpeciesReference
-        if (!s.isSetAnnotation()) {
-          Annotation rAnnot = new Annotation("");
-          rAnnot.setAbout("");
-          s.setAnnotation(rAnnot);
-          if (!containsCellDesignerNS(s)) {
-            s.getAnnotation().addDeclaredNamespace("xmlns:celldesigner", "http://www.sbml.org/2001/ns/celldesigner");
-            s.setNamespace("xmlns:celldesigner=http://www.sbml.org/2001/ns/celldesigner");
-          }
-        }
-        s.getAnnotation().appendNonRDFAnnotation(String.format("<celldesigner:extension>\n<celldesigner:alias>%s</celldesigner:alias>\n</celldesigner:extension>\n",
-          "cd_sa"+ s.getSpeciesInstance().getId()));
+        appendBaseSpecies(annot, "baseProduct", s);
       }
     }
-    sbReaction.getAnnotation().appendNonRDFAnnotation("</celldesigner:baseProducts>\n");
+    annot.append("</celldesigner:baseProducts>\n");
     
-    sbReaction.getAnnotation().appendNonRDFAnnotation("<celldesigner:connectScheme connectPolicy=\"direct\" rectangleIndex=\"0\">\n");
-    sbReaction.getAnnotation().appendNonRDFAnnotation("<celldesigner:listOfLineDirection>\n");
-    sbReaction.getAnnotation().appendNonRDFAnnotation("<celldesigner:lineDirection index=\"0\" value=\"unknown\"/>\n");
-    sbReaction.getAnnotation().appendNonRDFAnnotation("</celldesigner:listOfLineDirection>\n");
-    sbReaction.getAnnotation().appendNonRDFAnnotation("</celldesigner:connectScheme>\n");
-    sbReaction.getAnnotation().appendNonRDFAnnotation("<celldesigner:line width=\"1.0\" color=\"ff000000\"/>\n");
+    annot.append("<celldesigner:connectScheme connectPolicy=\"direct\" rectangleIndex=\"0\">\n");
+    annot.append("<celldesigner:listOfLineDirection>\n");
+    annot.append("<celldesigner:lineDirection index=\"0\" value=\"unknown\"/>\n");
+    annot.append("</celldesigner:listOfLineDirection>\n");
+    annot.append("</celldesigner:connectScheme>\n");
+    annot.append("<celldesigner:line width=\"1.0\" color=\"ff000000\"/>\n");
     
-    sbReaction.getAnnotation().appendNonRDFAnnotation("<celldesigner:listOfModification>\n");
+    annot.append("<celldesigner:listOfModification>\n");
     for (ModifierSpeciesReference s : sbReaction.getListOfModifiers()) {
-      sbReaction.getAnnotation().appendNonRDFAnnotation(
-        String.format("<celldesigner:modification type=\"CATALYSIS\" modifiers=\"%s\" aliases=\"%s\" targetLineIndex=\"-1,0\">\n", // original: -1,2
-          s.getSpeciesInstance().getId(),"cd_sa"+ s.getSpeciesInstance().getId()));
-      sbReaction.getAnnotation().appendNonRDFAnnotation("<celldesigner:connectScheme connectPolicy=\"direct\">\n");
-      sbReaction.getAnnotation().appendNonRDFAnnotation("<celldesigner:listOfLineDirection>\n");
-      sbReaction.getAnnotation().appendNonRDFAnnotation("<celldesigner:lineDirection index=\"0\" value=\"unknown\"/>\n");
-      sbReaction.getAnnotation().appendNonRDFAnnotation("</celldesigner:listOfLineDirection>\n");
-      sbReaction.getAnnotation().appendNonRDFAnnotation("</celldesigner:connectScheme>\n");
-      sbReaction.getAnnotation().appendNonRDFAnnotation("<celldesigner:line width=\"1.0\" color=\"ff000000\"/>\n");
-      sbReaction.getAnnotation().appendNonRDFAnnotation("</celldesigner:modification>\n");
+      String speciesId = s.getSpeciesInstance().getId();
+      annot.append("<celldesigner:modification type=\"CATALYSIS\" modifiers=\"").append(speciesId)
+      .append("\" aliases=\"cd_sa").append(speciesId).append("\" targetLineIndex=\"-1,0\">\n"); // original: -1,2
+      annot.append("<celldesigner:connectScheme connectPolicy=\"direct\">\n");
+      annot.append("<celldesigner:listOfLineDirection>\n");
+      annot.append("<celldesigner:lineDirection index=\"0\" value=\"unknown\"/>\n");
+      annot.append("</celldesigner:listOfLineDirection>\n");
+      annot.append("</celldesigner:connectScheme>\n");
+      annot.append("<celldesigner:line width=\"1.0\" color=\"ff000000\"/>\n");
+      annot.append("</celldesigner:modification>\n");
       
       // Write annotation for ModifierSpeciesReference
       
       // It happens, that a modifier occurs in multiple reactions. Take care of this here.
-      String currentAnnotation = s.getAnnotation().getNonRDFannotation().toXMLString();
-      if (currentAnnotation!=null &&
-          !s.getAnnotation().getNonRDFannotation().toXMLString().contains("<celldesigner:alias>")) {
-        s.getAnnotation().appendNonRDFAnnotation(String.format(
-          "<celldesigner:extension>\n<celldesigner:alias>%s</celldesigner:alias>\n</celldesigner:extension>\n",
-          "cd_sa" + s.getSpeciesInstance().getId()));
+      if (annotatedModifiers.add(s)) {
+        s.getAnnotation().appendNonRDFAnnotation(createAliasExtension(speciesId));
       }
       
       // Write further annotations for the Modifying species.
-      final String loKey = "<celldesigner:listOfCatalyzedReactions>";
-      // The key, we want to add
-      final String newKey = String.format("<celldesigner:catalyzed reaction=\"%s\"/>\n",sbReaction.getId());
-      currentAnnotation = s.getSpeciesInstance().getAnnotation().getNonRDFannotation().toXMLString();
-      int pos = -1;
-      if (currentAnnotation != null) {
-        pos = currentAnnotation.indexOf(loKey);
-        if (pos >= 0) {
-          currentAnnotation = currentAnnotation.substring(0, pos + loKey.length()) + newKey + currentAnnotation.substring(pos + loKey.length() + 1);
-          s.getSpeciesInstance().getAnnotation().setNonRDFAnnotation(currentAnnotation);
-        }
-      }
-      if (pos < 0) {
-        s.getSpeciesInstance().getAnnotation().appendNonRDFAnnotation(
-          loKey+"\n" + newKey + "</celldesigner:listOfCatalyzedReactions>\n");
-      }
-      
+      getSpeciesAnnotation(s.getSpeciesInstance()).catalyzedReactions.add(sbReaction.getId());
     }
-    sbReaction.getAnnotation().appendNonRDFAnnotation("</celldesigner:listOfModification>\n");
+    annot.append("</celldesigner:listOfModification>\n");
+    
+    annot.append("</celldesigner:extension>\n");
+    sbReaction.getAnnotation().appendNonRDFAnnotation(annot.toString());
+  }
+  
+  /**
+   * Appends a base reactant or product to the reaction annotation and
+   * annotates the given {@link SpeciesReference} with its alias.
+   * @param annot the reaction annotation.
+   * @param tag "baseReactant" or "baseProduct".
+   * @param s
+   * @throws XMLStreamException
+   */
+  private void appendBaseSpecies(StringBuilder annot, String tag, SpeciesReference s) throws XMLStreamException {
+    String speciesId = s.getSpeciesInstance().getId();
+    annot.append("<celldesigner:").append(tag).append(" species=\"").append(speciesId)
+    .append("\" alias=\"cd_sa").append(speciesId).append("\"/>\n");
     
-    sbReaction.getAnnotation().appendNonRDFAnnotation("</celldesigner:extension>\n");
+    // Write annotation for SpeciesReference
+    if (!s.isSetAnnotation()) {
+      Annotation rAnnot = new Annotation("");
+      rAnnot.setAbout("");
+      s.setAnnotation(rAnnot);
+      if (!containsCellDesignerNS(s)) {
+        s.getAnnotation().addDeclaredNamespace("xmlns:celldesigner", "http://www.sbml.org/2001/ns/celldesigner");
+        s.setNamespace("xmlns:celldesigner=http://www.sbml.org/2001/ns/celldesigner");
+      }
+    }
+    s.getAnnotation().appendNonRDFAnnotation(createAliasExtension(speciesId));
+  }
+  
+  /**
+   * @param speciesId
+   * @return a CellDesigner extension, referencing the alias of the given species.
+   */
+  private static String createAliasExtension(String speciesId) {
+    return "<celldesigner:extension>\n<celldesigner:alias>cd_sa" + speciesId + "</celldesigner:alias>\n</celldesigner:extension>\n";
   }
   
   /**
    * Adds cell designer annotations to the given species
-   * 
+   *
    * HAS TO BE CALLED AFTER EVERY SPECIES IS CONVERTED TO jSBML!
-   * 
-   * Uses spec.getName() ! Be careful, the species CD Extension tag is NOT
-   * closed.
+   *
+   * Uses spec.getName() ! Be careful, the species CD Extension is written
+   * not until {@link #addCellDesignerAnnotationToModel(Pathway, Model, Compartment)}.
+   * @param spec
+   * @param e
+   * @param entryElements mapping from entry ids to created species.
    * @throws XMLStreamException
    */
-  private void addCellDesignerAnnotationToSpecies(NamedSBase spec, Entry e) throws XMLStreamException {
+  private void addCellDesignerAnnotationToSpecies(NamedSBase spec, Entry e, IntObjectMap<Object> entryElements) throws XMLStreamException {
     // TODO: Sind die defaults so richtig? was bedeutet z.B. cd:activity?
     EntryType t = e.getType();
     boolean isGroupNode = AbstractKEGGtranslator.isGroupNode(e); // genes = group in kgml v<0.7
@@ -291,25 +351,23 @@ public class CellDesignerUtils {
     }
     
     // Add to Species Annotation list
-    StringBuffer target;
+    StringBuilder target;
     if (isGroupNode) {
       target = CDloComplexSpeciesAliases;
     } else {
       target = CDloSpeciesAliases;
     }
+    String aliasTag = isGroupNode ? "complexSpeciesAlias" : "speciesAlias";
     
     // Warning: prefix "cd_sa" is also hardcoded in addCDAtoReaction!
-    target.append("<celldesigner:"
-        + (isGroupNode ? "complexSpeciesAlias" : "speciesAlias")
-        + " id=\"cd_sa" + spec.getId() + "\" species=\"" + spec.getId()+"\"");
+    target.append("<celldesigner:").append(aliasTag)
+    .append(" id=\"cd_sa").append(spec.getId()).append("\" species=\"").append(spec.getId()).append('\"');
     
     // If this is a child of a group (complex) node, reflect this here.
     if (!isGroupNode && e.getParentNode()!=null) {
-      Entry parent = e.getParentNode();
-      if (parent.getCustom()!=null && parent.getCustom() instanceof Species) {
-        target.append(" complexSpeciesAlias=\"");
-        target.append("cd_sa"+((Species)parent.getCustom()).getId());
-        target.append('\"');
+      Object parent = AbstractKEGGtranslator.getElementForEntry(e.getParentNode(), entryElements);
+      if (parent!=null && parent instanceof Species) {
+        target.append(" complexSpeciesAlias=\"cd_sa").append(((Species)parent).getId()).append('\"');
       }
     }
     target.append(">\n");
@@ -320,8 +378,8 @@ public class CellDesignerUtils {
     Graphics g = (e.hasGraphics()?e.getGraphics():new Graphics(e));
     target.append("<celldesigner:activity>inactive</celldesigner:activity>\n");
     
-    target.append(String.format("<celldesigner:bounds x=\"%d\" y=\"%d\" w=\"%d\" h=\"%d\"/>\n",
-      g.getX(), g.getY(), g.getWidth(), g.getHeight()));
+    target.append("<celldesigner:bounds x=\"").append(g.getX()).append("\" y=\"").append(g.getY())
+    .append("\" w=\"").append(g.getWidth()).append("\" h=\"").append(g.getHeight()).append("\"/>\n");
     target.append("<celldesigner:view state=\"usual\"/>\n");
     
     if (isGroupNode) {
@@ -329,34 +387,26 @@ public class CellDesignerUtils {
       target.append("<celldesigner:backupView state=\"none\"/>\n");
     }
     
+    String col = "FFFFFF";
+    if (g.isSetBGcolor()) {
+      col = g.getBgcolor().replace("#", "").toLowerCase();
+    }
+    int boxWidth = e.hasGraphics() ? e.getGraphics().getWidth() : 90;
+    int boxHeight = e.hasGraphics() ? e.getGraphics().getHeight() : 25;
+    
     // Add usual- and brief view
     for (int i = 1; i <= 2; i++) {
-      if (i == 1) {
-        target.append("<celldesigner:usualView>\n");
-      } else {
-        target.append("<celldesigner:briefView>\n");
-      }
+      String viewTag = (i == 1) ? "usualView" : "briefView";
+      target.append("<celldesigner:").append(viewTag).append(">\n");
       target.append("<celldesigner:innerPosition x=\"0.0\" y=\"0.0\"/>\n");
-      target.append(String.format("<celldesigner:boxSize width=\"%d\" height=\"%d\"/>\n",
-        e.hasGraphics() ? e.getGraphics().getWidth() : 90, e.hasGraphics() ? e.getGraphics().getHeight() : 25));
-      target.append("<celldesigner:singleLine width=\"" + (isGroupNode ? "2.0" : (i == 1 ? "1.0" : "0.0")) + "\"/>\n");
-      
-      String col = "FFFFFF";
-      if (g.isSetBGcolor()) {
-        col = g.getBgcolor().replace("#", "").toLowerCase();
-      }
-      target.append(String.format("<celldesigner:paint color=\""
-          + (i == 1 ? "ff" : "3f")
-          + "%s\" scheme=\"Color\"/>\n", col));
-      if (i == 1) {
-        target.append("</celldesigner:usualView>\n");
-      } else {
-        target.append("</celldesigner:briefView>\n");
-      }
+      target.append("<celldesigner:boxSize width=\"").append(boxWidth).append("\" height=\"").append(boxHeight).append("\"/>\n");
+      target.append("<celldesigner:singleLine width=\"").append(isGroupNode ? "2.0" : (i == 1 ? "1.0" : "0.0")).append("\"/>\n");
+      target.append("<celldesigner:paint color=\"").append(i == 1 ? "ff" : "3f").append(col).append("\" scheme=\"Color\"/>\n");
+      target.append("</celldesigner:").append(viewTag).append(">\n");
     }
     
     target.append("<celldesigner:info state=\"empty\" angle=\"0.0\"/>\n");
-    target.append("</celldesigner:"+ (isGroupNode ? "complexSpeciesAlias" : "speciesAlias")+ ">\n");
+    target.append("</celldesigner:").append(aliasTag).append(">\n");
     
     // Add to type specific annotation
     String type = "";
@@ -364,8 +414,8 @@ public class CellDesignerUtils {
     if (t.equals(EntryType.ortholog) || t.equals(EntryType.enzyme) || t.equals(EntryType.gene)) {
       // A Protein. (EntryType.gene => KeggDoc says
       // "the node is a gene PRODUCT (mostly a protein)")
-      CDloProteins.append(String.format("<celldesigner:protein id=\"cd_pr%s\" name=\"%s\" type=\"GENERIC\"/>\n",
-        spec.getId(), spec.getId()));
+      CDloProteins.append("<celldesigner:protein id=\"cd_pr").append(spec.getId())
+      .append("\" name=\"").append(spec.getId()).append("\" type=\"GENERIC\"/>\n");
       type = "PROTEIN";
       reference = "<celldesigner:proteinReference>cd_pr" + spec.getId() + "</celldesigner:proteinReference>";
     } else if (isGroupNode) { // t.equals(EntryType.group)
@@ -379,20 +429,16 @@ public class CellDesignerUtils {
       reference = "<celldesigner:name>"+ NameToCellDesignerName(spec.getName())+ "</celldesigner:name>";
     }
     
-    // Add Species Annotation
-    spec.getAnnotation().appendNonRDFAnnotation("<celldesigner:extension>\n");
-    spec.getAnnotation().appendNonRDFAnnotation("<celldesigner:positionToCompartment>inside</celldesigner:positionToCompartment>\n");
-    spec.getAnnotation().appendNonRDFAnnotation("<celldesigner:speciesIdentity>\n");
-    spec.getAnnotation().appendNonRDFAnnotation(String.format("<celldesigner:class>%s</celldesigner:class>\n",type));
-    spec.getAnnotation().appendNonRDFAnnotation(reference + "\n");
-    spec.getAnnotation().appendNonRDFAnnotation("</celldesigner:speciesIdentity>\n");
-    
-    /*
-     * DON'T WRITE END TAG HERE. Catalysts write additional data in
-     * "addCellDesignerAnnotationToReaction".
-     * spec.getAnnotation().appendNonRDFAnnotation
-     * ("</celldesigner:extension>\n");
-     */
+    // Add Species Annotation. The extension is written when the model is
+    // finalized, because catalysts get additional data in
+    // "addCellDesignerAnnotationToReaction".
+    StringBuilder identity = new StringBuilder();
+    identity.append("<celldesigner:positionToCompartment>inside</celldesigner:positionToCompartment>\n");
+    identity.append("<celldesigner:speciesIdentity>\n");
+    identity.append("<celldesigner:class>").append(type).append("</celldesigner:class>\n");
+    identity.append(reference).append('\n');
+    identity.append("</celldesigner:speciesIdentity>\n");
+    getSpeciesAnnotation(spec).identity = identity.toString();
   }
   
   
@@ -417,15 +463,17 @@ public class CellDesignerUtils {
    * 
    * HAS TO BE CALLED AFTER EVERY SPECIES IS CONVERTED TO jSBML!
    * @param p
+   * @param entryElements mapping from entry ids to created species.
    * @throws XMLStreamException
    */
-  public void addCellDesignerAnnotationToAllSpecies(Pathway p) throws XMLStreamException {
+  public void addCellDesignerAnnotationToAllSpecies(Pathway p, IntObjectMap<Object> entryElements) throws XMLStreamException {
     ArrayList<Entry> entries = p.getEntries();
     Set<String> alreadyProcessed = new HashSet<String>();
     for (Entry entry : entries) {
-      if (entry.getCustom()!=null && entry.getCustom() instanceof Species) {
-        if (alreadyProcessed.add(((NamedSBase) entry.getCustom()).getId()) ) {
-          addCellDesignerAnnotationToSpecies((Species) entry.getCustom(), entry);
+      Object spec = entryElements.get(entry.getId());
+      if (spec!=null && spec instanceof Species) {
+        if (alreadyProcessed.add(((NamedSBase) spec).getId()) ) {
+          addCellDesignerAnnotationToSpecies((Species) spec, entry, entryElements);
         }
       }
     }
@@ -0,0 +1,212 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.kegg.io;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import de.zbit.kegg.api.KeggInfos;
+import de.zbit.kegg.api.cache.KeggInfoManagement;
+import de.zbit.kegg.parser.pathway.Entry;
+import de.zbit.kegg.parser.pathway.Reaction;
+import de.zbit.util.DatabaseIdentifiers.IdentifierDatabases;
+import de.zbit.util.KeggIdTokenizer;
+import de.zbit.util.Utils;
+
+/**
+ * The annotations of a single KGML {@link Entry}, i.e., one
+ * {@link KeggAnnotation} for every KEGG identifier in the name of the
+ * entry, together with the display name, the synonyms and the reaction
+ * identifiers of the entry in its pathway. This is computed once per entry in the preprocessing stage
+ * of {@link AbstractKEGGtranslator} and used by all output formats.
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class EntryAnnotation {
+
+  /**
+   * Annotations for all KEGG identifiers of the entry, in the order
+   * of the entry name.
+   */
+  private final List<KeggAnnotation> annotations;
+
+  /**
+   * Display name of the first KEGG identifier with a name, or
+   * {@code null}.
+   */
+  private final String name;
+
+  /**
+   * Synonyms of all KEGG identifiers of the entry, without duplicates.
+   */
+  private final List<String> synonyms;
+
+  /**
+   * Space-separated reaction identifiers (without "rn:" prefix) of the
+   * entry, or {@code null}.
+   */
+  private final String reactionIds;
+
+  /**
+   * @param annotations
+   * @param name
+   * @param synonyms
+   * @param reactionIds
+   */
+  private EntryAnnotation(List<KeggAnnotation> annotations, String name, List<String> synonyms, String reactionIds) {
+    super();
+    this.annotations = annotations;
+    this.name = name;
+    this.synonyms = synonyms;
+    this.reactionIds = reactionIds;
+  }
+
+  /**
+   * Creates the annotation for the given entry. Annotations of the
+   * single KEGG identifiers are shared (see
+   * {@link KeggAnnotation#get(String, KeggInfoManagement)}).
+   * @param entry
+   * @param manager
+   * @return the annotation (never {@code null}).
+   */
+  public static EntryAnnotation create(Entry entry, KeggInfoManagement manager) {
+    return create(entry, null, manager);
+  }
+
+  /**
+   * Creates the annotation for the given entry.
+   * @param entry
+   * @param index index of the pathway of the entry, used to look up the
+   * reactions of the entry. May be {@code null}.
+   * @param manager
+   * @return the annotation (never {@code null}).
+   * @see #create(Entry, KeggInfoManagement)
+   */
+  public static EntryAnnotation create(Entry entry, PathwayIndex index, KeggInfoManagement manager) {
+    List<KeggAnnotation> annotations = new ArrayList<KeggAnnotation>();
+    if (entry.getName() != null) {
+      for (String ko_id : KeggIdTokenizer.split(entry.getName(), ' ')) {
+        if (KeggIdTokenizer.isUndefined(ko_id)) {
+          continue; // "undefined" = group node, which contains "Components"
+        }
+        annotations.add(KeggAnnotation.get(ko_id, manager));
+      }
+    }
+
+    String name = null;
+    Collection<String> synonyms = new LinkedHashSet<String>();
+    for (KeggAnnotation annotation : annotations) {
+      if (!annotation.isQuerySuccessful()) {
+        continue;
+      }
+      if ((name == null) && (annotation.getName() != null)) {
+        name = annotation.getName();
+      }
+      synonyms.addAll(annotation.getSynonyms());
+    }
+
+    String reactionIds = null;
+    if (annotations.size() > 0) {
+      List<String> ids = new ArrayList<String>();
+      if (entry.getReactions() != null) {
+        Collections.addAll(ids, entry.getReactions());
+      }
+      for (KeggAnnotation annotation : annotations) {
+        ids.add(annotation.getReactionIds());
+      }
+      Collection<Reaction> reactions = null;
+      if (index != null) {
+        reactions = index.getReactionsForEntry(entry);
+      } else if (entry.getParentPathway() != null) {
+        reactions = entry.getParentPathway().getReactionsForEntry(entry);
+      }
+      reactionIds = KEGG2jSBML.concatReactionIDs(reactions, ids.toArray(new String[0]));
+    }
+
+    return new EntryAnnotation(Collections.unmodifiableList(annotations), name,
+      Collections.unmodifiableList(new ArrayList<String>(synonyms)), reactionIds);
+  }
+
+  /**
+   * Adds the reaction identifiers and all identifiers of the single
+   * KEGG identifiers to the given map.
+   * @param ids
+   */
+  public void addIdentifiersTo(Map<IdentifierDatabases, Collection<String>> ids) {
+    if ((reactionIds != null) && (reactionIds.length() > 0)) {
+      Utils.addToMapOfSets(ids, IdentifierDatabases.KEGG_Reaction, KeggIdTokenizer.splitAtWhitespace(reactionIds));
+    }
+    for (KeggAnnotation annotation : annotations) {
+      annotation.addIdentifiersTo(ids);
+    }
+  }
+
+  /**
+   * @return the annotations of all KEGG identifiers of the entry.
+   */
+  public List<KeggAnnotation> getAnnotations() {
+    return annotations;
+  }
+
+  /**
+   * @return the display name of the first KEGG identifier of the entry
+   * with a name, or {@code null}.
+   * @see KeggAnnotation#getName()
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the synonyms of all KEGG identifiers of the entry, in the
+   * order of the entry name and without duplicates.
+   * @see KeggAnnotation#getSynonyms()
+   */
+  public List<String> getSynonyms() {
+    return synonyms;
+  }
+
+  /**
+   * @return the {@link KeggInfos} of all KEGG identifiers of the entry,
+   * e.g., for {@link AbstractKEGGtranslator#getNameForEntry(Entry, KeggInfos...)}.
+   */
+  public KeggInfos[] getInfos() {
+    KeggInfos[] infos = new KeggInfos[annotations.size()];
+    for (int i = 0; i < infos.length; i++) {
+      infos[i] = annotations.get(i).getInfos();
+    }
+    return infos;
+  }
+
+  /**
+   * @return space-separated reaction identifiers (without "rn:"
+   * prefix) of the entry, or {@code null}.
+   */
+  public String getReactionIds() {
+    return reactionIds;
+  }
+
+}
@@ -30,7 +30,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -95,9 +94,9 @@ import de.zbit.util.DatabaseIdentifiers;
 import de.zbit.util.DatabaseIdentifiers.DatabaseContent;
 import de.zbit.util.DatabaseIdentifiers.IdentifierDatabases;
 import de.zbit.util.EscapeChars;
+import de.zbit.util.KeggIdTokenizer;
 import de.zbit.util.Species;
 import de.zbit.util.StringUtil;
-import de.zbit.util.Utils;
 import de.zbit.util.objectwrapper.ValuePair;
 
 /**
@@ -355,7 +354,7 @@ public abstract class KEGG2BioPAX extends AbstractKEGGtranslator<Model> {
     String taxonID = "";
     
     // Get from KEGG API
-    KeggInfos orgInfos = KeggInfos.get("gn:" + p.getOrg(), manager); // Retrieve all organism information via KeggAdaptor
+    KeggInfos orgInfos = KeggAnnotation.getInfos("gn:" + p.getOrg(), manager); // Retrieve all organism information via KeggAdaptor
     if (orgInfos.queryWasSuccessfull()) {
       speciesString = orgInfos.getDefinition();
       taxonID = orgInfos.getTaxonomy().trim().replaceAll("\\s.*", "");
@@ -507,7 +506,7 @@ public abstract class KEGG2BioPAX extends AbstractKEGGtranslator<Model> {
    */
   public void addAnnotations(Reaction r, BioPAXElement reaction) {
     // Various Annotations
-    for (String ko_id : r.getName().split(" ")) {
+    for (String ko_id : KeggIdTokenizer.split(r.getName(), ' ')) {
       BioPAXElement xr = createXRef(IdentifierDatabases.KEGG_Reaction, ko_id, 1);
       if (xr!=null) {
         if (reaction instanceof XReferrable) {
@@ -519,14 +518,13 @@ public abstract class KEGG2BioPAX extends AbstractKEGGtranslator<Model> {
       
       
       // Retrieve further information via Kegg API
-      KeggInfos infos = KeggInfos.get(ko_id, manager);
+      KeggInfos infos = KeggAnnotation.getInfos(ko_id, manager);
       if (infos.queryWasSuccessfull()) {
         
         // Add all EC Numbers
         if (infos.getEnzymes()!=null) {
           Set<String> ec = new HashSet<String>();
-          ec.addAll(Arrays.asList(infos.getEnzymes().split("\\s")));
-          ec.remove(""); ec.remove(null);
+          ec.addAll(Arrays.asList(KeggIdTokenizer.splitAtWhitespace(infos.getEnzymes())));
           if (reaction instanceof biochemicalReaction) {
             ((biochemicalReaction) reaction).setEC_NUMBER(ec);
           } else if (reaction instanceof BiochemicalReaction) {
@@ -595,36 +593,20 @@ public abstract class KEGG2BioPAX extends AbstractKEGGtranslator<Model> {
       ids = ((EntryExtended)entry).getDatabaseIdentifiers();
     }
     
+    // Add reactions and all available identifiers (entrez gene, ensembl, etc)
+    EntryAnnotation annotation = getAnnotation(entry);
+    annotation.addIdentifiersTo(ids);
+    
     // Parse every gene/object in this node.
-    for (String ko_id : entry.getName().split(" ")) {
-      if (ko_id.trim().equalsIgnoreCase("undefined")) {
-        continue;
-      }
-      
-      // Retrieve further information via Kegg API -- Be careful: very slow! Precache all queries at top of this function!
-      KeggInfos infos = KeggInfos.get(ko_id, manager);
-      // Some infos can also be extracted if query was NOT succesfull
-      
-      // Add reactions as miriam annotation
-      String reactionID = KEGG2jSBML.concatReactionIDs(entry.getParentPathway().getReactionsForEntry(entry), ArrayUtils.merge(entry.getReactions(), infos.getReaction_id()));
-      if ((reactionID != null) && (reactionID.length() > 0)) {
-        Utils.addToMapOfSets(ids, IdentifierDatabases.KEGG_Reaction, reactionID.split("\\s"));
-      }
-      // Add all available identifiers (entrez gene, ensembl, etc)
-      infos.addAllIdentifiers(ids);
-      
-      if (infos.queryWasSuccessfull()) {
+    for (KeggAnnotation infos : annotation.getAnnotations()) {
+      if (infos.isQuerySuccessful()) {
         
         // HTML Information
-        if (infos.getNames()!=null) {
-          for (String synonym: infos.getNames().split("((;)|(,\\s))")) {
-            if (synonym.trim().length()>0) {
-              if (element instanceof entity) {
-                ((entity) element).addSYNONYMS(synonym);
-              } else if (element instanceof Named) {
-                ((Named) element).addName(synonym);
-              }
-            }
+        for (String synonym: infos.getSynonyms()) {
+          if (element instanceof entity) {
+            ((entity) element).addSYNONYMS(synonym);
+          } else if (element instanceof Named) {
+            ((Named) element).addName(synonym);
           }
         }
         if (infos.getDefinition()!=null) {
@@ -637,8 +619,8 @@ public abstract class KEGG2BioPAX extends AbstractKEGGtranslator<Model> {
         
         // Mass and Formula for small molecules
         if (element instanceof smallMolecule) {
-          if (infos.getFormulaDirectOrFromSynonym(manager) != null) {
-            ((smallMolecule) element).setCHEMICAL_FORMULA(infos.getFormulaDirectOrFromSynonym(manager));
+          if (infos.getFormula() != null) {
+            ((smallMolecule) element).setCHEMICAL_FORMULA(infos.getFormula());
           }
           if (infos.getMolecularWeight() != null) {
             ((smallMolecule) element).setMOLECULAR_WEIGHT(getNumber(infos.getMolecularWeight()));
@@ -646,7 +628,7 @@ public abstract class KEGG2BioPAX extends AbstractKEGGtranslator<Model> {
             ((smallMolecule) element).setMOLECULAR_WEIGHT(getNumber(infos.getMass()));
           }
         } else if (element instanceof SmallMolecule) {
-          if (infos.getFormulaDirectOrFromSynonym(manager) != null || infos.getMass() != null) {
+          if (infos.getFormula() != null || infos.getMass() != null) {
             BioPAXElement refNative = getEntityReference(element);
             if (refNative ==null || refNative instanceof SmallMoleculeReference) {
               // should always be true
@@ -662,8 +644,8 @@ public abstract class KEGG2BioPAX extends AbstractKEGGtranslator<Model> {
               // This is now done later in the specific level 3 class!
               //addSmallMoleculeXRefs(ref, ids);
               
-              if (infos.getFormulaDirectOrFromSynonym(manager) != null) {
-                ref.setChemicalFormula(infos.getFormulaDirectOrFromSynonym(manager));
+              if (infos.getFormula() != null) {
+                ref.setChemicalFormula(infos.getFormula());
               }
               if (infos.getMolecularWeight() != null) {
                 ref.setMolecularWeight((float) getNumber(infos.getMolecularWeight()));
@@ -833,7 +815,7 @@ public abstract class KEGG2BioPAX extends AbstractKEGGtranslator<Model> {
     
     // All species added. Parse reactions and relations.
     for (Reaction r : p.getReactions()) {
-      if (!reactionHasAtLeastOneSubstrateAndProduct(r, p)) {
+      if (!reactionHasAtLeastOneSubstrateAndProduct(r)) {
         continue;
       }
       
@@ -893,8 +875,8 @@ public abstract class KEGG2BioPAX extends AbstractKEGGtranslator<Model> {
     }
     for (Entry e: p.getEntries()) {
       if (e.getType().equals(EntryType.reaction)) {
-        if (e.getCustom()==null && e.getName().contains(r.getName())) {
-          e.setCustom(reaction);
+        if (getElementForEntry(e)==null && e.getName().contains(r.getName())) {
+          setElementForEntry(e, reaction);
         }
       }
     }
@@ -913,16 +895,17 @@ public abstract class KEGG2BioPAX extends AbstractKEGGtranslator<Model> {
     // Resort the list:
     // Try to keep the current order, but move the "block" of all phosphorylations (and similar)
     // to top of list, append the reverse reactions (DEPHOSPHORYLATION) and then append the rest.
+    // (Collected in three blocks, since inserting into the middle of one list is quadratic)
     List<Relation> sorted = new ArrayList<Relation>(p.getRelations().size());
-    int reverseReactionsPosition = 0;
-    int addedReverseReactions = 0;
+    List<Relation> reverseReactions = new ArrayList<Relation>();
+    List<Relation> others = new ArrayList<Relation>();
     Set<String> avoidDuplicates = new HashSet<String>();
     for (Relation r : p.getRelations()) {
       Collection<String> subtypes = r.getSubtypesNames();
       
       // Avoid duplicates
-      Entry eOne = p.getEntryForId(r.getEntry1());
-      Entry eTwo = p.getEntryForId(r.getEntry2());
+      Entry eOne = index.getEntryForId(r.getEntry1());
+      Entry eTwo = index.getEntryForId(r.getEntry2());
       String uniqueString = eOne.getName() + "|" + eTwo.getName() + "|" + ArrayUtils.implode(subtypes, "|", true);
       if (!avoidDuplicates.add(uniqueString)) {
         continue; // Duplicate realtion
@@ -931,15 +914,15 @@ public abstract class KEGG2BioPAX extends AbstractKEGGtranslator<Model> {
       // Insert into sorted list
       if (subtypes.contains(SubType.PHOSPHORYLATION) || subtypes.contains(SubType.METHYLATION) ||
           subtypes.contains(SubType.UBIQUITINATION) || subtypes.contains(SubType.GLYCOSYLATION)) {
-        sorted.add(reverseReactionsPosition, r); // append to top of list
-        reverseReactionsPosition++;
+        sorted.add(r); // append to top of list
       } else if (subtypes.contains(SubType.DEPHOSPHORYLATION)) {
-        sorted.add(reverseReactionsPosition+addedReverseReactions, r); // append below phosphorylations
-        addedReverseReactions++;
+        reverseReactions.add(r); // append below phosphorylations
       } else {
-        sorted.add(r); // add to end of list
+        others.add(r); // add to end of list
       }
     }
+    sorted.addAll(reverseReactions);
+    sorted.addAll(others);
     
     
     // Appropriately add all relations to the model
@@ -982,14 +965,10 @@ public abstract class KEGG2BioPAX extends AbstractKEGGtranslator<Model> {
        */
       if (entry.getName().contains(":") && !addedEntries.add(entry.getName())) {
         // Look for already added species from other entry
-        // and link to this entry by adding the same species as "custom".
-        Collection<Entry> col = p.getEntriesForName(entry.getName()); // should return at least 2 entries
-        if ((col != null) && (col.size() > 0)) {
-          Iterator<Entry> it = col.iterator();
-          while (it.hasNext() && (spec = (BioPAXElement)it.next().getCustom())==null) {
-            ;
-          }
-          entry.setCustom(spec);
+        // and link to this entry by remembering the same species.
+        spec = (BioPAXElement) getElementForName(entry.getName());
+        if (spec != null) {
+          setElementForEntry(entry, spec);
         }
       }
       
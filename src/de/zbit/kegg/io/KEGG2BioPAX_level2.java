@@ -74,6 +74,7 @@ import de.zbit.kegg.parser.pathway.ext.EntryTypeExtended;
 import de.zbit.util.ArrayUtils;
 import de.zbit.util.DatabaseIdentifiers;
 import de.zbit.util.DatabaseIdentifiers.IdentifierDatabases;
+import de.zbit.util.KeggIdTokenizer;
 import de.zbit.util.Utils;
 
 /**
@@ -126,13 +127,13 @@ public class KEGG2BioPAX_level2 extends KEGG2BioPAX {
     pathway.setORGANISM((bioSource) createBioSource(p));
     
     // Get PW infos from KEGG Api for Description and GO ids.
-    KeggInfos pwInfos = KeggInfos.get(p.getName(), manager); // NAME, DESCRIPTION, DBLINKS verwertbar
+    KeggInfos pwInfos = KeggAnnotation.getInfos(p.getName(), manager); // NAME, DESCRIPTION, DBLINKS verwertbar
     if (pwInfos.queryWasSuccessfull()) {
       pathway.addCOMMENT((pwInfos.getDescription()));
       
       // GO IDs
       if (pwInfos.getGo_id() != null) {
-        for (String goID : pwInfos.getGo_id().split("\\s")) {
+        for (String goID : KeggIdTokenizer.splitAtWhitespace(pwInfos.getGo_id())) {
           xref xr = (xref) createXRef(IdentifierDatabases.GeneOntology, goID, 2);
           if (xr != null) {
             pathway.addXREF(xr);
@@ -205,7 +206,7 @@ public class KEGG2BioPAX_level2 extends KEGG2BioPAX {
       
       // Remember already queried objects (save cache)
       if (AbstractKEGGtranslator.getKeggInfoManager().hasChanged()) {
-        KeggInfoManagement.saveToFilesystem(Translator.cacheFileName, AbstractKEGGtranslator.getKeggInfoManager());
+        Translator.saveManager(AbstractKEGGtranslator.getKeggInfoManager());
       }
       
       return;
@@ -223,7 +224,7 @@ public class KEGG2BioPAX_level2 extends KEGG2BioPAX {
       
       // Remember already queried objects
       if (AbstractKEGGtranslator.getKeggInfoManager().hasChanged()) {
-        KeggInfoManagement.saveToFilesystem(Translator.cacheFileName, AbstractKEGGtranslator.getKeggInfoManager());
+        Translator.saveManager(AbstractKEGGtranslator.getKeggInfoManager());
       }
       
     } catch (Exception e) {
@@ -292,12 +293,12 @@ public class KEGG2BioPAX_level2 extends KEGG2BioPAX {
     // Pathway references are also stored separately.
     boolean isPathwayReference = false;
     String name = entry.getName().trim();
-    if ((name != null) && (name.toLowerCase().startsWith("path:") || entry.getType().equals(EntryType.map))) {
+    if ((name != null) && (KeggIdTokenizer.hasPrefix(name, KeggIdTokenizer.PATHWAY) || entry.getType().equals(EntryType.map))) {
       isPathwayReference = true;
       instantiate = pathway.class;
     }
     // Eventually skip this node. It's just a label for the current pathway.
-    if (isPathwayReference && (entry.hasGraphics() && entry.getGraphics().getName().toLowerCase().startsWith("title:"))) {
+    if (isPathwayReference && (entry.hasGraphics() && KeggIdTokenizer.hasPrefix(entry.getGraphics().getName(), KeggIdTokenizer.TITLE))) {
       return null;//Do not add a pathway for the current pathway!
     }
     
@@ -324,10 +325,10 @@ public class KEGG2BioPAX_level2 extends KEGG2BioPAX {
     if (entry.hasComponents() && (element instanceof complex)) {
       // TODO: Create complexAssembly, add it to pathway?!?!? AND add components to left and complex to right.
       for (int c:entry.getComponents()) {
-        Entry ce = p.getEntryForId(c);
+        Entry ce = index.getEntryForId(c);
         if (ce!=null && ce!=entry) {
           // Get current component (or create if not yet there)
-          BioPAXElement ceb = (BioPAXElement) ce.getCustom();
+          BioPAXElement ceb = (BioPAXElement) getElementForEntry(ce);
           if (ceb==null) {
             ceb = addEntry(ce, p);
           }
@@ -348,7 +349,7 @@ public class KEGG2BioPAX_level2 extends KEGG2BioPAX {
     // Add various annotations and xrefs
     addAnnotations(entry, element);
     
-    entry.setCustom(element);
+    setElementForEntry(entry, element);
     return element;
   }
   
@@ -399,7 +400,7 @@ public class KEGG2BioPAX_level2 extends KEGG2BioPAX {
         for (Entry ce:enzymes) {
           if (ce!=null) {
             // Get current component
-            BioPAXElement ceb = (BioPAXElement) ce.getCustom();
+            BioPAXElement ceb = (BioPAXElement) getElementForEntry(ce);
             if (ceb==null || !addedEnzymes.add(ceb)) {
               continue;
             }
@@ -464,11 +465,11 @@ public class KEGG2BioPAX_level2 extends KEGG2BioPAX {
     }
     
     // Get BioPAX element for component
-    Entry ce = p.getEntryForReactionComponent(rc);
-    if (ce==null || ce.getCustom()==null) {
+    Entry ce = index.getEntryForReactionComponent(rc);
+    BioPAXElement ceb = (BioPAXElement) getElementForEntry(ce);
+    if (ceb==null) {
       return null;
     }
-    BioPAXElement ceb = (BioPAXElement) ce.getCustom();
     
     // Set the stoichiometry
     physicalEntityParticipant participant = getParticipant(ceb);
@@ -492,10 +493,10 @@ public class KEGG2BioPAX_level2 extends KEGG2BioPAX {
     Collection<String> subtype = r.getSubtypesNames();
     
     // Get Participants
-    Entry eOne = p.getEntryForId(r.getEntry1());
-    Entry eTwo = p.getEntryForId(r.getEntry2());
-    BioPAXElement qOne = eOne==null?null:(BioPAXElement) eOne.getCustom();
-    BioPAXElement qTwo = eTwo==null?null:(BioPAXElement) eTwo.getCustom();
+    Entry eOne = index.getEntryForId(r.getEntry1());
+    Entry eTwo = index.getEntryForId(r.getEntry2());
+    BioPAXElement qOne = (BioPAXElement) getElementForEntry(eOne);
+    BioPAXElement qTwo = (BioPAXElement) getElementForEntry(eTwo);
     if (qOne==null || qTwo==null) {
       // Happens, e.g. when remove_pw_references is true and there is a
       // relation to this (now removed) node.
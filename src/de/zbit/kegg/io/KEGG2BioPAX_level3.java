@@ -92,6 +92,7 @@ import de.zbit.kegg.parser.pathway.ext.EntryTypeExtended;
 import de.zbit.util.ArrayUtils;
 import de.zbit.util.DatabaseIdentifiers;
 import de.zbit.util.DatabaseIdentifiers.IdentifierDatabases;
+import de.zbit.util.KeggIdTokenizer;
 import de.zbit.util.StringUtil;
 import de.zbit.util.objectwrapper.ValuePair;
 
@@ -192,12 +193,12 @@ public class KEGG2BioPAX_level3 extends KEGG2BioPAX {
     // Pathway references are also stored separately.
     boolean isPathwayReference = false;
     String name = entry.getName().trim();
-    if ((name != null) && (name.toLowerCase().startsWith("path:") || entry.getType().equals(EntryType.map))) {
+    if ((name != null) && (KeggIdTokenizer.hasPrefix(name, KeggIdTokenizer.PATHWAY) || entry.getType().equals(EntryType.map))) {
       isPathwayReference = true;
       instantiate = org.biopax.paxtools.model.level3.Pathway.class;
     }
     // Eventually skip this node. It's just a label for the current pathway.
-    if (isPathwayReference && (entry.hasGraphics() && entry.getGraphics().getName().toLowerCase().startsWith("title:"))) {
+    if (isPathwayReference && (entry.hasGraphics() && KeggIdTokenizer.hasPrefix(entry.getGraphics().getName(), KeggIdTokenizer.TITLE))) {
       return null;//Do not add a pathway for the current pathway!
     }
     
@@ -228,10 +229,10 @@ public class KEGG2BioPAX_level3 extends KEGG2BioPAX {
     if (entry.hasComponents() && (element instanceof Complex)) {
       // TODO: Create complexAssembly, add it to pathway?!?!? AND add components to left and complex to right.
       for (int c:entry.getComponents()) {
-        Entry ce = p.getEntryForId(c);
+        Entry ce = index.getEntryForId(c);
         if (ce!=null && ce!=entry) {
           // Get current component (or create if not yet there)
-          BioPAXElement ceb = (BioPAXElement) ce.getCustom();
+          BioPAXElement ceb = (BioPAXElement) getElementForEntry(ce);
           if (ceb==null) {
             ceb = addEntry(ce, p);
             // TODO: post-process the entry if it is an ortholog!
@@ -261,7 +262,7 @@ public class KEGG2BioPAX_level3 extends KEGG2BioPAX {
     }
     
     
-    entry.setCustom(element);
+    setElementForEntry(entry, element);
     return element;
   }
   
@@ -398,13 +399,13 @@ public class KEGG2BioPAX_level3 extends KEGG2BioPAX {
     pathway.setOrganism(organism);
     
     // Get PW infos from KEGG Api for Description and GO ids.
-    KeggInfos pwInfos = KeggInfos.get(p.getName(), manager); // NAME, DESCRIPTION, DBLINKS verwertbar
+    KeggInfos pwInfos = KeggAnnotation.getInfos(p.getName(), manager); // NAME, DESCRIPTION, DBLINKS verwertbar
     if (pwInfos.queryWasSuccessfull()) {
       pathway.addComment((pwInfos.getDescription()));
       
       // GO IDs
       if (pwInfos.getGo_id() != null) {
-        for (String goID : pwInfos.getGo_id().split("\\s")) {
+        for (String goID : KeggIdTokenizer.splitAtWhitespace(pwInfos.getGo_id())) {
           Xref xr = (Xref)createXRef(IdentifierDatabases.GeneOntology, goID, 2);
           if (xr!=null) {
             pathway.addXref(xr);
@@ -449,7 +450,7 @@ public class KEGG2BioPAX_level3 extends KEGG2BioPAX {
         for (Entry ce:enzymes) {
           if (ce!=null) {
             // Get current component
-            BioPAXElement ceb = (BioPAXElement) ce.getCustom();
+            BioPAXElement ceb = (BioPAXElement) getElementForEntry(ce);
             if ((ceb == null) || !(ceb instanceof Controller) || !addedEnzymes.add(ceb)) {
               continue;
             }
@@ -513,11 +514,8 @@ public class KEGG2BioPAX_level3 extends KEGG2BioPAX {
     }
     
     // Get BioPAX element for component
-    Entry ce = p.getEntryForReactionComponent(rc);
-    if (ce==null || ce.getCustom()==null) {
-      return false;
-    }
-    BioPAXElement ceb = (BioPAXElement) ce.getCustom();
+    Entry ce = index.getEntryForReactionComponent(rc);
+    BioPAXElement ceb = (BioPAXElement) getElementForEntry(ce);
     if (ceb==null || !(ceb instanceof PhysicalEntity)) {
       return false;
     }
@@ -553,10 +551,10 @@ public class KEGG2BioPAX_level3 extends KEGG2BioPAX {
     Collection<String> subtype = r.getSubtypesNames();
     
     // Get Participants
-    Entry eOne = p.getEntryForId(r.getEntry1());
-    Entry eTwo = p.getEntryForId(r.getEntry2());
-    BioPAXElement qOne = eOne==null?null:(BioPAXElement) eOne.getCustom();
-    BioPAXElement qTwo = eTwo==null?null:(BioPAXElement) eTwo.getCustom();
+    Entry eOne = index.getEntryForId(r.getEntry1());
+    Entry eTwo = index.getEntryForId(r.getEntry2());
+    BioPAXElement qOne = (BioPAXElement) getElementForEntry(eOne);
+    BioPAXElement qTwo = (BioPAXElement) getElementForEntry(eTwo);
     if (qOne==null || qTwo==null) {
       // Happens, e.g. when remove_pw_references is true and there is a
       // relation to this (now removed) node.
@@ -21,17 +21,20 @@
 
 package de.zbit.kegg.io;
 
-import java.io.File;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.logging.Level;
 
+import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
 
-import org.sbgn.SbgnUtil;
 import org.sbgn.bindings.Arc;
 import org.sbgn.bindings.Arc.End;
 import org.sbgn.bindings.Arc.Start;
@@ -47,7 +50,6 @@ import org.xml.sax.SAXException;
 import de.zbit.graph.io.def.SBGNProperties;
 import de.zbit.graph.io.def.SBGNProperties.ArcType;
 import de.zbit.graph.io.def.SBGNProperties.GlyphType;
-import de.zbit.kegg.api.KeggInfos;
 import de.zbit.kegg.api.cache.KeggInfoManagement;
 import de.zbit.kegg.parser.pathway.Entry;
 import de.zbit.kegg.parser.pathway.Graphics;
@@ -75,12 +77,28 @@ import de.zbit.kegg.parser.pathway.SubType;
  */
 public class KEGG2SBGN extends AbstractKEGGtranslator<Sbgn> {
   
+  /**
+   * The {@link JAXBContext} for the SBGN bindings. Creating it is
+   * expensive, so it is created only once and shared by all instances.
+   */
+  private static JAXBContext jaxbContext = null;
+  
+  /**
+   * {@link Marshaller}s are not thread-safe, so each thread that writes
+   * SBGN files gets its own one.
+   */
+  private static final ThreadLocal<Marshaller> marshaller = new ThreadLocal<Marshaller>();
+  
   private ObjectFactory objectFactory = new ObjectFactory();
   
-  private Sbgn sbgn = objectFactory.createSbgn();
-  private org.sbgn.bindings.Map map = objectFactory.createMap();
-  private HashMap<Glyph, String> glyphNamesForGlyphStates = new HashMap<Glyph, String>();
-  private int id = 0;
+  /*
+   * The following fields belong to the pathway that is currently
+   * translated and are reset for every translation.
+   */
+  private Sbgn sbgn;
+  private org.sbgn.bindings.Map map;
+  private HashMap<Glyph, String> glyphNamesForGlyphStates;
+  private int id;
   
   /**
    * Constructor
@@ -94,6 +112,12 @@ public class KEGG2SBGN extends AbstractKEGGtranslator<Sbgn> {
   @Override
   protected Sbgn translateWithoutPreprocessing(Pathway p) {
     
+    // create a new document and map for every pathway
+    sbgn = objectFactory.createSbgn();
+    map = objectFactory.createMap();
+    glyphNamesForGlyphStates = new HashMap<Glyph, String>();
+    id = 0;
+    
     // set the map
     sbgn.setMap(map);
     
@@ -120,28 +144,15 @@ public class KEGG2SBGN extends AbstractKEGGtranslator<Sbgn> {
    */
   private void handleAllEntries(Pathway p) {
     
-    // map for the entries to determine if there occurs an entry twice or more to make them a clonemarker
-    Map<String, Entry> handlesEntries = new HashMap<String, Entry>();
-    
     // for every entry
     for (Entry e : p.getEntries()) {
       // create a glyph with the proper id
       Glyph g = createGlyphWithID();
       
-      // check if the entry is already in use
-      if (handlesEntries.containsKey(e.getName())) {
-        // the entry is already in use, so create a clonemarker for the current glyph
+      // check if the entry occurs twice or more
+      if (index.isDuplicateName(e.getName())) {
+        // if so, create a clonemarker for the current glyph
         g.setClone(objectFactory.createGlyphClone());
-        // get the already in use glyph
-        Entry en = handlesEntries.get(e.getName());
-        // check if the glyph is legit
-        if (en.getCustom() != null && ((Glyph) en.getCustom()).getClone() == null) {
-          // if so make it a clone too
-          ((Glyph) en.getCustom()).setClone(objectFactory.createGlyphClone());
-        }
-      } else {
-        // if the entry isnt already in use just put it into the map
-        handlesEntries.put(e.getName(), e);
       }
       
       // determine the sbgn clazz for the glyph
@@ -151,18 +162,8 @@ public class KEGG2SBGN extends AbstractKEGGtranslator<Sbgn> {
       Bbox bb = objectFactory.createBbox();
       Label l = objectFactory.createLabel();
       
-      List<KeggInfos> keggInfos = new LinkedList<KeggInfos>();
-      
-      // call KeggInfos for the correct name and additional informations
-      for (String ko_id : e.getName().split(" ")) {
-        if (ko_id.trim().equalsIgnoreCase("undefined") || e.hasComponents()) {
-          continue;
-        }
-        KeggInfos infos = KeggInfos.get(ko_id, manager);
-        keggInfos.add(infos);
-      }
-      
-      String name = getNameForEntry(e, keggInfos.toArray(new KeggInfos[0]));
+      // the correct name from the (shared) annotation of the entry
+      String name = getNameForEntry(e);
       
       // define the bounding box
       Graphics gr = null;
@@ -184,8 +185,8 @@ public class KEGG2SBGN extends AbstractKEGGtranslator<Sbgn> {
       g.setBbox(bb);
       g.setLabel(l);
       
-      // set the glyph as custom in the entry
-      e.setCustom(g);
+      // remember the glyph for the entry
+      setElementForEntry(e, g);
       
       // put the glyph into the map
       sbgn.getMap().getGlyph().add(g);
@@ -205,8 +206,8 @@ public class KEGG2SBGN extends AbstractKEGGtranslator<Sbgn> {
     for (Relation relation : p.getRelations()) {
       
       // get the relation partners
-      Entry one = p.getEntryForId(relation.getEntry1());
-      Entry two = p.getEntryForId(relation.getEntry2());
+      Entry one = index.getEntryForId(relation.getEntry1());
+      Entry two = index.getEntryForId(relation.getEntry2());
       
       // make sure all went right
       if (one == null || two == null) {
@@ -218,8 +219,8 @@ public class KEGG2SBGN extends AbstractKEGGtranslator<Sbgn> {
       }
       
       // grab the source and the target of the relation as glyphs
-      Glyph source = (Glyph) one.getCustom();
-      Glyph target = (Glyph) two.getCustom();
+      Glyph source = (Glyph) getElementForEntry(one);
+      Glyph target = (Glyph) getElementForEntry(two);
       
       // check if the relation has subtypes
       if(relation.isSetSubTypes() && source != null && target != null){
@@ -241,8 +242,6 @@ public class KEGG2SBGN extends AbstractKEGGtranslator<Sbgn> {
             StateGlyph.setState(state);
             // add it to the glyphlist from the target
             target.getGlyph().add(StateGlyph);
-            // after the change set the custom again
-            two.setCustom(target);
             // create an edge between those two entries
             createLink(source, target);
           } else if(currentRelation.equalsIgnoreCase(SubType.METHYLATION)){
@@ -252,8 +251,6 @@ public class KEGG2SBGN extends AbstractKEGGtranslator<Sbgn> {
             StateGlyph.setState(state);
             // add it to the glyphlist from the target
             target.getGlyph().add(StateGlyph);
-            // after the change set the custom again
-            two.setCustom(target);
             // create an edge between those two entries
             createLink(source, target);
           } else if(currentRelation.equalsIgnoreCase(SubType.PHOSPHORYLATION)){
@@ -263,8 +260,6 @@ public class KEGG2SBGN extends AbstractKEGGtranslator<Sbgn> {
             StateGlyph.setState(state);
             // add it to the glyphlist from the target
             target.getGlyph().add(StateGlyph);
-            // after the change set the custom again
-            two.setCustom(target);
             // create an edge between those two entries
             createLink(source, target);
           } else if(currentRelation.equalsIgnoreCase(SubType.UBIQUITINATION)){
@@ -274,8 +269,6 @@ public class KEGG2SBGN extends AbstractKEGGtranslator<Sbgn> {
             StateGlyph.setState(state);
             // add it to the glyphlist from the target
             target.getGlyph().add(StateGlyph);
-            // after the change set the custom again
-            two.setCustom(target);
             // create an edge between those two entries
             createLink(source, target);
           } else if(currentRelation.equalsIgnoreCase(SubType.DEPHOSPHORYLATION)){
@@ -285,8 +278,6 @@ public class KEGG2SBGN extends AbstractKEGGtranslator<Sbgn> {
             StateGlyph.setState(state);
             // add it to the glyphlist from the target
             target.getGlyph().add(StateGlyph);
-            // after the change set the custom again
-            two.setCustom(target);
             // create an edge between those two entries
             createLink(source, target);
           } else if(currentRelation.equalsIgnoreCase(SubType.DISSOCIATION)){
@@ -332,30 +323,30 @@ public class KEGG2SBGN extends AbstractKEGGtranslator<Sbgn> {
       // Substrates
       for (ReactionComponent rc : reaction.getSubstrates()) {
         // get the entry for the reactioncomponent
-        Entry substrate = p.getEntryForReactionComponent(rc);
+        Entry substrate = index.getEntryForReactionComponent(rc);
         
         // get the glyph for the entry
-        Glyph substrateGlyph = (Glyph) substrate.getCustom();
+        Glyph substrateGlyph = (Glyph) getElementForEntry(substrate);
         if(substrateGlyph != null) {
           sources.add(substrateGlyph);
         } else {
           Object[] args = {substrate.getName(), String.valueOf(substrate.getId())};
-          log.warning(String.format("Entry %s (id: %s) has no Custom Glyph set!", args));
+          log.warning(String.format("Entry %s (id: %s) has no Glyph set!", args));
         }
       }
       
       // Products
       for (ReactionComponent rc : reaction.getProducts()) {
         // get the entry for the reactioncomponent
-        Entry product = p.getEntryForReactionComponent(rc);
+        Entry product = index.getEntryForReactionComponent(rc);
         
         // get the glyph for the entry
-        Glyph productGlyph = (Glyph) product.getCustom();
+        Glyph productGlyph = (Glyph) getElementForEntry(product);
         if(productGlyph != null) {
           targets.add(productGlyph);
         } else {
           Object[] args = {product.getName(), String.valueOf(product.getId())};
-          log.warning(String.format("Entry %s (id: %s) has no Custom Glyph set!", args));
+          log.warning(String.format("Entry %s (id: %s) has no Glyph set!", args));
         }
       }
       
@@ -365,12 +356,12 @@ public class KEGG2SBGN extends AbstractKEGGtranslator<Sbgn> {
         for (Entry ec : enzymes) {
           
           // get the glyph for the entry
-          Glyph enzymeGlyph = (Glyph) ec.getCustom();
+          Glyph enzymeGlyph = (Glyph) getElementForEntry(ec);
           if(enzymeGlyph != null) {
             reactionModifiers.add(enzymeGlyph);
           } else {
             Object[] args = {ec.getName(), String.valueOf(ec.getId())};
-            log.warning(String.format("Entry %s (id: %s) has no Custom Glyph set!", args));
+            log.warning(String.format("Entry %s (id: %s) has no Glyph set!", args));
           }
         }
       }
@@ -570,12 +561,49 @@ public class KEGG2SBGN extends AbstractKEGGtranslator<Sbgn> {
   
   @Override
   public boolean writeToFile(Sbgn doc, String outFile) {
+    OutputStream out = null;
     try {
-      SbgnUtil.writeToFile(doc, new File(outFile));
+      out = new BufferedOutputStream(new FileOutputStream(outFile));
+      getMarshaller().marshal(doc, out);
       return true;
     } catch (JAXBException e) {
+      log.log(Level.WARNING, "Could not write SBGN file " + outFile, e);
       return false;
+    } catch (IOException e) {
+      log.log(Level.WARNING, "Could not write SBGN file " + outFile, e);
+      return false;
+    } finally {
+      if (out != null) {
+        try {
+          out.close();
+        } catch (IOException e) {
+          log.log(Level.FINE, "Could not close " + outFile, e);
+        }
+      }
+    }
+  }
+  
+  /**
+   * Returns the {@link Marshaller} of the current thread, creating it
+   * (and the shared {@link JAXBContext}) if necessary. The marshaller
+   * is configured like the one of {@link org.sbgn.SbgnUtil#writeToFile(Sbgn, java.io.File)}.
+   * 
+   * @return a marshaller for SBGN documents.
+   * @throws JAXBException
+   */
+  private static Marshaller getMarshaller() throws JAXBException {
+    Marshaller m = marshaller.get();
+    if (m == null) {
+      synchronized (KEGG2SBGN.class) {
+        if (jaxbContext == null) {
+          jaxbContext = JAXBContext.newInstance("org.sbgn.bindings");
+        }
+      }
+      m = jaxbContext.createMarshaller();
+      m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+      marshaller.set(m);
     }
+    return m;
   }
   
   @Override
@@ -37,6 +37,7 @@ import org.sbml.jsbml.ext.groups.Member;
 
 import de.zbit.kegg.parser.pathway.Entry;
 import de.zbit.kegg.parser.pathway.Pathway;
+import de.zbit.util.IntObjectMap;
 
 /**
  * @author Clemens Wrzodek
@@ -68,18 +69,19 @@ public class KEGG2SBMLGroupExtension {
    * @param model
    * @param entry
    * @param groupId
+   * @param entryElements mapping from entry ids to already created species.
    * @return
    */
-  public static Group createGroup(Pathway p, Model model, Entry entry, String groupId) {
+  public static Group createGroup(Pathway p, Model model, Entry entry, String groupId, IntObjectMap<Object> entryElements) {
     GroupsModelPlugin groupModel = getGroupsModelPlugin(model);
     
     // Get all group-members
     List<String> componentSpeciesIDs = new ArrayList<String>();
     if (entry.hasComponents()) {
       for (int c : entry.getComponents()) {
-        Entry ce = p.getEntryForId(c);
-        if ((ce != null) && (ce.getCustom() != null) && (ce.getCustom() instanceof NamedSBase)) {
-          String speciesID = ((NamedSBase)ce.getCustom()).getId();
+        Object ce = entryElements.get(c);
+        if ((ce != null) && (ce instanceof NamedSBase)) {
+          String speciesID = ((NamedSBase)ce).getId();
           componentSpeciesIDs.add(speciesID);
         }
       }
@@ -20,10 +20,12 @@
  */
 package de.zbit.kegg.io;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import org.sbml.jsbml.AbstractNamedSBase;
@@ -49,7 +51,7 @@ import de.zbit.kegg.parser.pathway.Graphics;
 import de.zbit.kegg.parser.pathway.GraphicsType;
 import de.zbit.kegg.parser.pathway.Pathway;
 import de.zbit.kegg.parser.pathway.ReactionComponent;
-import de.zbit.util.ArrayUtils;
+import de.zbit.util.IntObjectMap;
 import de.zbit.util.Utils;
 
 /**
@@ -78,13 +80,17 @@ public class KEGG2SBMLLayoutExtension {
    * as well as QualitativeSpecies.
    * <p><i>This will erase all previous layouts!</i></p>
    * @param p
+   * @param index lookup index over the entries and reactions of
+   * {@code p}.
    * @param doc
    * @param model
+   * @param entryElements mapping from entry ids to the created
+   * {@link AbstractNamedSBase}s.
    * @param metabolic if true, will set {@link ReactionGlyph}s instead
    * of {@link SpeciesGlyph} whereever possible.
    */
-  public static void addLayoutExtension(Pathway p, SBMLDocument doc, Model model, boolean metabolic) {
-    addLayoutExtension(p, doc, model, metabolic,true);
+  public static void addLayoutExtension(Pathway p, PathwayIndex index, SBMLDocument doc, Model model, IntObjectMap<Object> entryElements, boolean metabolic) {
+    addLayoutExtension(p, index, doc, model, entryElements, metabolic,true);
   }
   /**
    * Add (translate) layout extension to the given model. Translates
@@ -92,15 +98,19 @@ public class KEGG2SBMLLayoutExtension {
    * Works with all {@link AbstractNamedSBase}s, thus with Species
    * as well as QualitativeSpecies.
    * @param p
+   * @param index lookup index over the entries and reactions of
+   * {@code p}.
    * @param doc
    * @param model
+   * @param entryElements mapping from entry ids to the created
+   * {@link AbstractNamedSBase}s.
    * @param metabolic if true, will set {@link ReactionGlyph}s instead
    * of {@link SpeciesGlyph} whereever possible.
    * @param removeAllPreviousLayouts if {@code true}, will call
    * unsetListOfLayouts() and remove all previous layouts before adding
    * the new one.
    */
-  public static void addLayoutExtension(Pathway p, SBMLDocument doc, Model model, boolean metabolic, boolean removeAllPreviousLayouts) {
+  public static void addLayoutExtension(Pathway p, PathwayIndex index, SBMLDocument doc, Model model, IntObjectMap<Object> entryElements, boolean metabolic, boolean removeAllPreviousLayouts) {
     
     // Make sure extension is available
     // NOTE: this should be called every time! No need to check if it is already contained.
@@ -143,6 +153,15 @@ public class KEGG2SBMLLayoutExtension {
     }
     Map<String, ReactionGlyph> keggReactionName2glyph = new HashMap<String, ReactionGlyph>();
     
+    /*
+     * Indexes for all reaction glyphs of this layout. Querying the layout
+     * directly would scan all glyphs for every entry.
+     */
+    // SBML reaction id to its first reaction glyph
+    Map<String, ReactionGlyph> reactionId2glyph = new HashMap<String, ReactionGlyph>();
+    // Glyph id to reaction glyph
+    Map<String, ReactionGlyph> glyphId2glyph = new HashMap<String, ReactionGlyph>();
+    
     // First, create a glyph for each reaction
     if (metabolic) {
       Map<String, Reaction> sbmlReactionName2reaction = new HashMap<String, Reaction>();
@@ -156,8 +175,8 @@ public class KEGG2SBMLLayoutExtension {
           Reaction sbmlR = sbmlReactionName2reaction.get(r.getName());
           // Reactions may also be duplicated in KGMLs => don't create duplicate reactionGlyphs
           // for the same, single reaction!
-          if (!layout.containsGlyph(sbmlR)) {
-            ReactionGlyph glyph = layout.createReactionGlyph(createGlyphID(idCounts, sbmlR.getId()), sbmlR.getId());
+          if (!reactionId2glyph.containsKey(sbmlR.getId())) {
+            ReactionGlyph glyph = createReactionGlyph(layout, idCounts, sbmlR.getId(), reactionId2glyph, glyphId2glyph);
             keggReactionName2glyph.put(r.getName(), glyph);
           }
         }
@@ -175,7 +194,7 @@ public class KEGG2SBMLLayoutExtension {
     
     // Create a glyph for each entry (In KGML, only entries have graph objects)
     for (Entry e : p.getEntries()) {
-      Object s = e.getCustom();
+      Object s = entryElements.get(e.getId());
       if ((s != null) && e.hasGraphics()) {
         Graphics g = e.getGraphics();
         boolean isLineGraphic = g.getType().equals(GraphicsType.line);
@@ -214,9 +233,9 @@ public class KEGG2SBMLLayoutExtension {
             String[] entryReactions = e.getReactions();
             if (entryReactions!=null && rcts.size()>0) {
               // Match reactions
+              Set<String> entryReactionSet = new HashSet<String>(Arrays.asList(entryReactions));
               for (Reaction r: rcts) {
-                int pos = ArrayUtils.indexOf(entryReactions, r.toString());
-                if (pos >= 0) {
+                if (entryReactionSet.contains(r.toString())) {
                   rct = r;
                   break;
                 }
@@ -225,7 +244,8 @@ public class KEGG2SBMLLayoutExtension {
             if (rct == null) {
               // No match => take first without positions
               for (Reaction r : rcts) {
-                ReactionGlyph rg = layout.getReactionGlyph(r.getId());
+                // Same as layout.getReactionGlyph(r.getId()), which looks up glyph ids
+                ReactionGlyph rg = glyphId2glyph.get(r.getId());
                 if (rg==null || rg.getBoundingBox()==null || !rg.getBoundingBox().isSetPosition()) {
                   rct = r;
                   break;
@@ -246,13 +266,10 @@ public class KEGG2SBMLLayoutExtension {
             boolean positionAttributesUsed = false;
             if (!g.isDefaultPosition() && (rct != null) && !isLineGraphic) {
               // LINE coordinate are much worse than rectangles. So prefer rectangles!
-              List<ReactionGlyph> listOfGlyphs = layout.findReactionGlyphs(rct.getId());
-              ReactionGlyph glyph;
-              if ((listOfGlyphs == null) || listOfGlyphs.isEmpty()) {
-                glyph = layout.createReactionGlyph(createGlyphID(idCounts, rct.getId()), rct.getId());
+              ReactionGlyph glyph = reactionId2glyph.get(rct.getId());
+              if (glyph == null) {
+                glyph = createReactionGlyph(layout, idCounts, rct.getId(), reactionId2glyph, glyphId2glyph);
                 keggReactionName2glyph.put(rct.getName(), glyph); // NOTE: The SBML reaction name must therefore be equal to the KGMLs reaction name.
-              } else {
-                glyph = listOfGlyphs.get(0);
               }
               glyph.unsetBoundingBox();
               BoundingBox rbox = glyph.createBoundingBox();
@@ -316,7 +333,7 @@ public class KEGG2SBMLLayoutExtension {
             
             // If unique assignment (by id) available, add as substrate/product
             if (e.isSetID()) {
-              for (de.zbit.kegg.parser.pathway.Reaction r : p.getReactionsForEntry(e)) {
+              for (de.zbit.kegg.parser.pathway.Reaction r : index.getReactionsForEntry(e)) {
                 ReactionGlyph rg = keggReactionName2glyph.get(r.getName());
                 if (rg!=null) {
                   // do NOT assign by name. this does not solve the problem with clones.
@@ -366,17 +383,40 @@ public class KEGG2SBMLLayoutExtension {
       return id;
     }
     
-    int s = 2;
+    Set<String> usedIds = new HashSet<String>();
     for (int i=0; i<lol.size(); i++) {
-      if (lol.get(i).getId().equalsIgnoreCase(id)) {
-        id = idPrefix + s;
-        s++;
-        i=-1;
+      if (lol.get(i).getId() != null) {
+        usedIds.add(lol.get(i).getId().toLowerCase());
       }
     }
     
+    int s = 2;
+    while (usedIds.contains(id.toLowerCase())) {
+      id = idPrefix + s;
+      s++;
+    }
+    
     return id;
   }
+  
+  /**
+   * Creates a new {@link ReactionGlyph} and adds it to the given indexes.
+   * @param layout
+   * @param idCounts
+   * @param reactionId
+   * @param reactionId2glyph index from reaction ids to their first glyph.
+   * @param glyphId2glyph index from glyph ids to glyphs.
+   * @return the created glyph.
+   */
+  private static ReactionGlyph createReactionGlyph(Layout layout, Map<String, Integer> idCounts, String reactionId,
+    Map<String, ReactionGlyph> reactionId2glyph, Map<String, ReactionGlyph> glyphId2glyph) {
+    ReactionGlyph glyph = layout.createReactionGlyph(createGlyphID(idCounts, reactionId), reactionId);
+    if (!reactionId2glyph.containsKey(reactionId)) {
+      reactionId2glyph.put(reactionId, glyph);
+    }
+    glyphId2glyph.put(glyph.getId(), glyph);
+    return glyph;
+  }
   /**
    * 
    * @param idCounts
@@ -32,6 +32,7 @@ import javax.xml.stream.XMLStreamException;
 
 import org.sbml.jsbml.AbstractSBase;
 import org.sbml.jsbml.CVTerm;
+import org.sbml.jsbml.Compartment;
 import org.sbml.jsbml.Model;
 import org.sbml.jsbml.NamedSBase;
 import org.sbml.jsbml.SBMLDocument;
@@ -62,10 +63,10 @@ import de.zbit.kegg.parser.pathway.Entry;
 import de.zbit.kegg.parser.pathway.Pathway;
 import de.zbit.kegg.parser.pathway.Relation;
 import de.zbit.kegg.parser.pathway.SubType;
-import de.zbit.sbml.util.AnnotationUtils;
 import de.zbit.util.DatabaseIdentifierTools;
 import de.zbit.util.DatabaseIdentifiers;
 import de.zbit.util.DatabaseIdentifiers.IdentifierDatabases;
+import de.zbit.util.IdentifierPool;
 import de.zbit.util.Utils;
 
 /**
@@ -177,12 +178,13 @@ public class KEGG2SBMLqual extends KEGG2jSBML {
     // Don't forget to clear all previous caches
     containedTransitions.clear();
     
-    // Translate to normal SBML
+    // Translate to normal SBML. For pure qual models, this directly
+    // creates qualitative species instead of core species (see createSpecies()).
     SBMLDocument doc = super.translateWithoutPreprocessing(p);
     
     // Create qualitative model
     Model model = doc.getModel();
-    QualModelPlugin qualModel = new QualModelPlugin(model);
+    QualModelPlugin qualModel = getQualModelPlugin(model);
     
     // Determine if this is a combined model (core + qual) or a pure qual model.
     boolean isCombindedModel = considerReactions();
@@ -190,7 +192,6 @@ public class KEGG2SBMLqual extends KEGG2jSBML {
     // Add extension and namespace to model
     doc.addNamespace(KEGG2SBMLqual.QUAL_NS_NAME, "xmlns", KEGG2SBMLqual.QUAL_NS);
     doc.getSBMLDocumentAttributes().put(QUAL_NS_NAME + ":required", (isCombindedModel? "false" : "true"));
-    model.addExtension(KEGG2SBMLqual.QUAL_NS, qualModel);
     
     /* Until (INCLUDING) Version 2.2, if there were no relations, no qual species
      * have been created. The comment was as follows:
@@ -203,7 +204,11 @@ public class KEGG2SBMLqual extends KEGG2jSBML {
     // Create qual species for every species
     if (p.getRelations().size()<1 && KEGGtranslatorOptions.REMOVE_ORPHANS.getValue(prefs)) {
       // We have no relations and REMOVE_ORPHANS is true => do nothing.
-    } else {
+      if (!isCoreModel()) {
+        // Remove the directly created qual species
+        qualModel.unsetListOfQualitativeSpecies();
+      }
+    } else if (isCoreModel()) {
       // Create the species (independent of the relations.
       createQualSpecies(p, qualModel);
     }
@@ -223,12 +228,55 @@ public class KEGG2SBMLqual extends KEGG2jSBML {
     
     // Update (UNSET OLD METABOLIC and create new, qual-species related) layout extension
     if (addLayoutExtension) {
-      KEGG2SBMLLayoutExtension.addLayoutExtension(p, doc, model, false, !isCombindedModel);
+      KEGG2SBMLLayoutExtension.addLayoutExtension(p, index, doc, model, entryElements, false, !isCombindedModel);
     }
     
     return doc;
   }
   
+  /* (non-Javadoc)
+   * @see de.zbit.kegg.io.KEGG2jSBML#isCoreModel()
+   */
+  @Override
+  protected boolean isCoreModel() {
+    // Pure qual models don't need any core species
+    return considerReactions();
+  }
+  
+  /**
+   * Creates qualitative species directly for pure qual models, i.e.,
+   * without creating and converting core species. Combined models
+   * get core species, which are converted later on (see
+   * {@link #createQualSpecies(Pathway, QualModelPlugin)}).
+   * 
+   * @see de.zbit.kegg.io.KEGG2jSBML#createSpecies(de.zbit.kegg.parser.pathway.Entry, java.lang.String, org.sbml.jsbml.Model, org.sbml.jsbml.Compartment)
+   */
+  @Override
+  protected NamedSBase createSpecies(Entry entry, String id, Model model, Compartment compartment) {
+    if (isCoreModel()) {
+      return super.createSpecies(entry, id, model, compartment);
+    }
+    QualitativeSpecies qs = getQualModelPlugin(model).createQualitativeSpecies(QUAL_SPECIES_PREFIX + id, compartment);
+    // Martjin told me on 2012-04-13 that for the validator, constant must be set to false.
+    // leaving this unset results in invalid sbml.
+    qs.setConstant(false);
+    return qs;
+  }
+  
+  /**
+   * Get or create the {@link QualModelPlugin}.
+   * @param model
+   * @return
+   */
+  private static QualModelPlugin getQualModelPlugin(Model model) {
+    QualModelPlugin qualModel = (QualModelPlugin) model.getExtension(KEGG2SBMLqual.QUAL_NS);
+    if (qualModel == null) {
+      qualModel = new QualModelPlugin(model);
+      model.addExtension(KEGG2SBMLqual.QUAL_NS, qualModel);
+    }
+    return qualModel;
+  }
+  
   /**
    * Creates a qual species for every entry in the pathway
    * (as a side effect, also for every species in the model).
@@ -238,16 +286,16 @@ public class KEGG2SBMLqual extends KEGG2jSBML {
    */
   private void createQualSpecies(Pathway p, QualModelPlugin qualModel) {
     for (Entry e : p.getEntries()) {
-      Object s = e.getCustom();
+      Object s = getElementForEntry(e);
       if ((s != null) && (s instanceof Species)) {
         QualitativeSpecies qs = createQualitativeSpeciesFromSpecies((Species) s, qualModel);
-        e.setCustom(qs);
+        setElementForEntry(e, qs);
       } else if ((s != null) && (s instanceof Group)) {
         Group updatedReferences = createQualitativeGroupFromGroup((Group) s);
-        e.setCustom(updatedReferences);
+        setElementForEntry(e, updatedReferences);
         // Sinmply KEEP non-species objects (e.g., groups when using the group extension)
         //      } else {
-        //        e.setCustom(null);
+        //        setElementForEntry(e, null);
       }
     }
   }
@@ -264,11 +312,11 @@ public class KEGG2SBMLqual extends KEGG2jSBML {
   public Transition addKGMLRelation(Relation r, Pathway p, QualModelPlugin qualModel) throws XMLStreamException {
     // create transition and add it to the model
     
-    Entry eOne = p.getEntryForId(r.getEntry1());
-    Entry eTwo = p.getEntryForId(r.getEntry2());
+    Entry eOne = index.getEntryForId(r.getEntry1());
+    Entry eTwo = index.getEntryForId(r.getEntry2());
     
-    NamedSBase qOne = eOne==null?null:(NamedSBase) eOne.getCustom();
-    NamedSBase qTwo = eTwo==null?null:(NamedSBase) eTwo.getCustom();
+    NamedSBase qOne = (NamedSBase) getElementForEntry(eOne);
+    NamedSBase qTwo = (NamedSBase) getElementForEntry(eTwo);
     
     if (qOne==null || qTwo==null) {
       // Happens, e.g. when remove_pw_references is true and there is a
@@ -378,25 +426,25 @@ public class KEGG2SBMLqual extends KEGG2jSBML {
       //setBiologicalQualifierISorHAS_VERSION(cv);
       t.addCVTerm(cv);
     }
-    t.addCVTerm(new CVTerm(CVTerm.Qualifier.BQB_IS_DESCRIBED_BY, AnnotationUtils.convertURN2URI(KeggInfos.miriam_urn_eco + "ECO%3A0000313")));
+    t.addCVTerm(new CVTerm(CVTerm.Qualifier.BQB_IS_DESCRIBED_BY, IdentifierPool.convertURN2URI(ECO_IMPORTED_URN)));
     
     // Add additional miriam identifiers
     if (r.isSetDatabaseIdentifiers()) {
       List<CVTerm> cvTerms = DatabaseIdentifierTools.getCVTerms(r.getDatabaseIdentifiers(), null);
       if ((cvTerms != null) && (cvTerms.size() > 0)) {
         for (CVTerm cvTerm : cvTerms) {
+          IdentifierPool.internAll(cvTerm.getResources());
           t.addCVTerm(cvTerm);
         }
       }
     }
     
     // Add the source of this transition, if it was NOT from kegg
-    if (r.isSetSource()) {
-      StringBuffer notes = new StringBuffer(KEGG2jSBML.notesStartString);
-      notes.append(String.format("This transition is defined by '%s'.\n", r.getSource()));
-      notes.append(KEGG2jSBML.notesEndString);
+    if (r.isSetSource() && addNotes) {
+      NotesBuilder notes = new NotesBuilder();
+      notes.text(String.format("This transition is defined by '%s'.", r.getSource()));
       try {
-        t.setNotes(notes.toString());
+        t.setNotes(notes.getNotes());
       } catch (Throwable exc) {
         logger.warning(MessageFormat.format(
           "Cannot write notes for species ''{0}'' because of {1}: {2}.",
@@ -522,7 +570,7 @@ public class KEGG2SBMLqual extends KEGG2jSBML {
       
       // Remember already queried objects (save cache)
       if (AbstractKEGGtranslator.getKeggInfoManager().hasChanged()) {
-        KeggInfoManagement.saveToFilesystem(Translator.cacheFileName, AbstractKEGGtranslator.getKeggInfoManager());
+        Translator.saveManager(AbstractKEGGtranslator.getKeggInfoManager());
       }
       
       return;
@@ -542,7 +590,7 @@ public class KEGG2SBMLqual extends KEGG2jSBML {
       
       // Remember already queried objects
       if (AbstractKEGGtranslator.getKeggInfoManager().hasChanged()) {
-        KeggInfoManagement.saveToFilesystem(Translator.cacheFileName, AbstractKEGGtranslator.getKeggInfoManager());
+        Translator.saveManager(AbstractKEGGtranslator.getKeggInfoManager());
       }
       
     } catch (Exception e) {
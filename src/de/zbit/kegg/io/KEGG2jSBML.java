@@ -72,12 +72,11 @@ import de.zbit.kegg.parser.pathway.Reaction;
 import de.zbit.kegg.parser.pathway.ReactionComponent;
 import de.zbit.kegg.parser.pathway.ReactionType;
 import de.zbit.kegg.parser.pathway.ext.EntryExtended;
-import de.zbit.sbml.util.AnnotationUtils;
-import de.zbit.util.ArrayUtils;
 import de.zbit.util.DatabaseIdentifierTools;
 import de.zbit.util.DatabaseIdentifiers;
 import de.zbit.util.DatabaseIdentifiers.IdentifierDatabases;
-import de.zbit.util.EscapeChars;
+import de.zbit.util.IdentifierPool;
+import de.zbit.util.KeggIdTokenizer;
 import de.zbit.util.SortedArrayList;
 import de.zbit.util.Utils;
 import de.zbit.util.objectwrapper.Info;
@@ -113,6 +112,11 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
    */
   protected boolean useGroupsExtension = true;
   
+  /**
+   * Add human-readable XHTML notes to the model, species and reactions?
+   */
+  protected boolean addNotes = true;
+  
   /**
    * Default compartment size.
    */
@@ -151,6 +155,12 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
    */
   public static String quotEnd = "&#8221;"; // "\u201D";//"&#8221;"; // &rdquo;
   
+  /**
+   * MIRIAM URN of the static ECO code "ECO:0000313" ("imported
+   * information used in automatic assertion").
+   */
+  protected static final String ECO_IMPORTED_URN = KeggInfos.miriam_urn_eco + "ECO%3A0000313";
+  
   
   
   /**
@@ -249,6 +259,13 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     useGroupsExtension = b;
   }
   
+  /**
+   * @param b - see {@link #addNotes}.
+   */
+  public void setAddNotes(boolean b) {
+    addNotes = b;
+  }
+  
   
   
   /*===========================
@@ -261,6 +278,7 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     //addCellDesignerAnnots = KEGGtranslatorOptions.CELLDESIGNER_ANNOTATIONS.getValue(prefs);
     addLayoutExtension = KEGGtranslatorOptions.ADD_LAYOUT_EXTENSION.getValue(prefs);
     useGroupsExtension = KEGGtranslatorOptions.USE_GROUPS_EXTENSION.getValue(prefs);
+    addNotes = KEGGtranslatorOptions.ADD_NOTES.getValue(prefs);
   }
   
   /**
@@ -300,12 +318,13 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     sr.setStoichiometry(stoich == null ? 1d : stoich);
     
     // Get Species for ReactionComponent and assign to SpeciesReference.
-    Entry rcEntry = p.getEntryForReactionComponent(rc);
-    if ((rcEntry != null) && (rcEntry.getCustom() != null)) {
-      if (rcEntry.getCustom() instanceof Species) {
-        sr.setSpecies((Species) rcEntry.getCustom());
+    Entry rcEntry = index.getEntryForReactionComponent(rc);
+    Object rcSpec = getElementForEntry(rcEntry);
+    if (rcSpec != null) {
+      if (rcSpec instanceof Species) {
+        sr.setSpecies((Species) rcSpec);
       } else {
-        sr.setSpecies(((NamedSBase) rcEntry.getCustom()).getId());
+        sr.setSpecies(((NamedSBase) rcSpec).getId());
       }
     }
     
@@ -411,9 +430,9 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
        */
       
       // Next line is same as "urn:miriam:kegg.pathway" + p.getName().substring(p.getName().indexOf(":"))
-      String kgMiriamEntry = KeggInfos.getMiriamURNforKeggID(p.getName());
+      String kgMiriamEntry = IdentifierPool.getMiriamURI(p.getName());
       if (kgMiriamEntry != null) {
-        mtPwID.addResource(AnnotationUtils.convertURN2URI(kgMiriamEntry));
+        mtPwID.addResource(kgMiriamEntry);
       }
       model.addCVTerm(mtPwID);
       
@@ -446,9 +465,9 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     // Retrieve further information via Kegg Adaptor
     boolean titleAdded = false;
     if (p.isSetOrg()) {
-      KeggInfos orgInfos = KeggInfos.get("gn:" + p.getOrg(), manager); // Retrieve all organism information via KeggAdaptor
+      KeggInfos orgInfos = KeggAnnotation.getInfos("gn:" + p.getOrg(), manager); // Retrieve all organism information via KeggAdaptor
       if (orgInfos.queryWasSuccessfull()) {
-        CVTerm mtOrgID = DatabaseIdentifierTools.getCVTerm(IdentifierDatabases.NCBI_Taxonomy, null, orgInfos.getTaxonomy().split("\\s"));
+        CVTerm mtOrgID = DatabaseIdentifierTools.getCVTerm(IdentifierDatabases.NCBI_Taxonomy, null, KeggIdTokenizer.splitAtWhitespace(orgInfos.getTaxonomy()));
         if (mtOrgID.getResourceCount() > 0) {
           model.addCVTerm(mtOrgID);
         }
@@ -463,7 +482,7 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     
     // Get PW infos from KEGG Api for Description and GO ids.
     if (isKEGGPathway) {
-      KeggInfos pwInfos = KeggInfos.get(p.getName(), manager); // NAME, DESCRIPTION, DBLINKS verwertbar
+      KeggInfos pwInfos = KeggAnnotation.getInfos(p.getName(), manager); // NAME, DESCRIPTION, DBLINKS verwertbar
       if (pwInfos.queryWasSuccessfull()) {
         if (pwInfos.getDescription()!=null) {
           notes.append(String.format("%s<br/>\n", formatTextForHTMLnotes(pwInfos.getDescription())));
@@ -471,7 +490,7 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
         
         // GO IDs
         if (pwInfos.getGo_id() != null) {
-          CVTerm mtGoID = DatabaseIdentifierTools.getCVTerm(IdentifierDatabases.GeneOntology, null, pwInfos.getGo_id().split("\\s"));
+          CVTerm mtGoID = DatabaseIdentifierTools.getCVTerm(IdentifierDatabases.GeneOntology, null, KeggIdTokenizer.splitAtWhitespace(pwInfos.getGo_id()));
           if (mtGoID.getResourceCount() > 0) {
             model.addCVTerm(mtGoID);
           }
@@ -562,14 +581,10 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
        */
       if (entry.getName().contains(":") && !addedEntries.add(entry.getName())) {
         // Look for already added species from other entry
-        // and link to this entry by adding the same species as "custom".
-        Collection<Entry> col = p.getEntriesForName(entry.getName()); // should return at least 2 entries
-        if ((col != null) && (col.size() > 0)) {
-          Iterator<Entry> it = col.iterator();
-          while (it.hasNext() && (spec = (SBase)it.next().getCustom())==null) {
-            ;
-          }
-          entry.setCustom(spec);
+        // and link to this entry by remembering the same species.
+        spec = (SBase) getElementForName(entry.getName());
+        if (spec != null) {
+          setElementForEntry(entry, spec);
         }
       }
       
@@ -578,13 +593,15 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
         spec = addKGMLEntry(entry, p, model, compartment);
       }
       
-      // Track reaction modifiers
-      addToReactionModifierList(entry, spec, reactionModifiers);
+      // Track reaction modifiers (only required for reactions)
+      if (considerReactions()) {
+        addToReactionModifierList(entry, spec, reactionModifiers);
+      }
     }
     
     // Add CellDesigner information to species / entries.
     if (addCellDesignerAnnots) {
-      cdu.addCellDesignerAnnotationToAllSpecies(p);
+      cdu.addCellDesignerAnnotationToAllSpecies(p, entryElements);
     }
     
     // ------------------------------------------------------------------
@@ -621,7 +638,9 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     // Finalize notes and annotations.
     notes.append(notesEndString);
     try {
-      model.setNotes(notes.toString());
+      if (addNotes) {
+        model.setNotes(notes.toString());
+      }
     } catch (Throwable t) {
       logger.warning(MessageFormat.format(
         "Cannot write notes for model ''{0}'' because of {1}: {2}.",
@@ -632,8 +651,8 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     }
     
     // Eventually add layout extension
-    if (addLayoutExtension) {
-      KEGG2SBMLLayoutExtension.addLayoutExtension(p, doc, model, true);
+    if (addLayoutExtension && isCoreModel()) {
+      KEGG2SBMLLayoutExtension.addLayoutExtension(p, index, doc, model, entryElements, true);
     }
     
     // Important: we don's satisfy all requirements for COBRA models, so we want to make sure the file is valid.
@@ -777,7 +796,7 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
    */
   private org.sbml.jsbml.Reaction addKGMLReaction(Reaction r, Pathway p, Model model, Compartment compartment,
     List<Info<String, ModifierSpeciesReference>> reactionModifiers) throws XMLStreamException {
-    if (!reactionHasAtLeastOneSubstrateAndProduct(r, p)) {
+    if (!reactionHasAtLeastOneSubstrateAndProduct(r)) {
       return null;
     }
     
@@ -793,7 +812,7 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     //rAnnot.setAbout(""); // IMPORTANT: Emtpy is wrong. it is being corrected in further on.
     //sbReaction.setAnnotation(rAnnot); // manchmal ist jSBML schon bescheuert... (Annotation darf nicht null sein, ist aber default null).
     
-    StringBuffer notes = new StringBuffer(notesStartString);
+    NotesBuilder notes = addNotes ? new NotesBuilder() : null;
     
     // Add substrates/ products
     sbReaction.setReversible(r.getType().equals(ReactionType.reversible));
@@ -819,6 +838,7 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
       List<CVTerm> cvTerms = DatabaseIdentifierTools.getCVTerms(r.getDatabaseIdentifiers(), null);
       if ((cvTerms != null) && (cvTerms.size() > 0)) {
         for (CVTerm cvTerm : cvTerms) {
+          IdentifierPool.internAll(cvTerm.getResources());
           sbReaction.addCVTerm(cvTerm);
         }
       }
@@ -833,44 +853,43 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     rePWs.setQualifierType(Type.BIOLOGICAL_QUALIFIER);
     rePWs.setBiologicalQualifierType(Qualifier.BQB_OCCURS_IN);
     
-    for (String ko_id : r.getName().split(" ")) {
-      String kgMiriamEntry = KeggInfos.getMiriamURNforKeggID(ko_id);
+    for (String ko_id : KeggIdTokenizer.split(r.getName(), ' ')) {
+      String kgMiriamEntry = IdentifierPool.getMiriamURI(ko_id);
       if (kgMiriamEntry != null) {
-        reID.addResource(AnnotationUtils.convertURN2URI(kgMiriamEntry));
+        reID.addResource(kgMiriamEntry);
       }
       
       // Retrieve further information via Kegg API
-      KeggInfos infos = KeggInfos.get(ko_id, manager);
-      if (infos.queryWasSuccessfull()) {
-        notes.append("<p>");
+      KeggInfos infos = KeggAnnotation.getInfos(ko_id, manager);
+      if (infos.queryWasSuccessfull() && (notes != null)) {
+        notes.start("p");
         if (infos.getDefinition() != null) {
-          notes.append(String.format("<b>Definition of %s%s%s:</b> %s<br/>\n",
-            quotStart, ko_id.toUpperCase(), quotEnd, formatTextForHTMLnotes(infos.getDefinition()) ));
-          logger.fine(sbReaction.getNotesString());
-          // notes="<body xmlns=\"http://www.w3.org/1999/xhtml\"><p><b>&#8220;TEST&#8221;</b> A &lt;&#061;&gt;&#62;&#x3e;\u003E B<br/></p></body>";
+          notes.element("b", String.format("Definition of %s:", NotesBuilder.quote(ko_id.toUpperCase())))
+            .text(" " + infos.getDefinition()).br();
         } else {
-          notes.append(String.format("<b>%s</b><br/>\n", ko_id.toUpperCase()));
+          notes.element("b", ko_id.toUpperCase()).br();
         }
         if (infos.getEquation() != null) {
-          notes.append(String.format("<b>Equation for %s%s%s:</b> %s<br/>\n",
-            quotStart, ko_id.toUpperCase(), quotEnd, EscapeChars.forHTML(infos.getEquation())));
+          notes.element("b", String.format("Equation for %s:", NotesBuilder.quote(ko_id.toUpperCase())))
+            .text(" " + infos.getEquation()).br();
         }
         String reactionImageURL = Pathway.getReactionPreviewPicture(ko_id, false);
-        notes.append(String.format("<a href=\"%s\">", reactionImageURL));
-        notes.append(String.format("<img src=\"%s\"/></a>\n", reactionImageURL));
+        notes.start("a", "href", reactionImageURL).start("img", "src", reactionImageURL).end().end();
         if (infos.getPathwayDescriptions() != null) {
-          notes.append("<br/>\n<b>Occurs in:</b><br/>\n");
-          notes.append("<ul>\n");
+          notes.br().element("b", "Occurs in:").br();
+          notes.start("ul");
           for (String desc : infos.getPathwayDescriptions().split(",")) { // e.g. ",Glycolysis / Gluconeogenesis,Metabolic pathways"
-            notes.append("<li>"+ formatTextForHTMLnotes(desc) + "</li>\n");
+            notes.element("li", desc);
           }
-          notes.append("</ul><br/>\n");
+          notes.end().br();
         }
-        notes.append("</p>");
+        notes.end();
+      }
+      if (infos.queryWasSuccessfull()) {
         
         if ((rePWs != null) && (infos.getPathways() != null)) {
           for (String pwId : infos.getPathways().split(",")) {
-            String urn = AnnotationUtils.convertURN2URI(KeggInfos.miriam_urn_kgPathway + KeggInfos.suffix(pwId));
+            String urn = IdentifierPool.convertURN2URI(KeggInfos.miriam_urn_kgPathway + KeggInfos.suffix(pwId));
             if ((urn != null) && !rePWs.getResources().contains(urn)){
               rePWs.addResource(urn);
             }
@@ -887,34 +906,36 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     
     // Check the atom balance (only makes sense if reactions are corrected,
     // else, they are clearly wrong).
-    if (autocompleteReactions && checkAtomBalance) {
+    // The atom balance summary is only written to the notes.
+    if (autocompleteReactions && checkAtomBalance && (notes != null)) {
       AtomCheckResult<Reaction> defects = AtomBalanceCheck.checkAtomBalance(manager, r, 1);
+      notes.start("p");
       if ((defects != null) && defects.hasDefects()) {
-        notes.append("<p>");
-        notes.append("<b><font color=\"#FF0000\">There are missing atoms in this reaction.</font></b><br/>" +
-            "<small><i>Values lower than zero indicate missing atoms on the " +
+        notes.start("b").start("font", "color", "#FF0000").text("There are missing atoms in this reaction.").end().end().br()
+          .start("small").element("i", "Values lower than zero indicate missing atoms on the " +
             "substrate side, whereas positive values indicate missing atoms " +
-            "on the product side.</i></small><br/>\n");
-        notes.append(defects.getResultsAsHTMLtable());
-        notes.append("</p>");
+            "on the product side.").end().br();
+        try {
+          notes.xhtml(defects.getResultsAsHTMLtable());
+        } catch (XMLStreamException exc) {
+          logger.fine(Utils.getMessage(exc));
+        }
       } else if (defects==null) {
-        notes.append("<p>");
-        notes.append("<b><font color=\"#FF0000\">Could not check the atom balance of this reaction.</font></b>\n");
-        notes.append("</p>");
+        notes.start("b").start("font", "color", "#FF0000").text("Could not check the atom balance of this reaction.").end().end();
       } else {
-        notes.append("<p>");
-        notes.append("<b><font color=\"#00FF00\">There are no missing atoms in this reaction.</font></b>\n");
-        notes.append("</p>");
+        notes.start("b").start("font", "color", "#00FF00").text("There are no missing atoms in this reaction.").end().end();
       }
+      notes.end();
     }
     
     
     // Finally, add the fully configured reaction.
     sbReaction.setName(r.getName());
     sbReaction.setId(NameToSId(r.getName()));
-    notes.append(notesEndString);
     try {
-      sbReaction.setNotes(notes.toString());
+      if (notes != null) {
+        sbReaction.setNotes(notes.getNotes());
+      }
     } catch (Throwable t) {
       logger.warning(MessageFormat.format(
         "Cannot write notes for reaction ''{0}'' because of {1}: {2}.",
@@ -924,7 +945,7 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     sbReaction.setSBOTerm(176); // biochemical reaction. Most generic SBO Term possible, for a reaction.
     //rAnnot.setAbout("#" + sbReaction.getMetaId());
     
-    sbReaction.addCVTerm(new CVTerm(Qualifier.BQB_IS_DESCRIBED_BY, AnnotationUtils.convertURN2URI(KeggInfos.miriam_urn_eco + "ECO%3A0000313")));
+    sbReaction.addCVTerm(new CVTerm(Qualifier.BQB_IS_DESCRIBED_BY, IdentifierPool.convertURN2URI(ECO_IMPORTED_URN)));
     
     return sbReaction;
   }
@@ -949,7 +970,7 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
   private List<ModifierSpeciesReference> getAllModifier (
     List<Info<String, ModifierSpeciesReference>> reactionModifiers, String reaction) {
     List<ModifierSpeciesReference> modifier = new ArrayList<ModifierSpeciesReference>();
-    String lName = reaction.toLowerCase().trim();
+    String lName = KeggIdTokenizer.normalize(reaction);
     int modifierPos = reactionModifiers.indexOf(lName);
     if (modifierPos < 0) {
       return modifier;
@@ -993,69 +1014,84 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
    * @throws XMLStreamException
    */
   public static void addMiriamURNs(Entry entry, SBase spec) throws XMLStreamException {
+    NotesBuilder notes = new NotesBuilder();
+    addMiriamURNs(entry, spec, notes);
+    if (!notes.isEmpty()) {
+      notes.appendTo(spec);
+    }
+  }
+  
+  /**
+   * Adds all available MIRIAM URNs and ids to the given species.
+   * AND adds a description and more information from the KEGG api to the
+   * given notes.
+   * @param entry
+   * @param spec
+   * @param notes the notes to append the description to, or {@code null}
+   * to skip the description.
+   * @throws XMLStreamException
+   */
+  public static void addMiriamURNs(Entry entry, SBase spec, NotesBuilder notes) throws XMLStreamException {
+    addMiriamURNs(entry, EntryAnnotation.create(entry, manager), spec, notes);
+  }
+  
+  /**
+   * Adds all available MIRIAM URNs and ids to the given species.
+   * AND adds a description and more information from the KEGG api to the
+   * given notes.
+   * @param entry
+   * @param annotation the (precomputed) annotation of the entry.
+   * @param spec
+   * @param notes the notes to append the description to, or {@code null}
+   * to skip the description.
+   * @throws XMLStreamException
+   */
+  public static void addMiriamURNs(Entry entry, EntryAnnotation annotation, SBase spec, NotesBuilder notes) throws XMLStreamException {
     // Get a map of existing identifiers or create a new one
     Map<DatabaseIdentifiers.IdentifierDatabases, Collection<String>> ids = new HashMap<DatabaseIdentifiers.IdentifierDatabases, Collection<String>>();
     if (entry instanceof EntryExtended) {
       ids = ((EntryExtended)entry).getDatabaseIdentifiers();
     }
     
-    // Parse every gene/object in this node.
-    for (String ko_id : entry.getName().split(" ")) {
-      if (ko_id.trim().equalsIgnoreCase("undefined") || entry.hasComponents())
-      {
-        continue; // "undefined" = group node, which contains "Components"
-      }
-      
-      
-      // Retrieve further information via Kegg API -- Be careful: very slow! Precache all queries at top of this function!
-      KeggInfos infos = KeggInfos.get(ko_id, manager);
-      // Some infos can also be extracted if query was NOT succesfull
-      
+    // Group nodes, which contain "Components", are not annotated.
+    if (!entry.hasComponents()) {
+      // Add reactions and all available identifiers (enzrez gene, ensembl, etc)
+      annotation.addIdentifiersTo(ids);
       
-      // Add reactions as miriam annotation
-      String reactionID = concatReactionIDs(entry.getParentPathway().getReactionsForEntry(entry), ArrayUtils.merge(entry.getReactions(), infos.getReaction_id()));
-      if (reactionID != null && reactionID.length()>0) {
-        Utils.addToMapOfSets(ids, IdentifierDatabases.KEGG_Reaction, reactionID.split("\\s"));
-      }
-      // Add all available identifiers (enzrez gene, ensembl, etc)
-      infos.addAllIdentifiers(ids);
-      
-      if (infos.queryWasSuccessfull()) {
+      // Parse every gene/object in this node.
+      for (KeggAnnotation a : annotation.getAnnotations()) {
+        if (!a.isQuerySuccessful() || (notes == null)) {
+          continue;
+        }
         
         // HTML Information
-        StringBuffer notes = new StringBuffer(notesStartString);
-        if ((infos.getDefinition() != null) && (infos.getName() != null)) {
-          notes.append(String.format("<p><b>Description for %s%s%s:</b> %s</p>\n",
-            quotStart, EscapeChars.forHTML(infos.getName()), quotEnd, formatTextForHTMLnotes(infos.getDefinition()) ));
-        } else if (infos.getName() != null) {
-          notes.append(String.format("<p><b>%s</b></p>\n", EscapeChars.forHTML(infos.getName())));
+        if ((a.getDefinition() != null) && (a.getName() != null)) {
+          notes.start("p").element("b", String.format("Description for %s:", NotesBuilder.quote(a.getName())))
+            .text(" " + a.getDefinition()).end();
+        } else if (a.getName() != null) {
+          notes.start("p").element("b", a.getName()).end();
         }
-        if (infos.containsMultipleNames()) {
-          notes.append(String.format("<p><b>All given names:</b><br/>%s</p>\n",EscapeChars.forHTML(infos.getNames().replace(";", "")) ));
+        if (a.containsMultipleNames()) {
+          notes.start("p").element("b", "All given names:").br().text(a.getNames().replace(";", "")).end();
         }
-        if (infos.getCas() != null) {
-          notes.append(String.format("<p><b>CAS number:</b> %s</p>\n", infos.getCas()));
+        if (a.getCas() != null) {
+          notes.start("p").element("b", "CAS number:").text(" " + a.getCas()).end();
         }
-        if (infos.getFormulaDirectOrFromSynonym(manager) != null) {
-          notes.append(String.format("<p><b>Formula:</b> %s</p>\n", EscapeChars.forHTML(infos.getFormulaDirectOrFromSynonym(manager))));
-          String ko_id_uc_t = ko_id.toUpperCase().trim();
-          if (ko_id_uc_t.startsWith("CPD:")) {
-            // KEGG and ChEBI provide picture for compounds (e.g., "C00118").
-            notes.append(Pathway.getCompoundPreviewPicture(ko_id_uc_t, infos, Translator.path2models));
-          }
+        if (a.getFormula() != null) {
+          notes.start("p").element("b", "Formula:").text(" " + a.getFormula()).end();
+          // KEGG and ChEBI provide picture for compounds (e.g., "C00118").
+          notes.xhtml(a.getCompoundPreviewPicture());
         }
         if (entry.getType().equals(EntryType.map)) {
           // KEGG provides picture for referenced pathways (e.g., "path:hsa00620" => "map00620.gif").
-          notes.append(Pathway.getPathwayPreviewPicture(ko_id));
+          notes.xhtml(a.getPathwayPreviewPicture());
         }
-        if (infos.getMass() != null) {
-          notes.append(String.format("<p><b>Mass:</b> %s</p>\n", infos.getMass()));
+        if (a.getMass() != null) {
+          notes.start("p").element("b", "Mass:").text(" " + a.getMass()).end();
         }
-        if (infos.getMolecularWeight() != null) {
-          notes.append(String.format("<p><b>Molecular weight:</b> %s</p>\n", infos.getMolecularWeight()));
+        if (a.getMolecularWeight() != null) {
+          notes.start("p").element("b", "Molecular weight:").text(" " + a.getMolecularWeight()).end();
         }
-        notes.append(notesEndString);
-        spec.appendNotes(notes.toString());
       }
     }
     
@@ -1071,13 +1107,13 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     List<CVTerm> cvTerms = DatabaseIdentifierTools.getCVTerms(ids, pointOfView);
     if ((cvTerms != null) && (cvTerms.size() > 0)) {
       for (CVTerm cvTerm : cvTerms) {
+        IdentifierPool.internAll(cvTerm.getResources());
         spec.addCVTerm(cvTerm);
       }
     }
     
     // Set a static ECO Code
-    // ECO_CODE "ECO:0000313"="imported information used in automatic assertion"
-    spec.addCVTerm(new CVTerm(Qualifier.BQB_IS_DESCRIBED_BY, AnnotationUtils.convertURN2URI(KeggInfos.miriam_urn_eco + "ECO%3A0000313")));
+    spec.addCVTerm(new CVTerm(Qualifier.BQB_IS_DESCRIBED_BY, IdentifierPool.convertURN2URI(ECO_IMPORTED_URN)));
   }
   
   
@@ -1171,11 +1207,11 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     
     boolean isPathwayReference = false;
     String name = entry.getName().trim();
-    if ((name != null) && (name.toLowerCase().startsWith("path:") || entry.getType().equals(EntryType.map))) {
+    if ((name != null) && (KeggIdTokenizer.hasPrefix(name, KeggIdTokenizer.PATHWAY) || entry.getType().equals(EntryType.map))) {
       isPathwayReference = true;
     }
     // Eventually skip this node. It's just a label for the current pathway.
-    if (isPathwayReference && (entry.hasGraphics() && entry.getGraphics().getName().toLowerCase().startsWith("title:"))) {
+    if (isPathwayReference && (entry.hasGraphics() && KeggIdTokenizer.hasPrefix(entry.getGraphics().getName(), KeggIdTokenizer.TITLE))) {
       compartment.setName(entry.getGraphics().getName().substring(6).trim());
       return null;//continue;
     }
@@ -1231,7 +1267,7 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     NamedSBase spec;
     String id = NameToSId(name.replace(' ', '_')); // defined in org.sbml.jsbml.NamedSBase
     if (useGroupsExtension && (entry.hasComponents() || entry.getType().equals(EntryType.group))) {
-      spec = KEGG2SBMLGroupExtension.createGroup(p, model, entry, "group_" + id);
+      spec = KEGG2SBMLGroupExtension.createGroup(p, model, entry, "group_" + id, entryElements);
     } else {
       
       // Eventually assign a different compartment
@@ -1250,40 +1286,7 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
           }
         }
       }
-      spec = model.createSpecies(id, c);
-    }
-    
-    if (spec instanceof Species) {
-      if (model.getLevel() > 2) {
-        /*
-         * In order to obtain valid Level 3 models with identical properties than
-         * in Level 2, we use the default value of earlier SBML releases:
-         */
-        ((Species) spec).setHasOnlySubstanceUnits(false);
-        ((Species) spec).setBoundaryCondition(false);
-        ((Species) spec).setConstant(false); // defined in org.sbml.jsbml.Variable
-        
-        
-        KeggInfos infos = KeggInfos.get(entry.getName(), manager);
-        
-        if ((infos != null) && infos.queryWasSuccessfull()) {
-          
-          // Component.getName() might be a glycan and the chemical formula is only given for compounds
-          // => Look if we have synonym identifers for KEGG compound and refetch
-          String formula = infos.getFormulaDirectOrFromSynonym(manager);
-          if (formula != null) {
-            FBCSpeciesPlugin specPlug = (FBCSpeciesPlugin) spec.getPlugin(FBCConstants.getNamespaceURI(spec.getLevel(), spec.getVersion(), 2));
-            try {
-              specPlug.setChemicalFormula(formula);
-            } catch (IllegalArgumentException exc) {
-              logger.warning(exc.getClass().getSimpleName() + ": " + Utils.getMessage(exc));
-            }
-          }
-        }
-        
-      }
-      ((Species) spec).setInitialAmount(speciesDefaultInitialAmount);
-      //((Species) spec).setUnits(model.getUnitDefinition("substance"));
+      spec = createSpecies(entry, id, model, c);
     }
     
     // ID has to be at this place, because other refer to it by id and if id is not set. refenreces go to null.
@@ -1295,9 +1298,9 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     //Annotation specAnnot = new Annotation("");
     //specAnnot.setAbout("");
     //spec.setAnnotation(specAnnot); // manchmal ist jSBML schon bescheurt...
-    StringBuffer notes = new StringBuffer(notesStartString);
-    if (entry.isSetLink()) {
-      notes.append(String.format("<a href=\"%s\">Original KEGG Entry</a><br/>\n", entry.getLink().replace("&", "&amp;")));
+    NotesBuilder notes = addNotes ? new NotesBuilder() : null;
+    if (entry.isSetLink() && (notes != null)) {
+      notes.start("a", "href", entry.getLink()).text("Original KEGG Entry").end().br();
     }
     
     
@@ -1307,20 +1310,25 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
       // TODO: Globally try to replace species by AbstractSBase
       /////////////////////////////////////////////////
       
-      StringBuilder notesAppend = new StringBuilder(
-        String.format("<p>This species is a group, consisting of %s components:<br/><ul>", entry.getComponents().size()));
+      if (notes != null) {
+        notes.start("p").text(String.format("This species is a group, consisting of %s components:", entry.getComponents().size()))
+          .br().start("ul");
+      }
       CVTerm cvt = new CVTerm(Type.BIOLOGICAL_QUALIFIER,Qualifier.BQB_IS_ENCODED_BY);
       for (int c:entry.getComponents()) {
-        Entry ce = p.getEntryForId(c);
+        Entry ce = index.getEntryForId(c);
         if (ce == null) {
-          notesAppend.append("<li>Unknown</li>");
+          if (notes != null) {
+            notes.element("li", "Unknown");
+          }
         } else {
-          String ce_name = getNameForEntry(ce);
-          notesAppend.append(String.format("<li>%s</li>", ce_name));
+          if (notes != null) {
+            notes.element("li", getNameForEntry(ce));
+          }
           
           // Append all kegg ids as "has_part" NLN: Should be "IS_ENCONDED_BY"
-          for (String kg_id: ce.getName().split(" ")) {
-            String kgMiriamEntry = AnnotationUtils.convertURN2URI(KeggInfos.getMiriamURNforKeggID(kg_id, ce.getType()));
+          for (String kg_id: KeggIdTokenizer.split(ce.getName(), ' ')) {
+            String kgMiriamEntry = IdentifierPool.getMiriamURI(kg_id, ce.getType());
             if (kgMiriamEntry != null) {
               cvt.addResource(kgMiriamEntry);
             }
@@ -1332,30 +1340,30 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
       if (cvt.getResourceCount() > 0) {
         spec.addCVTerm(cvt);
       }
-      notesAppend.append("</ul></p>");
-      notes.append(notesAppend.toString());
-    }
-    
-    // Set notes here, so other methods (miriam) can append the notes.
-    notes.append(notesEndString);
-    try {
-      spec.setNotes(notes.toString());
-    } catch (Throwable t) {
-      logger.warning(MessageFormat.format(
-        "Cannot write notes for species ''{0}'' because of {1}: {2}.",
-        spec.getId(), t.getClass().getName(), Utils.getMessage(t)));
+      if (notes != null) {
+        notes.end().end();
+      }
     }
     
     // Set SBO Term
     spec.setSBOTerm(SBOMapping.getSBOTerm(entry));
     
     // Add Miriam URNs and Description
-    addMiriamURNs(entry, spec);
+    addMiriamURNs(entry, getAnnotation(entry), spec, notes);
+    if (notes != null) {
+      try {
+        notes.appendTo(spec);
+      } catch (Throwable t) {
+        logger.warning(MessageFormat.format(
+          "Cannot write notes for species ''{0}'' because of {1}: {2}.",
+          spec.getId(), t.getClass().getName(), Utils.getMessage(t)));
+      }
+    }
     
     // Finally, add the fully configured species.
     spec.setName(name);
     //specAnnot.setAbout("#" + spec.getMetaId());
-    entry.setCustom(spec); // Remember node in KEGG Structure for further references.
+    setElementForEntry(entry, spec); // Remember node for further references.
     // NOT here, because it may depend on other entries, that are not yet processed.
     //if (addCellDesignerAnnots) addCellDesignerAnnotationToSpecies(spec, entry);
     // Not neccessary to add species to model, due to call in "model.createSpecies()".
@@ -1363,6 +1371,51 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     return spec;
   }
   
+  /**
+   * Creates the model element for a single (non-group) entry. All
+   * further attributes (meta id, notes, SBO term, MIRIAM annotations
+   * and name) are set by {@link #addKGMLEntry(Entry, Pathway, Model, Compartment)}.
+   * Subclasses may override this method to create other elements than
+   * core {@link Species}, e.g., qualitative species.
+   * 
+   * @param entry KGML entry to add.
+   * @param id identifier for the new element.
+   * @param model current model.
+   * @param compartment compartment of the new element.
+   * @return the created and added element.
+   */
+  protected NamedSBase createSpecies(Entry entry, String id, Model model, Compartment compartment) {
+    Species spec = model.createSpecies(id, compartment);
+    
+    if (model.getLevel() > 2) {
+      /*
+       * In order to obtain valid Level 3 models with identical properties than
+       * in Level 2, we use the default value of earlier SBML releases:
+       */
+      spec.setHasOnlySubstanceUnits(false);
+      spec.setBoundaryCondition(false);
+      spec.setConstant(false); // defined in org.sbml.jsbml.Variable
+      
+      
+      // Component.getName() might be a glycan and the chemical formula is only given for compounds
+      // => Look if we have synonym identifers for KEGG compound and refetch
+      String formula = KeggAnnotation.get(entry.getName(), manager).getFormula();
+      if (formula != null) {
+        FBCSpeciesPlugin specPlug = (FBCSpeciesPlugin) spec.getPlugin(FBCConstants.getNamespaceURI(spec.getLevel(), spec.getVersion(), 2));
+        try {
+          specPlug.setChemicalFormula(formula);
+        } catch (IllegalArgumentException exc) {
+          logger.warning(exc.getClass().getSimpleName() + ": " + Utils.getMessage(exc));
+        }
+      }
+      
+    }
+    spec.setInitialAmount(speciesDefaultInitialAmount);
+    //spec.setUnits(model.getUnitDefinition("substance"));
+    
+    return spec;
+  }
+  
   /**
    * Creates a {@link ModifierSpeciesReference} for entry and spec and adds this reference
    * to the {@code reactionModifiers} list.
@@ -1436,7 +1489,7 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
       }
       
       // Remember modifier for later association with reaction.
-      reactionModifiers.add(new Info<String, ModifierSpeciesReference>(reaction.toLowerCase().trim(), modifier));
+      reactionModifiers.add(new Info<String, ModifierSpeciesReference>(KeggIdTokenizer.normalize(reaction), modifier));
     }
   }
   
@@ -1466,10 +1519,10 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
       ret.add(rc);
       
       // If there are groupNodes, add also the children to the list.
-      Entry s = p.getEntryForReactionComponent(rc);
+      Entry s = index.getEntryForReactionComponent(rc);
       if (isGroupNode(s) && s.hasComponents()) {
         for (Integer c: s.getComponents()) {
-          Entry child = p.getEntryForId(c);
+          Entry child = index.getEntryForId(c);
           if (child!=null) {
             ret.add(new ReactionComponent(child));
           }
@@ -1534,7 +1587,7 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
       
       // Remember already queried objects (save cache)
       if (AbstractKEGGtranslator.getKeggInfoManager().hasChanged()) {
-        KeggInfoManagement.saveToFilesystem(Translator.cacheFileName, AbstractKEGGtranslator.getKeggInfoManager());
+        Translator.saveManager(AbstractKEGGtranslator.getKeggInfoManager());
       }
       
       return;
@@ -1552,7 +1605,7 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
       
       // Remember already queried objects
       if (AbstractKEGGtranslator.getKeggInfoManager().hasChanged()) {
-        KeggInfoManagement.saveToFilesystem(Translator.cacheFileName, AbstractKEGGtranslator.getKeggInfoManager());
+        Translator.saveManager(AbstractKEGGtranslator.getKeggInfoManager());
       }
       
     } catch (Exception e) {
@@ -1584,6 +1637,17 @@ public class KEGG2jSBML extends AbstractKEGGtranslator<SBMLDocument>  {
     return true;
   }
   
+  /**
+   * @return {@code true} if entries are translated to core SBML
+   * {@link Species}. Subclasses that build other models (e.g., pure
+   * qualitative models, see {@link #createSpecies(Entry, String, Model, Compartment)})
+   * return {@code false}, such that no core-only parts (e.g., the
+   * metabolic layout) are created.
+   */
+  protected boolean isCoreModel() {
+    return true;
+  }
+  
   /* (non-Javadoc)
    * @see de.zbit.kegg.io.KEGGtranslator#isGraphicalOutput()
    */
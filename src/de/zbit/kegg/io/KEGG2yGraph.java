@@ -30,10 +30,12 @@ import java.awt.Font;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
@@ -73,6 +75,7 @@ import y.view.hierarchy.GroupNodeRealizer;
 import y.view.hierarchy.HierarchyManager;
 import de.zbit.graph.GraphTools;
 import de.zbit.graph.LineNodeRealizer;
+import de.zbit.graph.NodeAttributeTable;
 import de.zbit.graph.StackingNodeLayout;
 import de.zbit.graph.io.Graph2DExporter;
 import de.zbit.graph.io.Graph2Dwriter;
@@ -96,6 +99,7 @@ import de.zbit.kegg.parser.pathway.ext.EntryExtended;
 import de.zbit.util.ArrayUtils;
 import de.zbit.util.DatabaseIdentifiers;
 import de.zbit.util.DatabaseIdentifiers.IdentifierDatabases;
+import de.zbit.util.KeggIdTokenizer;
 import de.zbit.util.SortedArrayList;
 import de.zbit.util.StringUtil;
 import de.zbit.util.Utils;
@@ -530,23 +534,23 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
     ArrayList<String> PWReferenceNodeTexts = new ArrayList<String>();
     boolean showProgressForRelations = KeggInfoManagement.offlineMode;
     
-    //Create graph annotation maps
-    NodeMap nodeDescription = graph.createNodeMap();
-    NodeMap entityType = graph.createNodeMap();
-    NodeMap nodeLabel = graph.createNodeMap();
-    NodeMap entrezIds = graph.createNodeMap();
-    NodeMap keggOntIds = graph.createNodeMap();
-    NodeMap uniprotIds = graph.createNodeMap();
-    NodeMap ensemblIds = graph.createNodeMap();
-    NodeMap nodeURLs = graph.createNodeMap();
-    
-    NodeMap nodeName = graph.createNodeMap();
-    NodeMap nodeColor = graph.createNodeMap();
-    NodeMap nodePosition = graph.createNodeMap();
-    NodeMap nodeSize = graph.createNodeMap();
+    //Create graph annotation maps (as columns of a table, that shares
+    // strings and copies all attributes of a node at once).
+    NodeAttributeTable attributes = NodeAttributeTable.getTable(graph);
+    NodeAttributeTable.Column nodeDescription = attributes.createStringColumn();
+    NodeAttributeTable.Column entityType = attributes.createStringColumn();
+    NodeAttributeTable.Column nodeLabel = attributes.createStringColumn();
+    NodeAttributeTable.Column entrezIds = attributes.createStringColumn();
+    NodeAttributeTable.Column keggOntIds = attributes.createStringColumn();
+    NodeAttributeTable.Column uniprotIds = attributes.createStringColumn();
+    NodeAttributeTable.Column ensemblIds = attributes.createStringColumn();
+    NodeAttributeTable.Column nodeURLs = attributes.createStringColumn();
+    
+    NodeAttributeTable.Column nodeName = attributes.createStringColumn();
+    NodeAttributeTable.ColorColumn nodeColor = attributes.createColorColumn();
+    NodeAttributeTable.IntPairColumn nodePosition = attributes.createIntPairColumn();
+    NodeAttributeTable.IntPairColumn nodeSize = attributes.createIntPairColumn();
     //NodeMap bindsToChemicals = graph.createNodeMap();
-    NodeMap[] nodeMaps = new NodeMap[]{nodeDescription, entityType, nodeLabel, entrezIds, keggOntIds,
-        uniprotIds, ensemblIds, nodeURLs, nodeName, nodeColor, nodePosition, nodeSize};
     
     
     EdgeMap edgeDescription = graph.createEdgeMap(); // = Relation.type
@@ -564,6 +568,7 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
       }
     }
     ArrayList<Node> parentGroupNodes = new ArrayList<Node>();
+    ArrayList<Entry> parentGroupEntries = new ArrayList<Entry>();
     ArrayList<List<Integer>> groupNodeChildren = new ArrayList<List<Integer>>();
     HierarchyManager hm = graph.getHierarchyManager();
     if (hm==null) {
@@ -575,12 +580,8 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
     // Initialize a progress bar.
     initProgressBar(p,showProgressForRelations,false);
     
-    // Save all reaction modifiers in a map. String = reaction id.
-    Map<String, Collection<Node>> reactionModifiers = new HashMap<String, Collection<Node>>();
-    
     // Add nodes for all Entries
     Set<Node> toLayout = new HashSet<Node>();
-    Map<Node, Entry> node2entry = new HashMap<Node, Entry>();
     for (int i=0; i<p.getEntries().size(); i++) {
       progress.DisplayBar("Node " + (i+1) + "/" + p.getEntries().size());
       Entry e = p.getEntries().get(i);
@@ -592,7 +593,7 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
       Object nodeLink = null;
       boolean isPathwayReference=false;
       String name = e.getName().trim();
-      if (name.toLowerCase().startsWith("path:") || e.getType().equals(EntryType.map)) {
+      if (KeggIdTokenizer.hasPrefix(name, KeggIdTokenizer.PATHWAY) || e.getType().equals(EntryType.map)) {
         isPathwayReference=true;
       }
       
@@ -704,6 +705,7 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
           
           //hm.convertToGroupNode(n);
           parentGroupNodes.add(n);
+          parentGroupEntries.add(e);
         } else {
           n = graph.createNode(nr);
         }
@@ -751,13 +753,13 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
       
       // Node was created. Postprocessing options.
       if (n!=null) {
-        // Remember node in KEGG Structure for further references.
-        e.setCustom(n);
-        node2entry.put(n, e);
+        // Remember node for further references.
+        setElementForEntry(e, n);
         
         // Init variables
-        List<KeggInfos> keggInfos = new LinkedList<KeggInfos>();
-        String name2="",definition="",entrezIds2="",uniprotIds2="",eType="",ensemblIds2="";
+        StringBuilder name2 = new StringBuilder(), definition = new StringBuilder(), entrezIds2 = new StringBuilder(),
+            uniprotIds2 = new StringBuilder(), ensemblIds2 = new StringBuilder();
+        String eType="";
         
         // Get a map of existing identifiers or create a new one
         Map<DatabaseIdentifiers.IdentifierDatabases, Collection<String>> ids = new HashMap<DatabaseIdentifiers.IdentifierDatabases, Collection<String>>();
@@ -766,31 +768,31 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
           
           String temp = extractExistingIdentifiers(ids, IdentifierDatabases.EntrezGene);
           if (temp!=null) {
-            entrezIds2 = temp;
+            entrezIds2.append(temp);
           }
           temp = extractExistingIdentifiers(ids, IdentifierDatabases.UniProt_AC);
           if (temp!=null) {
-            uniprotIds2 = temp;
+            uniprotIds2.append(temp);
           }
           temp = extractExistingIdentifiers(ids, IdentifierDatabases.Ensembl);
           if (temp!=null) {
-            ensemblIds2 = temp;
+            ensemblIds2.append(temp);
           }
         }
         
         // Get all available annotations
-        for (String ko_id:e.getName().split(" ")) {
+        for (KeggAnnotation annotation : getAnnotation(e).getAnnotations()) {
           //Definition[] results = adap.getGenesForKO(e.getName(), retrieveKeggAnnotsForOrganism); // => GET only (und alles aus GET rausparsen). Zusaetzlich: in sortedArrayList merken.
-          if (ko_id.equalsIgnoreCase("undefined") || ko_id.equalsIgnoreCase("null") || e.hasComponents()) {
-            continue;
+          if (e.hasComponents()) {
+            break;
           }
           
           // TODO: KEGG brite identifiers (e.g., "br:br08003") are not correctly fetched and parsed by the API.
-          KeggInfos infos = KeggInfos.get(ko_id, manager);
-          keggInfos.add(infos);
+          String ko_id = annotation.getKeggId();
+          KeggInfos infos = annotation.getInfos();
           
           // Add all available identifiers (enzrez gene, ensembl, etc)
-          infos.addAllIdentifiers(ids);
+          annotation.addIdentifiersTo(ids);
           
           // "NCBI-GeneID:","UniProt:", "Ensembl:", ... aus dem GET rausparsen
           if (infos.queryWasSuccessfull()) {
@@ -799,27 +801,27 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
             if (text!=null && text.length()!=0) {
               // Problem here is that space is used to separate gene synonyms, but
               // compounds may contain spaces in names. Thus, they need special treatment
-              if (ko_id.startsWith("cpd:")) {
+              if (KeggIdTokenizer.hasPrefix(ko_id, KeggIdTokenizer.COMPOUND)) {
                 text = text.replace(" ", "-");
               }
               
-              name2+=(name2.length()>0?", ":"")+text.replace(", ", " ").replace(';', ' ').replace("\n", "");
+              appendWithSeparator(name2, ", ", text.replace(", ", " ").replace(';', ' ').replace("\n", ""));
             }
             // Append formula for compounds. ONLY WITH SPACE, because compounds synonyms are space divided
             text = infos.getFormula();
             if (text!=null && text.length()!=0) {
-              name2+=(name2.length()>0?" ":"")+text;
+              appendWithSeparator(name2, " ", text);
             }
             
             if (e.getType().equals(EntryType.map)) { // => Link zu anderem Pathway oder Title-Node des aktuellem PW.
               text = infos.getDescription();
               if (text!=null && text.length()!=0) {
-                definition+=(definition.length()!=0?",":"")+text.replace(",", "").replace("\n", " ");
+                appendWithSeparator(definition, ",", text.replace(",", "").replace("\n", " "));
               }
             } else {
               text = infos.getDefinition();
               if (text!=null && text.length()!=0) {
-                definition+=(definition.length()!=0?",":"")+text.replace(",", "").replace("\n", " ");
+                appendWithSeparator(definition, ",", text.replace(",", "").replace("\n", " "));
               }
             }
             
@@ -827,17 +829,17 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
             text = infos.getEntrez_id(); //KeggAdaptor.extractInfo(infos, "NCBI-GeneID:", "\n"); //adap.getEntrezIDs(ko_id);
             if (text!=null && text.length()!=0)
             {
-              entrezIds2+=(entrezIds2.length()!=0?",":"")+text; //.replace(",", "");
+              appendWithSeparator(entrezIds2, ",", text); //.replace(",", "");
             }
             text = infos.getUniprot_id(); //KeggAdaptor.extractInfo(infos, "UniProt:", "\n"); //adap.getUniprotIDs(ko_id);
             if (text!=null && text.length()!=0)
             {
-              uniprotIds2+=(uniprotIds2.length()!=0?",":"")+text; //.replace(",", "");
+              appendWithSeparator(uniprotIds2, ",", text); //.replace(",", "");
             }
             text = infos.getEnsembl_id(); //KeggAdaptor.extractInfo(infos, "Ensembl:", "\n"); //adap.getEnsemblIDs(ko_id);
             if (text!=null && text.length()!=0)
             {
-              ensemblIds2+=(ensemblIds2.length()!=0?",":"")+text; //.replace(",", "");
+              appendWithSeparator(ensemblIds2, ",", text); //.replace(",", "");
             }
             
             
@@ -859,7 +861,7 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
         }
         
         // Assign new name based on API and user selection
-        name = getNameForEntry(e, keggInfos.toArray(new KeggInfos[0]));
+        name = getNameForEntry(e);
         
         if (name!=null && name.startsWith("undefined") &&
             !graph.getRealizer(n).getLabelText().startsWith("undefined")) {
@@ -882,22 +884,22 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
           eType = "pathway";
         }
         
-        nodeLabel.set(n, name2);
-        nodeDescription.set(n, definition);
-        entrezIds.set(n, entrezIds2);
-        uniprotIds.set(n, uniprotIds2);
-        ensemblIds.set(n, ensemblIds2);
+        nodeLabel.set(n, name2.toString());
+        nodeDescription.set(n, definition.toString());
+        entrezIds.set(n, entrezIds2.toString());
+        uniprotIds.set(n, uniprotIds2.toString());
+        ensemblIds.set(n, ensemblIds2.toString());
         entityType.set(n, eType);
         
         NodeRealizer nr = graph.getRealizer(n);
-        nodeColor.set(n, ColorToHTML(nr.getFillColor()) );
+        nodeColor.set(n, nr.getFillColor());
         nodeName.set(n, nr.getLabelText());
         if (!g.isDefaultPosition()) {
           // Do not use the center here, if you do, you'll have to change it also
           // in many other classes reading and writing this attribute.
-          nodePosition.set(n, (int) nr.getX() + "|" + (int) nr.getY());
+          nodePosition.set(n, (int) nr.getX(), (int) nr.getY());
         }
-        nodeSize.set(n, (int) nr.getWidth() + "|" + (int) nr.getHeight());
+        nodeSize.set(n, (int) nr.getWidth(), (int) nr.getHeight());
         keggOntIds.set(n, e.getName().replace(" ", ","));
         if (e.getLink()!=null && e.getLink().length()!=0) {
           nodeURLs.set(n, e.getLink());
@@ -906,28 +908,23 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
         if (isPathwayReference) {
           PWReferenceNodeTexts.add(graph.getRealizer(n).getLabelText());
         }
-        if (e.hasReaction()) {
-          for (String reaction : e.getReactions()) {
-            Utils.addToMapOfSets(reactionModifiers, reaction.toLowerCase().trim(), n);
-          }
-        }
       }
     }
     
     
     // Maybe we need to clone nodes, such that they appear in multiple groups
-    Set<Integer> usedNodes = new HashSet<Integer>();
+    BitSet usedNodes = new BitSet(index.getIdBound());
     // Make group node hirarchies
     for (int i=0; i<parentGroupNodes.size(); i++) {
       NodeList nl = new NodeList();
       double x=Double.MAX_VALUE,y=Double.MAX_VALUE,width=0,height=0;
       for (int n2: groupNodeChildren.get(i)) {
-        Entry two = p.getEntryForId(n2);
+        Entry two = index.getEntryForId(n2);
         if (two==null) {
           System.out.println("WARNING: Missing node for id " + n2);
           continue;
         }
-        Node twoNode = (Node) two.getCustom();
+        Node twoNode = (Node) getElementForEntry(two);
         NodeRealizer nr = graph.getRealizer(twoNode);
         
         // We maybe need to clone this node
@@ -943,10 +940,11 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
          * self loop for the given reaction.
          */
         // Components of complexes and complex istself should not directly be involved in a single reactions
-        boolean cloneThisNode = directRelation(node2entry.get(parentGroupNodes.get(i)), two);
+        boolean cloneThisNode = directRelation(parentGroupEntries.get(i), two, index);
         // Already contained in another complex
         if (!cloneThisNode) {
-          cloneThisNode |= !usedNodes.add(n2);
+          cloneThisNode |= usedNodes.get(n2);
+          usedNodes.set(n2);
         }
         
         if (cloneThisNode) {
@@ -962,7 +960,7 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
             nr = nr.createCopy();
             twoNode = twoNode.createCopy(graph);
           }
-          copyMapEntries(nodeMaps, previousNode, twoNode);
+          attributes.copyRow(previousNode, twoNode);
           graph.setRealizer(twoNode, nr);
           width=Math.max(width, (nr.getWidth()));
           height=Math.max(height, (nr.getHeight()));
@@ -1000,8 +998,8 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
         progress.DisplayBar("Relation " + (i+1) + "/" + p.getRelations().size());
       }
       Relation r = p.getRelations().get(i);
-      Entry one = p.getEntryForId(r.getEntry1());
-      Entry two = p.getEntryForId(r.getEntry2());
+      Entry one = index.getEntryForId(r.getEntry1());
+      Entry two = index.getEntryForId(r.getEntry2());
       
       if (one==null || two==null) {
         // This happens, e.g. when removing pathways nodes
@@ -1011,8 +1009,8 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
         continue;
       }
       
-      Node nOne = (Node) one.getCustom();
-      Node nTwo = (Node) two.getCustom();
+      Node nOne = (Node) getElementForEntry(one);
+      Node nTwo = (Node) getElementForEntry(two);
       
       Edge myEdge;
       // XXX: Hier noch moeglich die Type der reaktion (PPI, etc.) hinzuzufuegen.
@@ -1028,10 +1026,9 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
           }
           
           if (st.getName().trim().equalsIgnoreCase("compound") && st.getValue()!=null && Utils.isNumber(st.getValue(),true)) {
-            Entry compNode = p.getEntryForId(Integer.parseInt(st.getValue()));
-            if (compNode==null || compNode.getCustom()==null) {System.err.println("Could not find Compound Node."); graph.createEdge(nOne, nTwo, er); continue;}
-            
-            Node compoundNode = (Node) compNode.getCustom();
+            Entry compNode = index.getEntryForId(Integer.parseInt(st.getValue()));
+            Node compoundNode = (Node) getElementForEntry(compNode);
+            if (compoundNode==null) {System.err.println("Could not find Compound Node."); graph.createEdge(nOne, nTwo, er); continue;}
             
             if (nTwo.getEdgeTo(compoundNode)==null) {
               graph.createEdge(nTwo, compoundNode, er);
@@ -1111,7 +1108,7 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
       List<String> processedReactions = new SortedArrayList<String>();
       for (Reaction r : p.getReactions()) {
         if (!processedReactions.contains(r.getName())) {
-          Node reactionNode = addKGMLReaction(r,p,graph,reactionModifiers);
+          Node reactionNode = addKGMLReaction(r,p,graph);
           if (reactionNode!=null) {
             // Write some fields to our maps and apply a layout
             //            String reactionName = r.getName().toLowerCase().trim().startsWith("rn:")?r.getName():"rn:"+r.getName();
@@ -1226,12 +1223,12 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
       NodeList nl = new NodeList();
       double x=Double.MAX_VALUE,y=Double.MAX_VALUE,width=0,height=0;
       for (int n2: groupNodeChildren.get(i)) {
-        Entry two = p.getEntryForId(n2);
+        Entry two = index.getEntryForId(n2);
         if (two == null) {
           logger.warning("WARNING: Missing node for id " + n2);
           continue;
         }
-        Node twoNode = (Node) two.getCustom();
+        Node twoNode = (Node) getElementForEntry(two);
         NodeRealizer nr = graph.getRealizer(twoNode);
         x = Math.min(x, nr.getX());
         y = Math.min(y, nr.getY());
@@ -1267,18 +1264,18 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
      */
     GenericDataMap<DataMap, String> mapDescriptionMap = Graph2DExporter.addMapDescriptionMapToGraph(graph);
     
-    mapDescriptionMap.set(nodeLabel, GraphMLmaps.NODE_LABEL);
-    mapDescriptionMap.set(entrezIds, GraphMLmaps.NODE_GENE_ID);
-    mapDescriptionMap.set(entityType, GraphMLmaps.NODE_TYPE);
-    mapDescriptionMap.set(nodeDescription, GraphMLmaps.NODE_DESCRIPTION);
-    mapDescriptionMap.set(keggOntIds, GraphMLmaps.NODE_KEGG_ID);
-    mapDescriptionMap.set(uniprotIds, GraphMLmaps.NODE_UNIPROT_ID);
-    mapDescriptionMap.set(ensemblIds, GraphMLmaps.NODE_ENSEMBL_ID);
-    mapDescriptionMap.set(nodeURLs, GraphMLmaps.NODE_URL);
-    mapDescriptionMap.set(nodeColor, GraphMLmaps.NODE_COLOR);
-    mapDescriptionMap.set(nodeName, GraphMLmaps.NODE_NAME);
-    mapDescriptionMap.set(nodePosition, GraphMLmaps.NODE_POSITION);
-    mapDescriptionMap.set(nodeSize, GraphMLmaps.NODE_SIZE);
+    mapDescriptionMap.set(nodeLabel.getNodeMap(), GraphMLmaps.NODE_LABEL);
+    mapDescriptionMap.set(entrezIds.getNodeMap(), GraphMLmaps.NODE_GENE_ID);
+    mapDescriptionMap.set(entityType.getNodeMap(), GraphMLmaps.NODE_TYPE);
+    mapDescriptionMap.set(nodeDescription.getNodeMap(), GraphMLmaps.NODE_DESCRIPTION);
+    mapDescriptionMap.set(keggOntIds.getNodeMap(), GraphMLmaps.NODE_KEGG_ID);
+    mapDescriptionMap.set(uniprotIds.getNodeMap(), GraphMLmaps.NODE_UNIPROT_ID);
+    mapDescriptionMap.set(ensemblIds.getNodeMap(), GraphMLmaps.NODE_ENSEMBL_ID);
+    mapDescriptionMap.set(nodeURLs.getNodeMap(), GraphMLmaps.NODE_URL);
+    mapDescriptionMap.set(nodeColor.getNodeMap(), GraphMLmaps.NODE_COLOR);
+    mapDescriptionMap.set(nodeName.getNodeMap(), GraphMLmaps.NODE_NAME);
+    mapDescriptionMap.set(nodePosition.getNodeMap(), GraphMLmaps.NODE_POSITION);
+    mapDescriptionMap.set(nodeSize.getNodeMap(), GraphMLmaps.NODE_SIZE);
     
     mapDescriptionMap.set(edgeDescription, GraphMLmaps.EDGE_DESCRIPTION);
     mapDescriptionMap.set(interactionDescription, GraphMLmaps.EDGE_TYPE);
@@ -1288,7 +1285,7 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
     // Note: toLayout may eventually also contain intermediate reaction nodes!
     if (toLayout.size()>0) {
       // Only adjust layout of a few nodes.
-      stackGroupNodeContents(graph, toLayout);
+      stackGroupNodeContents(graph, toLayout, PathwayTemplate.get(p));
       new GraphTools(graph).layoutNodeSubset(toLayout);
       graph.unselectAll();
     }
@@ -1296,6 +1293,21 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
     return graph;
   }
   
+  /**
+   * @param r
+   * @return the nodes of all entries that catalyze the given reaction.
+   */
+  private Collection<Node> getModifierNodes(Reaction r) {
+    Collection<Node> modifier = new LinkedHashSet<Node>();
+    for (Entry e : index.getModifiersForReaction(r)) {
+      Object node = getElementForEntry(e);
+      if (node instanceof Node) {
+        modifier.add((Node) node);
+      }
+    }
+    return modifier;
+  }
+  
   /**
    * Returns {@code true} if a direct relation between the given
    * entry {@code one} and {@code two} exists.
@@ -1304,17 +1316,31 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
    * @return
    */
   public static boolean directRelation(Entry one, Entry two) {
+    return directRelation(one, two, null);
+  }
+  
+  /**
+   * Returns {@code true} if a direct relation between the given
+   * entry {@code one} and {@code two} exists.
+   * @param one
+   * @param two
+   * @param index index of the pathway, used to look up the reactions of
+   * both entries. May be {@code null}.
+   * @return
+   */
+  public static boolean directRelation(Entry one, Entry two, PathwayIndex index) {
     if (one==null || two==null) {
       return false;
     }
     
     // Check if a reaction exists that involves both entries
     Pathway p = one.getParentPathway();
-    Collection<Reaction> rOne = p.getReactionsForEntry(one);
-    Collection<Reaction> rTwo = p.getReactionsForEntry(two);
-    rOne.retainAll(rTwo);
-    if (rOne.size()>0) {
-      return true;
+    Collection<Reaction> rOne = (index != null) ? index.getReactionsForEntry(one) : p.getReactionsForEntry(one);
+    Collection<Reaction> rTwo = (index != null) ? index.getReactionsForEntry(two) : p.getReactionsForEntry(two);
+    for (Reaction r : rOne) {
+      if (rTwo.contains(r)) {
+        return true;
+      }
     }
     
     // Check if a relation exists that involves both entries
@@ -1334,23 +1360,17 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
   }
   
   /**
-   * Links all information in all {@code nodeMaps} that are
-   * assigned to {@code oldNode} also to the {@code newNode}.
-   * @param nodeMaps
-   * @param oldNode
-   * @param newNode
+   * Appends {@code text} to {@code sb}, separated by {@code separator}
+   * if {@code sb} is not empty.
+   * @param sb
+   * @param separator
+   * @param text
    */
-  private void copyMapEntries(NodeMap[] nodeMaps, Node oldNode,
-    Node newNode) {
-    if (nodeMaps==null) {
-      return;
-    }
-    for (NodeMap nm : nodeMaps) {
-      Object info = nm.get(oldNode);
-      if (info!=null) {
-        nm.set(newNode, info);
-      }
+  private static void appendWithSeparator(StringBuilder sb, String separator, String text) {
+    if (sb.length() > 0) {
+      sb.append(separator);
     }
+    sb.append(text);
   }
   
   /**
@@ -1358,9 +1378,10 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
    * components without any layout information.
    * @param graph
    * @param toLayout nodes without layout information
+   * @param template template of the reference map, may be {@code null}.
    */
   @SuppressWarnings("unchecked")
-  private void stackGroupNodeContents(Graph2D graph, Set<Node> toLayout) {
+  private void stackGroupNodeContents(Graph2D graph, Set<Node> toLayout, PathwayTemplate template) {
     HierarchyManager hm = graph.getHierarchyManager();
     for (Node n : graph.getNodeArray()) {
       if (hm.isGroupNode(n)) {
@@ -1376,7 +1397,7 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
         }
         
         // Need to layout?
-        boolean success = layoutIfallChildsAreInSet(graph, n, toLayout);
+        boolean success = layoutIfallChildsAreInSet(graph, n, toLayout, template);
         
         // Try to get first child group that only contains unlayouted nodes
         // (This just refers to groups, contained in groups, that are in groups,...)
@@ -1386,7 +1407,7 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
           while (childs!=null && childs.hasNext()) {
             Node current = childs.next();
             if (hm.isGroupNode(current)) {
-              success = layoutIfallChildsAreInSet(graph, current, toLayout);
+              success = layoutIfallChildsAreInSet(graph, current, toLayout, template);
               childs.remove();
               nc = hm.getChildren(current);
               if (nc!=null) {
@@ -1408,10 +1429,11 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
    * @param graph
    * @param parent
    * @param toLayout nodes without layout information
+   * @param template template of the reference map, may be {@code null}.
    * @return {@code true} if a layout has been applied,
    */
   @SuppressWarnings("unchecked")
-  private boolean layoutIfallChildsAreInSet(Graph2D graph, Node parent, Set<Node> toLayout) {
+  private boolean layoutIfallChildsAreInSet(Graph2D graph, Node parent, Set<Node> toLayout, PathwayTemplate template) {
     HierarchyManager hm = graph.getHierarchyManager();
     
     // Check if no child nodes have a layout
@@ -1447,12 +1469,83 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
     
     // If all without layout, re-layout group node content
     if (allWithoutLayout) {
-      StackingNodeLayout.doRecursiveLayout(graph, parent);
+      stackGroupNode(graph, parent, template);
     }
     
     return allWithoutLayout;
   }
   
+  /**
+   * Applies {@link StackingNodeLayout} to the given group node. If a
+   * group with exactly the same nodes (positions, sizes and labels
+   * sizes) has already been laid out in another organism of the same
+   * map, the coordinates are taken from the {@link PathwayTemplate}.
+   * @param graph
+   * @param group
+   * @param template template of the reference map, may be {@code null}.
+   */
+  private void stackGroupNode(Graph2D graph, Node group, PathwayTemplate template) {
+    if (template == null) {
+      StackingNodeLayout.doRecursiveLayout(graph, group);
+      return;
+    }
+    
+    List<Node> nodes = new ArrayList<Node>();
+    StringBuilder signature = new StringBuilder();
+    appendGroupSignature(graph, group, nodes, signature);
+    String key = signature.toString();
+    
+    double[] coordinates = template.getGroupLayout(key);
+    if ((coordinates != null) && (coordinates.length == 2 * nodes.size())) {
+      for (int i = 0; i < nodes.size(); i++) {
+        NodeRealizer nr = graph.getRealizer(nodes.get(i));
+        nr.setX(coordinates[2 * i]);
+        nr.setY(coordinates[2 * i + 1]);
+      }
+    } else {
+      StackingNodeLayout.doRecursiveLayout(graph, group);
+      coordinates = new double[2 * nodes.size()];
+      for (int i = 0; i < nodes.size(); i++) {
+        NodeRealizer nr = graph.getRealizer(nodes.get(i));
+        coordinates[2 * i] = nr.getX();
+        coordinates[2 * i + 1] = nr.getY();
+      }
+      template.putGroupLayout(key, coordinates);
+    }
+  }
+  
+  /**
+   * Appends everything the {@link StackingNodeLayout} of the given group
+   * node depends on (hierarchy and geometry of all contained nodes) to
+   * {@code signature}.
+   * @param graph
+   * @param group
+   * @param nodes all non-group nodes in the group (recursively) are
+   * added to this list, in the order of the signature.
+   * @param signature
+   */
+  @SuppressWarnings("unchecked")
+  private void appendGroupSignature(Graph2D graph, Node group, List<Node> nodes, StringBuilder signature) {
+    HierarchyManager hm = graph.getHierarchyManager();
+    NodeCursor nc = hm.getChildren(group);
+    signature.append('[');
+    if (nc != null) {
+      for (Object o : new NodeList(nc)) {
+        Node n = (Node) o;
+        if (hm.isGroupNode(n)) {
+          appendGroupSignature(graph, n, nodes, signature);
+        } else {
+          NodeRealizer nr = graph.getRealizer(n);
+          nodes.add(n);
+          signature.append(nr.getX()).append(',').append(nr.getY()).append(',');
+          signature.append(nr.getWidth()).append(',').append(nr.getHeight()).append(',');
+          signature.append(nr.getLabel().getWidth()).append(',').append(nr.getLabel().getHeight()).append(';');
+        }
+      }
+    }
+    signature.append(']');
+  }
+  
   /**
    * @param ids
    * @return comma separated list of existing identifiers for the given db,
@@ -1551,12 +1644,11 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
    * @param r
    * @param p
    * @param graph
-   * @param reactionModifiers
    * @return the intermediate reaction node (should be layouted!) or
    * {@code NULL} if the reaction wasn't drawn.
    */
-  private Node addKGMLReaction(Reaction r, Pathway p, Graph2D graph, Map<String, Collection<Node>> reactionModifiers) {
-    if (!reactionHasAtLeastOneSubstrateAndProduct(r, p)) {
+  private Node addKGMLReaction(Reaction r, Pathway p, Graph2D graph) {
+    if (!reactionHasAtLeastOneSubstrateAndProduct(r)) {
       return null;
     }
     
@@ -1564,18 +1656,18 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
     List<Node> validSubstrates = new LinkedList<Node>();
     List<Node> validProducts = new LinkedList<Node>();
     for (ReactionComponent rc : r.getSubstrates()) {
-      Entry spec = p.getEntryForReactionComponent(rc);
-      if (spec == null || spec.getCustom() == null || !(spec.getCustom() instanceof Node)){
+      Object spec = getElementForEntry(index.getEntryForReactionComponent(rc));
+      if (spec == null || !(spec instanceof Node)){
         continue;
       }
-      validSubstrates.add((Node) spec.getCustom());
+      validSubstrates.add((Node) spec);
     }
     for (ReactionComponent rc : r.getProducts()) {
-      Entry spec = p.getEntryForReactionComponent(rc);
-      if (spec == null || spec.getCustom() == null || !(spec.getCustom() instanceof Node)){
+      Object spec = getElementForEntry(index.getEntryForReactionComponent(rc));
+      if (spec == null || !(spec instanceof Node)){
         continue;
       }
-      validProducts.add((Node) spec.getCustom());
+      validProducts.add((Node) spec);
     }
     
     // Bundle edges, i.e., look if all substrates or products belong to the same group node
@@ -1604,10 +1696,12 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
     enzymeArrow.setLineColor(Color.LIGHT_GRAY);
     enzymeArrow.setSourceArrow(Arrow.NONE);
     
+    // Nodes of all catalyzing entries
+    Collection<Node> modifier = getModifierNodes(r);
+    
     // The list may now be empty.
     if (validSubstrates.size()<1 || validProducts.size()<1) {
       // But sill consider the modififers
-      Collection<Node> modifier = reactionModifiers.get(r.getName().toLowerCase().trim());
       if (modifier!=null && modifier.size()>0) {
         si = validSubstratesCopy.iterator();
         while (si.hasNext()) {
@@ -1653,7 +1747,6 @@ public class KEGG2yGraph extends AbstractKEGGtranslator<Graph2D> {
     }
     
     // Consider reaction modifiers
-    Collection<Node> modifier = reactionModifiers.get(r.getName().toLowerCase().trim());
     if (modifier!=null && modifier.size()>0) {
       for (Node mod : modifier) {
         graph.createEdge(mod, reaction, enzymeArrow.createCopy());
@@ -21,7 +21,13 @@
 package de.zbit.kegg.io;
 
 import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.io.File;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
 
 import javax.swing.SwingWorker;
 
@@ -36,11 +42,28 @@ import de.zbit.util.progressbar.AbstractProgressBar;
 /**
  * A {@link SwingWorker} that handles downloads of KGML-xmls
  * and translations to destination formats.
+ * <p>All importers run on the shared executor of {@link SwingWorker}, thus,
+ * multiple pathways are imported concurrently. An import can be cancelled
+ * (see {@link #cancelImport()}) between the single stages (download, parsing,
+ * preprocessing and translation). A cancelled import does not publish any
+ * (partial) result.
  * 
  * @author Clemens Wrzodek
  * @version $Rev: 405 $
  */
 public class KEGGImporter extends NotifyingWorker<Object> {
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final transient Logger log = Logger.getLogger(KEGGImporter.class.getName());
+  
+  /**
+   * All running imports, by the listeners (e.g., the panels), that are
+   * waiting for their result.
+   */
+  private static final Map<ActionListener, KEGGImporter> runningImports =
+      Collections.synchronizedMap(new WeakHashMap<ActionListener, KEGGImporter>());
+  
   /**
    * 
    */
@@ -58,7 +81,7 @@ public class KEGGImporter extends NotifyingWorker<Object> {
    */
   private Format outputFormat;
   
-  AbstractKEGGtranslator<?> translator;
+  volatile AbstractKEGGtranslator<?> translator;
   
   /**
    * This will download and translate the given pathway.
@@ -94,6 +117,56 @@ public class KEGGImporter extends NotifyingWorker<Object> {
     this.outputFormat = outputFormat;
   }
   
+  /**
+   * Cancels the import that notifies the given listener, if it is still
+   * running. Should be called, e.g., if the tab that waits for the
+   * result is closed.
+   * @param listener
+   * @return <code>true</code> if a running import has been cancelled.
+   */
+  public static boolean cancelImportFor(Object listener) {
+    KEGGImporter importer = runningImports.get(listener);
+    if (importer != null) {
+      importer.cancelImport();
+      return true;
+    }
+    return false;
+  }
+  
+  /**
+   * Cancels this import. Does not interrupt the worker thread, because
+   * this might corrupt the KEGG information cache. Instead, the import
+   * stops after the current stage.
+   */
+  public void cancelImport() {
+    cancel(false);
+    AbstractKEGGtranslator<?> t = translator;
+    if (t != null) {
+      t.cancel();
+    }
+  }
+  
+  /* (non-Javadoc)
+   * @see de.zbit.util.NotifyingWorker#addActionListener(java.awt.event.ActionListener)
+   */
+  @Override
+  public void addActionListener(ActionListener listener) {
+    super.addActionListener(listener);
+    runningImports.put(listener, this);
+  }
+  
+  /* (non-Javadoc)
+   * @see javax.swing.SwingWorker#done()
+   */
+  @Override
+  protected void done() {
+    synchronized (runningImports) {
+      runningImports.values().removeAll(Collections.singleton(this));
+    }
+    // Release the translator and its per-translation data.
+    translator = null;
+  }
+  
   /* (non-Javadoc)
    * @see javax.swing.SwingWorker#doInBackground()
    */
@@ -118,25 +191,43 @@ public class KEGGImporter extends NotifyingWorker<Object> {
         }
       }
       
+      if (isCancelled()) {
+        return null;
+      }
+      
       // PART2: Fire listener that we are done with downloading
       publish(new ActionEvent(this, 2, localFile));
       inputFile = new File(localFile);
     }
     
-    // PART3: Translate
-    if ((inputFile != null) || (inputPathway != null)) {
+    // PART3: Parse
+    if ((inputPathway == null) && (inputFile != null)) {
+      inputPathway = AbstractKEGGtranslator.parse(inputFile);
+    }
+    if (isCancelled()) {
+      return null;
+    }
+    
+    // PART4: Preprocess and translate
+    if (inputPathway != null) {
       // The order in which the following events happen is important
-      translator = (AbstractKEGGtranslator<?>) BatchKEGGtranslator.getTranslator(outputFormat, Translator.getManager());
+      AbstractKEGGtranslator<?> t = (AbstractKEGGtranslator<?>) BatchKEGGtranslator.getTranslator(outputFormat, Translator.getManager());
+      translator = t;
+      if (isCancelled()) {
+        // cancelImport() might have missed the translator
+        return null;
+      }
       
       // The following should also trigger a new progress bar!
-      publish(new ActionEvent(translator, 3, null));
+      publish(new ActionEvent(t, 3, null));
+      
+      t.setProgressBar(getProgressBar());
+      Object result = t.translate(inputPathway);
       
-      translator.setProgressBar(getProgressBar());
-      Object result;
-      if (inputPathway != null) {
-        result = translator.translate(inputPathway);
-      } else {
-        result = translator.translate(inputFile);
+      // Discard partial results
+      if (isCancelled() || t.isCancelled()) {
+        log.fine(MessageFormat.format("Import of {0} has been cancelled.", inputPathway.getName()));
+        return null;
       }
       
       publish(new ActionEvent(result, 4, null));
@@ -154,8 +245,9 @@ public class KEGGImporter extends NotifyingWorker<Object> {
   public void setProgressBar(AbstractProgressBar progress) {
     super.setProgressBar(progress);
     
-    if (translator!=null) { // Uh-oh, there is already a translation running!
-      translator.setProgressBar(progress);
+    AbstractKEGGtranslator<?> t = translator;
+    if (t!=null) { // Uh-oh, there is already a translation running!
+      t.setProgressBar(progress);
     }
   }
 }
@@ -0,0 +1,456 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.kegg.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import de.zbit.kegg.Translator;
+import de.zbit.kegg.api.KeggAdaptor;
+import de.zbit.kegg.api.KeggInfos;
+import de.zbit.kegg.api.cache.KeggInfoManagement;
+import de.zbit.kegg.parser.pathway.Pathway;
+import de.zbit.util.DatabaseIdentifiers.IdentifierDatabases;
+import de.zbit.util.IdentifierPool;
+import de.zbit.util.KeggIdTokenizer;
+import de.zbit.util.Utils;
+
+/**
+ * All annotations of a single KEGG identifier (e.g., "cpd:C00118" or
+ * "hsa:1234") that are used by the translators, independent of the
+ * output format. The annotation is derived once from the
+ * {@link KeggInfos} and memoized by identifier (see
+ * {@link #get(String, KeggInfoManagement)}), such that multiple
+ * entries, pathways and output formats in a batch share it. Instances
+ * are immutable.
+ * <p>Lookups are thread-safe and coalesced: if several threads ask for
+ * the same identifier at the same time, only one of them queries the
+ * {@link KeggInfoManagement} and the others wait for its result (see
+ * also {@link #getInfos(String, KeggInfoManagement)}).
+ *
+ * @version $Rev$
+ * @since 2.6
+ * @see EntryAnnotation
+ */
+public class KeggAnnotation {
+
+  /**
+   * Maximum number of memoized annotations.
+   */
+  private static final int MAX_CACHE_SIZE = 20000;
+
+  /**
+   * Memoized (or currently created) annotations by KEGG identifier.
+   * Cleared when it grows larger than {@link #MAX_CACHE_SIZE}.
+   */
+  private static final ConcurrentMap<String, FutureTask<KeggAnnotation>> cache = new ConcurrentHashMap<String, FutureTask<KeggAnnotation>>(256);
+
+  /**
+   * Queries to the {@link KeggInfoManagement} that are currently in
+   * flight, by KEGG identifier.
+   */
+  private static final ConcurrentMap<String, FutureTask<KeggInfos>> pendingInfos = new ConcurrentHashMap<String, FutureTask<KeggInfos>>();
+
+  /**
+   * The KEGG identifier.
+   */
+  private final String keggId;
+
+  /**
+   * The information from the KEGG API.
+   */
+  private final KeggInfos infos;
+
+  /**
+   * Chemical formula, directly or from a synonym.
+   */
+  private final String formula;
+
+  /**
+   * All synonyms from {@link KeggInfos#getNames()}.
+   */
+  private final List<String> synonyms;
+
+  /**
+   * All identifiers in other databases.
+   */
+  private final Map<IdentifierDatabases, Collection<String>> identifiers;
+
+  /**
+   * XHTML preview picture for compounds, or {@code null}.
+   */
+  private final String compoundPreviewPicture;
+
+  /**
+   * Creates the annotation. Use {@link #get(String, KeggInfoManagement)}
+   * to obtain a memoized instance.
+   * @param keggId
+   * @param manager
+   */
+  private KeggAnnotation(String keggId, KeggInfoManagement manager) {
+    super();
+    this.keggId = keggId;
+    infos = getInfos(keggId, manager);
+
+    Map<IdentifierDatabases, Collection<String>> ids = new HashMap<IdentifierDatabases, Collection<String>>();
+    infos.addAllIdentifiers(ids);
+    for (Map.Entry<IdentifierDatabases, Collection<String>> entry : ids.entrySet()) {
+      // The same identifiers occur in many organisms of a batch.
+      List<String> pooled = new ArrayList<String>(entry.getValue().size());
+      for (String id : entry.getValue()) {
+        pooled.add(IdentifierPool.intern(id));
+      }
+      entry.setValue(Collections.unmodifiableCollection(pooled));
+    }
+    identifiers = Collections.unmodifiableMap(ids);
+
+    if (infos.queryWasSuccessfull()) {
+      if ((infos.getFormula() == null) && (infos.getSameAs() != null)) {
+        formula = infos.getFormulaDirectOrFromSynonym(new SynonymLookup(manager));
+      } else {
+        formula = infos.getFormula();
+      }
+      synonyms = Collections.unmodifiableList(Arrays.asList(KeggIdTokenizer.splitNames(infos.getNames())));
+      if ((formula != null) && KeggIdTokenizer.hasPrefix(keggId, KeggIdTokenizer.COMPOUND)) {
+        // KEGG and ChEBI provide picture for compounds (e.g., "C00118").
+        compoundPreviewPicture = Pathway.getCompoundPreviewPicture(keggId.toUpperCase().trim(), infos, Translator.path2models);
+      } else {
+        compoundPreviewPicture = null;
+      }
+    } else {
+      formula = null;
+      synonyms = Collections.emptyList();
+      compoundPreviewPicture = null;
+    }
+  }
+
+  /**
+   * Returns the annotation for the given KEGG identifier. The
+   * annotation is created on first access and memoized for further
+   * entries, pathways and translators. Annotations of unsuccessful
+   * queries are not memoized, such that they can be fetched later (e.g.,
+   * after a transient network error, see {@link RetryingKeggAdaptor}).
+   * Concurrent callers still share an unsuccessful result.
+   * @param keggId
+   * @param manager
+   * @return the annotation (never {@code null}).
+   */
+  public static KeggAnnotation get(final String keggId, final KeggInfoManagement manager) {
+    FutureTask<KeggAnnotation> task = cache.get(keggId);
+    if (task == null) {
+      FutureTask<KeggAnnotation> newTask = new FutureTask<KeggAnnotation>(new Callable<KeggAnnotation>() {
+        @Override
+        public KeggAnnotation call() {
+          return new KeggAnnotation(keggId, manager);
+        }
+      });
+      if (cache.size() >= MAX_CACHE_SIZE) {
+        cache.clear();
+      }
+      task = cache.putIfAbsent(keggId, newTask);
+      if (task == null) {
+        task = newTask;
+        task.run();
+        KeggAnnotation annotation = await(cache, keggId, task);
+        if (!annotation.isQuerySuccessful()) {
+          cache.remove(keggId, task);
+        }
+        return annotation;
+      }
+    }
+    return await(cache, keggId, task);
+  }
+
+  /**
+   * Thread-safe replacement for {@link KeggInfos#get(String, KeggInfoManagement)}.
+   * The {@link KeggInfoManagement} is not thread-safe, so its cache is
+   * only accessed while holding its monitor. Identifiers that are not
+   * cached are fetched into a separate manager without holding the
+   * monitor, and successful results are added to the cache afterwards
+   * (like {@link KeggCacheWarmer} does, see also {@link KeggCacheProbe}).
+   * Concurrent queries for the same identifier share one query (e.g.,
+   * "cpd:C00002" from many translators).
+   * @param keggId
+   * @param manager
+   * @return the information from the KEGG API (never {@code null}).
+   */
+  public static KeggInfos getInfos(final String keggId, final KeggInfoManagement manager) {
+    FutureTask<KeggInfos> task = pendingInfos.get(keggId);
+    if (task == null) {
+      FutureTask<KeggInfos> newTask = new FutureTask<KeggInfos>(new Callable<KeggInfos>() {
+        @Override
+        public KeggInfos call() {
+          KeggAdaptor adaptor;
+          synchronized (manager) {
+            adaptor = manager.getKeggAdaptor();
+            KeggInfos cached = KeggCacheProbe.getCached(keggId, manager);
+            if (cached != null) {
+              return cached;
+            }
+          }
+          KeggInfos infos = KeggInfos.get(keggId, new KeggInfoManagement(1, adaptor));
+          if (infos.queryWasSuccessfull()) {
+            synchronized (manager) {
+              manager.addInformation(keggId, infos);
+            }
+          }
+          return infos;
+        }
+      });
+      task = pendingInfos.putIfAbsent(keggId, newTask);
+      if (task == null) {
+        task = newTask;
+        try {
+          task.run();
+        } finally {
+          // The manager (or the adaptor) memoizes the result, only queries in flight are shared.
+          pendingInfos.remove(keggId, task);
+        }
+      }
+    }
+    return await(pendingInfos, keggId, task);
+  }
+
+  /**
+   * Waits (uninterruptibly) for the result of the given task. A failed
+   * task is removed from the map, such that it is retried on the next
+   * call.
+   * @param map
+   * @param key
+   * @param task
+   * @return the result of the task.
+   */
+  private static <T> T await(ConcurrentMap<String, FutureTask<T>> map, String key, FutureTask<T> task) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return task.get();
+        } catch (InterruptedException exc) {
+          interrupted = true;
+        }
+      }
+    } catch (ExecutionException exc) {
+      map.remove(key, task);
+      Throwable cause = exc.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Answers the synonym query of
+   * {@link KeggInfos#getFormulaDirectOrFromSynonym(KeggInfoManagement)}
+   * by {@link KeggAnnotation#getInfos(String, KeggInfoManagement)}, such
+   * that the shared manager is not locked during the request.
+   */
+  private static class SynonymLookup extends KeggInfoManagement {
+    private static final long serialVersionUID = -1640316447592931163L;
+
+    /**
+     * The shared manager.
+     */
+    private final transient KeggInfoManagement manager;
+
+    /**
+     * @param manager the shared manager.
+     */
+    public SynonymLookup(KeggInfoManagement manager) {
+      super(1, null);
+      this.manager = manager;
+    }
+
+    /* (non-Javadoc)
+     * @see de.zbit.cache.InfoManagement#getInformation(java.lang.Comparable)
+     */
+    @Override
+    public KeggInfos getInformation(String id) {
+      return getInfos(id, manager);
+    }
+
+  }
+
+  /**
+   * Removes all memoized annotations (e.g., after the cache of the
+   * {@link KeggInfoManagement} has been changed).
+   */
+  public static void clearCache() {
+    cache.clear();
+  }
+
+  /**
+   * Adds all identifiers of this annotation to the given map.
+   * @param ids
+   */
+  public void addIdentifiersTo(Map<IdentifierDatabases, Collection<String>> ids) {
+    for (Map.Entry<IdentifierDatabases, Collection<String>> entry : identifiers.entrySet()) {
+      Utils.addToMapOfSets(ids, entry.getKey(), entry.getValue().toArray(new String[0]));
+    }
+  }
+
+  /**
+   * @return the KEGG identifier.
+   */
+  public String getKeggId() {
+    return keggId;
+  }
+
+  /**
+   * @return the information from the KEGG API. Should only be used
+   * for information that is not available in this annotation.
+   */
+  public KeggInfos getInfos() {
+    return infos;
+  }
+
+  /**
+   * @return {@code true} if the KEGG API provided information for the
+   * identifier.
+   */
+  public boolean isQuerySuccessful() {
+    return infos.queryWasSuccessfull();
+  }
+
+  /**
+   * @return the display name.
+   * @see KeggInfos#getName()
+   */
+  public String getName() {
+    return infos.getName();
+  }
+
+  /**
+   * @return all names, as given by KEGG.
+   * @see KeggInfos#getNames()
+   */
+  public String getNames() {
+    return infos.getNames();
+  }
+
+  /**
+   * @return {@code true} if KEGG gives more than one name.
+   * @see KeggInfos#containsMultipleNames()
+   */
+  public boolean containsMultipleNames() {
+    return infos.containsMultipleNames();
+  }
+
+  /**
+   * @return all non-empty synonyms (names split at ";" and ", ").
+   */
+  public List<String> getSynonyms() {
+    return synonyms;
+  }
+
+  /**
+   * @return the definition.
+   * @see KeggInfos#getDefinition()
+   */
+  public String getDefinition() {
+    return infos.getDefinition();
+  }
+
+  /**
+   * @return the chemical formula, directly or from a synonym.
+   * @see KeggInfos#getFormulaDirectOrFromSynonym(KeggInfoManagement)
+   */
+  public String getFormula() {
+    return formula;
+  }
+
+  /**
+   * @return the CAS number.
+   */
+  public String getCas() {
+    return infos.getCas();
+  }
+
+  /**
+   * @return the mass.
+   */
+  public String getMass() {
+    return infos.getMass();
+  }
+
+  /**
+   * @return the molecular weight.
+   */
+  public String getMolecularWeight() {
+    return infos.getMolecularWeight();
+  }
+
+  /**
+   * @return all identifiers in other databases (unmodifiable).
+   */
+  public Map<IdentifierDatabases, Collection<String>> getIdentifiers() {
+    return identifiers;
+  }
+
+  /**
+   * @return ids of the reactions, in which this compound or enzyme
+   * participates.
+   * @see KeggInfos#getReaction_id()
+   */
+  public String getReactionIds() {
+    return infos.getReaction_id();
+  }
+
+  /**
+   * @return an XHTML preview picture for compounds, or {@code null}.
+   */
+  public String getCompoundPreviewPicture() {
+    return compoundPreviewPicture;
+  }
+
+  /**
+   * @return an XHTML preview picture of the referenced pathway.
+   */
+  public String getPathwayPreviewPicture() {
+    return Pathway.getPathwayPreviewPicture(keggId);
+  }
+
+  /* (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return keggId;
+  }
+
+}
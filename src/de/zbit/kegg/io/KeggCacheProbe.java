@@ -0,0 +1,89 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.kegg.io;
+
+import de.zbit.kegg.api.KeggAdaptor;
+import de.zbit.kegg.api.KeggInfos;
+import de.zbit.kegg.api.cache.KeggInfoManagement;
+
+/**
+ * Looks up {@link KeggInfos} in the cache of a {@link KeggInfoManagement}
+ * without any request. The manager has no such lookup, because
+ * {@link KeggInfoManagement#getInformation(String)} fetches missing
+ * information. Thus, this adaptor is installed on the manager during
+ * the lookup, and answers all queries with an empty result.
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class KeggCacheProbe extends KeggAdaptor {
+
+  /**
+   * {@code true} if a query has been answered by this adaptor.
+   */
+  private boolean queried = false;
+
+  /**
+   * Use {@link #getCached(String, KeggInfoManagement)}.
+   */
+  private KeggCacheProbe() {
+    super();
+  }
+
+  /* (non-Javadoc)
+   * @see de.zbit.kegg.api.KeggAdaptor#getWithReturnInformation(java.lang.String)
+   */
+  @Override
+  public String getWithReturnInformation(String query) {
+    queried = true;
+    return "";
+  }
+
+  /**
+   * Looks up the given identifier in the cache of the manager, without
+   * any request. The caller must hold the monitor of the manager, and
+   * all other code must only access the adaptor of the manager while
+   * holding this monitor.
+   * @param keggId
+   * @param manager
+   * @return the cached information, unsuccessful information if the
+   * identifier is known to be unretrievable, or {@code null} if it has
+   * not been queried yet.
+   */
+  public static KeggInfos getCached(String keggId, KeggInfoManagement manager) {
+    KeggAdaptor adaptor = manager.getKeggAdaptor();
+    KeggCacheProbe probe = new KeggCacheProbe();
+    KeggInfos infos;
+    manager.setKeggAdaptor(probe);
+    try {
+      infos = manager.getInformation(keggId);
+    } finally {
+      manager.setKeggAdaptor(adaptor);
+    }
+    if (probe.queried) {
+      // The manager has marked the empty result as unretrievable.
+      manager.removeInformation(keggId);
+      return null;
+    }
+    return (infos != null) ? infos : new KeggInfos(keggId, (String) null);
+  }
+
+}
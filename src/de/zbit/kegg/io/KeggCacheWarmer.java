@@ -0,0 +1,352 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.kegg.io;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.zbit.io.filefilter.SBFileFilter;
+import de.zbit.kegg.Translator;
+import de.zbit.kegg.api.KeggAdaptor;
+import de.zbit.kegg.api.KeggInfos;
+import de.zbit.kegg.api.cache.KeggInfoManagement;
+import de.zbit.kegg.gui.KGMLSelectAndDownload;
+import de.zbit.kegg.parser.KeggParser;
+import de.zbit.kegg.parser.pathway.Entry;
+import de.zbit.kegg.parser.pathway.Pathway;
+import de.zbit.kegg.parser.pathway.Reaction;
+import de.zbit.kegg.parser.pathway.ReactionComponent;
+import de.zbit.util.KeggIdTokenizer;
+
+/**
+ * Warms up the cache of {@link KeggInfoManagement} before a batch run.
+ * All KEGG identifiers that are referenced by a set of pathways (entries,
+ * reactions, compounds of reaction equations, organisms and pathways)
+ * are fetched with a bounded number of parallel requests, such that the
+ * translation of every pathway hits the cache, from the first one on.
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class KeggCacheWarmer {
+
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final transient Logger log = Logger.getLogger(KeggCacheWarmer.class.getName());
+
+  /**
+   * Number of identifiers that are fetched by one task.
+   */
+  private static final int CHUNK_SIZE = 100;
+
+  /**
+   * The annotations are fetched into this manager.
+   */
+  private final KeggInfoManagement manager;
+
+  /**
+   * All collected identifiers.
+   */
+  private final Set<String> ids = new LinkedHashSet<String>();
+
+  /**
+   * All successfully fetched identifiers.
+   */
+  private final Set<String> available = new HashSet<String>();
+
+  /**
+   * @param manager the annotations are fetched into this manager.
+   */
+  public KeggCacheWarmer(KeggInfoManagement manager) {
+    super();
+    this.manager = manager;
+  }
+
+  /**
+   * Warms up {@link Translator#getManager()} for the given organism or
+   * KGML files and saves it as {@link Translator#cacheFileName}.
+   * @param organismOrFile an organism code (e.g., "hsa"), or a KGML
+   * file or directory.
+   * @return the number of fetched identifiers.
+   */
+  public static int warmUpCache(String organismOrFile) {
+    KeggInfoManagement manager = Translator.getManager();
+    KeggCacheWarmer warmer = new KeggCacheWarmer(manager);
+    File file = new File(organismOrFile);
+    if (file.exists()) {
+      warmer.addFile(file);
+    } else {
+      warmer.addOrganism(organismOrFile);
+    }
+    int fetched = warmer.warmUp();
+    log.info(String.format("Saving %d KEGG entries to %s.", manager.getNumberOfCachedInfos(), Translator.cacheFileName));
+    Translator.saveManager(manager);
+    return fetched;
+  }
+
+  /**
+   * Downloads all pathways of the given organism and collects their
+   * identifiers.
+   * @param organism organism code, e.g., "hsa".
+   */
+  public void addOrganism(String organism) {
+    KeggInfoManagement.offlineMode = false;
+    KeggAdaptor adaptor;
+    synchronized (manager) {
+      adaptor = manager.getKeggAdaptor();
+    }
+    List<String> pathways = adaptor.getPathwayList(organism);
+    if (pathways == null) {
+      log.warning("Could not list the pathways of organism " + organism);
+      return;
+    }
+    ids.add("gn:" + organism);
+    for (String line : pathways) {
+      String[] tokens = KeggIdTokenizer.splitAtWhitespace(line);
+      if (tokens.length < 1) {
+        continue;
+      }
+      String pathwayId = tokens[0];
+      if (KeggIdTokenizer.hasPrefix(pathwayId, KeggIdTokenizer.PATHWAY)) {
+        pathwayId = pathwayId.substring(KeggIdTokenizer.PATHWAY.length());
+      }
+      try {
+        String localFile = KGMLSelectAndDownload.downloadPathway(pathwayId, false);
+        if (localFile != null) {
+          addFile(new File(localFile));
+        }
+      } catch (Exception exc) {
+        // E.g., overview maps are not available through the API
+        log.log(Level.WARNING, "Could not download pathway " + pathwayId, exc);
+      }
+    }
+  }
+
+  /**
+   * Collects the identifiers of all pathways in the given KGML file or
+   * in all KGML files in the given directory (recursively).
+   * @param file
+   */
+  public void addFile(File file) {
+    if (file.isDirectory()) {
+      File[] children = file.listFiles();
+      if (children != null) {
+        Arrays.sort(children);
+        for (File child : children) {
+          addFile(child);
+        }
+      }
+    } else if (SBFileFilter.isKGML(file)) {
+      try {
+        for (Pathway p : KeggParser.parse(file.getPath())) {
+          addPathway(p);
+        }
+      } catch (Throwable t) {
+        log.log(Level.WARNING, "Could not parse " + file, t);
+      }
+    }
+  }
+
+  /**
+   * Collects all identifiers that are referenced by the given pathway.
+   * @param p
+   */
+  public void addPathway(Pathway p) {
+    if (p.getName() != null) {
+      ids.add(p.getName());
+    }
+    if (p.getOrg() != null) {
+      ids.add("gn:" + p.getOrg());
+    }
+    for (Entry e : p.getEntries()) {
+      for (String id : KeggIdTokenizer.split(e.getName(), ' ')) {
+        if (!KeggIdTokenizer.isUndefined(id) && !KeggIdTokenizer.hasPrefix(id, KeggIdTokenizer.GROUP)) {
+          ids.add(id);
+        }
+      }
+      if (e.getReactions() != null) {
+        for (String reaction : e.getReactions()) {
+          addReactionIds(reaction);
+        }
+      }
+    }
+    for (Reaction r : p.getReactions()) {
+      addReactionIds(r.getName());
+      for (ReactionComponent rc : r.getSubstrates()) {
+        ids.add(rc.getName());
+      }
+      for (ReactionComponent rc : r.getProducts()) {
+        ids.add(rc.getName());
+      }
+    }
+  }
+
+  /**
+   * @param reactions space-separated reaction ids, with or without
+   * "rn:" prefix.
+   */
+  private void addReactionIds(String reactions) {
+    for (String id : KeggIdTokenizer.split(reactions, ' ')) {
+      ids.add(KeggIdTokenizer.hasPrefix(id, KeggIdTokenizer.REACTION) ? id : KeggIdTokenizer.REACTION + id);
+    }
+  }
+
+  /**
+   * @return all collected identifiers.
+   */
+  public Set<String> getIds() {
+    return ids;
+  }
+
+  /**
+   * Fetches all collected identifiers, then all compounds of the
+   * fetched reaction equations, and finally the synonyms, from which
+   * formulas of compounds are taken.
+   * @return the number of fetched identifiers.
+   */
+  public int warmUp() {
+    KeggInfoManagement.offlineMode = false;
+    log.info(String.format("Fetching %d KEGG identifiers...", ids.size()));
+    int fetched = fetch(new ArrayList<String>(ids));
+
+    // Compounds in reaction equations (required for auto-completion)
+    Set<String> compounds = new LinkedHashSet<String>();
+    for (String id : available) {
+      if (KeggIdTokenizer.hasPrefix(id, KeggIdTokenizer.REACTION)) {
+        KeggInfos infos = KeggInfos.get(id, manager);
+        if (infos.queryWasSuccessfull() && (infos.getEquation() != null)) {
+          for (String token : KeggIdTokenizer.splitAtWhitespace(infos.getEquation())) {
+            String compound = getCompoundId(token);
+            if ((compound != null) && !ids.contains(compound)) {
+              compounds.add(compound);
+            }
+          }
+        }
+      }
+    }
+    if (compounds.size() > 0) {
+      log.info(String.format("Fetching %d compounds of reaction equations...", compounds.size()));
+      fetched += fetch(new ArrayList<String>(compounds));
+      ids.addAll(compounds);
+    }
+
+    // Formulas from synonyms (few, fetched by the manager itself)
+    for (String id : available) {
+      if (KeggIdTokenizer.hasPrefix(id, KeggIdTokenizer.COMPOUND) || KeggIdTokenizer.hasPrefix(id, KeggIdTokenizer.GLYCAN)) {
+        KeggInfos infos = KeggInfos.get(id, manager);
+        if (infos.queryWasSuccessfull() && (infos.getFormula() == null)) {
+          infos.getFormulaDirectOrFromSynonym(manager);
+        }
+      }
+    }
+    log.info(String.format("Fetched %d KEGG identifiers.", fetched));
+    return fetched;
+  }
+
+  /**
+   * @param token a token of a reaction equation, e.g., "C00031" or "2".
+   * @return the KEGG identifier of the compound or glycan, or {@code null}.
+   */
+  private static String getCompoundId(String token) {
+    if ((token.length() == 6) && Character.isDigit(token.charAt(1))) {
+      if (token.charAt(0) == 'C') {
+        return KeggIdTokenizer.COMPOUND + token;
+      } else if (token.charAt(0) == 'G') {
+        return KeggIdTokenizer.GLYCAN + token;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Fetches the given identifiers in chunks, with at most
+   * {@link RetryingKeggAdaptor#getMaxParallelRequests()} parallel
+   * requests. Identifiers that are already cached or known to be
+   * unretrievable are skipped. The manager is not thread-safe, so every
+   * task fetches into its own manager (sharing the adaptor of
+   * {@link #manager}) and the results are copied to {@link #manager}.
+   * @param identifiers
+   * @return the number of successfully fetched identifiers.
+   */
+  private int fetch(List<String> identifiers) {
+    final KeggAdaptor adaptor;
+    List<String> toFetch = new ArrayList<String>(identifiers.size());
+    synchronized (manager) {
+      adaptor = manager.getKeggAdaptor();
+      for (String id : identifiers) {
+        KeggInfos cached = KeggCacheProbe.getCached(id, manager);
+        if (cached == null) {
+          toFetch.add(id);
+        } else if (cached.queryWasSuccessfull()) {
+          available.add(id);
+        }
+      }
+    }
+    log.info(String.format("%d of %d identifiers are already cached or unretrievable.", identifiers.size() - toFetch.size(), identifiers.size()));
+
+    final AtomicInteger fetched = new AtomicInteger(0);
+    ExecutorService executor = Executors.newFixedThreadPool(RetryingKeggAdaptor.getMaxParallelRequests());
+    for (int start = 0; start < toFetch.size(); start += CHUNK_SIZE) {
+      final String[] chunk = toFetch.subList(start, Math.min(start + CHUNK_SIZE, toFetch.size())).toArray(new String[0]);
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          KeggInfoManagement local = new KeggInfoManagement(chunk.length * 2, adaptor);
+          local.precacheIDs(chunk);
+          synchronized (manager) {
+            int required = manager.getNumberOfCachedInfos() + chunk.length;
+            if (manager.getCacheSize() < required) {
+              manager.setCacheSize(required);
+            }
+            for (String id : chunk) {
+              KeggInfos infos = local.getInformation(id);
+              if ((infos != null) && infos.queryWasSuccessfull()) {
+                manager.addInformation(id, infos);
+                available.add(id);
+                fetched.incrementAndGet();
+              }
+            }
+          }
+        }
+      });
+    }
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return fetched.get();
+  }
+
+}
@@ -0,0 +1,425 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.kegg.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+import de.zbit.kegg.Translator;
+import de.zbit.kegg.api.KeggInfos;
+import de.zbit.kegg.api.cache.KeggInfoManagement;
+import de.zbit.util.KeggIdTokenizer;
+
+/**
+ * Imports KEGG annotations from locally provided KEGG flat files (e.g.,
+ * "compound", "reaction", "pathway", "ko" or the genes of single
+ * organisms, optionally gzipped) into a {@link KeggInfoManagement}.
+ * This allows to translate pathways with full annotations without any
+ * access to the KEGG API, e.g., with
+ * {@link de.zbit.kegg.KEGGtranslatorOptions#OFFLINE_MODE}.
+ * <p>The flat files contain entries in the same format, as returned
+ * by the KEGG API for single identifiers. Hence, the entries are
+ * parsed into {@link KeggInfos} just like online queries (in parallel)
+ * and stored in the usual cache file of KEGGtranslator
+ * ({@link Translator#cacheFileName}).
+ * <p>Gene entries refer to their organism by a KEGG genome identifier
+ * (e.g., "T01001"). If the entries do not contain an "ORGANISM" line,
+ * an organism list (tab-separated, e.g., "T01001 hsa Homo sapiens",
+ * as returned by "list/organism") must be imported as well.
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class KeggFlatFileImporter {
+
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final transient Logger log = Logger.getLogger(KeggFlatFileImporter.class.getName());
+
+  /**
+   * Number of entries that are parsed in one task.
+   */
+  private static final int CHUNK_SIZE = 500;
+
+  /**
+   * KEGG identifier prefixes by entry type, as given in the "ENTRY"
+   * line of the flat files.
+   */
+  private static final Map<String, String> prefixes = new HashMap<String, String>();
+  static {
+    prefixes.put("Compound", "cpd:");
+    prefixes.put("Glycan", "gl:");
+    prefixes.put("Drug", "dr:");
+    prefixes.put("Reaction", "rn:");
+    prefixes.put("RClass", "rc:");
+    prefixes.put("KO", "ko:");
+    prefixes.put("Pathway", KeggIdTokenizer.PATHWAY);
+    prefixes.put("Module", "md:");
+    prefixes.put("Disease", "ds:");
+  }
+
+  /**
+   * The annotations are imported into this manager.
+   */
+  private final KeggInfoManagement manager;
+
+  /**
+   * Organism codes (e.g., "hsa") by KEGG genome identifier (e.g., "T01001").
+   */
+  private final Map<String, String> organisms = new HashMap<String, String>();
+
+  /**
+   * Number of threads to parse the entries.
+   */
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * @param manager the annotations are imported into this manager.
+   */
+  public KeggFlatFileImporter(KeggInfoManagement manager) {
+    super();
+    this.manager = manager;
+  }
+
+  /**
+   * Imports the given files into {@link Translator#getManager()} and
+   * saves it as {@link Translator#cacheFileName}.
+   * @param args KEGG flat files, organism lists or directories.
+   * @throws IOException
+   */
+  public static void main(String[] args) throws IOException {
+    if ((args == null) || (args.length < 1)) {
+      log.warning("Usage: " + KeggFlatFileImporter.class.getSimpleName() + " <flat file, organism list or directory>...");
+      return;
+    }
+    File[] files = new File[args.length];
+    for (int i = 0; i < args.length; i++) {
+      files[i] = new File(args[i]);
+    }
+    importIntoCache(files);
+  }
+
+  /**
+   * Imports the given files into {@link Translator#getManager()} and
+   * saves it as {@link Translator#cacheFileName}, such that all further
+   * translations use the imported annotations.
+   * @param files KEGG flat files, organism lists or directories.
+   * @return the number of imported entries.
+   * @throws IOException
+   */
+  public static int importIntoCache(File... files) throws IOException {
+    KeggInfoManagement manager = Translator.getManager();
+    int imported = new KeggFlatFileImporter(manager).importFiles(files);
+    if (imported > 0) {
+      log.info(String.format("Saving %d imported KEGG entries to %s.", imported, Translator.cacheFileName));
+      Translator.saveManager(manager);
+    }
+    return imported;
+  }
+
+  /**
+   * @param threads number of threads to parse the entries (0 = number
+   * of processors).
+   */
+  public void setThreads(int threads) {
+    this.threads = (threads < 1) ? Runtime.getRuntime().availableProcessors() : threads;
+  }
+
+  /**
+   * Imports all given files. Directories are imported recursively and
+   * organism lists are read before any flat file.
+   * @param files KEGG flat files, organism lists or directories.
+   * @return the number of imported entries.
+   * @throws IOException
+   */
+  public int importFiles(File... files) throws IOException {
+    List<File> all = new ArrayList<File>();
+    for (File file : files) {
+      collectFiles(file, all);
+    }
+
+    List<File> flatFiles = new ArrayList<File>();
+    for (File file : all) {
+      if (isOrganismList(file)) {
+        readOrganismList(file);
+      } else {
+        flatFiles.add(file);
+      }
+    }
+
+    final AtomicInteger threadNumber = new AtomicInteger(1);
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<Runnable>(threads * 2), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "KeggFlatFileImporter-" + threadNumber.getAndIncrement());
+          t.setDaemon(true);
+          return t;
+        }
+      }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+    AtomicInteger imported = new AtomicInteger(0);
+    try {
+      for (File file : flatFiles) {
+        int entries = readFlatFile(file, executor, imported);
+        log.info(String.format("Read %d entries from %s.", entries, file.getName()));
+      }
+    } finally {
+      executor.shutdown();
+      try {
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    log.info(String.format("Imported %d KEGG entries.", imported.get()));
+    return imported.get();
+  }
+
+  /**
+   * @param file
+   * @param files all regular files in {@code file} are added to this list.
+   */
+  private static void collectFiles(File file, List<File> files) {
+    if (file.isDirectory()) {
+      File[] children = file.listFiles();
+      if (children != null) {
+        Arrays.sort(children);
+        for (File child : children) {
+          collectFiles(child, files);
+        }
+      }
+    } else if (file.isFile() && !file.isHidden()) {
+      files.add(file);
+    }
+  }
+
+  /**
+   * @param file
+   * @return a reader for the given, eventually gzipped, file.
+   * @throws IOException
+   */
+  private static BufferedReader openReader(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
+    if (file.getName().toLowerCase().endsWith(".gz")) {
+      in = new GZIPInputStream(in);
+    }
+    return new BufferedReader(new InputStreamReader(in, "UTF-8"));
+  }
+
+  /**
+   * @param file
+   * @return {@code true} if the first line of the given file starts
+   * with a KEGG genome identifier, followed by a tab.
+   * @throws IOException
+   */
+  private static boolean isOrganismList(File file) throws IOException {
+    BufferedReader reader = openReader(file);
+    try {
+      String line = reader.readLine();
+      int tab = (line == null) ? -1 : line.indexOf('\t');
+      return (tab > 0) && isGenomeId(line.substring(0, tab));
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Reads a tab-separated list of KEGG genome identifiers and organism
+   * codes (e.g., "T01001 hsa Homo sapiens (human) ...").
+   * @param file
+   * @throws IOException
+   */
+  private void readOrganismList(File file) throws IOException {
+    BufferedReader reader = openReader(file);
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] columns = KeggIdTokenizer.split(line, '\t');
+        if ((columns.length > 1) && isGenomeId(columns[0])) {
+          organisms.put(columns[0], columns[1].trim());
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    log.fine(String.format("Read %d organisms from %s.", organisms.size(), file.getName()));
+  }
+
+  /**
+   * Splits the given flat file into entries and parses them in chunks
+   * with the given executor.
+   * @param file
+   * @param executor
+   * @param imported counts all imported entries.
+   * @return the number of entries in the file.
+   * @throws IOException
+   */
+  private int readFlatFile(File file, ThreadPoolExecutor executor, AtomicInteger imported) throws IOException {
+    int entries = 0;
+    List<String[]> chunk = new ArrayList<String[]>(CHUNK_SIZE);
+    BufferedReader reader = openReader(file);
+    try {
+      StringBuilder entry = new StringBuilder();
+      String entryLine = null, organism = null;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith("ENTRY")) {
+          entry.setLength(0);
+          entryLine = line;
+          organism = null;
+        } else if (entryLine == null) {
+          continue; // Not within an entry
+        } else if (line.startsWith("ORGANISM") && (organism == null)) {
+          String[] tokens = KeggIdTokenizer.splitAtWhitespace(line.substring(8));
+          organism = (tokens.length > 0) ? tokens[0] : null;
+        }
+        entry.append(line).append('\n');
+
+        if (line.startsWith("///")) {
+          String id = getKeggId(entryLine, organism);
+          if (id != null) {
+            chunk.add(new String[] {id, entry.toString()});
+            entries++;
+            if (chunk.size() >= CHUNK_SIZE) {
+              executor.execute(createParser(chunk, imported));
+              chunk = new ArrayList<String[]>(CHUNK_SIZE);
+            }
+          } else {
+            log.finer("Skipping entry " + entryLine.trim());
+          }
+          entryLine = null;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    if (chunk.size() > 0) {
+      executor.execute(createParser(chunk, imported));
+    }
+    return entries;
+  }
+
+  /**
+   * @param chunk KEGG identifiers and their entries.
+   * @param imported counts all imported entries.
+   * @return a task that parses the given entries and adds them to the
+   * {@link #manager}.
+   */
+  private Runnable createParser(final List<String[]> chunk, final AtomicInteger imported) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        List<KeggInfos> infos = new ArrayList<KeggInfos>(chunk.size());
+        for (String[] entry : chunk) {
+          try {
+            infos.add(new KeggInfos(entry[0], manager.removeUnnecessaryInfos(entry[1])));
+          } catch (Throwable t) {
+            log.log(Level.WARNING, "Could not parse KEGG entry " + entry[0], t);
+            infos.add(null);
+          }
+        }
+        synchronized (manager) {
+          // Imported entries must not be dropped from the cache.
+          int required = manager.getNumberOfCachedInfos() + infos.size();
+          if (manager.getCacheSize() < required) {
+            manager.setCacheSize(Math.max(required, manager.getCacheSize() * 2));
+          }
+          for (int i = 0; i < infos.size(); i++) {
+            if ((infos.get(i) != null) && infos.get(i).queryWasSuccessfull()) {
+              manager.addInformation(chunk.get(i)[0], infos.get(i));
+              imported.incrementAndGet();
+            }
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns the KEGG identifier, as used in KGML files, for an entry in
+   * a flat file, e.g., "cpd:C00118" for
+   * "ENTRY       C00118                      Compound" or "hsa:3101" for
+   * "ENTRY       3101              CDS       T01001".
+   * @param entryLine the "ENTRY" line.
+   * @param organism organism code from the "ORGANISM" line, or
+   * {@code null}.
+   * @return the identifier or {@code null}, if the type of the entry is
+   * unknown.
+   */
+  protected String getKeggId(String entryLine, String organism) {
+    String[] tokens = KeggIdTokenizer.splitAtWhitespace(entryLine.substring(5));
+    if (tokens.length < 2) {
+      return null;
+    }
+    if (tokens[0].equals("EC") && (tokens.length > 2)) {
+      return "ec:" + tokens[1];
+    }
+
+    String type = tokens[tokens.length - 1];
+    if (isGenomeId(type)) {
+      // Gene of an organism
+      String code = organisms.get(type);
+      if (code == null) {
+        code = organism;
+      }
+      return (code == null) ? null : code + ':' + tokens[0];
+    }
+    String prefix = prefixes.get(type);
+    return (prefix == null) ? null : prefix + tokens[0];
+  }
+
+  /**
+   * @param s
+   * @return {@code true} if the given string is a KEGG genome
+   * identifier (e.g., "T01001").
+   */
+  private static boolean isGenomeId(String s) {
+    if ((s.length() < 2) || (s.charAt(0) != 'T')) {
+      return false;
+    }
+    for (int i = 1; i < s.length(); i++) {
+      if (!Character.isDigit(s.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.kegg.io;
+
+import java.util.LinkedList;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.sbml.jsbml.SBase;
+import org.sbml.jsbml.xml.XMLAttributes;
+import org.sbml.jsbml.xml.XMLNode;
+import org.sbml.jsbml.xml.XMLTriple;
+
+/**
+ * Builds XHTML notes for SBML elements directly as {@link XMLNode} tree.
+ * In contrast to {@link SBase#setNotes(String)}, the notes are not
+ * serialized to a string and parsed again, and the writer streams the
+ * tree as it is. Text is escaped by the writer, so all methods expect
+ * plain (unescaped) text.
+ *
+ * <p>Example:
+ * <pre>
+ * new NotesBuilder().start("p").element("b", "Mass:").text(" 42").end().appendTo(species);
+ * </pre>
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class NotesBuilder {
+
+  /**
+   * XHTML namespace of the notes body.
+   */
+  public static final String XHTML_NS = "http://www.w3.org/1999/xhtml";
+
+  /**
+   * Left double quotation mark (same as {@link KEGG2jSBML#quotStart}).
+   */
+  public static final char QUOT_START = '\u201C';
+
+  /**
+   * Right double quotation mark (same as {@link KEGG2jSBML#quotEnd}).
+   */
+  public static final char QUOT_END = '\u201D';
+
+  /**
+   * The body element of the notes.
+   */
+  private final XMLNode body;
+
+  /**
+   * All currently open elements, the innermost first.
+   */
+  private final LinkedList<XMLNode> open = new LinkedList<XMLNode>();
+
+  /**
+   * Creates a builder with an empty notes body.
+   */
+  public NotesBuilder() {
+    super();
+    body = new XMLNode(new XMLTriple("body", XHTML_NS, ""), new XMLAttributes());
+    body.addNamespace(XHTML_NS);
+    open.addFirst(body);
+  }
+
+  /**
+   * Opens a new element within the current element.
+   * @param name XHTML element name, e.g., "p" or "a".
+   * @param attributes alternating attribute names and values, e.g.,
+   * {@code "href", url}.
+   * @return this builder.
+   */
+  public NotesBuilder start(String name, String... attributes) {
+    XMLNode element = new XMLNode(new XMLTriple(name, XHTML_NS, ""), new XMLAttributes());
+    for (int i = 0; i + 1 < attributes.length; i += 2) {
+      element.addAttr(attributes[i], attributes[i + 1]);
+    }
+    open.getFirst().addChild(element);
+    open.addFirst(element);
+    return this;
+  }
+
+  /**
+   * Closes the current element.
+   * @return this builder.
+   */
+  public NotesBuilder end() {
+    if (open.size() > 1) {
+      open.removeFirst();
+    }
+    return this;
+  }
+
+  /**
+   * Adds an element that contains only the given text.
+   * @param name
+   * @param text
+   * @return this builder.
+   */
+  public NotesBuilder element(String name, String text) {
+    return start(name).text(text).end();
+  }
+
+  /**
+   * Adds an empty line break element.
+   * @return this builder.
+   */
+  public NotesBuilder br() {
+    return start("br").end();
+  }
+
+  /**
+   * Adds the given text to the current element. Like
+   * {@link AbstractKEGGtranslator#formatTextForHTMLnotes(String)}, new
+   * lines are replaced by spaces. Escaping is done by the writer.
+   * @param text may be {@code null}.
+   * @return this builder.
+   */
+  public NotesBuilder text(String text) {
+    if ((text != null) && (text.length() > 0)) {
+      open.getFirst().addChild(new XMLNode(text.replace('\n', ' ')));
+    }
+    return this;
+  }
+
+  /**
+   * Adds an XHTML fragment that is only available as string (e.g., a
+   * preview picture) to the current element. The fragment is parsed,
+   * so this should be used sparingly.
+   * @param xhtml
+   * @return this builder.
+   * @throws XMLStreamException if the fragment is not well-formed.
+   */
+  public NotesBuilder xhtml(String xhtml) throws XMLStreamException {
+    if ((xhtml == null) || (xhtml.length() < 1)) {
+      return this;
+    }
+    XMLNode notes = XMLNode.convertStringToXMLNode(KEGG2jSBML.notesStartString + xhtml + KEGG2jSBML.notesEndString);
+    XMLNode parsedBody = getBody(notes);
+    if (parsedBody != null) {
+      XMLNode parent = open.getFirst();
+      for (int i = 0; i < parsedBody.getChildCount(); i++) {
+        parent.addChild(parsedBody.getChildAt(i));
+      }
+    }
+    return this;
+  }
+
+  /**
+   * @param text
+   * @return the given text, enclosed by quotation marks.
+   */
+  public static String quote(String text) {
+    return QUOT_START + (text == null ? "" : text) + QUOT_END;
+  }
+
+  /**
+   * @return {@code true} if nothing has been added to the body.
+   */
+  public boolean isEmpty() {
+    return body.getChildCount() == 0;
+  }
+
+  /**
+   * @return a new notes element, containing the body.
+   */
+  public XMLNode getNotes() {
+    XMLNode notes = new XMLNode(new XMLTriple("notes", "", ""), new XMLAttributes());
+    notes.addChild(body);
+    return notes;
+  }
+
+  /**
+   * Sets the notes of the given element or appends the content to the
+   * body of existing notes (same as {@link SBase#appendNotes(String)}).
+   * @param sbase
+   */
+  public void appendTo(SBase sbase) {
+    XMLNode existingBody = sbase.isSetNotes() ? getBody(sbase.getNotes()) : null;
+    if (existingBody == null) {
+      sbase.setNotes(getNotes());
+    } else {
+      for (int i = 0; i < body.getChildCount(); i++) {
+        existingBody.addChild(body.getChildAt(i));
+      }
+    }
+  }
+
+  /**
+   * @param notes
+   * @return the body element of the given notes or {@code null}.
+   */
+  private static XMLNode getBody(XMLNode notes) {
+    if (notes == null) {
+      return null;
+    }
+    if ("body".equals(notes.getName())) {
+      return notes;
+    }
+    for (int i = 0; i < notes.getChildCount(); i++) {
+      XMLNode child = notes.getChildAt(i);
+      if ("body".equals(child.getName())) {
+        return child;
+      }
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,266 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.kegg.io;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.zbit.kegg.parser.pathway.Entry;
+import de.zbit.kegg.parser.pathway.Pathway;
+import de.zbit.kegg.parser.pathway.Reaction;
+import de.zbit.kegg.parser.pathway.ReactionComponent;
+import de.zbit.util.IntObjectMap;
+import de.zbit.util.KeggIdTokenizer;
+
+/**
+ * A lookup index for the entries of a (preprocessed) {@link Pathway}.
+ * The index is built once per translation and replaces
+ * {@link Pathway#getEntryForId(int)}, which boxes the id on every call,
+ * and {@link Pathway#getEntryForReactionComponent(ReactionComponent)},
+ * which might have to resolve the component by name, in the loops of
+ * all translators. Furthermore, it groups all entries by name to detect
+ * duplicate entries (e.g., the same gene at multiple positions in a
+ * signalling pathway).
+ * <p>Furthermore, it links entries and reactions in both directions:
+ * the reactions, in which an entry is a substrate or product (replaces
+ * {@link Pathway#getReactionsForEntry(Entry)}, which creates a new set
+ * on every call), and the entries that catalyze a reaction (i.e., all
+ * entries that list the reaction in {@link Entry#getReactions()}).
+ * Since the index is built after preprocessing, autocompleted reactions
+ * are included.
+ * <p>The index is only valid as long as the pathway is not modified.
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class PathwayIndex {
+
+  /**
+   * The indexed pathway.
+   */
+  private final Pathway pathway;
+
+  /**
+   * All entries of the pathway at the position of their id.
+   */
+  private final Entry[] entriesById;
+
+  /**
+   * Remembers entries for {@link ReactionComponent}s that had to be
+   * resolved by name.
+   */
+  private final Map<ReactionComponent, Entry> componentEntries = new IdentityHashMap<ReactionComponent, Entry>();
+
+  /**
+   * All entries of the pathway, grouped by their name.
+   */
+  private final Map<String, List<Entry>> entriesByName;
+
+  /**
+   * Reactions, in which an entry is a substrate or product, by entry id.
+   */
+  private final IntObjectMap<Set<Reaction>> reactionsByEntryId;
+
+  /**
+   * All entries that catalyze a reaction, by reaction name (see
+   * {@link #getReactionKey(String)}).
+   */
+  private final Map<String, List<Entry>> modifiersByReaction;
+
+  /**
+   * Builds the index for the given pathway.
+   * @param p
+   */
+  public PathwayIndex(Pathway p) {
+    super();
+    pathway = p;
+    int maxId = -1;
+    for (Entry e : p.getEntries()) {
+      maxId = Math.max(maxId, e.getId());
+    }
+    entriesById = new Entry[maxId + 1];
+    entriesByName = new HashMap<String, List<Entry>>();
+    for (Entry e : p.getEntries()) {
+      if (e.getId() >= 0) {
+        entriesById[e.getId()] = e;
+      }
+      List<Entry> list = entriesByName.get(e.getName());
+      if (list == null) {
+        list = new ArrayList<Entry>(1);
+        entriesByName.put(e.getName(), list);
+      }
+      list.add(e);
+    }
+
+    reactionsByEntryId = new IntObjectMap<Set<Reaction>>(entriesById.length);
+    modifiersByReaction = new HashMap<String, List<Entry>>();
+    for (Entry e : p.getEntries()) {
+      if (e.getId() >= 0) {
+        reactionsByEntryId.put(e.getId(), Collections.unmodifiableSet(createReactionSet(e)));
+      }
+      if (e.hasReaction()) {
+        for (String reaction : e.getReactions()) {
+          String key = getReactionKey(reaction);
+          List<Entry> list = modifiersByReaction.get(key);
+          if (list == null) {
+            list = new ArrayList<Entry>(1);
+            modifiersByReaction.put(key, list);
+          }
+          if (!list.contains(e)) {
+            list.add(e);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @param e
+   * @return a new set of all reactions, in which the given entry is a
+   * substrate or product.
+   */
+  private Set<Reaction> createReactionSet(Entry e) {
+    Collection<Reaction> reactions = pathway.getReactionsForEntry(e);
+    if (reactions instanceof Set<?>) {
+      return (Set<Reaction>) reactions;
+    }
+    return new HashSet<Reaction>(reactions);
+  }
+
+  /**
+   * @param reactionName
+   * @return the normalized reaction name that is used as key.
+   */
+  private static String getReactionKey(String reactionName) {
+    return KeggIdTokenizer.normalize(reactionName);
+  }
+
+  /**
+   * @return the indexed pathway.
+   */
+  public Pathway getPathway() {
+    return pathway;
+  }
+
+  /**
+   * @return the largest entry id + 1. All entry ids are smaller
+   * than this number.
+   */
+  public int getIdBound() {
+    return entriesById.length;
+  }
+
+  /**
+   * @param id
+   * @return the {@link Entry} with the given id, or <code>null</code>.
+   * @see Pathway#getEntryForId(int)
+   */
+  public Entry getEntryForId(int id) {
+    if (id < 0 || id >= entriesById.length) {
+      return null;
+    }
+    return entriesById[id];
+  }
+
+  /**
+   * @param rc
+   * @return the {@link Entry} for the given {@link ReactionComponent},
+   * or <code>null</code>.
+   * @see Pathway#getEntryForReactionComponent(ReactionComponent)
+   */
+  public Entry getEntryForReactionComponent(ReactionComponent rc) {
+    if (rc == null) {
+      return null;
+    }
+    if (rc.isSetCorrespondingEntry()) {
+      return rc.getCorrespondingEntry();
+    }
+    if (rc.isSetID()) {
+      Entry e = getEntryForId(rc.getId().intValue());
+      if (e != null) {
+        return e;
+      }
+    }
+
+    // Resolve by name (only once per component)
+    if (componentEntries.containsKey(rc)) {
+      return componentEntries.get(rc);
+    }
+    Entry e = pathway.getEntryForReactionComponent(rc);
+    componentEntries.put(rc, e);
+    return e;
+  }
+
+  /**
+   * @param e
+   * @return all reactions, in which the given entry is a substrate or
+   * product (never <code>null</code>, unmodifiable).
+   * @see Pathway#getReactionsForEntry(Entry)
+   */
+  public Set<Reaction> getReactionsForEntry(Entry e) {
+    Set<Reaction> reactions = (e.getId() >= 0) ? reactionsByEntryId.get(e.getId()) : null;
+    if (reactions == null) {
+      // Not indexed (e.g., entries without id)
+      reactions = Collections.unmodifiableSet(createReactionSet(e));
+    }
+    return reactions;
+  }
+
+  /**
+   * @param reactionName name of the reaction, e.g., "rn:R00710".
+   * @return all entries that catalyze the given reaction (never
+   * <code>null</code>, unmodifiable).
+   */
+  public List<Entry> getModifiersForReaction(String reactionName) {
+    List<Entry> list = (reactionName == null) ? null : modifiersByReaction.get(getReactionKey(reactionName));
+    if (list == null) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(list);
+  }
+
+  /**
+   * @param r
+   * @return all entries that catalyze the given reaction.
+   * @see #getModifiersForReaction(String)
+   */
+  public List<Entry> getModifiersForReaction(Reaction r) {
+    return getModifiersForReaction(r.getName());
+  }
+
+  /**
+   * @param name
+   * @return <code>true</code> if more than one entry in the pathway
+   * has the given name.
+   */
+  public boolean isDuplicateName(String name) {
+    List<Entry> list = entriesByName.get(name);
+    return (list != null) && (list.size() > 1);
+  }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.kegg.io;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import de.zbit.kegg.parser.pathway.Pathway;
+
+/**
+ * Topology-dependent results that are shared by all pathways of the
+ * same reference map (e.g., "00010") in a batch run. When the same map
+ * is translated for hundreds of organisms, the KGML topology and
+ * graphics are nearly identical and only the genes differ. Translators
+ * store results that depend only on the topology and geometry here (see,
+ * e.g., {@link #getGroupLayout(String)}) and apply them to further
+ * organisms, instead of computing them again.
+ * <p>Results are stored together with a signature of all their inputs,
+ * such that organism-specific differences (e.g., missing genes or
+ * longer labels) simply lead to a new computation.
+ * <p>Templates are only available while enabled by
+ * {@link BatchKEGGtranslator} (see {@link #setEnabled(boolean)}).
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class PathwayTemplate {
+
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final transient Logger log = Logger.getLogger(PathwayTemplate.class.getName());
+
+  /**
+   * Maximum number of reference maps, for which templates are kept.
+   */
+  private static final int MAX_TEMPLATES = 100;
+
+  /**
+   * Maximum number of group layouts per template.
+   */
+  private static final int MAX_GROUP_LAYOUTS = 5000;
+
+  /**
+   * Templates by reference map number, least recently used first.
+   */
+  private static final Map<String, PathwayTemplate> templates = new LinkedHashMap<String, PathwayTemplate>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, PathwayTemplate> eldest) {
+      return size() > MAX_TEMPLATES;
+    }
+  };
+
+  /**
+   * If {@code false}, {@link #get(Pathway)} returns {@code null}.
+   */
+  private static volatile boolean enabled = false;
+
+  /**
+   * Number of the reference map (e.g., "00010").
+   */
+  private final String referenceMap;
+
+  /**
+   * Node coordinates after a group node layout, by signature of the
+   * group node (see {@link #getGroupLayout(String)}).
+   */
+  private final Map<String, double[]> groupLayouts = new HashMap<String, double[]>();
+
+  /**
+   * Number of pathways that used this template.
+   */
+  private int pathways = 0;
+
+  /**
+   * Number of results that have been reused from this template.
+   */
+  private int reused = 0;
+
+  /**
+   * @param referenceMap
+   */
+  private PathwayTemplate(String referenceMap) {
+    super();
+    this.referenceMap = referenceMap;
+  }
+
+  /**
+   * Enables or disables the sharing of templates. Disabling also
+   * releases all templates.
+   * @param enable
+   */
+  public static void setEnabled(boolean enable) {
+    enabled = enable;
+    if (!enable) {
+      clear();
+    }
+  }
+
+  /**
+   * @return {@code true} if templates are shared.
+   * @see #setEnabled(boolean)
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Releases all templates.
+   */
+  public static void clear() {
+    synchronized (templates) {
+      for (PathwayTemplate template : templates.values()) {
+        log.fine(template.toString());
+      }
+      templates.clear();
+    }
+  }
+
+  /**
+   * Returns the template for the reference map of the given pathway.
+   * @param p
+   * @return the template or {@code null}, if templates are disabled or
+   * the reference map of the pathway is unknown.
+   */
+  public static PathwayTemplate get(Pathway p) {
+    if (!enabled || (p == null)) {
+      return null;
+    }
+    String map = getReferenceMap(p);
+    if (map == null) {
+      return null;
+    }
+    synchronized (templates) {
+      PathwayTemplate template = templates.get(map);
+      if (template == null) {
+        template = new PathwayTemplate(map);
+        templates.put(map, template);
+      }
+      template.pathways++;
+      return template;
+    }
+  }
+
+  /**
+   * @param p
+   * @return the number of the reference map of the given pathway (e.g.,
+   * "00010" for "path:hsa00010" and "path:ko00010"), or {@code null}.
+   */
+  public static String getReferenceMap(Pathway p) {
+    if (!p.isSetNumber()) {
+      return null;
+    }
+    String number = p.getNumberReal();
+    return ((number == null) || (number.length() < 1)) ? null : number;
+  }
+
+  /**
+   * @return the number of the reference map (e.g., "00010").
+   */
+  public String getReferenceMap() {
+    return referenceMap;
+  }
+
+  /**
+   * Returns the coordinates of all nodes in a group node after its
+   * layout, if a group with the same signature has already been laid
+   * out in this or another pathway of the same map. The signature must
+   * contain everything the layout depends on (e.g., the positions and
+   * sizes of all nodes in the group).
+   * @param signature
+   * @return x- and y-coordinates of all nodes in the group, or
+   * {@code null}.
+   */
+  public synchronized double[] getGroupLayout(String signature) {
+    double[] coordinates = groupLayouts.get(signature);
+    if (coordinates != null) {
+      reused++;
+    }
+    return coordinates;
+  }
+
+  /**
+   * Remembers the coordinates of all nodes in a group node after its
+   * layout.
+   * @param signature
+   * @param coordinates
+   * @see #getGroupLayout(String)
+   */
+  public synchronized void putGroupLayout(String signature, double[] coordinates) {
+    if (groupLayouts.size() >= MAX_GROUP_LAYOUTS) {
+      groupLayouts.clear();
+    }
+    groupLayouts.put(signature, coordinates);
+  }
+
+  /* (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public synchronized String toString() {
+    return String.format("Template for map %s: %d pathways, %d group layouts, %d reused.",
+      referenceMap, pathways, groupLayouts.size(), reused);
+  }
+
+}
@@ -0,0 +1,530 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.kegg.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.zbit.cache.InfoManagement;
+import de.zbit.kegg.api.KeggAdaptor;
+import de.zbit.kegg.api.cache.KeggInfoManagement;
+
+/**
+ * A {@link KeggAdaptor} with a retry policy and a negative cache for
+ * the KEGG REST API. In contrast to the default adaptor, it
+ * distinguishes between identifiers that are not found by KEGG and
+ * transport errors (e.g., timeouts or HTTP 5xx):
+ * <ul>
+ * <li>"Not found" is answered with an empty result, such that the
+ * {@link KeggInfoManagement} marks the identifier as unretrievable. It
+ * is remembered for {@link #setNotFoundTTL(long)} and answered without
+ * network request during this time, also after a restart (see
+ * {@link #load(File)}). Afterwards, KEGG is asked again.</li>
+ * <li>Transport errors are retried with exponential backoff. If all
+ * retries fail, an {@link IOException} is thrown, which the
+ * {@link KeggInfoManagement} never caches permanently. Further requests
+ * for the same query fail fast for a few minutes, instead of running
+ * into the same timeouts again.</li>
+ * </ul>
+ * The number of requests in flight is limited for all instances (see
+ * {@link #setMaxParallelRequests(int)}).
+ * <p>Serializing a {@link KeggInfoManagement} drops its adaptor, thus
+ * managers must be saved with
+ * {@link #saveManager(KeggInfoManagement, String, File)}.
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class RetryingKeggAdaptor extends KeggAdaptor {
+
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final transient Logger log = Logger.getLogger(RetryingKeggAdaptor.class.getName());
+
+  /**
+   * Default number of requests in flight.
+   */
+  public static final int DEFAULT_MAX_PARALLEL_REQUESTS = 4;
+
+  /**
+   * Default number of retries after a transport error.
+   */
+  public static final int DEFAULT_MAX_RETRIES = 3;
+
+  /**
+   * One day in milliseconds.
+   */
+  public static final long ONE_DAY = 24L * 60L * 60L * 1000L;
+
+  /**
+   * Time in milliseconds, for which a failed query fails fast without
+   * network request.
+   */
+  private static final long TRANSPORT_FAILURE_TTL = 5L * 60L * 1000L;
+
+  /**
+   * Delay in milliseconds before the first retry. Doubled for every
+   * further retry.
+   */
+  private static final long INITIAL_BACKOFF = 500L;
+
+  /**
+   * Maximum delay in milliseconds between two retries.
+   */
+  private static final long MAX_BACKOFF = 30000L;
+
+  /**
+   * Connect and read timeout for a single request in milliseconds.
+   */
+  private static final int TIMEOUT = 60000;
+
+  /**
+   * Limits the number of requests in flight (for all instances).
+   */
+  private static volatile Semaphore inFlight = new Semaphore(DEFAULT_MAX_PARALLEL_REQUESTS, true);
+
+  /**
+   * Number of permits of {@link #inFlight}.
+   */
+  private static volatile int maxParallelRequests = DEFAULT_MAX_PARALLEL_REQUESTS;
+
+  /**
+   * Queries that KEGG did not find, with the time in milliseconds,
+   * until which this is remembered.
+   */
+  private final ConcurrentMap<String, Long> notFound = new ConcurrentHashMap<String, Long>();
+
+  /**
+   * Queries that failed with transport errors, with the time in
+   * milliseconds, until which they fail fast.
+   */
+  private final ConcurrentMap<String, Long> transportFailures = new ConcurrentHashMap<String, Long>();
+
+  /**
+   * Time in milliseconds, for which "not found" is remembered.
+   */
+  private volatile long notFoundTTL = 30L * ONE_DAY;
+
+  /**
+   * Number of retries after a transport error.
+   */
+  private volatile int maxRetries = DEFAULT_MAX_RETRIES;
+
+  /**
+   * {@code true} if {@link #notFound} has been changed since loading.
+   */
+  private volatile boolean changed = false;
+
+  /**
+   * Creates an adaptor with default settings.
+   */
+  public RetryingKeggAdaptor() {
+    super();
+  }
+
+  /**
+   * Sets the maximum number of requests in flight for all instances.
+   * @param max
+   */
+  public static synchronized void setMaxParallelRequests(int max) {
+    max = Math.max(1, max);
+    if (max != maxParallelRequests) {
+      maxParallelRequests = max;
+      inFlight = new Semaphore(max, true);
+    }
+  }
+
+  /**
+   * @return the maximum number of requests in flight.
+   */
+  public static int getMaxParallelRequests() {
+    return maxParallelRequests;
+  }
+
+  /**
+   * @param ttl time in milliseconds, for which identifiers that are not
+   * found by KEGG are not requested again. Values &lt;= 0 remember them
+   * forever.
+   */
+  public void setNotFoundTTL(long ttl) {
+    notFoundTTL = (ttl <= 0) ? Long.MAX_VALUE : ttl;
+  }
+
+  /**
+   * @return time in milliseconds, for which "not found" is remembered.
+   */
+  public long getNotFoundTTL() {
+    return notFoundTTL;
+  }
+
+  /**
+   * @param retries number of retries after a transport error.
+   */
+  public void setMaxRetries(int retries) {
+    maxRetries = Math.max(0, retries);
+  }
+
+  /**
+   * @return number of retries after a transport error.
+   */
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  /**
+   * Forgets all queries that have not been found or failed.
+   */
+  public void clearNegativeCache() {
+    changed |= !notFound.isEmpty();
+    notFound.clear();
+    transportFailures.clear();
+  }
+
+  /**
+   * @return the number of queries that are currently remembered as
+   * not found.
+   */
+  public int getNumberOfNotFound() {
+    return notFound.size();
+  }
+
+  /**
+   * @return {@code true} if queries that are not found have been
+   * changed since {@link #load(File)}.
+   */
+  public boolean hasChanged() {
+    return changed;
+  }
+
+  /* (non-Javadoc)
+   * @see de.zbit.kegg.api.KeggAdaptor#get(java.lang.String, java.lang.String[])
+   */
+  @Override
+  public String get(String operation, String... arguments) throws IOException {
+    StringBuilder query = new StringBuilder(KEGG_API_REST_PREFIX);
+    query.append(operation);
+    if (arguments != null) {
+      for (String argument : arguments) {
+        query.append('/');
+        query.append(argument);
+      }
+    }
+    String url = query.toString();
+
+    long now = System.currentTimeMillis();
+    if (isRemembered(notFound, url, now)) {
+      log.finer("Skipping query, which has not been found recently: " + url);
+      return "";
+    }
+    if (isRemembered(transportFailures, url, now)) {
+      throw new IOException("Skipping query, which failed recently: " + url);
+    }
+
+    IOException lastError = null;
+    for (int attempt = 0; attempt <= maxRetries; attempt++) {
+      if (attempt > 0) {
+        sleep(getBackoff(attempt));
+      }
+      Semaphore permits = inFlight;
+      try {
+        permits.acquire();
+      } catch (InterruptedException exc) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(url);
+      }
+      int responseCode;
+      String content = null;
+      try {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        responseCode = connection.getResponseCode();
+        if (responseCode == HttpURLConnection.HTTP_OK) {
+          content = read(connection.getInputStream());
+        } else {
+          connection.disconnect();
+        }
+      } catch (IOException exc) {
+        lastError = exc;
+        log.fine(String.format("Attempt %d of %d failed for %s: %s", attempt + 1, maxRetries + 1, url, exc.getMessage()));
+        continue;
+      } finally {
+        permits.release();
+      }
+
+      if ((responseCode == HttpURLConnection.HTTP_NOT_FOUND) || (responseCode == HttpURLConnection.HTTP_BAD_REQUEST)
+          || ((content != null) && (content.trim().length() < 1))) {
+        // The KEGG REST API answers unknown identifiers with 404 (or 400).
+        notFound.put(url, now + Math.min(notFoundTTL, Long.MAX_VALUE - now));
+        changed = true;
+        return "";
+      } else if (content != null) {
+        return content;
+      }
+      // E.g., 403 for too many requests or 5xx
+      lastError = new IOException(String.format("HTTP error %d for %s", responseCode, url));
+      log.fine(String.format("Attempt %d of %d failed: %s", attempt + 1, maxRetries + 1, lastError.getMessage()));
+    }
+
+    transportFailures.put(url, System.currentTimeMillis() + TRANSPORT_FAILURE_TTL);
+    log.warning(String.format("Giving up after %d attempts: %s", maxRetries + 1, lastError.getMessage()));
+    throw lastError;
+  }
+
+  /**
+   * Moves the identifiers that the manager has marked as unretrievable
+   * to the queries that have not been found, such that they are
+   * requested again after {@link #getNotFoundTTL()}. Identifiers that
+   * are already remembered keep their expiry time. The fail cache of
+   * the manager never expires and is not accessible, thus it is read by
+   * reflection. If this fails, the fail cache is left untouched.
+   * @param manager
+   * @return the number of moved identifiers, or -1 if the fail cache of
+   * the manager could not be read.
+   */
+  public int moveFailCache(KeggInfoManagement manager) {
+    Set<?> failed;
+    try {
+      Field field = InfoManagement.class.getDeclaredField("unsuccessfulQueries");
+      field.setAccessible(true);
+      failed = (Set<?>) field.get(manager);
+    } catch (Exception exc) {
+      log.log(Level.FINE, "Could not read the fail cache of the KEGG manager.", exc);
+      return -1;
+    }
+    int moved = 0;
+    synchronized (manager) {
+      if (failed != null) {
+        long now = System.currentTimeMillis();
+        Long until = Long.valueOf(now + Math.min(notFoundTTL, Long.MAX_VALUE - now));
+        synchronized (failed) {
+          for (Object id : failed) {
+            if (notFound.putIfAbsent(getUrl(id.toString()), until) == null) {
+              moved++;
+            }
+          }
+        }
+      }
+      manager.clearFailCache();
+    }
+    changed |= (moved > 0);
+    return moved;
+  }
+
+  /**
+   * @param keggId
+   * @return the url, which {@link KeggAdaptor#getWithReturnInformation(String)}
+   * requests for the given identifier.
+   */
+  private static String getUrl(String keggId) {
+    return KEGG_API_REST_PREFIX + "get/" + keggId.replace(' ', '+').toLowerCase();
+  }
+
+  /**
+   * Saves the manager to the given cache file and, if it uses a
+   * {@link RetryingKeggAdaptor}, the queries that have not been found
+   * to the given file. Serializing the manager drops its adaptor (see
+   * {@link KeggInfoManagement#saveToFilesystem(String, KeggInfoManagement)}),
+   * so the adaptor is installed again afterwards.
+   * @param manager
+   * @param cacheFileName file for the manager, or {@code null} to save
+   * only the queries that have not been found.
+   * @param notFoundFile
+   * @return {@code true} if successful.
+   */
+  public static boolean saveManager(KeggInfoManagement manager, String cacheFileName, File notFoundFile) {
+    synchronized (manager) {
+      KeggAdaptor adaptor = manager.getKeggAdaptor();
+      boolean saved = true;
+      if ((adaptor instanceof RetryingKeggAdaptor) && ((RetryingKeggAdaptor) adaptor).hasChanged()) {
+        saved = ((RetryingKeggAdaptor) adaptor).save(notFoundFile);
+      }
+      if (cacheFileName != null) {
+        try {
+          saved &= KeggInfoManagement.saveToFilesystem(cacheFileName, manager);
+        } finally {
+          manager.setKeggAdaptor(adaptor);
+        }
+      }
+      return saved;
+    }
+  }
+
+  /**
+   * @param map
+   * @param url
+   * @param now
+   * @return {@code true} if the url is in the map and not yet expired.
+   * Expired urls are removed.
+   */
+  private boolean isRemembered(Map<String, Long> map, String url, long now) {
+    Long until = map.get(url);
+    if (until == null) {
+      return false;
+    } else if (until.longValue() > now) {
+      return true;
+    }
+    map.remove(url);
+    if (map == notFound) {
+      changed = true;
+    }
+    return false;
+  }
+
+  /**
+   * @param attempt number of the retry, starting with 1.
+   * @return the delay in milliseconds before the given retry, with a
+   * random jitter, such that parallel requests do not retry at the same
+   * time.
+   */
+  private static long getBackoff(int attempt) {
+    long delay = Math.min(MAX_BACKOFF, INITIAL_BACKOFF << Math.min(attempt - 1, 16));
+    return delay + (long) (Math.random() * delay / 2d);
+  }
+
+  /**
+   * @param millis
+   * @throws InterruptedIOException if the thread is interrupted.
+   */
+  private static void sleep(long millis) throws InterruptedIOException {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+  }
+
+  /**
+   * @param in will be closed.
+   * @return the content of the stream as UTF-8 string.
+   * @throws IOException
+   */
+  private static String read(InputStream in) throws IOException {
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) >= 0) {
+        out.write(buffer, 0, read);
+      }
+      return out.toString("UTF-8");
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Loads the queries that have not been found from the given file,
+   * written by {@link #save(File)}. Expired queries are dropped.
+   * @param file
+   * @return {@code true} if the file has been loaded or does not exist.
+   */
+  @SuppressWarnings("unchecked")
+  public boolean load(File file) {
+    if (!file.exists()) {
+      return true;
+    } else if (!file.canRead()) {
+      return false;
+    }
+    ObjectInputStream in = null;
+    try {
+      in = new ObjectInputStream(new FileInputStream(file));
+      Map<String, Long> loaded = (Map<String, Long>) in.readObject();
+      long now = System.currentTimeMillis();
+      for (Map.Entry<String, Long> entry : loaded.entrySet()) {
+        if (entry.getValue().longValue() > now) {
+          notFound.put(entry.getKey(), entry.getValue());
+        }
+      }
+      changed = (notFound.size() != loaded.size());
+      log.fine(String.format("Loaded %d queries that have not been found from %s.", notFound.size(), file));
+      return true;
+    } catch (Exception exc) {
+      log.log(Level.WARNING, "Could not load " + file, exc);
+      return false;
+    } finally {
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException exc) {
+          log.log(Level.FINEST, exc.getMessage(), exc);
+        }
+      }
+    }
+  }
+
+  /**
+   * Saves all queries that have not been found and are not yet expired
+   * to the given file.
+   * @param file
+   * @return {@code true} if successful.
+   */
+  public boolean save(File file) {
+    Map<String, Long> toSave = new HashMap<String, Long>(notFound);
+    long now = System.currentTimeMillis();
+    Iterator<Long> it = toSave.values().iterator();
+    while (it.hasNext()) {
+      if (it.next().longValue() <= now) {
+        it.remove();
+      }
+    }
+    ObjectOutputStream out = null;
+    try {
+      out = new ObjectOutputStream(new FileOutputStream(file));
+      out.writeObject(toSave);
+      changed = false;
+      return true;
+    } catch (IOException exc) {
+      log.log(Level.WARNING, "Could not save " + file, exc);
+      return false;
+    } finally {
+      if (out != null) {
+        try {
+          out.close();
+        } catch (IOException exc) {
+          log.log(Level.FINEST, exc.getMessage(), exc);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.util;
+
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.zbit.kegg.api.KeggInfos;
+import de.zbit.kegg.parser.pathway.EntryType;
+import de.zbit.sbml.util.AnnotationUtils;
+
+/**
+ * A pool for identifiers, names and MIRIAM URIs that occur in many
+ * pathways of a batch run (e.g., "urn:miriam:kegg.compound:C00118" and
+ * its URI in every organism). Identical strings share one instance, and
+ * the conversion of KEGG ids to MIRIAM URNs and URIs is done once per
+ * id. The pool is thread-safe, bounded (it is cleared when it grows
+ * too large) and should be cleared after a batch run
+ * (see {@link #clear()}).
+ * <p>In contrast to {@link String#intern()}, the pooled strings can be
+ * garbage collected after {@link #clear()}.
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public final class IdentifierPool {
+
+  /**
+   * Maximum number of pooled strings (and memoized URIs, respectively).
+   */
+  private static final int MAX_SIZE = 200000;
+
+  /**
+   * Marks URNs or KEGG ids, for which no URI is available.
+   */
+  private static final String NO_URI = new String("");
+
+  /**
+   * All pooled strings.
+   */
+  private static final ConcurrentMap<String, String> strings = new ConcurrentHashMap<String, String>();
+
+  /**
+   * Memoized URIs, by URN.
+   */
+  private static final ConcurrentMap<String, String> urisByURN = new ConcurrentHashMap<String, String>();
+
+  /**
+   * Memoized MIRIAM URIs, by KEGG id (and entry type).
+   */
+  private static final ConcurrentMap<String, String> urisByKeggId = new ConcurrentHashMap<String, String>();
+
+  /**
+   * Utility class.
+   */
+  private IdentifierPool() {
+    super();
+  }
+
+  /**
+   * @param s may be {@code null}.
+   * @return the pooled instance of the given string.
+   */
+  public static String intern(String s) {
+    if (s == null) {
+      return null;
+    }
+    String pooled = strings.get(s);
+    if (pooled == null) {
+      if (strings.size() >= MAX_SIZE) {
+        strings.clear();
+      }
+      pooled = strings.putIfAbsent(s, s);
+      if (pooled == null) {
+        pooled = s;
+      }
+    }
+    return pooled;
+  }
+
+  /**
+   * Replaces all strings in the given list by their pooled instances,
+   * e.g., the resources of a {@code CVTerm}.
+   * @param list a modifiable list; may be {@code null}.
+   */
+  public static void internAll(List<String> list) {
+    if (list == null) {
+      return;
+    }
+    ListIterator<String> it = list.listIterator();
+    while (it.hasNext()) {
+      String s = it.next();
+      String pooled = intern(s);
+      if (pooled != s) {
+        it.set(pooled);
+      }
+    }
+  }
+
+  /**
+   * Memoized and pooled version of {@link AnnotationUtils#convertURN2URI(String)}.
+   * @param urn may be {@code null}.
+   * @return the identifiers.org URI for the given MIRIAM URN.
+   */
+  public static String convertURN2URI(String urn) {
+    if (urn == null) {
+      return null;
+    }
+    String uri = urisByURN.get(urn);
+    if (uri == null) {
+      uri = AnnotationUtils.convertURN2URI(urn);
+      uri = (uri == null) ? NO_URI : intern(uri);
+      if (urisByURN.size() >= MAX_SIZE) {
+        urisByURN.clear();
+      }
+      urisByURN.putIfAbsent(urn, uri);
+    }
+    return (uri == NO_URI) ? null : uri;
+  }
+
+  /**
+   * @param keggId e.g., "cpd:C00118".
+   * @return the MIRIAM URI for the given KEGG id or {@code null}.
+   * @see KeggInfos#getMiriamURNforKeggID(String)
+   */
+  public static String getMiriamURI(String keggId) {
+    return getMiriamURI(keggId, null);
+  }
+
+  /**
+   * @param keggId e.g., "cpd:C00118".
+   * @param type type of the entry, may be {@code null}.
+   * @return the MIRIAM URI for the given KEGG id or {@code null}.
+   * @see KeggInfos#getMiriamURNforKeggID(String, EntryType)
+   */
+  public static String getMiriamURI(String keggId, EntryType type) {
+    if (keggId == null) {
+      return null;
+    }
+    String key = (type == null) ? keggId : type.ordinal() + "|" + keggId;
+    String uri = urisByKeggId.get(key);
+    if (uri == null) {
+      String urn = (type == null) ? KeggInfos.getMiriamURNforKeggID(keggId) : KeggInfos.getMiriamURNforKeggID(keggId, type);
+      uri = convertURN2URI(urn);
+      if (uri == null) {
+        uri = NO_URI;
+      }
+      if (urisByKeggId.size() >= MAX_SIZE) {
+        urisByKeggId.clear();
+      }
+      urisByKeggId.putIfAbsent(key, uri);
+    }
+    return (uri == NO_URI) ? null : uri;
+  }
+
+  /**
+   * Releases all pooled strings and memoized URIs, e.g., after a
+   * batch run.
+   */
+  public static void clear() {
+    strings.clear();
+    urisByURN.clear();
+    urisByKeggId.clear();
+  }
+
+  /**
+   * @return the number of pooled strings.
+   */
+  public static int size() {
+    return strings.size();
+  }
+
+}
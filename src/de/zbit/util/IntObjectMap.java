@@ -0,0 +1,220 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.util;
+
+import java.util.Arrays;
+
+/**
+ * A simple map from primitive {@code int} keys to objects, using open
+ * addressing with linear probing. In contrast to a
+ * {@link java.util.HashMap}{@code <Integer, V>}, no key objects are
+ * created on lookups or insertions. {@code null} values are not stored,
+ * i.e., putting {@code null} removes the key.
+ *
+ * @version $Rev$
+ * @since 2.6
+ * @param <V> type of the values
+ */
+public class IntObjectMap<V> {
+
+  /**
+   * Keys of all slots. Only valid, if the corresponding {@link #values}
+   * entry is not {@code null}.
+   */
+  private int[] keys;
+
+  /**
+   * Values of all slots. {@code null} marks a free slot.
+   */
+  private Object[] values;
+
+  /**
+   * Number of stored mappings.
+   */
+  private int size;
+
+  /**
+   * Creates a new, empty map.
+   */
+  public IntObjectMap() {
+    this(16);
+  }
+
+  /**
+   * Creates a new, empty map that can hold the given number of
+   * mappings without resizing.
+   *
+   * @param expectedSize
+   */
+  public IntObjectMap(int expectedSize) {
+    super();
+    int capacity = 4;
+    while (capacity * 3 < expectedSize * 4) {
+      capacity <<= 1;
+    }
+    keys = new int[capacity];
+    values = new Object[capacity];
+    size = 0;
+  }
+
+  /**
+   * @param key
+   * @return the slot of the given key, or the free slot, where the key
+   * should be inserted.
+   */
+  private int indexOf(int key) {
+    int mask = values.length - 1;
+    int i = mix(key) & mask;
+    while (values[i] != null && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  /**
+   * Spreads the bits of consecutive keys (as typical for entry ids).
+   *
+   * @param key
+   * @return
+   */
+  private static int mix(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @param key
+   * @return the value, associated with the given key, or {@code null}.
+   */
+  @SuppressWarnings("unchecked")
+  public V get(int key) {
+    return (V) values[indexOf(key)];
+  }
+
+  /**
+   * @param key
+   * @return {@code true} if a value is associated with the given key.
+   */
+  public boolean containsKey(int key) {
+    return values[indexOf(key)] != null;
+  }
+
+  /**
+   * Associates the given value with the given key.
+   *
+   * @param key
+   * @param value if {@code null}, the key is removed.
+   * @return the previously associated value or {@code null}.
+   */
+  @SuppressWarnings("unchecked")
+  public V put(int key, V value) {
+    if (value == null) {
+      return remove(key);
+    }
+    int i = indexOf(key);
+    Object old = values[i];
+    keys[i] = key;
+    values[i] = value;
+    if (old == null) {
+      size++;
+      if (size * 4 > values.length * 3) {
+        rehash(values.length << 1);
+      }
+    }
+    return (V) old;
+  }
+
+  /**
+   * Removes the mapping of the given key.
+   *
+   * @param key
+   * @return the previously associated value or {@code null}.
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(int key) {
+    int i = indexOf(key);
+    Object old = values[i];
+    if (old == null) {
+      return null;
+    }
+    values[i] = null;
+    size--;
+
+    // Shift following entries of the same probe sequence back
+    int mask = values.length - 1;
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      if (values[j] == null) {
+        break;
+      }
+      int home = mix(keys[j]) & mask;
+      // Move j to i, if i lies cyclically between home and j.
+      if ((j > i) ? (home <= i || home > j) : (home <= i && home > j)) {
+        keys[i] = keys[j];
+        values[i] = values[j];
+        values[j] = null;
+        i = j;
+      }
+    }
+    return (V) old;
+  }
+
+  /**
+   * @return the number of stored mappings.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return {@code true} if no mappings are stored.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes all mappings.
+   */
+  public void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  /**
+   * @param capacity new capacity, must be a power of two.
+   */
+  private void rehash(int capacity) {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new int[capacity];
+    values = new Object[capacity];
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != null) {
+        int j = indexOf(oldKeys[i]);
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+}
@@ -0,0 +1,311 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of KEGGtranslator, a program to convert KGML files
+ * from the KEGG database into various other formats, e.g., SBML, GML,
+ * GraphML, and many more. Please visit the project homepage at
+ * <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ *
+ * Copyright (C) 2011-2015 by the University of Tuebingen, Germany.
+ *
+ * KEGGtranslator is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation. A copy of the license
+ * agreement is provided in the file named "LICENSE.txt" included with
+ * this software distribution and also available online as
+ * <http://www.gnu.org/licenses/lgpl-3.0-standalone.html>.
+ * ---------------------------------------------------------------------
+ */
+package de.zbit.util;
+
+/**
+ * Splits and compares KEGG identifiers and the lists returned by the
+ * KEGG API (e.g., space-separated entry names, reaction ids or
+ * "; "-separated synonyms) without regular expressions.
+ * {@link String#split(String)} compiles a {@link java.util.regex.Pattern}
+ * for every call with a pattern like {@code "\\s"} and collects the
+ * tokens in a list, and {@code toLowerCase().trim()} creates up to two
+ * new strings for every comparison. The methods in this class scan the
+ * string once, create arrays of the exact size and compare in place.
+ * <p>Unlike {@link String#split(String)}, empty tokens are always
+ * omitted.
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public final class KeggIdTokenizer {
+
+  /**
+   * Prefix of KEGG compound identifiers.
+   */
+  public static final String COMPOUND = "cpd:";
+
+  /**
+   * Prefix of KEGG glycan identifiers.
+   */
+  public static final String GLYCAN = "gl:";
+
+  /**
+   * Prefix of KEGG pathway identifiers.
+   */
+  public static final String PATHWAY = "path:";
+
+  /**
+   * Prefix of KEGG BRITE identifiers.
+   */
+  public static final String BRITE = "br:";
+
+  /**
+   * Prefix of KEGG reaction identifiers.
+   */
+  public static final String REACTION = "rn:";
+
+  /**
+   * Prefix of KGML group entry names.
+   */
+  public static final String GROUP = "group:";
+
+  /**
+   * Prefix of the KGML title entry name.
+   */
+  public static final String TITLE = "title:";
+
+  /**
+   * All characters in the {@code \s} class of regular expressions.
+   */
+  public static final String WHITESPACE = " \t\n\u000B\f\r";
+
+  /**
+   * An empty result.
+   */
+  private static final String[] EMPTY = new String[0];
+
+  /**
+   * Utility class.
+   */
+  private KeggIdTokenizer() {
+    super();
+  }
+
+  /**
+   * Splits the given string at the given separator, e.g., an entry name
+   * at ' ' (replaces {@code s.split(" ")}).
+   * @param s may be {@code null}.
+   * @param separator
+   * @return all non-empty tokens (never {@code null}).
+   */
+  public static String[] split(String s, char separator) {
+    return split(s, String.valueOf(separator));
+  }
+
+  /**
+   * Splits the given string at all whitespace characters (replaces
+   * {@code s.split("\\s")}).
+   * @param s may be {@code null}.
+   * @return all non-empty tokens (never {@code null}).
+   */
+  public static String[] splitAtWhitespace(String s) {
+    return split(s, WHITESPACE);
+  }
+
+  /**
+   * Splits the given string at any of the given separator characters
+   * (e.g., {@code "," + WHITESPACE} replaces {@code s.split(",|\\s")}).
+   * @param s may be {@code null}.
+   * @param separators all separator characters.
+   * @return all non-empty tokens (never {@code null}).
+   */
+  public static String[] split(String s, String separators) {
+    if ((s == null) || (s.length() < 1)) {
+      return EMPTY;
+    }
+    int count = 0;
+    boolean inToken = false;
+    int length = s.length();
+    for (int i = 0; i < length; i++) {
+      boolean separator = separators.indexOf(s.charAt(i)) >= 0;
+      if (!separator && !inToken) {
+        count++;
+      }
+      inToken = !separator;
+    }
+    if (count == 0) {
+      return EMPTY;
+    }
+
+    String[] tokens = new String[count];
+    int start = -1;
+    int k = 0;
+    for (int i = 0; i <= length; i++) {
+      boolean separator = (i == length) || (separators.indexOf(s.charAt(i)) >= 0);
+      if (separator) {
+        if (start >= 0) {
+          tokens[k++] = ((start == 0) && (i == length)) ? s : s.substring(start, i);
+          start = -1;
+        }
+      } else if (start < 0) {
+        start = i;
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * Splits a list of names from the KEGG API at ";" and at "," followed
+   * by whitespace (replaces {@code s.split("((;)|(,\\s))")}). The tokens
+   * are not trimmed, but tokens that contain only whitespace are
+   * omitted.
+   * @param s may be {@code null}.
+   * @return all non-blank names (never {@code null}).
+   */
+  public static String[] splitNames(String s) {
+    if ((s == null) || (s.length() < 1)) {
+      return EMPTY;
+    }
+    int length = s.length();
+    int count = 0;
+    int start = 0;
+    for (int i = 0; i <= length; i++) {
+      int skip = separatorLength(s, i);
+      if (skip > 0) {
+        if (!isBlank(s, start, i)) {
+          count++;
+        }
+        start = i + skip;
+        i = start - 1;
+      }
+    }
+    if (count == 0) {
+      return EMPTY;
+    }
+
+    String[] names = new String[count];
+    int k = 0;
+    start = 0;
+    for (int i = 0; i <= length; i++) {
+      int skip = separatorLength(s, i);
+      if (skip > 0) {
+        if (!isBlank(s, start, i)) {
+          names[k++] = ((start == 0) && (i == length)) ? s : s.substring(start, i);
+        }
+        start = i + skip;
+        i = start - 1;
+      }
+    }
+    return names;
+  }
+
+  /**
+   * @param s
+   * @param i
+   * @return the length of the name separator at position {@code i} in
+   * {@code s}, or 0 if there is none. The end of the string counts as
+   * separator of length 1.
+   */
+  private static int separatorLength(String s, int i) {
+    if (i >= s.length()) {
+      return 1;
+    }
+    char c = s.charAt(i);
+    if (c == ';') {
+      return 1;
+    } else if ((c == ',') && (i + 1 < s.length()) && (WHITESPACE.indexOf(s.charAt(i + 1)) >= 0)) {
+      return 2;
+    }
+    return 0;
+  }
+
+  /**
+   * @param s
+   * @param start
+   * @param end
+   * @return {@code true} if the given region of {@code s} contains only
+   * characters that would be removed by {@link String#trim()}.
+   */
+  private static boolean isBlank(String s, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (s.charAt(i) > ' ') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks if the given identifier starts with the given prefix, e.g.,
+   * {@link #PATHWAY}. Case and leading whitespace are ignored (replaces
+   * {@code id.toLowerCase().trim().startsWith(prefix)}).
+   * @param id may be {@code null}.
+   * @param prefix a lower case prefix.
+   * @return {@code true} if {@code id} starts with {@code prefix}.
+   */
+  public static boolean hasPrefix(String id, String prefix) {
+    if (id == null) {
+      return false;
+    }
+    int start = 0;
+    while ((start < id.length()) && (id.charAt(start) <= ' ')) {
+      start++;
+    }
+    return id.regionMatches(true, start, prefix, 0, prefix.length());
+  }
+
+  /**
+   * Compares the given identifier to {@code other}, ignoring case and
+   * leading or trailing whitespace (replaces
+   * {@code id.trim().equalsIgnoreCase(other)}).
+   * @param id may be {@code null}.
+   * @param other a trimmed string.
+   * @return {@code true} if both are equal.
+   */
+  public static boolean equalsTrimmedIgnoreCase(String id, String other) {
+    if (id == null) {
+      return false;
+    }
+    int start = 0;
+    int end = id.length();
+    while ((start < end) && (id.charAt(start) <= ' ')) {
+      start++;
+    }
+    while ((end > start) && (id.charAt(end - 1) <= ' ')) {
+      end--;
+    }
+    return ((end - start) == other.length()) && id.regionMatches(true, start, other, 0, other.length());
+  }
+
+  /**
+   * @param id may be {@code null}.
+   * @return {@code true} if the given name part does not refer to a
+   * KEGG object, i.e., is "undefined" (group entries) or "null".
+   */
+  public static boolean isUndefined(String id) {
+    return equalsTrimmedIgnoreCase(id, "undefined") || equalsTrimmedIgnoreCase(id, "null");
+  }
+
+  /**
+   * Normalizes the given identifier for lookups (replaces
+   * {@code id.toLowerCase().trim()}). Returns the given instance if it
+   * is already normalized, which is the common case for KEGG ids.
+   * @param id may be {@code null}.
+   * @return the normalized identifier.
+   */
+  public static String normalize(String id) {
+    if (id == null) {
+      return null;
+    }
+    int length = id.length();
+    if ((length > 0) && ((id.charAt(0) <= ' ') || (id.charAt(length - 1) <= ' '))) {
+      return id.toLowerCase().trim();
+    }
+    for (int i = 0; i < length; i++) {
+      char c = id.charAt(i);
+      if ((c >= 'A') && (c <= 'Z') || (c > 0x7F)) {
+        return id.toLowerCase().trim();
+      }
+    }
+    return id;
+  }
+
+}
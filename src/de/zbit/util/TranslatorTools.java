@@ -48,6 +48,7 @@ import y.view.NodeLabel;
 import y.view.NodeRealizer;
 import y.view.hierarchy.HierarchyManager;
 import de.zbit.graph.GraphTools;
+import de.zbit.graph.NodeTextIndex;
 import de.zbit.graph.StackingNodeLayout;
 import de.zbit.graph.gui.TranslatorPanel;
 import de.zbit.graph.io.Graph2DExporter;
@@ -72,6 +73,11 @@ import de.zbit.kegg.parser.pathway.EntryType;
 public class TranslatorTools extends GraphTools {
   public static final transient Logger log = Logger.getLogger(TranslatorTools.class.getName());
   
+  /**
+   * Separators of identifier lists in node maps (comma or space).
+   */
+  private static final String ID_SEPARATORS = "," + KeggIdTokenizer.WHITESPACE;
+  
   /**
    * Static String for the {@code type} {@link NodeMap} of the {@link #graph}
    * to be used for, e.g. microRNAs.
@@ -127,8 +133,7 @@ public class TranslatorTools extends GraphTools {
     //It is o.k. to recolor compounds here as they are generally recolored after gene nodes
     for (Node n: graph.getNodeArray()) {
       String id = getKeggIDs(n);
-      id = id==null?null:id.toLowerCase().trim();
-      if (id!=null && id.startsWith("path:")) {
+      if (KeggIdTokenizer.hasPrefix(id, KeggIdTokenizer.PATHWAY)) {
         continue;
       }
       NodeRealizer realizer = graph.getRealizer(n);
@@ -152,15 +157,13 @@ public class TranslatorTools extends GraphTools {
     // prior to a new search.
     // Also try to somehow remember old color and thickness and restore
     // bzw. set thickness to math.max([2], currentThickness).
-    containedString = containedString.toLowerCase();
     graph.unselectAll();
+    // Check actual label and "all names" (label map).
+    Set<Node> matches = new HashSet<Node>(NodeTextIndex.getIndex(graph, GraphMLmaps.NODE_LABEL).search(containedString));
     for (Node n: graph.getNodeArray()) {
       Color color = Color.BLACK;
       LineType lt = LineType.LINE_1;
-      // Check actual label and "all names" (label map).
-      String infos = getNodeInfoIDs(n, GraphMLmaps.NODE_LABEL); // may be null
-      if (graph.getLabelText(n).toLowerCase().contains(containedString) ||
-          (infos!=null && infos.toLowerCase().contains(containedString))) {
+      if (matches.contains(n)) {
         color = Color.RED;
         lt = LineType.LINE_2;
         graph.setSelected(n, true);
@@ -308,7 +311,7 @@ public class TranslatorTools extends GraphTools {
     for (Node n : graph.getNodeArray()) {
       Object entrezIds = entrez.get(n);
       if (entrezIds!=null && entrezIds.toString().length()>0) {
-        String[] ids = entrezIds.toString().split(",|\\s"); // comma or space separated.
+        String[] ids = KeggIdTokenizer.split(entrezIds.toString(), ID_SEPARATORS); // comma or space separated.
         for (String id: ids) {
           if (id==null || id.trim().length()<1) {
             continue;
@@ -372,7 +375,7 @@ public class TranslatorTools extends GraphTools {
       if (id==null) {
         continue;
       }
-      id = id.toLowerCase().trim();
+      id = KeggIdTokenizer.normalize(id);
       if (id.contains(":")) {
         String kga = id.substring(0, id.indexOf(':'));
         if (!(kga.equals("cpd") || kga.equals("map") || kga.equals("path"))) {
@@ -393,14 +396,14 @@ public class TranslatorTools extends GraphTools {
    * @return
    */
   public static Node getTitleNode(Graph2D graph, String pathwayID) {
-    pathwayID = pathwayID.toLowerCase().trim();
+    pathwayID = KeggIdTokenizer.normalize(pathwayID);
     for (Node n: graph.getNodeArray()) {
       String id = getKeggIDs(n);
       if (id==null) {
         continue;
       }
-      id = id.toLowerCase().trim();
-      if (id.startsWith("path:") && id.contains(pathwayID)) {
+      id = KeggIdTokenizer.normalize(id);
+      if (id.startsWith(KeggIdTokenizer.PATHWAY) && id.contains(pathwayID)) {
         return n;
       }
     }
@@ -421,8 +424,7 @@ public class TranslatorTools extends GraphTools {
     {
       return false; // in doubt...
     }
-    id = id.toLowerCase().trim();
-    return (id.startsWith("path:"));
+    return KeggIdTokenizer.hasPrefix(id, KeggIdTokenizer.PATHWAY);
   }
   
   /**
@@ -715,7 +717,7 @@ public class TranslatorTools extends GraphTools {
         if (label==null) {
           continue;
         }
-        String key = label.toString().toLowerCase().trim();
+        String key = KeggIdTokenizer.normalize(label.toString());
         
         // Get list, associated with node label
         List<Node> list = pw2node.get(key);
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2011-2015 Center for Bioinformatics of the University of Tuebingen.
+ * 
+ * This file is part of KEGGtranslator, a program to convert KGML files from the
+ * KEGG database into various other formats, e.g., SBML, GraphML, and many more.
+ * Please visit <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ * 
+ * KEGGtranslator is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * KEGGtranslator is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with KEGGtranslator. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package de.zbit.kegg.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.zbit.util.StringUtil;
+import de.zbit.util.Utils;
+
+/**
+ * Tests the gene family detection of {@link AbstractKEGGtranslator}
+ * against the former implementation, that split the names into arrays
+ * and a set, and against documented examples.
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class AbstractKEGGtranslatorTest {
+
+  /**
+   * Gene symbols, partially sharing prefixes with and without digits.
+   */
+  private static final String[] SYMBOLS = new String[] {"ALG13", "ALG14", "ALG1", "ALG2",
+    "MAPK1", "MAPK3", "MAPK10", "MAP2K1", "HK1", "HK2", "HK3", "GCK", "PFKL", "PFKM",
+    "PFKP", "CXorf45", "MGC19780", "ERK", "p38", "Ins(1,4,5)P3", "ABC", "ABCA1", "ABCB11"};
+
+  /**
+   * Examples with known results.
+   */
+  @Test
+  public void testExamples() {
+    assertEquals("ALG", AbstractKEGGtranslator.getFamilyOrFirstName("ALG13, CXorf45, MGC19780; ALG14, MGC19780"));
+    assertEquals("MAPK", AbstractKEGGtranslator.getFamilyOrFirstName("MAPK1, ERK; MAPK3, ERK1"));
+    assertEquals("HK1", AbstractKEGGtranslator.getFamilyOrFirstName("HK1, HKI; GCK, HK4"));
+    assertEquals("Ins(1,4,5)P3", AbstractKEGGtranslator.getFamilyOrFirstName("Ins(1,4,5)P3"));
+    assertEquals("PFKL", AbstractKEGGtranslator.getFamilyOrFirstName("PFKL, PFK-B; PFKL, PFK-L;"));
+    assertNull(AbstractKEGGtranslator.getFamilyOrFirstName(""));
+    assertNull(AbstractKEGGtranslator.getFamilyOrFirstName(";;"));
+    assertNull(AbstractKEGGtranslator.getFamilyOrFirstName(" ; "));
+  }
+
+  /**
+   * Gene lists, whose first names have no common family prefix, are
+   * named by the first name of the first gene. The former
+   * implementation used the first name in {@link java.util.HashSet}
+   * order instead.
+   */
+  @Test
+  public void testFirstGeneInDoubt() {
+    assertEquals("GCK", AbstractKEGGtranslator.getFamilyOrFirstName("GCK, HK4; HK1, HKI"));
+    assertEquals("p38", AbstractKEGGtranslator.getFamilyOrFirstName("p38; ERK; ABC"));
+    assertEquals("ERK", AbstractKEGGtranslator.getFamilyOrFirstName("ERK; p38; ABC"));
+    assertEquals("HK2", AbstractKEGGtranslator.getFamilyOrFirstName("HK2; HK1, MAPK3"));
+  }
+
+  /**
+   * Random gene lists, compared with {@link #oldFamilyOrFirstName(String)}.
+   * The former result depends on the iteration order of a
+   * {@link java.util.HashSet}, if the result of the new implementation
+   * depends on the order of the genes. Only if the latter is the same
+   * for all rotations of the genes, both results must be equal.
+   * Otherwise, the former result must be the result for one of the
+   * rotations.
+   */
+  @Test
+  public void testAgainstOldImplementation() {
+    Random random = new Random(42);
+    int orderIndependent = 0;
+    for (int n = 0; n < 20000; n++) {
+      List<String> genes = new ArrayList<String>();
+      int count = 1 + random.nextInt(5);
+      for (int g = 0; g < count; g++) {
+        StringBuilder gene = new StringBuilder();
+        if ((g > 0) && random.nextBoolean()) {
+          gene.append(' ');
+        }
+        int synonyms = 1 + random.nextInt(3);
+        for (int s = 0; s < synonyms; s++) {
+          if (s > 0) {
+            gene.append(", ");
+          }
+          gene.append(SYMBOLS[random.nextInt(SYMBOLS.length)]);
+        }
+        genes.add(gene.toString());
+      }
+      String suffix = (random.nextInt(10) == 0) ? ";" : "";
+
+      String input = join(genes) + suffix;
+      Set<String> rotated = new HashSet<String>();
+      for (int r = 0; r < genes.size(); r++) {
+        rotated.add(AbstractKEGGtranslator.getFamilyOrFirstName(join(genes) + suffix));
+        genes.add(genes.remove(0));
+      }
+      String old = oldFamilyOrFirstName(input);
+      if (rotated.size() == 1) {
+        assertEquals(input, old, AbstractKEGGtranslator.getFamilyOrFirstName(input));
+        orderIndependent++;
+      } else {
+        assertTrue(input + ": " + old + " not in " + rotated, rotated.contains(old));
+      }
+    }
+    // Make sure, that enough results are compared directly
+    assertTrue(orderIndependent > 2000);
+  }
+
+  /**
+   * @param genes
+   * @return the genes, separated by ';'.
+   */
+  private static String join(List<String> genes) {
+    StringBuilder names = new StringBuilder();
+    for (String gene : genes) {
+      if (names.length() > 0) {
+        names.append(';');
+      }
+      names.append(gene);
+    }
+    return names.toString();
+  }
+
+  /**
+   * The former gene family detection of
+   * {@link AbstractKEGGtranslator#getNameForEntry(de.zbit.kegg.parser.pathway.Entry, String)},
+   * copied verbatim.
+   * @param names
+   * @return the family name, a first name, or {@code null}.
+   */
+  private static String oldFamilyOrFirstName(String names) {
+    String[] multiNames = names.split(";"); // components are not trimmed!
+    
+    // Try to detect gene families
+    Set<String> firstNames = new HashSet<String>();
+    String veryFirst = null;
+    for (String name: multiNames) {
+      String first = firstName(name);
+      if (veryFirst==null || veryFirst.length()<1) {
+        veryFirst = first;
+      }
+      firstNames.add(first);
+    }
+    if (firstNames.size()>1) {
+      String LCP = StringUtil.getLongestCommonPrefix(firstNames.toArray(new String[0]),true);
+      // Require at least 3 chars for family identifiers
+      if (LCP!=null && LCP.length()>2) {
+        String removedPart = firstNames.iterator().next().substring(LCP.length());
+        if (Utils.isNumber(removedPart, true)) {
+          // ALG13 and ALG14 have the common prefix ALG1 => remove 1
+          while (Character.isDigit(LCP.charAt(LCP.length()-1))) {
+            LCP = LCP.substring(0, LCP.length()-1);
+            if (LCP.length()<2) {
+              break;
+            }
+          }
+          
+        }
+        
+        if (LCP.length()>2) {
+          return LCP;
+        }
+      }
+    }
+    
+    // First for single genes or in doubt.
+    if (veryFirst!=null && veryFirst.length()>0) {
+      return firstNames.iterator().next();
+    }
+    return null;
+  }
+
+  /**
+   * The former {@link AbstractKEGGtranslator#firstName(String)}, copied
+   * verbatim.
+   * @param name
+   * @return first name
+   */
+  private static String firstName(String name) {
+    // Extract very first given name.
+    name = name.trim();
+    char[] names = name.toCharArray();
+    int i=1;
+    for (; i<name.length(); i++) {
+      if (names[i]==';')
+      {
+        break; // Multiple genes in one node
+      }
+      // Multiple names for same gene, don not break, e.g. "Ins(1,4,5)P3".
+      if (names[i]==',' && (i==(name.length()-1) || names[i+1]==' ')) {
+        break;
+      }
+    }
+    if (i>1) {
+      return name.substring(0, i);
+    } else {
+      return name;
+    }
+  }
+
+}
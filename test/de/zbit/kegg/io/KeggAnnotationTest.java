@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2011-2015 Center for Bioinformatics of the University of Tuebingen.
+ * 
+ * This file is part of KEGGtranslator, a program to convert KGML files from the
+ * KEGG database into various other formats, e.g., SBML, GraphML, and many more.
+ * Please visit <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ * 
+ * KEGGtranslator is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * KEGGtranslator is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with KEGGtranslator. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package de.zbit.kegg.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.zbit.kegg.api.KeggAdaptor;
+import de.zbit.kegg.api.KeggInfos;
+import de.zbit.kegg.api.cache.KeggInfoManagement;
+
+/**
+ * Tests the lookups of {@link KeggAnnotation} with an adaptor that
+ * answers without network requests.
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class KeggAnnotationTest {
+
+  /**
+   * Maximum time in seconds to wait for the other request.
+   */
+  private static final int TIMEOUT = 10;
+
+  /**
+   * Answers every query with a minimal compound entry, after all
+   * expected requests are in flight at the same time (or after
+   * {@link #TIMEOUT}).
+   */
+  private static class BlockingAdaptor extends KeggAdaptor {
+
+    /**
+     * Counted down by every request.
+     */
+    private final CountDownLatch inFlight;
+
+    /**
+     * Number of requests.
+     */
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * @param parallelRequests number of requests to wait for.
+     */
+    public BlockingAdaptor(int parallelRequests) {
+      super();
+      inFlight = new CountDownLatch(parallelRequests);
+    }
+
+    /* (non-Javadoc)
+     * @see de.zbit.kegg.api.KeggAdaptor#getWithReturnInformation(java.lang.String)
+     */
+    @Override
+    public String getWithReturnInformation(String query) {
+      requests.incrementAndGet();
+      inFlight.countDown();
+      try {
+        inFlight.await(TIMEOUT, TimeUnit.SECONDS);
+      } catch (InterruptedException exc) {
+        Thread.currentThread().interrupt();
+      }
+      String id = query.substring(query.indexOf(':') + 1).toUpperCase();
+      return "ENTRY       " + id + "                      Compound\nNAME        Compound " + id + "\nFORMULA     H2O\n///";
+    }
+
+  }
+
+  /**
+   * Two lookups of different identifiers must fetch at the same time,
+   * i.e., not while holding the monitor of the shared manager.
+   * @throws Exception
+   */
+  @Test
+  public void testParallelLookups() throws Exception {
+    final BlockingAdaptor adaptor = new BlockingAdaptor(2);
+    final KeggInfoManagement manager = new KeggInfoManagement(10, adaptor);
+    final String[] ids = new String[] {"cpd:C90001", "cpd:C90002"};
+    final KeggInfos[] results = new KeggInfos[ids.length];
+    Thread[] threads = new Thread[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      final int index = i;
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          results[index] = KeggAnnotation.getInfos(ids[index], manager);
+        }
+      });
+      threads[i].start();
+    }
+    long start = System.currentTimeMillis();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(0, adaptor.inFlight.getCount());
+    assertTrue("Lookups did not run in parallel", System.currentTimeMillis() - start < TIMEOUT * 1000L);
+    for (int i = 0; i < ids.length; i++) {
+      assertTrue(results[i].queryWasSuccessfull());
+      assertEquals("H2O", results[i].getFormula());
+    }
+  }
+
+  /**
+   * Fetched information is added to the shared manager, and further
+   * lookups are answered from it without request.
+   */
+  @Test
+  public void testLookupFromCache() {
+    BlockingAdaptor adaptor = new BlockingAdaptor(1);
+    KeggInfoManagement manager = new KeggInfoManagement(10, adaptor);
+    assertTrue(KeggAnnotation.getInfos("cpd:C90003", manager).queryWasSuccessfull());
+    assertEquals(1, adaptor.requests.get());
+
+    synchronized (manager) {
+      KeggInfos cached = KeggCacheProbe.getCached("cpd:C90003", manager);
+      assertTrue((cached != null) && cached.queryWasSuccessfull());
+    }
+    assertTrue(KeggAnnotation.getInfos("cpd:C90003", manager).queryWasSuccessfull());
+    assertEquals(1, adaptor.requests.get());
+    assertTrue(adaptor == manager.getKeggAdaptor());
+  }
+
+}
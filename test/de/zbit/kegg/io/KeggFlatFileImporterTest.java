@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2011-2015 Center for Bioinformatics of the University of Tuebingen.
+ * 
+ * This file is part of KEGGtranslator, a program to convert KGML files from the
+ * KEGG database into various other formats, e.g., SBML, GraphML, and many more.
+ * Please visit <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ * 
+ * KEGGtranslator is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * KEGGtranslator is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with KEGGtranslator. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package de.zbit.kegg.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.zbit.kegg.api.KeggAdaptor;
+import de.zbit.kegg.api.KeggInfos;
+import de.zbit.kegg.api.cache.KeggInfoManagement;
+
+/**
+ * Tests the {@link KeggFlatFileImporter} with the sample flat file and
+ * organism list in {@link #SAMPLE_DIR}, without network requests.
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class KeggFlatFileImporterTest {
+
+  /**
+   * Directory with a sample flat file and organism list.
+   */
+  private static final File SAMPLE_DIR = new File("files/KEGGflatfilesamples");
+
+  /**
+   * Identifiers of the entries in the sample flat file, in file order
+   * ({@code null} for entries that are skipped).
+   */
+  private static final String[] EXPECTED_IDS = new String[] {"cpd:C00031",
+    "hsa:3101", "mmu:15277", "ec:2.7.1.1", "rn:R01786", null, null};
+
+  /**
+   * The annotations are imported into this manager.
+   */
+  private KeggInfoManagement manager;
+
+  /**
+   * The importer to test.
+   */
+  private KeggFlatFileImporter importer;
+
+  /**
+   * Creates an importer for an empty manager.
+   */
+  @Before
+  public void createImporter() {
+    manager = new KeggInfoManagement(100, new KeggAdaptor());
+    importer = new KeggFlatFileImporter(manager);
+    importer.setThreads(2);
+  }
+
+  /**
+   * @return the "ENTRY" line and the organism code of the "ORGANISM"
+   * line (or {@code null}) of all entries in the sample flat file.
+   * @throws Exception
+   */
+  private static List<String[]> readEntryLines() throws Exception {
+    List<String[]> entries = new ArrayList<String[]>();
+    BufferedReader reader = new BufferedReader(new FileReader(new File(SAMPLE_DIR, "entries.txt")));
+    try {
+      String[] entry = null;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith("ENTRY")) {
+          entry = new String[] {line, null};
+        } else if (line.startsWith("ORGANISM")) {
+          entry[1] = line.substring(8).trim().split("\\s+")[0];
+        } else if (line.startsWith("///")) {
+          entries.add(entry);
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return entries;
+  }
+
+  /**
+   * Identifiers from the "ENTRY" lines. Genes are resolved by the
+   * organism list and, for unknown genomes, by the "ORGANISM" line.
+   * @throws Exception
+   */
+  @Test
+  public void testGetKeggId() throws Exception {
+    assertEquals(0, importer.importFiles(new File(SAMPLE_DIR, "organisms.txt")));
+    List<String[]> entries = readEntryLines();
+    assertEquals(EXPECTED_IDS.length, entries.size());
+    for (int i = 0; i < entries.size(); i++) {
+      assertEquals(entries.get(i)[0], EXPECTED_IDS[i], importer.getKeggId(entries.get(i)[0], entries.get(i)[1]));
+    }
+  }
+
+  /**
+   * Without the organism list, genes without "ORGANISM" line are
+   * skipped.
+   */
+  @Test
+  public void testGetKeggIdWithoutOrganismList() {
+    assertNull(importer.getKeggId("ENTRY       3101              CDS       T01001", null));
+    assertEquals("hsa:3101", importer.getKeggId("ENTRY       3101              CDS       T01001", "hsa"));
+    assertNull(importer.getKeggId("ENTRY       C00031", null));
+  }
+
+  /**
+   * All entries with known identifier are imported, the organism list
+   * in the same directory is read first.
+   * @throws Exception
+   */
+  @Test
+  public void testImportFiles() throws Exception {
+    assertEquals(5, importer.importFiles(SAMPLE_DIR));
+    // Only the imported annotations are available, nothing is fetched.
+    manager.setKeggAdaptor(new KeggAdaptor() {
+      @Override
+      public String getWithReturnInformation(String query) {
+        return "";
+      }
+    });
+    for (String id : EXPECTED_IDS) {
+      if (id != null) {
+        KeggInfos infos = manager.getInformation(id);
+        assertNotNull(id, infos);
+        assertTrue(id, infos.queryWasSuccessfull());
+      }
+    }
+    KeggInfos infos = manager.getInformation("hsa:42");
+    assertTrue((infos == null) || !infos.queryWasSuccessfull());
+    assertEquals("C6H12O6", manager.getInformation("cpd:C00031").getFormula());
+  }
+
+}
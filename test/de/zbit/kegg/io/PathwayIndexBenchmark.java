@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2011-2015 Center for Bioinformatics of the University of Tuebingen.
+ * 
+ * This file is part of KEGGtranslator, a program to convert KGML files from the
+ * KEGG database into various other formats, e.g., SBML, GraphML, and many more.
+ * Please visit <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ * 
+ * KEGGtranslator is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * KEGGtranslator is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with KEGGtranslator. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package de.zbit.kegg.io;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.logging.Logger;
+
+import de.zbit.kegg.parser.KeggParser;
+import de.zbit.kegg.parser.pathway.Entry;
+import de.zbit.kegg.parser.pathway.Pathway;
+import de.zbit.kegg.parser.pathway.Reaction;
+import de.zbit.kegg.parser.pathway.ReactionComponent;
+import de.zbit.kegg.parser.pathway.Relation;
+
+/**
+ * Compares the lookups of {@link PathwayIndex} with the lookups of
+ * {@link Pathway}, which they replace in the translators, on the
+ * sample KGML files. Reports the time and (if supported by the JVM)
+ * the allocated bytes per round. This is not a unit test, run it with
+ * <pre>
+ * java de.zbit.kegg.io.PathwayIndexBenchmark [sample directory] [rounds]
+ * </pre>
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class PathwayIndexBenchmark {
+
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final transient Logger log = Logger.getLogger(PathwayIndexBenchmark.class.getName());
+
+  /**
+   * Sample files (map04010hsa.xml is not well-formed).
+   */
+  private static final String[] SAMPLES = new String[] {"hsa00010.xml", "_ko00010.xml",
+    "ko02010.xml", "hsa04010.xml", "_map04010hsa.xml"};
+
+  /**
+   * A lookup loop over a pathway.
+   */
+  private static abstract class Lookup {
+
+    /**
+     * @return the number of found entries (such that the loop cannot
+     * be optimized away).
+     */
+    public abstract int run();
+
+  }
+
+  /**
+   * @param args sample directory (default: files/KGMLsamplefiles) and
+   * number of rounds (default: 10000).
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception {
+    File dir = new File((args.length > 0) ? args[0] : "files/KGMLsamplefiles");
+    int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 10000;
+    for (String sample : SAMPLES) {
+      for (final Pathway p : KeggParser.parse(new File(dir, sample).getPath())) {
+        final PathwayIndex index = new PathwayIndex(p);
+
+        compare(sample, "entry by id", rounds, new Lookup() {
+          @Override
+          public int run() {
+            int found = 0;
+            for (Relation r : p.getRelations()) {
+              found += (p.getEntryForId(r.getEntry1()) != null) ? 1 : 0;
+              found += (p.getEntryForId(r.getEntry2()) != null) ? 1 : 0;
+            }
+            for (Entry e : p.getEntries()) {
+              if (e.hasComponents()) {
+                for (Integer id : e.getComponents()) {
+                  found += (p.getEntryForId(id) != null) ? 1 : 0;
+                }
+              }
+            }
+            return found;
+          }
+        }, new Lookup() {
+          @Override
+          public int run() {
+            int found = 0;
+            for (Relation r : p.getRelations()) {
+              found += (index.getEntryForId(r.getEntry1()) != null) ? 1 : 0;
+              found += (index.getEntryForId(r.getEntry2()) != null) ? 1 : 0;
+            }
+            for (Entry e : p.getEntries()) {
+              if (e.hasComponents()) {
+                for (Integer id : e.getComponents()) {
+                  found += (index.getEntryForId(id) != null) ? 1 : 0;
+                }
+              }
+            }
+            return found;
+          }
+        });
+
+        compare(sample, "entry by reaction component", rounds, new Lookup() {
+          @Override
+          public int run() {
+            int found = 0;
+            for (Reaction r : p.getReactions()) {
+              for (ReactionComponent rc : r.getSubstrates()) {
+                found += (p.getEntryForReactionComponent(rc) != null) ? 1 : 0;
+              }
+              for (ReactionComponent rc : r.getProducts()) {
+                found += (p.getEntryForReactionComponent(rc) != null) ? 1 : 0;
+              }
+            }
+            return found;
+          }
+        }, new Lookup() {
+          @Override
+          public int run() {
+            int found = 0;
+            for (Reaction r : p.getReactions()) {
+              for (ReactionComponent rc : r.getSubstrates()) {
+                found += (index.getEntryForReactionComponent(rc) != null) ? 1 : 0;
+              }
+              for (ReactionComponent rc : r.getProducts()) {
+                found += (index.getEntryForReactionComponent(rc) != null) ? 1 : 0;
+              }
+            }
+            return found;
+          }
+        });
+
+        compare(sample, "reactions for entry", rounds, new Lookup() {
+          @Override
+          public int run() {
+            int found = 0;
+            for (Entry e : p.getEntries()) {
+              found += p.getReactionsForEntry(e).size();
+            }
+            return found;
+          }
+        }, new Lookup() {
+          @Override
+          public int run() {
+            int found = 0;
+            for (Entry e : p.getEntries()) {
+              found += index.getReactionsForEntry(e).size();
+            }
+            return found;
+          }
+        });
+      }
+    }
+  }
+
+  /**
+   * Runs both lookups for the given number of rounds (after the same
+   * number of warm-up rounds) and logs the time and allocated bytes
+   * per round.
+   * @param sample
+   * @param name
+   * @param rounds
+   * @param pathwayLookup
+   * @param indexLookup
+   */
+  private static void compare(String sample, String name, int rounds, Lookup pathwayLookup, Lookup indexLookup) {
+    long[] withPathway = measure(pathwayLookup, rounds);
+    long[] withIndex = measure(indexLookup, rounds);
+    if (withPathway[2] != withIndex[2]) {
+      log.warning(String.format("%s, %s: %d entries found with Pathway, but %d with PathwayIndex.",
+        sample, name, withPathway[2], withIndex[2]));
+    }
+    log.info(String.format("%s, %s: Pathway %.1f us and %d bytes, PathwayIndex %.1f us and %d bytes per round.",
+      sample, name, withPathway[0] / 1E3, withPathway[1], withIndex[0] / 1E3, withIndex[1]));
+  }
+
+  /**
+   * @param lookup
+   * @param rounds
+   * @return nanoseconds per round, allocated bytes per round (-1 if
+   * not supported) and the number of found entries per round.
+   */
+  private static long[] measure(Lookup lookup, int rounds) {
+    int found = 0;
+    for (int i = 0; i < rounds; i++) {
+      found = lookup.run();
+    }
+    long bytes = getAllocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < rounds; i++) {
+      lookup.run();
+    }
+    long time = System.nanoTime() - start;
+    long allocated = (bytes < 0) ? -1 : (getAllocatedBytes() - bytes) / rounds;
+    return new long[] {time / rounds, allocated, found};
+  }
+
+  /**
+   * @return the number of bytes allocated by the current thread, or -1
+   * if the JVM does not support this.
+   */
+  private static long getAllocatedBytes() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2011-2015 Center for Bioinformatics of the University of Tuebingen.
+ * 
+ * This file is part of KEGGtranslator, a program to convert KGML files from the
+ * KEGG database into various other formats, e.g., SBML, GraphML, and many more.
+ * Please visit <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ * 
+ * KEGGtranslator is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * KEGGtranslator is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with KEGGtranslator. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package de.zbit.kegg.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.zbit.kegg.parser.KeggParser;
+import de.zbit.kegg.parser.pathway.Entry;
+import de.zbit.kegg.parser.pathway.Pathway;
+import de.zbit.kegg.parser.pathway.Reaction;
+import de.zbit.kegg.parser.pathway.ReactionComponent;
+import de.zbit.util.KeggIdTokenizer;
+
+/**
+ * Compares the lookups of {@link PathwayIndex} with the lookups of
+ * {@link Pathway}, on which they are based, for the sample KGML files.
+ * The timing of both lookups is measured by {@link PathwayIndexBenchmark}.
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class PathwayIndexTest {
+
+  /**
+   * Directory with sample KGML files.
+   */
+  private static final File SAMPLE_DIR = new File("files/KGMLsamplefiles");
+
+  /**
+   * Sample files (map04010hsa.xml is not well-formed).
+   */
+  private static final String[] SAMPLES = new String[] {"hsa00010.xml", "_ko00010.xml",
+    "aac02010.xml", "ko02010.xml", "hsa04010.xml", "map04010.xml", "_map04010hsa.xml",
+    "hsa04115.xml", "hsa04310.xml", "hsa05212.xml"};
+
+  /**
+   * All pathways of all sample files.
+   */
+  private static List<Pathway> pathways;
+
+  /**
+   * @throws Exception
+   */
+  @BeforeClass
+  public static void parseSamples() throws Exception {
+    pathways = new ArrayList<Pathway>();
+    for (String sample : SAMPLES) {
+      pathways.addAll(KeggParser.parse(new File(SAMPLE_DIR, sample).getPath()));
+    }
+    assertFalse(pathways.isEmpty());
+  }
+
+  /**
+   * Entries by id and by {@link ReactionComponent}.
+   */
+  @Test
+  public void testEntryLookups() {
+    for (Pathway p : pathways) {
+      PathwayIndex index = new PathwayIndex(p);
+      for (Entry e : p.getEntries()) {
+        assertSame(p.getEntryForId(e.getId()), index.getEntryForId(e.getId()));
+      }
+      assertSame(null, index.getEntryForId(-1));
+      assertSame(null, index.getEntryForId(index.getIdBound()));
+      for (Reaction r : p.getReactions()) {
+        for (ReactionComponent rc : getComponents(r)) {
+          assertSame(p.getEntryForReactionComponent(rc), index.getEntryForReactionComponent(rc));
+        }
+      }
+    }
+  }
+
+  /**
+   * Reactions, in which an entry is a substrate or product.
+   */
+  @Test
+  public void testReactionsForEntry() {
+    for (Pathway p : pathways) {
+      PathwayIndex index = new PathwayIndex(p);
+      for (Entry e : p.getEntries()) {
+        Set<Reaction> expected = new HashSet<Reaction>(p.getReactionsForEntry(e));
+        assertEquals(p.getName() + " " + e.getName(), expected, index.getReactionsForEntry(e));
+      }
+    }
+  }
+
+  /**
+   * Entries that catalyze a reaction.
+   */
+  @Test
+  public void testModifiersForReaction() {
+    for (Pathway p : pathways) {
+      PathwayIndex index = new PathwayIndex(p);
+      for (Reaction r : p.getReactions()) {
+        Set<Entry> expected = new LinkedHashSet<Entry>();
+        for (Entry e : p.getEntries()) {
+          if (e.hasReaction()) {
+            for (String reaction : e.getReactions()) {
+              if (KeggIdTokenizer.normalize(reaction).equals(KeggIdTokenizer.normalize(r.getName()))) {
+                expected.add(e);
+              }
+            }
+          }
+        }
+        assertEquals(p.getName() + " " + r.getName(), new ArrayList<Entry>(expected), index.getModifiersForReaction(r));
+      }
+    }
+  }
+
+  /**
+   * {@link KEGG2yGraph#directRelation(Entry, Entry, PathwayIndex)} with
+   * and without index for all pairs of entries with reactions.
+   */
+  @Test
+  public void testDirectRelation() {
+    for (Pathway p : pathways) {
+      PathwayIndex index = new PathwayIndex(p);
+      List<Entry> entries = getEntriesWithReactions(p, index);
+      for (Entry one : entries) {
+        for (Entry two : entries) {
+          assertEquals(one.getName() + " " + two.getName(),
+            KEGG2yGraph.directRelation(one, two), KEGG2yGraph.directRelation(one, two, index));
+        }
+      }
+    }
+  }
+
+  /**
+   * @param r
+   * @return all substrates and products of the given reaction.
+   */
+  private static List<ReactionComponent> getComponents(Reaction r) {
+    List<ReactionComponent> components = new ArrayList<ReactionComponent>(r.getSubstrates());
+    components.addAll(r.getProducts());
+    return components;
+  }
+
+  /**
+   * @param p
+   * @param index
+   * @return all entries that are substrate or product of a reaction.
+   */
+  private static List<Entry> getEntriesWithReactions(Pathway p, PathwayIndex index) {
+    List<Entry> entries = new ArrayList<Entry>();
+    for (Entry e : p.getEntries()) {
+      Collection<Reaction> reactions = index.getReactionsForEntry(e);
+      if (!reactions.isEmpty()) {
+        entries.add(e);
+      }
+    }
+    return entries;
+  }
+
+}
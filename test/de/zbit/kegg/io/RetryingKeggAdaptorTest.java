@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2011-2015 Center for Bioinformatics of the University of Tuebingen.
+ * 
+ * This file is part of KEGGtranslator, a program to convert KGML files from the
+ * KEGG database into various other formats, e.g., SBML, GraphML, and many more.
+ * Please visit <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ * 
+ * KEGGtranslator is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * KEGGtranslator is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with KEGGtranslator. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package de.zbit.kegg.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import de.zbit.cache.InfoManagement;
+import de.zbit.kegg.api.cache.KeggInfoManagement;
+
+/**
+ * Tests the fail cache handling and saving of {@link RetryingKeggAdaptor}
+ * without network requests (identifiers starting with "unknown" are
+ * rejected by the {@link KeggInfoManagement} itself).
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class RetryingKeggAdaptorTest {
+
+  /**
+   * The fail cache of the manager is moved to the adaptor, which then
+   * answers the queries without request.
+   * @throws Exception
+   */
+  @Test
+  public void testMoveFailCache() throws Exception {
+    RetryingKeggAdaptor adaptor = new RetryingKeggAdaptor();
+    KeggInfoManagement manager = new KeggInfoManagement(10, adaptor);
+    manager.getInformation("unknown:1");
+    manager.getInformation("unknown:2");
+
+    assertEquals(2, adaptor.moveFailCache(manager));
+    assertEquals(2, adaptor.getNumberOfNotFound());
+    assertTrue(adaptor.hasChanged());
+    assertEquals("", adaptor.getWithReturnInformation("unknown:1"));
+
+    // Already remembered identifiers are not moved again
+    manager.getInformation("unknown:1");
+    assertEquals(0, adaptor.moveFailCache(manager));
+    assertEquals(2, adaptor.getNumberOfNotFound());
+  }
+
+  /**
+   * Saving the manager twice keeps its adaptor and writes the queries
+   * that have not been found.
+   * @throws Exception
+   */
+  @Test
+  public void testSaveManagerTwice() throws Exception {
+    File cacheFile = File.createTempFile("keggdb", ".dat");
+    File notFoundFile = File.createTempFile("keggnf", ".dat");
+    cacheFile.deleteOnExit();
+    notFoundFile.deleteOnExit();
+
+    RetryingKeggAdaptor adaptor = new RetryingKeggAdaptor();
+    KeggInfoManagement manager = new KeggInfoManagement(10, adaptor);
+    for (int i = 1; i <= 2; i++) {
+      manager.getInformation("unknown:" + i);
+      adaptor.moveFailCache(manager);
+
+      assertTrue(RetryingKeggAdaptor.saveManager(manager, cacheFile.getPath(), notFoundFile));
+      assertSame(adaptor, manager.getKeggAdaptor());
+      assertTrue(!adaptor.hasChanged());
+
+      RetryingKeggAdaptor loaded = new RetryingKeggAdaptor();
+      assertTrue(loaded.load(notFoundFile));
+      assertEquals(i, loaded.getNumberOfNotFound());
+      assertTrue(InfoManagement.loadFromFilesystem(cacheFile.getPath()) instanceof KeggInfoManagement);
+    }
+  }
+
+  /**
+   * A missing file is no error.
+   */
+  @Test
+  public void testLoadMissingFile() {
+    assertTrue(new RetryingKeggAdaptor().load(new File("does-not-exist-keggnf.dat")));
+  }
+
+}
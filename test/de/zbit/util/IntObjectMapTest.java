@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2011-2015 Center for Bioinformatics of the University of Tuebingen.
+ * 
+ * This file is part of KEGGtranslator, a program to convert KGML files from the
+ * KEGG database into various other formats, e.g., SBML, GraphML, and many more.
+ * Please visit <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ * 
+ * KEGGtranslator is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * KEGGtranslator is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with KEGGtranslator. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package de.zbit.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link IntObjectMap}, in particular the removal with
+ * backward shifting in probe sequences that wrap around the end of the
+ * table.
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class IntObjectMapTest {
+
+  /**
+   * Same as {@code IntObjectMap#mix(int)}.
+   * @param key
+   * @return
+   */
+  private static int mix(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @param home
+   * @param mask
+   * @param count
+   * @return {@code count} keys, whose home slot is {@code home}.
+   */
+  private static List<Integer> keysWithHomeSlot(int home, int mask, int count) {
+    List<Integer> keys = new ArrayList<Integer>();
+    for (int key = 0; keys.size() < count; key++) {
+      if ((mix(key) & mask) == home) {
+        keys.add(key);
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Keys of absent mappings yield {@code null}, also for key 0, which
+   * is the initial content of all key slots.
+   */
+  @Test
+  public void testAbsentKey() {
+    IntObjectMap<String> map = new IntObjectMap<String>();
+    assertNull(map.get(0));
+    assertNull(map.get(42));
+    assertFalse(map.containsKey(0));
+    assertNull(map.remove(42));
+    assertTrue(map.isEmpty());
+
+    map.put(1, "a");
+    assertNull(map.get(0));
+    assertNull(map.get(-1));
+    assertNull(map.remove(2));
+    assertEquals(1, map.size());
+
+    // Putting null removes the key
+    assertEquals("a", map.put(1, null));
+    assertNull(map.get(1));
+    assertTrue(map.isEmpty());
+  }
+
+  /**
+   * Removing the first key of a probe sequence that wraps around the
+   * end of the table must keep all following keys reachable.
+   */
+  @Test
+  public void testRemoveWithWraparound() {
+    // Capacity 16, such that no resize happens for 3 keys
+    IntObjectMap<String> map = new IntObjectMap<String>(8);
+    int mask = 15;
+    List<Integer> keys = keysWithHomeSlot(mask, mask, 3);
+    List<Integer> others = keysWithHomeSlot(0, mask, 1);
+    for (int key : keys) {
+      map.put(key, "k" + key);
+    }
+    // Occupies slot 2, behind the wrapped keys in slots 15, 0 and 1
+    int other = others.get(0);
+    map.put(other, "o");
+
+    assertEquals("k" + keys.get(0), map.remove(keys.get(0)));
+    assertNull(map.get(keys.get(0)));
+    assertEquals("k" + keys.get(1), map.get(keys.get(1)));
+    assertEquals("k" + keys.get(2), map.get(keys.get(2)));
+    assertEquals("o", map.get(other));
+    assertEquals(3, map.size());
+
+    assertEquals("k" + keys.get(2), map.remove(keys.get(2)));
+    assertEquals("k" + keys.get(1), map.get(keys.get(1)));
+    assertEquals("o", map.get(other));
+    assertEquals(2, map.size());
+  }
+
+  /**
+   * All mappings survive growing the table.
+   */
+  @Test
+  public void testResize() {
+    IntObjectMap<Integer> map = new IntObjectMap<Integer>(1);
+    for (int i = 0; i < 10000; i++) {
+      assertNull(map.put(i * 7, i));
+    }
+    assertEquals(10000, map.size());
+    for (int i = 0; i < 10000; i++) {
+      assertEquals(Integer.valueOf(i), map.get(i * 7));
+      assertFalse(map.containsKey(i * 7 + 1));
+    }
+    assertEquals(Integer.valueOf(5), map.put(35, -5));
+    assertEquals(10000, map.size());
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertNull(map.get(35));
+  }
+
+  /**
+   * Random operations give the same results as a {@link HashMap}.
+   */
+  @Test
+  public void testAgainstHashMap() {
+    Random random = new Random(42);
+    IntObjectMap<Integer> map = new IntObjectMap<Integer>();
+    Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+    for (int i = 0; i < 200000; i++) {
+      // Few keys, such that removals and collisions are frequent
+      int key = random.nextInt(512) - 64;
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(key), map.remove(key));
+      } else {
+        assertEquals(expected.put(key, i), map.put(key, i));
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    for (int key = -64; key < 448; key++) {
+      assertEquals(expected.get(key), map.get(key));
+    }
+  }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2011-2015 Center for Bioinformatics of the University of Tuebingen.
+ * 
+ * This file is part of KEGGtranslator, a program to convert KGML files from the
+ * KEGG database into various other formats, e.g., SBML, GraphML, and many more.
+ * Please visit <http://www.cogsys.cs.uni-tuebingen.de/software/KEGGtranslator> to
+ * obtain the latest version of KEGGtranslator.
+ * 
+ * KEGGtranslator is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * KEGGtranslator is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with KEGGtranslator. If not, see
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package de.zbit.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link KeggIdTokenizer}. All methods are compared with the
+ * {@link String#split(String)}, {@code toLowerCase()} and {@code trim()}
+ * expressions they replace, on typical KEGG identifiers and on random
+ * strings of separators, letters and prefixes.
+ *
+ * @version $Rev$
+ * @since 2.6
+ */
+public class KeggIdTokenizerTest {
+
+  /**
+   * Typical identifiers and lists, including multiple, leading and
+   * trailing separators.
+   */
+  private static final String[] SAMPLES = new String[] {"", " ", "  ",
+    "hsa:1", "hsa:10 hsa:100", "  hsa:10   hsa:100  ", "ko:K00844 ko:K12407 ",
+    " cpd:C00031", "CPD:C00031", "path:hsa00010", "PATH:map00010", "Path:",
+    "group:", "title:Glycolysis", "undefined", " Undefined ", "null",
+    "rn:R01070 rn:R01068", "R01070\tR01068\nR01071", "9606 \t 9606",
+    "GO:0006096,GO:0005737", "a, b,c ,d", "glucose; D-glucose, dextrose;",
+    ";;a; ;b;", "1,2-diol; 2,3-diol, x", ", ; ,", "\u00C4pfel; ABC "};
+
+  /**
+   * @param tokens
+   * @return all tokens that are not empty.
+   */
+  private static String[] nonEmpty(String[] tokens) {
+    List<String> list = new ArrayList<String>();
+    for (String token : tokens) {
+      if (token.length() > 0) {
+        list.add(token);
+      }
+    }
+    return list.toArray(new String[list.size()]);
+  }
+
+  /**
+   * @param tokens
+   * @return all tokens that do not consist of whitespace only.
+   */
+  private static String[] nonBlank(String[] tokens) {
+    List<String> list = new ArrayList<String>();
+    for (String token : tokens) {
+      if (token.trim().length() > 0) {
+        list.add(token);
+      }
+    }
+    return list.toArray(new String[list.size()]);
+  }
+
+  /**
+   * Compares all methods with the expressions they replace.
+   * @param s
+   */
+  private static void assertSameAsRegex(String s) {
+    String message = "\"" + s + "\"";
+    assertArrayEquals(message, nonEmpty(s.split(" ")), KeggIdTokenizer.split(s, ' '));
+    assertArrayEquals(message, nonEmpty(s.split("\\s")), KeggIdTokenizer.splitAtWhitespace(s));
+    assertArrayEquals(message, nonEmpty(s.split(",|\\s")), KeggIdTokenizer.split(s, "," + KeggIdTokenizer.WHITESPACE));
+    assertArrayEquals(message, nonBlank(s.split("((;)|(,\\s))")), KeggIdTokenizer.splitNames(s));
+    assertEquals(message, s.toLowerCase().trim(), KeggIdTokenizer.normalize(s));
+    for (String prefix : new String[] {KeggIdTokenizer.COMPOUND, KeggIdTokenizer.PATHWAY,
+        KeggIdTokenizer.GROUP, KeggIdTokenizer.TITLE, "undefined"}) {
+      assertEquals(message + " " + prefix, s.toLowerCase().trim().startsWith(prefix),
+        KeggIdTokenizer.hasPrefix(s, prefix));
+    }
+    for (String other : new String[] {"undefined", "null", "hsa:1", ""}) {
+      assertEquals(message + " " + other, s.trim().equalsIgnoreCase(other),
+        KeggIdTokenizer.equalsTrimmedIgnoreCase(s, other));
+    }
+  }
+
+  /**
+   * Typical KEGG identifiers and lists.
+   */
+  @Test
+  public void testSamples() {
+    for (String s : SAMPLES) {
+      assertSameAsRegex(s);
+    }
+  }
+
+  /**
+   * Random strings of separators, letters and prefix characters.
+   */
+  @Test
+  public void testRandom() {
+    char[] chars = " \t\n,;:aBcpdP".toCharArray();
+    Random random = new Random(42);
+    for (int i = 0; i < 20000; i++) {
+      char[] s = new char[random.nextInt(12)];
+      for (int j = 0; j < s.length; j++) {
+        s[j] = chars[random.nextInt(chars.length)];
+      }
+      assertSameAsRegex(new String(s));
+    }
+  }
+
+  /**
+   * Splitting at a single separator, with multiple, leading and trailing
+   * separators.
+   */
+  @Test
+  public void testSplit() {
+    assertArrayEquals(new String[] {"hsa:10", "hsa:100"}, KeggIdTokenizer.split("  hsa:10   hsa:100 ", ' '));
+    assertArrayEquals(new String[] {"R01070", "R01068"}, KeggIdTokenizer.splitAtWhitespace("R01070\t\nR01068"));
+    assertArrayEquals(new String[] {"glucose", " D-glucose", "dextrose"},
+      KeggIdTokenizer.splitNames("glucose; D-glucose, dextrose;"));
+    assertEquals(0, KeggIdTokenizer.split(null, ' ').length);
+    assertEquals(0, KeggIdTokenizer.split("   ", ' ').length);
+    assertEquals(0, KeggIdTokenizer.splitNames(" ; ;").length);
+  }
+
+  /**
+   * A single token is returned without copying.
+   */
+  @Test
+  public void testSplitSingleToken() {
+    String id = "hsa:10";
+    assertSame(id, KeggIdTokenizer.split(id, ' ')[0]);
+    assertSame(id, KeggIdTokenizer.splitNames(id)[0]);
+  }
+
+  /**
+   * Prefixes ignore case and leading whitespace.
+   */
+  @Test
+  public void testHasPrefix() {
+    assertTrue(KeggIdTokenizer.hasPrefix(" CPD:C00031", KeggIdTokenizer.COMPOUND));
+    assertTrue(KeggIdTokenizer.hasPrefix("Path:", KeggIdTokenizer.PATHWAY));
+    assertFalse(KeggIdTokenizer.hasPrefix("cpd", KeggIdTokenizer.COMPOUND));
+    assertFalse(KeggIdTokenizer.hasPrefix("gl:G00001", KeggIdTokenizer.COMPOUND));
+    assertFalse(KeggIdTokenizer.hasPrefix(null, KeggIdTokenizer.COMPOUND));
+  }
+
+  /**
+   * Normalized identifiers are returned as they are, all others are
+   * lower-cased and trimmed.
+   */
+  @Test
+  public void testNormalize() {
+    String id = "rn:r01070";
+    assertSame(id, KeggIdTokenizer.normalize(id));
+    assertEquals("rn:r01070", KeggIdTokenizer.normalize(" RN:R01070\t"));
+    assertEquals("\u00E4pfel", KeggIdTokenizer.normalize("\u00C4pfel"));
+    assertEquals("", KeggIdTokenizer.normalize(" "));
+    assertNull(KeggIdTokenizer.normalize(null));
+  }
+
+  /**
+   * "undefined" and "null" name parts.
+   */
+  @Test
+  public void testIsUndefined() {
+    assertTrue(KeggIdTokenizer.isUndefined(" Undefined "));
+    assertTrue(KeggIdTokenizer.isUndefined("NULL"));
+    assertFalse(KeggIdTokenizer.isUndefined("undefined2"));
+    assertFalse(KeggIdTokenizer.isUndefined(null));
+  }
+
+}